@@ -50,10 +50,13 @@
 import org.apache.calcite.linq4j.tree.MethodDeclaration;
 import org.apache.calcite.linq4j.tree.ParameterExpression;
 import org.apache.calcite.linq4j.tree.Primitive;
+import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
 import org.polypheny.db.rel.core.JoinRelType;
 import org.polypheny.db.rel.type.RelDataType;
 import org.polypheny.db.rel.type.RelDataTypeField;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexLiteral;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.sql.SemiJoinType;
 import org.polypheny.db.util.BuiltInMethod;
@@ -279,5 +282,27 @@ static Expression enforce( final Type storageType, final Expression e ) {
         return e;
     }
 
-}
 
+    /**
+     * Returns the value of an offset or fetch if it is a literal, otherwise the given default value.
+     */
+    static int intValue( RexNode node, int defaultValue ) {
+        return node instanceof RexLiteral ? RexLiteral.intValue( node ) : defaultValue;
+    }
+
+
+    /**
+     * Generates an expression computing the value of an offset or fetch, which is either a literal or a dynamic parameter.
+     */
+    static Expression intExpression( RexNode node ) {
+        if ( node instanceof RexDynamicParam ) {
+            final RexDynamicParam param = (RexDynamicParam) node;
+            return Expressions.convert_(
+                    Expressions.call( DataContext.ROOT, BuiltInMethod.DATA_CONTEXT_GET_PARAMETER_VALUE.method, Expressions.constant( param.getIndex() ) ),
+                    Integer.class );
+        } else {
+            return Expressions.constant( RexLiteral.intValue( node ) );
+        }
+    }
+
+}
@@ -365,12 +365,15 @@ public RexToLixTranslator rowTranslator() {
                     Expressions.return_(
                             null,
                             Expressions.call(
-                                    childExp,
-                                    BuiltInMethod.GROUP_BY2.method,
-                                    Expressions.list( keySelector_,
+                                    BuiltInMethod.SPILLING_GROUP_BY.method,
+                                    Expressions.list( childExp,
+                                            keySelector_,
                                             Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_INITIALIZER.method ),
                                             Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_ADDER.method ),
-                                            Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_RESULT_SELECTOR.method, resultSelector_ ) ).appendIfNotNull( keyPhysType.comparer() ) ) ) );
+                                            Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_RESULT_SELECTOR.method, resultSelector_ ),
+                                            Util.first( keyPhysType.comparer(), Expressions.constant( null ) ),
+                                            implementor.getRootExpression(),
+                                            Expressions.constant( getCluster().getMetadataQuery().splitCount( this ) ) ) ) ) );
         }
         return implementor.result( physType, builder.toBlock() );
     }
@@ -166,16 +166,18 @@ public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
                 physType,
                 builder.append(
                         Expressions.call(
-                                leftExpression,
-                                BuiltInMethod.JOIN.method,
+                                BuiltInMethod.SPILLING_JOIN.method,
                                 Expressions.list(
+                                        leftExpression,
                                         rightExpression,
                                         leftResult.physType.generateAccessor( leftKeys ),
                                         rightResult.physType.generateAccessor( rightKeys ),
                                         EnumUtils.joinSelector( joinType, physType, ImmutableList.of( leftResult.physType, rightResult.physType ) ) )
                                         .append( Util.first( keyPhysType.comparer(), Expressions.constant( null ) ) )
                                         .append( Expressions.constant( joinType.generatesNullsOnLeft() ) )
-                                        .append( Expressions.constant( joinType.generatesNullsOnRight() ) ) ) )
+                                        .append( Expressions.constant( joinType.generatesNullsOnRight() ) )
+                                        .append( implementor.getRootExpression() )
+                                        .append( Expressions.constant( getCluster().getMetadataQuery().splitCount( this ) ) ) ) )
                         .toBlock() );
     }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import com.google.common.collect.ImmutableList;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.java.JavaTypeFactory;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelCollation;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.RelWriter;
+import org.polypheny.db.rel.SingleRel;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexProgram;
+import org.polypheny.db.sql.validate.SqlConformance;
+import org.polypheny.db.sql.validate.SqlConformanceEnum;
+import org.polypheny.db.util.BuiltInMethod;
+import org.polypheny.db.util.Pair;
+
+
+/**
+ * Projects its input and returns the {@code fetch} first rows according to a collation, like a {@code Sort} with a fetch
+ * on top of a {@code Project}. It is used for k-nearest-neighbour queries, which order by a distance computed in the
+ * projection (see {@link EnumerableKnnRule}).
+ *
+ * Instead of projecting and sorting all rows, only the first {@code offset + fetch} rows are kept in a bounded heap.
+ * The projection, which includes the distance computation, is evaluated in parallel on chunks of the input.
+ */
+public class EnumerableKnn extends SingleRel implements EnumerableRel {
+
+    public final ImmutableList<RexNode> exps;
+    public final RelCollation collation;
+    public final RexNode offset;
+    public final RexNode fetch;
+
+
+    /**
+     * Creates an EnumerableKnn.
+     *
+     * Use {@link #create} unless you know what you're doing.
+     */
+    public EnumerableKnn( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, List<? extends RexNode> exps, RelDataType rowType, RelCollation collation, RexNode offset, RexNode fetch ) {
+        super( cluster, traitSet, input );
+        this.exps = ImmutableList.copyOf( exps );
+        this.rowType = rowType;
+        this.collation = collation;
+        this.offset = offset;
+        this.fetch = Objects.requireNonNull( fetch );
+        assert getConvention() instanceof EnumerableConvention;
+        assert getConvention() == input.getConvention();
+    }
+
+
+    /**
+     * Creates an EnumerableKnn.
+     */
+    public static EnumerableKnn create( RelNode input, List<? extends RexNode> exps, RelDataType rowType, RelCollation collation, RexNode offset, RexNode fetch ) {
+        final RelOptCluster cluster = input.getCluster();
+        final RelTraitSet traitSet = cluster.traitSetOf( EnumerableConvention.INSTANCE ).replace( collation );
+        return new EnumerableKnn( cluster, traitSet, input, exps, rowType, collation, offset, fetch );
+    }
+
+
+    @Override
+    public EnumerableKnn copy( RelTraitSet traitSet, List<RelNode> inputs ) {
+        return new EnumerableKnn( getCluster(), traitSet, sole( inputs ), exps, rowType, collation, offset, fetch );
+    }
+
+
+    @Override
+    public String relCompareString() {
+        return this.getClass().getSimpleName() + "$" +
+                input.relCompareString() + "$" +
+                exps.stream().map( Objects::hashCode ).map( Objects::toString ).collect( Collectors.joining( "$" ) ) + "$" +
+                collation.getFieldCollations().stream().map( Objects::toString ).collect( Collectors.joining( "$" ) ) + "$" +
+                (offset != null ? offset.hashCode() : "") + "$" +
+                fetch.hashCode() + "&";
+    }
+
+
+    @Override
+    public RelWriter explainTerms( RelWriter pw ) {
+        return super.explainTerms( pw )
+                .item( "exprs", exps )
+                .item( "collation", collation )
+                .itemIf( "offset", offset, offset != null )
+                .item( "fetch", fetch );
+    }
+
+
+    @Override
+    public double estimateRowCount( RelMetadataQuery mq ) {
+        final double rowCount = Math.max( mq.getRowCount( getInput() ) - EnumUtils.intValue( offset, 0 ), 0 );
+        return Math.min( rowCount, EnumUtils.intValue( fetch, Integer.MAX_VALUE ) );
+    }
+
+
+    /**
+     * The cost of projecting all input rows plus maintaining a heap of {@code offset + fetch} rows.
+     */
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        final double inputRowCount = mq.getRowCount( getInput() );
+        final double heapSize = Math.min( (double) EnumUtils.intValue( offset, 0 ) + EnumUtils.intValue( fetch, Integer.MAX_VALUE ), inputRowCount );
+        final double cpu = inputRowCount * (exps.size() + Math.log( Math.max( heapSize, 2 ) ));
+        return planner.getCostFactory().makeCost( inputRowCount, cpu, 0 );
+    }
+
+
+    @Override
+    public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
+        final JavaTypeFactory typeFactory = implementor.getTypeFactory();
+        final BlockBuilder builder = new BlockBuilder();
+        final EnumerableRel child = (EnumerableRel) getInput();
+        final Result result = implementor.visitChild( this, 0, child, pref );
+        final PhysType physType = PhysTypeImpl.of( typeFactory, getRowType(), pref.prefer( result.format ) );
+        final Expression childExp = builder.append( "child", result.block );
+
+        // Function1<InputRow, OutputRow> projector = row -> <<projection of row>>
+        final Type inputJavaType = result.physType.getJavaRowType();
+        final ParameterExpression row = Expressions.parameter( inputJavaType, "row" );
+        final RexProgram program = RexProgram.create( getInput().getRowType(), exps, null, getRowType(), getCluster().getRexBuilder() );
+        final SqlConformance conformance = (SqlConformance) implementor.map.getOrDefault( "_conformance", SqlConformanceEnum.DEFAULT );
+        final BlockBuilder projectBuilder = new BlockBuilder();
+        final List<Expression> expressions =
+                RexToLixTranslator.translateProjects(
+                        program,
+                        typeFactory,
+                        conformance,
+                        projectBuilder,
+                        physType,
+                        DataContext.ROOT,
+                        new RexToLixTranslator.InputGetterImpl( Collections.singletonList( Pair.of( row, result.physType ) ) ),
+                        implementor.allCorrelateVariables );
+        projectBuilder.add( Expressions.return_( null, physType.record( expressions ) ) );
+        final Expression projector = builder.append( "projector", Expressions.lambda( Function1.class, projectBuilder.toBlock(), row ) );
+
+        final Pair<Expression, Expression> pair = physType.generateCollationKey( collation.getFieldCollations() );
+        final Expression keySelector = builder.append( "keySelector", pair.left );
+        final Expression comparator = pair.right != null ? builder.append( "comparator", pair.right ) : Expressions.constant( null );
+
+        builder.add(
+                Expressions.return_( null,
+                        Expressions.call(
+                                BuiltInMethod.TOP_K.method,
+                                childExp,
+                                projector,
+                                keySelector,
+                                comparator,
+                                offset != null ? EnumUtils.intExpression( offset ) : Expressions.constant( 0 ),
+                                EnumUtils.intExpression( fetch ) ) ) );
+        return implementor.result( physType, builder.toBlock() );
+    }
+
+}
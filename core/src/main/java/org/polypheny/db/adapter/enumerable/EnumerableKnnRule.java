@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import org.polypheny.db.plan.RelOptRule;
+import org.polypheny.db.plan.RelOptRuleCall;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.logical.LogicalProject;
+import org.polypheny.db.rel.logical.LogicalSort;
+import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexOver;
+import org.polypheny.db.rex.RexUtil;
+import org.polypheny.db.sql.fun.SqlDistanceFunction;
+
+
+/**
+ * Rule to convert a {@link LogicalSort} with a fetch, whose first sort key is a {@code DISTANCE} call computed by a
+ * {@link LogicalProject}, into an {@link EnumerableKnn}.
+ */
+class EnumerableKnnRule extends RelOptRule {
+
+    EnumerableKnnRule() {
+        super( operand( LogicalSort.class, operand( LogicalProject.class, any() ) ), "EnumerableKnnRule" );
+    }
+
+
+    @Override
+    public void onMatch( RelOptRuleCall call ) {
+        final LogicalSort sort = call.rel( 0 );
+        final LogicalProject project = call.rel( 1 );
+        if ( sort.fetch == null || sort.getCollation().getFieldCollations().isEmpty() ) {
+            return;
+        }
+        final RexNode key = project.getProjects().get( sort.getCollation().getFieldCollations().get( 0 ).getFieldIndex() );
+        if ( !(key instanceof RexCall) || !(((RexCall) key).getOperator() instanceof SqlDistanceFunction) ) {
+            return;
+        }
+        // The projection is evaluated in parallel and for each row exactly once
+        if ( RexOver.containsOver( project.getProjects(), null ) ) {
+            return;
+        }
+        for ( RexNode exp : project.getProjects() ) {
+            if ( !RexUtil.isDeterministic( exp ) || RexUtil.containsCorrelation( exp ) ) {
+                return;
+            }
+        }
+        final RelNode input = convert( project.getInput(), project.getInput().getTraitSet().replace( EnumerableConvention.INSTANCE ) );
+        call.transformTo( EnumerableKnn.create( input, project.getProjects(), project.getRowType(), sort.getCollation(), sort.offset, sort.fetch ) );
+    }
+
+}
@@ -38,7 +38,6 @@
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
-import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.plan.RelOptCluster;
 import org.polypheny.db.plan.RelTraitSet;
 import org.polypheny.db.rel.RelCollationTraitDef;
@@ -49,8 +48,6 @@
 import org.polypheny.db.rel.metadata.RelMdCollation;
 import org.polypheny.db.rel.metadata.RelMdDistribution;
 import org.polypheny.db.rel.metadata.RelMetadataQuery;
-import org.polypheny.db.rex.RexDynamicParam;
-import org.polypheny.db.rex.RexLiteral;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.util.BuiltInMethod;
 
@@ -126,28 +123,16 @@ public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
         if ( offset != null ) {
             v = builder.append(
                     "offset",
-                    Expressions.call( v, BuiltInMethod.SKIP.method, getExpression( offset ) ) );
+                    Expressions.call( v, BuiltInMethod.SKIP.method, EnumUtils.intExpression( offset ) ) );
         }
         if ( fetch != null ) {
             v = builder.append(
                     "fetch",
-                    Expressions.call( v, BuiltInMethod.TAKE.method, getExpression( fetch ) ) );
+                    Expressions.call( v, BuiltInMethod.TAKE.method, EnumUtils.intExpression( fetch ) ) );
         }
 
         builder.add( Expressions.return_( null, v ) );
         return implementor.result( physType, builder.toBlock() );
     }
-
-
-    private static Expression getExpression( RexNode offset ) {
-        if ( offset instanceof RexDynamicParam ) {
-            final RexDynamicParam param = (RexDynamicParam) offset;
-            return Expressions.convert_(
-                    Expressions.call( DataContext.ROOT, BuiltInMethod.DATA_CONTEXT_GET_PARAMETER_VALUE.method, Expressions.constant( param.getIndex() ) ),
-                    Integer.class );
-        } else {
-            return Expressions.constant( RexLiteral.intValue( offset ) );
-        }
-    }
 }
 
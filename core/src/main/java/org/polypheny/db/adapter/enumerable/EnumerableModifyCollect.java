@@ -17,11 +17,14 @@
 package org.polypheny.db.adapter.enumerable;
 
 
+import java.util.ArrayList;
 import java.util.List;
+import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Ord;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.plan.RelOptCluster;
 import org.polypheny.db.plan.RelTraitSet;
 import org.polypheny.db.rel.RelNode;
@@ -48,12 +51,18 @@ public EnumerableModifyCollect copy( RelTraitSet traitSet, List<RelNode> inputs,
     @Override
     public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
         final BlockBuilder builder = new BlockBuilder();
+        final boolean concurrent = all && inputs.size() > 1 && RuntimeConfig.CONCURRENT_DML.getBoolean();
+        final List<Expression> childExps = new ArrayList<>();
         Expression unionExp = null;
         for ( Ord<RelNode> ord : Ord.zip( inputs ) ) {
             EnumerableRel input = (EnumerableRel) ord.e;
             final Result result = implementor.visitChild( this, ord.i, input, pref );
             Expression childExp = builder.append( "child" + ord.i, result.block );
+            childExps.add( childExp );
 
+            if ( concurrent ) {
+                continue;
+            }
             if ( unionExp == null ) {
                 unionExp = childExp;
             } else {
@@ -63,6 +72,10 @@ public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
             }
         }
 
+        if ( concurrent ) {
+            // The inputs modify different placements, so they can be executed at the same time
+            unionExp = Expressions.call( BuiltInMethod.CONCURRENT_CONCAT.method, Expressions.newArrayInit( Enumerable.class, childExps ) );
+        }
         builder.add( unionExp );
         final PhysType physType =
                 PhysTypeImpl.of(
@@ -45,6 +45,7 @@
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.Util;
 
 
 /**
@@ -93,10 +94,12 @@ public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
 
         builder.add(
                 Expressions.return_( null,
-                        Expressions.call( childExp,
-                                BuiltInMethod.ORDER_BY.method,
-                                Expressions.list( builder.append( "keySelector", pair.left ) )
-                                        .appendIfNotNull( builder.appendIfNotNull( "comparator", pair.right ) ) ) ) );
+                        Expressions.call(
+                                BuiltInMethod.SPILLING_ORDER_BY.method,
+                                childExp,
+                                builder.append( "keySelector", pair.left ),
+                                Util.first( builder.appendIfNotNull( "comparator", pair.right ), Expressions.constant( null ) ),
+                                implementor.getRootExpression() ) ) );
         return implementor.result( physType, builder.toBlock() );
     }
 }
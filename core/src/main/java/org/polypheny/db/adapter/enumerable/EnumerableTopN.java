@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import java.util.Objects;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelCollation;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Sort;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.util.BuiltInMethod;
+import org.polypheny.db.util.Pair;
+import org.polypheny.db.util.Util;
+
+
+/**
+ * Implementation of a {@link Sort} with a fetch in {@link EnumerableConvention enumerable calling convention}.
+ *
+ * Instead of sorting all input rows and skipping all but the first ones, like an {@link EnumerableLimit} on top of an
+ * {@link EnumerableSort}, only the first {@code offset + fetch} rows are kept in a bounded heap (see
+ * {@link EnumerableTopNRule}).
+ */
+public class EnumerableTopN extends Sort implements EnumerableRel {
+
+    /**
+     * Creates an EnumerableTopN.
+     *
+     * Use {@link #create} unless you know what you're doing.
+     */
+    public EnumerableTopN( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, RelCollation collation, RexNode offset, RexNode fetch ) {
+        super( cluster, traitSet, input, collation, offset, Objects.requireNonNull( fetch ) );
+        assert getConvention() instanceof EnumerableConvention;
+        assert getConvention() == input.getConvention();
+    }
+
+
+    /**
+     * Creates an EnumerableTopN.
+     */
+    public static EnumerableTopN create( RelNode child, RelCollation collation, RexNode offset, RexNode fetch ) {
+        final RelOptCluster cluster = child.getCluster();
+        final RelTraitSet traitSet = cluster.traitSetOf( EnumerableConvention.INSTANCE ).replace( collation );
+        return new EnumerableTopN( cluster, traitSet, child, collation, offset, fetch );
+    }
+
+
+    @Override
+    public EnumerableTopN copy( RelTraitSet traitSet, RelNode newInput, RelCollation newCollation, RexNode offset, RexNode fetch ) {
+        return new EnumerableTopN( getCluster(), traitSet, newInput, newCollation, offset, fetch );
+    }
+
+
+    /**
+     * The cost of reading all input rows plus maintaining a heap of {@code offset + fetch} rows.
+     */
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        final double inputRowCount = mq.getRowCount( getInput() );
+        final double heapSize = Math.min( (double) EnumUtils.intValue( offset, 0 ) + EnumUtils.intValue( fetch, Integer.MAX_VALUE ), inputRowCount );
+        final double bytesPerRow = getRowType().getFieldCount() * 4;
+        final double cpu = inputRowCount * Math.log( Math.max( heapSize, 2 ) ) * bytesPerRow;
+        return planner.getCostFactory().makeCost( inputRowCount, cpu, 0 );
+    }
+
+
+    @Override
+    public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
+        final BlockBuilder builder = new BlockBuilder();
+        final EnumerableRel child = (EnumerableRel) getInput();
+        final Result result = implementor.visitChild( this, 0, child, pref );
+        final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getRowType(), result.format );
+        final Expression childExp = builder.append( "child", result.block );
+
+        final Pair<Expression, Expression> pair = result.physType.generateCollationKey( collation.getFieldCollations() );
+
+        builder.add(
+                Expressions.return_( null,
+                        Expressions.call(
+                                BuiltInMethod.TOP_N.method,
+                                childExp,
+                                builder.append( "keySelector", pair.left ),
+                                Util.first( builder.appendIfNotNull( "comparator", pair.right ), Expressions.constant( null ) ),
+                                offset != null ? EnumUtils.intExpression( offset ) : Expressions.constant( 0 ),
+                                EnumUtils.intExpression( fetch ) ) ) );
+        return implementor.result( physType, builder.toBlock() );
+    }
+
+}
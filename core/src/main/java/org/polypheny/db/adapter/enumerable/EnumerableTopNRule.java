@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import org.polypheny.db.plan.RelOptRule;
+import org.polypheny.db.plan.RelOptRuleCall;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Sort;
+import org.polypheny.db.rel.logical.LogicalSort;
+
+
+/**
+ * Rule to convert a {@link LogicalSort} that has a sort key and a {@code fetch} into an {@link EnumerableTopN}. Sorts
+ * without a fetch are converted by {@link EnumerableSortRule}, those without a sort key by {@link EnumerableLimitRule}.
+ */
+class EnumerableTopNRule extends RelOptRule {
+
+    EnumerableTopNRule() {
+        super( operandJ( LogicalSort.class, null, sort -> sort.fetch != null && !sort.getCollation().getFieldCollations().isEmpty(), any() ), "EnumerableTopNRule" );
+    }
+
+
+    @Override
+    public void onMatch( RelOptRuleCall call ) {
+        final Sort sort = call.rel( 0 );
+        final RelNode input = convert( sort.getInput(), sort.getInput().getTraitSet().replace( EnumerableConvention.INSTANCE ) );
+        call.transformTo( EnumerableTopN.create( input, sort.getCollation(), sort.offset, sort.fetch ) );
+    }
+
+}
@@ -76,6 +76,7 @@
 import org.polypheny.db.rex.RexLocalRef;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.rex.RexProgram;
+import org.polypheny.db.runtime.PrimitiveVector;
 import org.polypheny.db.runtime.SqlFunctions;
 import org.polypheny.db.sql.SqlIntervalQualifier;
 import org.polypheny.db.sql.SqlKind;
@@ -1062,6 +1063,18 @@ public Expression translateConstructor( List<RexNode> operandList, SqlKind kind
                 }
                 return map;
             case ARRAY_VALUE_CONSTRUCTOR:
+                final Primitive primitive = vectorPrimitive( operandList );
+                if ( primitive != null ) {
+                    // Arrays of non-null floating point values are kept unboxed
+                    final List<Expression> values = new ArrayList<>();
+                    for ( RexNode value : operandList ) {
+                        values.add( translate( value, primitive.primitiveClass ) );
+                    }
+                    return list.append(
+                            "vector",
+                            Expressions.call( PrimitiveVector.class, "of", Expressions.newArrayInit( primitive.primitiveClass, values ) ),
+                            false );
+                }
                 Expression lyst =
                         list.append(
                                 "list",
@@ -1082,6 +1095,37 @@ public Expression translateConstructor( List<RexNode> operandList, SqlKind kind
     }
 
 
+    /**
+     * Returns the primitive type of the {@link PrimitiveVector} representing an array with the
+     * given elements, or {@code null} if the array has to be represented by a list of boxed values.
+     */
+    private static Primitive vectorPrimitive( List<RexNode> operandList ) {
+        if ( operandList.isEmpty() ) {
+            return null;
+        }
+        Primitive primitive = null;
+        for ( RexNode value : operandList ) {
+            final Primitive p;
+            switch ( value.getType().getPolyType() ) {
+                case DOUBLE:
+                case FLOAT:
+                    p = Primitive.DOUBLE;
+                    break;
+                case REAL:
+                    p = Primitive.FLOAT;
+                    break;
+                default:
+                    return null;
+            }
+            if ( value.getType().isNullable() || (primitive != null && primitive != p) ) {
+                return null;
+            }
+            primitive = p;
+        }
+        return primitive;
+    }
+
+
     /**
      * Returns whether an expression is nullable. Even if its type says it is nullable, if we have previously generated a check to make sure that it is not null, we will say so.
      *
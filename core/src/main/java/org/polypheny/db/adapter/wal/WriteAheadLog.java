@@ -0,0 +1,516 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.wal;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.config.RuntimeConfig;
+
+
+/**
+ * A write-ahead log for stores keeping their data in the memory of the Polypheny-DB process. It allows such a store
+ * to recover its data locally after a restart or a crash.
+ *
+ * The store appends one record per committed transaction. The content of the records is up to the store. Records are
+ * forced to disk before the commit completes. Transactions committing at the same time share a single force
+ * (group commit).
+ *
+ * The log is split into segments ({@code log-N}). A checkpoint writes a snapshot of the store ({@code snapshot-N})
+ * which includes all records of the segments before {@code N} and then deletes these segments. Checkpoints are taken
+ * after a configurable time or log size (see {@link RuntimeConfig#WAL_CHECKPOINT_INTERVAL} and
+ * {@link RuntimeConfig#WAL_CHECKPOINT_SIZE}). Commits are blocked while the snapshot is written.
+ *
+ * On startup, {@link #recover()} loads the latest snapshot and replays the segments written after it. A record which
+ * has not been written completely (e.g. because of a crash) is discarded together with everything after it.
+ */
+@Slf4j
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "log-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int HEADER_SIZE = 8;
+
+    private static final ExecutorService CHECKPOINT_EXECUTOR = Executors.newSingleThreadExecutor( r -> {
+        Thread thread = new Thread( r, "WAL-Checkpoint" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private final File directory;
+    private final Recoverable store;
+
+    /**
+     * Commits hold the read lock from appending their record until they have applied their changes. A checkpoint
+     * takes the write lock, so that the snapshot contains exactly the records of the segments it replaces.
+     */
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final Object syncLock = new Object();
+    private final AtomicBoolean checkpointPending = new AtomicBoolean( false );
+
+    private FileChannel segment;
+    private long segmentNumber = 0;
+    private long segmentSize = 0;
+    private long lastCheckpoint = System.nanoTime();
+
+    /**
+     * Sequence number of the last appended record and of the last record forced to disk.
+     */
+    private long appended = 0;
+    private long synced = 0;
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder checkpoints = new LongAdder();
+    private long recoveredRecords = 0;
+
+
+    /**
+     * @param directory The directory holding the files of the log; it is used exclusively by this log
+     * @param store The store whose changes are logged
+     */
+    public WriteAheadLog( File directory, Recoverable store ) {
+        this.directory = directory;
+        this.store = store;
+    }
+
+
+    /**
+     * Restores the state of the store from the latest snapshot and the records logged after it. Needs to be called
+     * once before the first commit.
+     */
+    public void recover() {
+        checkpointLock.writeLock().lock();
+        try {
+            final TreeMap<Long, File> segments = new TreeMap<>();
+            long snapshotNumber = -1;
+            File snapshot = null;
+            final File[] files = directory.listFiles();
+            if ( files != null ) {
+                for ( File file : files ) {
+                    final String name = file.getName();
+                    if ( name.endsWith( TEMPORARY_SUFFIX ) ) {
+                        // Incomplete snapshot
+                        Files.delete( file.toPath() );
+                    } else if ( name.startsWith( SEGMENT_PREFIX ) ) {
+                        segments.put( Long.parseLong( name.substring( SEGMENT_PREFIX.length() ) ), file );
+                    } else if ( name.startsWith( SNAPSHOT_PREFIX ) ) {
+                        final long number = Long.parseLong( name.substring( SNAPSHOT_PREFIX.length() ) );
+                        if ( number > snapshotNumber ) {
+                            snapshotNumber = number;
+                            snapshot = file;
+                        }
+                    }
+                }
+            }
+
+            if ( snapshot != null ) {
+                try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( snapshot ) ) ) ) {
+                    store.loadSnapshot( in );
+                }
+            }
+            for ( Map.Entry<Long, File> entry : segments.entrySet() ) {
+                if ( entry.getKey() < snapshotNumber ) {
+                    continue;
+                }
+                if ( !replay( entry.getValue() ) ) {
+                    // The segment ends with an incomplete record. There cannot be any complete records after it.
+                    break;
+                }
+            }
+            segmentNumber = Math.max( snapshotNumber, segments.isEmpty() ? 0 : segments.lastKey() );
+            deleteBefore( snapshotNumber );
+            openSegment( segmentNumber + 1 );
+            syncDirectory();
+            log.info( "Recovered {} from {} and {} log records", directory.getName(), snapshot == null ? "scratch" : snapshot.getName(), recoveredRecords );
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to recover from the write-ahead log in " + directory.getAbsolutePath(), e );
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Replays the records of a segment.
+     *
+     * @return {@code false} if the segment ended with an incomplete record, which has been removed
+     */
+    private boolean replay( File file ) throws IOException {
+        long validLength = 0;
+        boolean truncated = false;
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ) ) {
+            while ( true ) {
+                final int length;
+                try {
+                    length = in.readInt();
+                } catch ( EOFException e ) {
+                    break;
+                }
+                final byte[] record;
+                final long checksum;
+                try {
+                    checksum = in.readInt() & 0xFFFFFFFFL;
+                    if ( length < 0 || length > file.length() ) {
+                        truncated = true;
+                        break;
+                    }
+                    record = new byte[length];
+                    in.readFully( record );
+                } catch ( EOFException e ) {
+                    truncated = true;
+                    break;
+                }
+                if ( checksum( record ) != checksum ) {
+                    truncated = true;
+                    break;
+                }
+                store.replay( record );
+                recoveredRecords++;
+                validLength += HEADER_SIZE + length;
+            }
+        }
+        if ( truncated ) {
+            log.warn( "Discarding the incomplete end of the write-ahead log segment {}", file.getAbsolutePath() );
+            try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.WRITE ) ) {
+                channel.truncate( validLength );
+            }
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Logs the record of a transaction and applies its changes once the record is durable.
+     *
+     * @param record The changes of the transaction, as understood by {@link Recoverable#replay(byte[])}
+     * @param apply Applies the changes to the store
+     */
+    public void commit( byte[] record, Runnable apply ) {
+        commit( record, apply, true );
+    }
+
+
+    /**
+     * Logs a record and applies the changes once it has been appended.
+     *
+     * @param record The record, as understood by {@link Recoverable#replay(byte[])}
+     * @param apply Applies the changes to the store
+     * @param force Whether to wait until the record is durable before applying the changes, e.g. not for records
+     * whose loss is resolved by the store on recovery
+     */
+    public void commit( byte[] record, Runnable apply, boolean force ) {
+        checkpointLock.readLock().lock();
+        try {
+            final long sequenceNumber = append( record );
+            if ( force && RuntimeConfig.WAL_SYNC.getBoolean() ) {
+                sync( sequenceNumber );
+            }
+            apply.run();
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to write to the write-ahead log in " + directory.getAbsolutePath(), e );
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        commits.increment();
+        scheduleCheckpointIfNeeded();
+    }
+
+
+    private synchronized long append( byte[] record ) throws IOException {
+        if ( segment == null ) {
+            throw new IllegalStateException( "The write-ahead log in " + directory.getAbsolutePath() + " is not open" );
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate( HEADER_SIZE + record.length );
+        buffer.putInt( record.length );
+        buffer.putInt( (int) checksum( record ) );
+        buffer.put( record );
+        buffer.flip();
+        while ( buffer.hasRemaining() ) {
+            segment.write( buffer );
+        }
+        segmentSize += HEADER_SIZE + record.length;
+        return ++appended;
+    }
+
+
+    /**
+     * Forces the log to disk up to (at least) the given record. Records appended while another thread is forcing the
+     * log are forced together by the next thread.
+     */
+    private void sync( long sequenceNumber ) throws IOException {
+        synchronized ( syncLock ) {
+            if ( synced >= sequenceNumber ) {
+                return;
+            }
+            final long target;
+            final FileChannel channel;
+            synchronized ( this ) {
+                target = appended;
+                channel = segment;
+            }
+            channel.force( false );
+            synced = target;
+            syncs.increment();
+        }
+    }
+
+
+    private void scheduleCheckpointIfNeeded() {
+        final boolean sizeExceeded;
+        final boolean intervalExceeded;
+        synchronized ( this ) {
+            sizeExceeded = segmentSize > RuntimeConfig.WAL_CHECKPOINT_SIZE.getInteger() * 1024L * 1024L;
+            intervalExceeded = System.nanoTime() - lastCheckpoint > TimeUnit.SECONDS.toNanos( RuntimeConfig.WAL_CHECKPOINT_INTERVAL.getInteger() );
+        }
+        if ( (sizeExceeded || intervalExceeded) && checkpointPending.compareAndSet( false, true ) ) {
+            CHECKPOINT_EXECUTOR.execute( () -> {
+                try {
+                    checkpoint();
+                } catch ( Exception e ) {
+                    log.error( "Checkpoint of the write-ahead log in {} failed", directory.getAbsolutePath(), e );
+                } finally {
+                    checkpointPending.set( false );
+                }
+            } );
+        }
+    }
+
+
+    /**
+     * Writes a snapshot of the store and deletes the log records included in it.
+     */
+    public void checkpoint() {
+        checkpointLock.writeLock().lock();
+        try {
+            if ( segment == null ) {
+                return;
+            }
+            final long number = segmentNumber + 1;
+            final File temporary = new File( directory, SNAPSHOT_PREFIX + number + TEMPORARY_SUFFIX );
+            try ( FileOutputStream fileOut = new FileOutputStream( temporary ) ) {
+                final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( fileOut ) );
+                store.writeSnapshot( out );
+                out.flush();
+                fileOut.getFD().sync();
+            }
+            Files.move( temporary.toPath(), new File( directory, SNAPSHOT_PREFIX + number ).toPath(), StandardCopyOption.ATOMIC_MOVE );
+            openSegment( number );
+            // The rename and the new segment need to be durable before the replaced segments are deleted
+            syncDirectory();
+            deleteBefore( number );
+            synchronized ( this ) {
+                lastCheckpoint = System.nanoTime();
+            }
+            checkpoints.increment();
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to write a checkpoint of the write-ahead log in " + directory.getAbsolutePath(), e );
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Closes the current segment (if any) and starts a new one. Requires the write lock of the checkpoint lock.
+     */
+    private synchronized void openSegment( long number ) throws IOException {
+        if ( segment != null ) {
+            segment.force( false );
+            segment.close();
+        }
+        segment = FileChannel.open(
+                new File( directory, SEGMENT_PREFIX + number ).toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND );
+        segmentNumber = number;
+        segmentSize = 0;
+        synced = appended;
+    }
+
+
+    /**
+     * Forces the entries of the directory (e.g. renamed or created files) to disk. Not supported on all platforms; on
+     * Windows, opening a directory fails and the entries are assumed to be durable with the files.
+     */
+    private void syncDirectory() throws IOException {
+        if ( System.getProperty( "os.name" ).toLowerCase().startsWith( "windows" ) ) {
+            return;
+        }
+        try ( FileChannel channel = FileChannel.open( directory.toPath(), StandardOpenOption.READ ) ) {
+            channel.force( true );
+        }
+    }
+
+
+    /**
+     * Deletes the segments and snapshots with a number lower than the given one.
+     */
+    private void deleteBefore( long number ) throws IOException {
+        final File[] files = directory.listFiles();
+        if ( files == null ) {
+            return;
+        }
+        for ( File file : files ) {
+            final String name = file.getName();
+            final String suffix;
+            if ( name.startsWith( SEGMENT_PREFIX ) ) {
+                suffix = name.substring( SEGMENT_PREFIX.length() );
+            } else if ( name.startsWith( SNAPSHOT_PREFIX ) && !name.endsWith( TEMPORARY_SUFFIX ) ) {
+                suffix = name.substring( SNAPSHOT_PREFIX.length() );
+            } else {
+                continue;
+            }
+            if ( Long.parseLong( suffix ) < number ) {
+                Files.delete( file.toPath() );
+            }
+        }
+    }
+
+
+    private static long checksum( byte[] record ) {
+        final CRC32 crc = new CRC32();
+        crc.update( record, 0, record.length );
+        return crc.getValue();
+    }
+
+
+    /**
+     * Number of records logged since the log has been opened.
+     */
+    public long getCommitCount() {
+        return commits.sum();
+    }
+
+
+    /**
+     * Number of times the log has been forced to disk since it has been opened. With concurrent commits, this is lower
+     * than the number of commits.
+     */
+    public long getSyncCount() {
+        return syncs.sum();
+    }
+
+
+    /**
+     * Number of records replayed by {@link #recover()}.
+     */
+    public long getRecoveredRecordCount() {
+        return recoveredRecords;
+    }
+
+
+    public long getCheckpointCount() {
+        return checkpoints.sum();
+    }
+
+
+    /**
+     * Size (in bytes) of the current segment.
+     */
+    public synchronized long getSegmentSize() {
+        return segmentSize;
+    }
+
+
+    @Override
+    public void close() {
+        checkpointLock.writeLock().lock();
+        try {
+            synchronized ( this ) {
+                if ( segment != null ) {
+                    segment.force( false );
+                    segment.close();
+                    segment = null;
+                }
+            }
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to close the write-ahead log in " + directory.getAbsolutePath(), e );
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Closes the log and deletes all its files.
+     */
+    public void delete() {
+        close();
+        final File[] files = directory.listFiles();
+        if ( files != null ) {
+            for ( File file : files ) {
+                if ( !file.delete() ) {
+                    log.warn( "Unable to delete {}", file.getAbsolutePath() );
+                }
+            }
+        }
+        if ( !directory.delete() ) {
+            log.warn( "Unable to delete {}", directory.getAbsolutePath() );
+        }
+    }
+
+
+    /**
+     * A store whose changes are logged.
+     */
+    public interface Recoverable {
+
+        /**
+         * Writes the committed state of the store. No transaction commits while the snapshot is written.
+         */
+        void writeSnapshot( DataOutputStream out ) throws IOException;
+
+        /**
+         * Replaces the state of the store by the one written by {@link #writeSnapshot(DataOutputStream)}.
+         */
+        void loadSnapshot( DataInputStream in ) throws IOException;
+
+        /**
+         * Applies the changes of a logged transaction.
+         */
+        void replay( byte[] record ) throws IOException;
+
+    }
+
+}
@@ -30,7 +30,8 @@ public enum Adapter {
     MONETDB( "org.polypheny.db.adapter.jdbc.stores.MonetdbStore" ),
     COTTONTAIL( "org.polypheny.db.adapter.cottontail.CottontailStore" ),
     POSTGRESQL( "org.polypheny.db.adapter.jdbc.stores.PostgresqlStore" ),
-    FILE( "org.polypheny.db.adapter.file.FileStore" );
+    FILE( "org.polypheny.db.adapter.file.FileStore" ),
+    MEMORY( "org.polypheny.db.adapter.memory.MemoryStore" );
 
     @Getter
     private final String path;
@@ -107,6 +108,10 @@ public Map<String, String> getDefaultSettings() {
             case FILE:
                 settings.put( "mode", "embedded" );
                 break;
+            case MEMORY:
+                settings.put( "mode", "embedded" );
+                settings.put( "persistent", "false" );
+                break;
         }
 
         return settings;
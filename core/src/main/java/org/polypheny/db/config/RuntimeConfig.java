@@ -147,6 +147,108 @@ public enum RuntimeConfig {
             ConfigType.BOOLEAN,
             "runtimExecutionGroup" ),
 
+    TWO_PC_PARALLELISM( "runtime/twoPcParallelism",
+            "Maximum number of adapters which are prepared, committed or rolled back concurrently. Setting to one disables the concurrent execution. Requires a restart.",
+            8,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    TWO_PC_TIMEOUT( "runtime/twoPcTimeout",
+            "Time (in seconds) to wait for an adapter to prepare, commit or roll back a transaction. An adapter not finishing in time is considered as failed.",
+            60,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    WAL_SYNC( "runtime/walSync",
+            "Force the write-ahead log of embedded stores to disk before a commit completes. Without, committed transactions can be lost if the machine crashes.",
+            true,
+            ConfigType.BOOLEAN,
+            "runtimExecutionGroup" ),
+
+    WAL_CHECKPOINT_INTERVAL( "runtime/walCheckpointInterval",
+            "Time (in seconds) after which the write-ahead log of an embedded store is replaced by a snapshot of the store.",
+            300,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    WAL_CHECKPOINT_SIZE( "runtime/walCheckpointSize",
+            "Size (in MB) of the write-ahead log of an embedded store after which it is replaced by a snapshot of the store.",
+            64,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    STATEMENT_MEMORY_BUDGET( "runtime/statementMemoryBudget",
+            "Memory (in MB) available to the sorts, hash aggregations and hash joins of a statement. If it is exceeded, these operators spill to temporary files. Zero means unlimited.",
+            512,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    PARALLEL_EXECUTION_DEGREE( "runtime/parallelExecutionDegree",
+            "Maximum number of threads evaluating a hash aggregation or a hash join of the enumerable engine. Setting to one disables the parallel execution. Applies to queries planned afterwards.",
+            1,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_CONTROL( "runtime/admissionControl",
+            "Limit the number of concurrently running statements per workload class. Statements exceeding the limits are queued.",
+            true,
+            ConfigType.BOOLEAN,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_TIMEOUT( "runtime/admissionTimeout",
+            "Time (in seconds) a statement waits for admission before it fails.",
+            60,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_ANALYTICAL_THRESHOLD( "runtime/admissionAnalyticalThreshold",
+            "Estimated number of rows processed by a statement above which it belongs to the analytical workload class.",
+            100000,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_ANALYTICAL_ORIGINS( "runtime/admissionAnalyticalOrigins",
+            "Comma-separated list of interfaces (e.g. Polypheny-UI) whose transactions always belong to the analytical workload class.",
+            "",
+            ConfigType.STRING,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_ANALYTICAL_USERS( "runtime/admissionAnalyticalUsers",
+            "Comma-separated list of users whose transactions always belong to the analytical workload class.",
+            "",
+            ConfigType.STRING,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_SYSTEM_ORIGINS( "runtime/admissionSystemOrigins",
+            "Comma-separated list of internal components whose transactions belong to the system workload class, which is not limited.",
+            "Catalog Startup,Index Manager,Statistics",
+            ConfigType.STRING,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_TRANSACTIONAL_CONCURRENCY( "runtime/admissionTransactionalConcurrency",
+            "Maximum number of concurrently running statements of the transactional workload class. Zero means unlimited.",
+            64,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_TRANSACTIONAL_MEMORY( "runtime/admissionTransactionalMemory",
+            "Maximum estimated memory (in MB) of the concurrently running statements of the transactional workload class. Zero means unlimited.",
+            0,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_ANALYTICAL_CONCURRENCY( "runtime/admissionAnalyticalConcurrency",
+            "Maximum number of concurrently running statements of the analytical workload class. Zero means unlimited.",
+            4,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    ADMISSION_ANALYTICAL_MEMORY( "runtime/admissionAnalyticalMemory",
+            "Maximum estimated memory (in MB) of the concurrently running statements of the analytical workload class. Zero means unlimited.",
+            1024,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
     DYNAMIC_QUERYING( "statistics/useDynamicQuerying",
             "Use statistics for query assistance.",
             true,
@@ -321,6 +423,18 @@ public enum RuntimeConfig {
             ConfigType.INSTANCE_LIST,
             "dockerGroup" ),
 
+    CONCURRENT_DML( "runtime/concurrentDml",
+            "Execute data manipulation queries concurrently on all placements of a table.",
+            true,
+            ConfigType.BOOLEAN,
+            "runtimExecutionGroup" ),
+
+    JDBC_BATCH_SIZE_BYTES( "runtime/jdbcBatchSizeBytes",
+            "Approximate size (in Bytes) of the parameter values sent to a JDBC store in one batch. Larger batches are split.",
+            4 * 1024 * 1024,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
     FILE_HANDLE_CACHE_SIZE( "runtime/fileHandleCacheSize",
             "Size (in Bytes) up to which media files are cached in-memory instead of creating a temporary file. Needs to be >= 0 and smaller than Integer.MAX_SIZE. Setting to zero disables caching of media files.",
             0,
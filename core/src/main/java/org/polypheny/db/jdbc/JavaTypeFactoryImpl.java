@@ -75,6 +75,9 @@
  */
 public class JavaTypeFactoryImpl extends PolyTypeFactoryImpl implements JavaTypeFactory {
 
+    /**
+     * Guarded by {@code this}, the type factory is shared by all statements of a transaction.
+     */
     private final Map<List<Pair<Type, Boolean>>, SyntheticRecordType> syntheticTypes = new HashMap<>();
 
 
@@ -274,7 +277,7 @@ public static RelDataType toSql( final RelDataTypeFactory typeFactory, RelDataTy
 
 
     @Override
-    public Type createSyntheticType( List<Type> types ) {
+    public synchronized Type createSyntheticType( List<Type> types ) {
         if ( types.isEmpty() ) {
             // Unit is a pre-defined synthetic type to be used when there are 0 fields. Because all instances are the same, we use a singleton.
             return Unit.class;
@@ -316,7 +319,7 @@ public int size() {
     /**
      * Creates a synthetic Java class whose fields have the same names and relational types.
      */
-    private Type createSyntheticType( RelRecordType type ) {
+    private synchronized Type createSyntheticType( RelRecordType type ) {
         final String name = "Record" + type.getFieldCount() + "_" + syntheticTypes.size();
         final SyntheticRecordType syntheticType = new SyntheticRecordType( type, name );
         for ( final RelDataTypeField recordField : type.getFieldList() ) {
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.monitoring;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A lock-free histogram for latencies in the spirit of an HDR histogram. Values are recorded in microseconds into
+ * log-linear buckets: every power of two is split into {@link #SUB_BUCKETS} linear sub-buckets. This keeps the relative
+ * error of the reported percentiles below 12.5 % over the whole range (1 µs up to several days) while recording a value
+ * costs only a few arithmetic operations and one atomic increment.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40; // 2^40 µs ~ 12 days
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( BUCKET_COUNT );
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * Records a duration.
+     *
+     * @param nanoTime the duration in nanoseconds
+     */
+    public void record( long nanoTime ) {
+        long micros = Math.max( 0, nanoTime / 1000 );
+        buckets.incrementAndGet( bucketIndex( micros ) );
+        count.increment();
+        sum.add( micros );
+        long currentMax = max.get();
+        while ( micros > currentMax && !max.compareAndSet( currentMax, micros ) ) {
+            currentMax = max.get();
+        }
+    }
+
+
+    public long getCount() {
+        return count.sum();
+    }
+
+
+    /**
+     * @return the sum of all recorded durations in microseconds
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+
+    /**
+     * @return the highest recorded duration in microseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+
+    public double getMean() {
+        long c = count.sum();
+        return c == 0 ? 0 : (double) sum.sum() / c;
+    }
+
+
+    /**
+     * Returns the value at the given percentile. The result is the upper bound of the bucket containing the
+     * percentile, capped by the highest recorded value.
+     *
+     * @param percentile the percentile in the range [0, 100]
+     * @return the duration in microseconds
+     */
+    public long getValueAtPercentile( double percentile ) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+            snapshot[i] = buckets.get( i );
+            total += snapshot[i];
+        }
+        if ( total == 0 ) {
+            return 0;
+        }
+        long rank = Math.max( 1, (long) Math.ceil( Math.min( percentile, 100.0 ) / 100.0 * total ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+            seen += snapshot[i];
+            if ( seen >= rank ) {
+                return Math.min( bucketUpperBound( i ), max.get() );
+            }
+        }
+        return max.get();
+    }
+
+
+    public void reset() {
+        for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+            buckets.set( i, 0 );
+        }
+        count.reset();
+        sum.reset();
+        max.set( 0 );
+    }
+
+
+    static int bucketIndex( long micros ) {
+        if ( micros < SUB_BUCKETS ) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros( micros );
+        if ( exponent > MAX_EXPONENT ) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+
+    static long bucketUpperBound( int index ) {
+        if ( index < SUB_BUCKETS ) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        long lowerBound = (1L << exponent) + ((long) subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+}
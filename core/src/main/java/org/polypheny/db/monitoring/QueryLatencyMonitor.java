@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.monitoring;
+
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.polypheny.db.adapter.Adapter;
+import org.polypheny.db.information.InformationAction;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.information.InformationTable;
+
+
+/**
+ * Collects always-on latency histograms for the phases of query processing, for the execution of the different
+ * query classes and for the adapters involved in the execution. The histograms are shown on the "Query Latency"
+ * information page and can be scraped in the Prometheus text format using {@link #toPrometheusText()}.
+ */
+public class QueryLatencyMonitor {
+
+    public static final QueryLatencyMonitor INSTANCE = new QueryLatencyMonitor();
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+
+    public enum Phase {
+        PARSE( "Parsing" ),
+        VALIDATE( "Validation" ),
+        TRANSLATE( "Translation" ),
+        LOCKING( "Locking" ),
+        ROUTING( "Routing" ),
+        PLANNING( "Planning & Optimization" ),
+        IMPLEMENTATION( "Implementation" ),
+        EXECUTION( "Execution" );
+
+        public final String label;
+
+
+        Phase( String label ) {
+            this.label = label;
+        }
+    }
+
+
+    private final Map<Phase, LatencyHistogram> phaseHistograms = new EnumMap<>( Phase.class );
+    private final ConcurrentMap<String, LatencyHistogram> queryClassHistograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> adapterHistograms = new ConcurrentHashMap<>();
+
+
+    private QueryLatencyMonitor() {
+        for ( Phase phase : Phase.values() ) {
+            phaseHistograms.put( phase, new LatencyHistogram() );
+        }
+        registerMonitoringPage();
+    }
+
+
+    public void record( Phase phase, long nanoTime ) {
+        phaseHistograms.get( phase ).record( nanoTime );
+    }
+
+
+    /**
+     * Records the execution time of a statement for its query class (e.g. {@code SELECT}, {@code INSERT}) and for
+     * every adapter which has been involved in its execution.
+     */
+    public void recordExecution( String queryClass, Collection<Adapter> adapters, long nanoTime ) {
+        record( Phase.EXECUTION, nanoTime );
+        queryClassHistograms.computeIfAbsent( queryClass, k -> new LatencyHistogram() ).record( nanoTime );
+        for ( Adapter adapter : adapters ) {
+            adapterHistograms.computeIfAbsent( adapter.getUniqueName(), k -> new LatencyHistogram() ).record( nanoTime );
+        }
+    }
+
+
+    public void reset() {
+        phaseHistograms.values().forEach( LatencyHistogram::reset );
+        queryClassHistograms.clear();
+        adapterHistograms.clear();
+    }
+
+
+    /**
+     * Renders all histograms as summaries in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String toPrometheusText() {
+        StringBuilder sb = new StringBuilder();
+        Map<String, LatencyHistogram> phases = new TreeMap<>();
+        phaseHistograms.forEach( ( phase, histogram ) -> phases.put( phase.name().toLowerCase( Locale.ROOT ), histogram ) );
+        appendSummary( sb, "polypheny_query_phase_latency_seconds", "Latency of the query processing phases", "phase", phases );
+        appendSummary( sb, "polypheny_query_execution_latency_seconds", "Execution latency per query class", "class", new TreeMap<>( queryClassHistograms ) );
+        appendSummary( sb, "polypheny_adapter_execution_latency_seconds", "Execution latency of statements involving the adapter", "adapter", new TreeMap<>( adapterHistograms ) );
+        return sb.toString();
+    }
+
+
+    private static void appendSummary( StringBuilder sb, String name, String help, String labelName, Map<String, LatencyHistogram> histograms ) {
+        sb.append( "# HELP " ).append( name ).append( ' ' ).append( help ).append( '\n' );
+        sb.append( "# TYPE " ).append( name ).append( " summary\n" );
+        for ( Entry<String, LatencyHistogram> entry : histograms.entrySet() ) {
+            String label = labelName + "=\"" + escapeLabelValue( entry.getKey() ) + "\"";
+            LatencyHistogram histogram = entry.getValue();
+            for ( double quantile : QUANTILES ) {
+                sb.append( name ).append( '{' ).append( label ).append( ",quantile=\"" ).append( quantile ).append( "\"} " )
+                        .append( microsToSeconds( histogram.getValueAtPercentile( quantile * 100 ) ) ).append( '\n' );
+            }
+            sb.append( name ).append( "_sum{" ).append( label ).append( "} " ).append( microsToSeconds( histogram.getSum() ) ).append( '\n' );
+            sb.append( name ).append( "_count{" ).append( label ).append( "} " ).append( histogram.getCount() ).append( '\n' );
+        }
+    }
+
+
+    private static String escapeLabelValue( String value ) {
+        return value.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ).replace( "\n", "\\n" );
+    }
+
+
+    private static double microsToSeconds( long micros ) {
+        return micros / 1_000_000.0;
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Query Latency", "Latency percentiles of the query processing phases, the query classes and the adapters. All values are in milliseconds." );
+        im.addPage( page );
+
+        InformationGroup phaseGroup = new InformationGroup( page, "Phases" ).setOrder( 1 );
+        im.addGroup( phaseGroup );
+        InformationTable phaseTable = createTable( phaseGroup, "Phase" );
+        im.registerInformation( phaseTable );
+        phaseGroup.setRefreshFunction( () -> {
+            phaseTable.reset();
+            phaseHistograms.forEach( ( phase, histogram ) -> addRow( phaseTable, phase.label, histogram ) );
+        } );
+
+        InformationGroup queryClassGroup = new InformationGroup( page, "Query Classes" ).setOrder( 2 );
+        im.addGroup( queryClassGroup );
+        InformationTable queryClassTable = createTable( queryClassGroup, "Query Class" );
+        im.registerInformation( queryClassTable );
+        queryClassGroup.setRefreshFunction( () -> {
+            queryClassTable.reset();
+            new TreeMap<>( queryClassHistograms ).forEach( ( queryClass, histogram ) -> addRow( queryClassTable, queryClass, histogram ) );
+        } );
+
+        InformationGroup adapterGroup = new InformationGroup( page, "Adapters" ).setOrder( 3 );
+        im.addGroup( adapterGroup );
+        InformationTable adapterTable = createTable( adapterGroup, "Adapter" );
+        im.registerInformation( adapterTable );
+        adapterGroup.setRefreshFunction( () -> {
+            adapterTable.reset();
+            new TreeMap<>( adapterHistograms ).forEach( ( adapter, histogram ) -> addRow( adapterTable, adapter, histogram ) );
+        } );
+
+        InformationGroup resetGroup = new InformationGroup( page, "Reset" ).setOrder( 4 );
+        im.addGroup( resetGroup );
+        InformationAction resetAction = new InformationAction( resetGroup, "Reset Histograms", parameters -> {
+            reset();
+            phaseGroup.refresh();
+            queryClassGroup.refresh();
+            adapterGroup.refresh();
+            return "Successfully reset the latency histograms.";
+        } );
+        im.registerInformation( resetAction );
+    }
+
+
+    private static InformationTable createTable( InformationGroup group, String name ) {
+        return new InformationTable( group, Arrays.asList( name, "Count", "Mean", "p50", "p90", "p99", "p99.9", "Max" ) );
+    }
+
+
+    private static void addRow( InformationTable table, String name, LatencyHistogram histogram ) {
+        table.addRow(
+                name,
+                histogram.getCount(),
+                formatMillis( histogram.getMean() ),
+                formatMillis( histogram.getValueAtPercentile( 50 ) ),
+                formatMillis( histogram.getValueAtPercentile( 90 ) ),
+                formatMillis( histogram.getValueAtPercentile( 99 ) ),
+                formatMillis( histogram.getValueAtPercentile( 99.9 ) ),
+                formatMillis( histogram.getMax() ) );
+    }
+
+
+    private static String formatMillis( double micros ) {
+        return String.format( Locale.ROOT, "%.3f", micros / 1000.0 );
+    }
+
+}
@@ -16,13 +16,30 @@
 
 package org.polypheny.db.processing;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.LongConsumer;
 import org.polypheny.db.catalog.entity.CatalogAdapter;
 import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.catalog.entity.CatalogTable;
 import org.polypheny.db.transaction.Transaction;
 
 public interface DataMigrator {
 
     void copyData( Transaction transaction, CatalogAdapter store, List<CatalogColumn> columns );
 
+    /**
+     * Inserts rows into a table without generating and parsing SQL. The rows are bound in batches to the dynamic
+     * parameters of a single prepared insert, which is routed to all placements of the table.
+     *
+     * @param transaction The transaction to insert the rows in
+     * @param table The table to insert into
+     * @param columns The columns for which the rows provide values
+     * @param rows The rows to insert, the values have to be in the JDBC representation of the column types
+     * @param batchSize The number of rows bound to the prepared insert at a time
+     * @param progressListener Called with the number of inserted rows after every batch
+     * @return The number of inserted rows
+     */
+    long insertRows( Transaction transaction, CatalogTable table, List<CatalogColumn> columns, Iterator<List<Object>> rows, int batchSize, LongConsumer progressListener );
+
 }
@@ -34,11 +34,16 @@
 package org.polypheny.db.rel.metadata;
 
 
+import org.polypheny.db.adapter.enumerable.EnumerableAggregate;
+import org.polypheny.db.adapter.enumerable.EnumerableJoin;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.AggregateCall;
 import org.polypheny.db.rel.core.Exchange;
 import org.polypheny.db.rel.core.TableScan;
 import org.polypheny.db.rel.core.Values;
 import org.polypheny.db.rel.metadata.BuiltInMetadata.Parallelism;
+import org.polypheny.db.type.PolyTypeUtil;
 import org.polypheny.db.util.BuiltInMethod;
 
 
@@ -60,6 +65,12 @@ public class RelMdParallelism implements MetadataHandler<BuiltInMetadata.Paralle
                     BuiltInMethod.SPLIT_COUNT.method );
 
 
+    /**
+     * Minimum estimated number of groups of an aggregation which is evaluated in parallel.
+     */
+    private static final double MIN_PARALLEL_GROUPS = 64;
+
+
     protected RelMdParallelism() {
     }
 
@@ -103,5 +114,68 @@ public Boolean isPhaseTransition( Exchange rel, RelMetadataQuery mq ) {
     public Integer splitCount( RelNode rel, RelMetadataQuery mq ) {
         return 1;
     }
+
+
+    /**
+     * The input of an enumerable hash aggregation is split into morsels which are aggregated by up to
+     * {@link RuntimeConfig#PARALLEL_EXECUTION_DEGREE} threads. The rows of a group are added to its accumulator in no
+     * particular order, so this is only done if the results of all aggregate functions do not depend on the order.
+     * With few groups, the threads would mostly wait for each other, as each group is locked while rows are added.
+     */
+    public Integer splitCount( EnumerableAggregate rel, RelMetadataQuery mq ) {
+        final int degree = RuntimeConfig.PARALLEL_EXECUTION_DEGREE.getInteger();
+        if ( degree <= 1 ) {
+            return 1;
+        }
+        for ( AggregateCall aggCall : rel.getAggCallList() ) {
+            if ( !isOrderInsensitive( rel, aggCall ) ) {
+                return 1;
+            }
+        }
+        final Double groupCount = mq.getRowCount( rel );
+        if ( groupCount == null || groupCount < MIN_PARALLEL_GROUPS ) {
+            return 1;
+        }
+        return degree;
+    }
+
+
+    private static boolean isOrderInsensitive( EnumerableAggregate rel, AggregateCall aggCall ) {
+        if ( aggCall.isDistinct() ) {
+            return false;
+        }
+        switch ( aggCall.getAggregation().getKind() ) {
+            case COUNT:
+            case MIN:
+            case MAX:
+            case BIT_AND:
+            case BIT_OR:
+                return true;
+            case SUM:
+            case SUM0:
+            case AVG:
+                // Floating-point addition is not associative
+                if ( PolyTypeUtil.isApproximateNumeric( aggCall.getType() ) ) {
+                    return false;
+                }
+                for ( int arg : aggCall.getArgList() ) {
+                    if ( PolyTypeUtil.isApproximateNumeric( rel.getInput().getRowType().getFieldList().get( arg ).getType() ) ) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * The inputs of an enumerable hash join are split into morsels which are partitioned and probed by up to
+     * {@link RuntimeConfig#PARALLEL_EXECUTION_DEGREE} threads.
+     */
+    public Integer splitCount( EnumerableJoin rel, RelMetadataQuery mq ) {
+        return Math.max( RuntimeConfig.PARALLEL_EXECUTION_DEGREE.getInteger(), 1 );
+    }
 }
 
@@ -18,47 +18,35 @@
 
 
 import java.util.List;
-import java.util.stream.Collectors;
-import org.polypheny.db.util.Pair;
 
 
+/**
+ * Implementations of the metrics supported by the {@code DISTANCE} function.
+ *
+ * The kernels operate on primitive arrays and are unrolled by four, using independent accumulators so that the JIT can
+ * pipeline the floating point operations. The variants accepting lists convert their arguments once using
+ * {@link PrimitiveVector#toDoubleArray(List)}, which is free for vectors created by the enumerable runtime.
+ */
 public class DistanceFunctions {
 
 
     protected static double l1Metric( List<Number> value, List<Number> target ) {
-        double result = 0;
-        for ( int i = 0; i < value.size(); i++ ) {
-            result += Math.abs( value.get( i ).doubleValue() - target.get( i ).doubleValue() );
-        }
-        return result;
-        // Apparently java for loops are faster than the stream api. It also looks easier to maintain, even though I love streams :/
+        return l1Metric( PrimitiveVector.toDoubleArray( value ), PrimitiveVector.toDoubleArray( target ) );
     }
 
 
     protected static double l1MetricWeighted( List<Number> value, List<Number> target, List<Number> weights ) {
-        double result = 0;
-        for ( int i = 0; i < value.size(); i++ ) {
-            result += Math.abs( value.get( i ).doubleValue() - target.get( i ).doubleValue() ) * weights.get( i ).doubleValue();
-        }
-        return result;
+        return l1MetricWeighted( PrimitiveVector.toDoubleArray( value ), PrimitiveVector.toDoubleArray( target ), PrimitiveVector.toDoubleArray( weights ) );
     }
 
 
     protected static double l2SquaredMetric( List<Number> value, List<Number> target ) {
-        double result = 0;
-        for ( int i = 0; i < value.size(); i++ ) {
-            result += Math.pow( value.get( i ).doubleValue() - target.get( i ).doubleValue(), 2.0 );
-        }
-        return result;
+        return l2SquaredMetric( PrimitiveVector.toDoubleArray( value ), PrimitiveVector.toDoubleArray( target ) );
     }
 
 
     protected static double l2SquaredMetricWeighted( List<Number> value, List<Number> target, List<Number> weights ) {
-        double result = 0;
-        for ( int i = 0; i < value.size(); i++ ) {
-            result += Math.pow( value.get( i ).doubleValue() - target.get( i ).doubleValue(), 2.0 ) * weights.get( i ).doubleValue();
-        }
-        return result;
+        return l2SquaredMetricWeighted( PrimitiveVector.toDoubleArray( value ), PrimitiveVector.toDoubleArray( target ), PrimitiveVector.toDoubleArray( weights ) );
     }
 
 
@@ -73,51 +61,204 @@ protected static double l2MetricWeighted( List<Number> value, List<Number> targe
 
 
     protected static double chiSquaredMetric( List<Number> value, List<Number> target ) {
-        double result = 0;
-        for ( int i = 0; i < value.size(); i++ ) {
-            double a = value.get( i ).doubleValue();
-            double b = target.get( i ).doubleValue();
-            result += Math.pow( a - b, 2.0 ) / (b + a);
-        }
-        return result;
+        return chiSquaredMetric( PrimitiveVector.toDoubleArray( value ), PrimitiveVector.toDoubleArray( target ) );
     }
 
 
     protected static double chiSquaredMetricWeighted( List<Number> value, List<Number> target, List<Number> weights ) {
-        double result = 0;
-        for ( int i = 0; i < value.size(); i++ ) {
-            double a = value.get( i ).doubleValue();
-            double b = target.get( i ).doubleValue();
-            double weight = weights.get( i ).doubleValue();
-            result += Math.pow( a - b, 2.0 ) / (b + a) * weight;
-        }
-        return result;
+        return chiSquaredMetricWeighted( PrimitiveVector.toDoubleArray( value ), PrimitiveVector.toDoubleArray( target ), PrimitiveVector.toDoubleArray( weights ) );
     }
 
 
     protected static double cosineMetric( List<Number> value, List<Number> target ) {
-        return 1 - dot( value, target ) / (norm2( value ) * norm2( target ));
+        return cosineMetric( PrimitiveVector.toDoubleArray( value ), PrimitiveVector.toDoubleArray( target ) );
     }
 
 
     protected static double cosineMetricWeighted( List<Number> value, List<Number> target, List<Number> weights ) {
-        List<Number> valueWeighted = Pair.zip( value, weights ).stream().map( p -> p.left.doubleValue() * p.right.doubleValue() ).collect( Collectors.toList() );
-        List<Number> targetWeighted = Pair.zip( target, weights ).stream().map( p -> p.left.doubleValue() * p.right.doubleValue() ).collect( Collectors.toList() );
-        return cosineMetric( valueWeighted, targetWeighted );
+        return cosineMetricWeighted( PrimitiveVector.toDoubleArray( value ), PrimitiveVector.toDoubleArray( target ), PrimitiveVector.toDoubleArray( weights ) );
     }
 
 
-    private static double dot( List<Number> a, List<Number> b ) {
-        double result = 0;
-        for ( int i = 0; i < a.size(); i++ ) {
-            result += a.get( i ).doubleValue() * b.get( i ).doubleValue();
+    public static double l1Metric( double[] value, double[] target ) {
+        final int n = value.length;
+        double r0 = 0, r1 = 0, r2 = 0, r3 = 0;
+        int i = 0;
+        for ( ; i < n - 3; i += 4 ) {
+            r0 += Math.abs( value[i] - target[i] );
+            r1 += Math.abs( value[i + 1] - target[i + 1] );
+            r2 += Math.abs( value[i + 2] - target[i + 2] );
+            r3 += Math.abs( value[i + 3] - target[i + 3] );
+        }
+        for ( ; i < n; i++ ) {
+            r0 += Math.abs( value[i] - target[i] );
         }
-        return result;
+        return (r0 + r1) + (r2 + r3);
     }
 
 
-    private static double norm2( List<Number> list ) {
-        return Math.sqrt( list.stream().mapToDouble( a -> Math.pow( a.doubleValue(), 2.0 ) ).sum() );
+    public static double l1MetricWeighted( double[] value, double[] target, double[] weights ) {
+        final int n = value.length;
+        double r0 = 0, r1 = 0, r2 = 0, r3 = 0;
+        int i = 0;
+        for ( ; i < n - 3; i += 4 ) {
+            r0 += Math.abs( value[i] - target[i] ) * weights[i];
+            r1 += Math.abs( value[i + 1] - target[i + 1] ) * weights[i + 1];
+            r2 += Math.abs( value[i + 2] - target[i + 2] ) * weights[i + 2];
+            r3 += Math.abs( value[i + 3] - target[i + 3] ) * weights[i + 3];
+        }
+        for ( ; i < n; i++ ) {
+            r0 += Math.abs( value[i] - target[i] ) * weights[i];
+        }
+        return (r0 + r1) + (r2 + r3);
+    }
+
+
+    public static double l2SquaredMetric( double[] value, double[] target ) {
+        final int n = value.length;
+        double r0 = 0, r1 = 0, r2 = 0, r3 = 0;
+        int i = 0;
+        for ( ; i < n - 3; i += 4 ) {
+            final double d0 = value[i] - target[i];
+            final double d1 = value[i + 1] - target[i + 1];
+            final double d2 = value[i + 2] - target[i + 2];
+            final double d3 = value[i + 3] - target[i + 3];
+            r0 += d0 * d0;
+            r1 += d1 * d1;
+            r2 += d2 * d2;
+            r3 += d3 * d3;
+        }
+        for ( ; i < n; i++ ) {
+            final double d = value[i] - target[i];
+            r0 += d * d;
+        }
+        return (r0 + r1) + (r2 + r3);
+    }
+
+
+    public static double l2SquaredMetricWeighted( double[] value, double[] target, double[] weights ) {
+        final int n = value.length;
+        double r0 = 0, r1 = 0, r2 = 0, r3 = 0;
+        int i = 0;
+        for ( ; i < n - 3; i += 4 ) {
+            final double d0 = value[i] - target[i];
+            final double d1 = value[i + 1] - target[i + 1];
+            final double d2 = value[i + 2] - target[i + 2];
+            final double d3 = value[i + 3] - target[i + 3];
+            r0 += d0 * d0 * weights[i];
+            r1 += d1 * d1 * weights[i + 1];
+            r2 += d2 * d2 * weights[i + 2];
+            r3 += d3 * d3 * weights[i + 3];
+        }
+        for ( ; i < n; i++ ) {
+            final double d = value[i] - target[i];
+            r0 += d * d * weights[i];
+        }
+        return (r0 + r1) + (r2 + r3);
+    }
+
+
+    public static double l2Metric( double[] value, double[] target ) {
+        return Math.sqrt( l2SquaredMetric( value, target ) );
+    }
+
+
+    public static double l2MetricWeighted( double[] value, double[] target, double[] weights ) {
+        return Math.sqrt( l2SquaredMetricWeighted( value, target, weights ) );
+    }
+
+
+    public static double chiSquaredMetric( double[] value, double[] target ) {
+        final int n = value.length;
+        double r0 = 0, r1 = 0;
+        int i = 0;
+        for ( ; i < n - 1; i += 2 ) {
+            final double d0 = value[i] - target[i];
+            final double d1 = value[i + 1] - target[i + 1];
+            r0 += d0 * d0 / (target[i] + value[i]);
+            r1 += d1 * d1 / (target[i + 1] + value[i + 1]);
+        }
+        for ( ; i < n; i++ ) {
+            final double d = value[i] - target[i];
+            r0 += d * d / (target[i] + value[i]);
+        }
+        return r0 + r1;
+    }
+
+
+    public static double chiSquaredMetricWeighted( double[] value, double[] target, double[] weights ) {
+        final int n = value.length;
+        double r0 = 0, r1 = 0;
+        int i = 0;
+        for ( ; i < n - 1; i += 2 ) {
+            final double d0 = value[i] - target[i];
+            final double d1 = value[i + 1] - target[i + 1];
+            r0 += d0 * d0 / (target[i] + value[i]) * weights[i];
+            r1 += d1 * d1 / (target[i + 1] + value[i + 1]) * weights[i + 1];
+        }
+        for ( ; i < n; i++ ) {
+            final double d = value[i] - target[i];
+            r0 += d * d / (target[i] + value[i]) * weights[i];
+        }
+        return r0 + r1;
+    }
+
+
+    /**
+     * Computes the dot product and both norms in a single pass.
+     */
+    public static double cosineMetric( double[] value, double[] target ) {
+        final int n = value.length;
+        double dot0 = 0, dot1 = 0, a0 = 0, a1 = 0, b0 = 0, b1 = 0;
+        int i = 0;
+        for ( ; i < n - 1; i += 2 ) {
+            final double x0 = value[i];
+            final double x1 = value[i + 1];
+            final double y0 = target[i];
+            final double y1 = target[i + 1];
+            dot0 += x0 * y0;
+            dot1 += x1 * y1;
+            a0 += x0 * x0;
+            a1 += x1 * x1;
+            b0 += y0 * y0;
+            b1 += y1 * y1;
+        }
+        for ( ; i < n; i++ ) {
+            dot0 += value[i] * target[i];
+            a0 += value[i] * value[i];
+            b0 += target[i] * target[i];
+        }
+        return 1 - (dot0 + dot1) / (Math.sqrt( a0 + a1 ) * Math.sqrt( b0 + b1 ));
+    }
+
+
+    /**
+     * Computes the cosine distance of the vectors scaled element-wise by the weights, without materializing the scaled vectors.
+     */
+    public static double cosineMetricWeighted( double[] value, double[] target, double[] weights ) {
+        final int n = value.length;
+        double dot0 = 0, dot1 = 0, a0 = 0, a1 = 0, b0 = 0, b1 = 0;
+        int i = 0;
+        for ( ; i < n - 1; i += 2 ) {
+            final double x0 = value[i] * weights[i];
+            final double x1 = value[i + 1] * weights[i + 1];
+            final double y0 = target[i] * weights[i];
+            final double y1 = target[i + 1] * weights[i + 1];
+            dot0 += x0 * y0;
+            dot1 += x1 * y1;
+            a0 += x0 * x0;
+            a1 += x1 * x1;
+            b0 += y0 * y0;
+            b1 += y1 * y1;
+        }
+        for ( ; i < n; i++ ) {
+            final double x = value[i] * weights[i];
+            final double y = target[i] * weights[i];
+            dot0 += x * y;
+            a0 += x * x;
+            b0 += y * y;
+        }
+        return 1 - (dot0 + dot1) / (Math.sqrt( a0 + a1 ) * Math.sqrt( b0 + b1 ));
     }
 
 
@@ -34,9 +34,26 @@
 package org.polypheny.db.runtime;
 
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
+import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Functions;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.interpreter.Row;
 
 
@@ -47,6 +64,21 @@
  */
 public class Enumerables {
 
+    /**
+     * Number of input rows projected by one task of {@link #topK}.
+     */
+    static final int TOP_K_CHUNK_SIZE = 4096;
+
+    /**
+     * Executor for {@link #concurrentConcat}. The inputs usually block while waiting for data stores, so they are not
+     * evaluated in the common fork join pool.
+     */
+    private static final ExecutorService CONCURRENT_CONCAT_EXECUTOR = Executors.newCachedThreadPool( r -> {
+        Thread thread = new Thread( r, "Concurrent-Concat" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
     private Enumerables() {
     }
 
@@ -74,5 +106,189 @@ public static Supplier<Enumerable<Row>> toRow( final Supplier<Enumerable<Object[
         return () -> toRow( supplier.get() );
     }
 
-}
 
+    /**
+     * Projects the elements of an enumerable and returns the {@code fetch} smallest results, after skipping the
+     * {@code offset} smallest ones, in ascending order.
+     *
+     * Only {@code offset + fetch} results are kept in a bounded heap instead of sorting all of them. The input is read in
+     * chunks which are projected and reduced to their smallest results. If {@link RuntimeConfig#PARALLEL_EXECUTION_DEGREE}
+     * is greater than one, up to that many chunks are processed in parallel in the common fork-join pool; the projector
+     * must therefore be free of side effects.
+     *
+     * @param source Input
+     * @param projector Function computing a result from an input element
+     * @param keySelector Function extracting the sort key from a result
+     * @param comparator Comparator of the sort keys; {@code null} for their natural order
+     * @param offset Number of results to skip
+     * @param fetch Number of results to return
+     */
+    @SuppressWarnings("unchecked")
+    public static <TSource, TResult, TKey> Enumerable<TResult> topK(
+            final Enumerable<TSource> source,
+            final Function1<TSource, TResult> projector,
+            final Function1<TResult, TKey> keySelector,
+            final Comparator<TKey> comparator,
+            final int offset,
+            final int fetch ) {
+        final Comparator<TKey> keyComparator = comparator != null ? comparator : (Comparator<TKey>) Comparator.naturalOrder();
+        final Comparator<TResult> resultComparator = ( a, b ) -> keyComparator.compare( keySelector.apply( a ), keySelector.apply( b ) );
+        final int limit = (int) Math.min( (long) offset + fetch, Integer.MAX_VALUE );
+        return new AbstractEnumerable<TResult>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                if ( fetch <= 0 ) {
+                    return Linq4j.emptyEnumerator();
+                }
+                final PriorityQueue<TResult> heap = topK( source, projector, resultComparator, limit );
+                final List<TResult> results = new ArrayList<>( heap );
+                results.sort( resultComparator );
+                return Linq4j.enumerator( offset < results.size() ? results.subList( offset, results.size() ) : Collections.emptyList() );
+            }
+        };
+    }
+
+
+    private static <TSource, TResult> PriorityQueue<TResult> topK( Enumerable<TSource> source, Function1<TSource, TResult> projector, Comparator<TResult> comparator, int limit ) {
+        final int parallelism = Math.max( RuntimeConfig.PARALLEL_EXECUTION_DEGREE.getInteger(), 1 );
+        final PriorityQueue<TResult> heap = new PriorityQueue<>( comparator.reversed() );
+        final Deque<Future<PriorityQueue<TResult>>> pending = new ArrayDeque<>();
+        try ( Enumerator<TSource> enumerator = source.enumerator() ) {
+            List<TSource> chunk = new ArrayList<>( TOP_K_CHUNK_SIZE );
+            while ( enumerator.moveNext() ) {
+                chunk.add( enumerator.current() );
+                if ( chunk.size() == TOP_K_CHUNK_SIZE ) {
+                    if ( parallelism > 1 ) {
+                        final List<TSource> rows = chunk;
+                        pending.add( ForkJoinPool.commonPool().submit( () -> reduce( rows, projector, comparator, limit ) ) );
+                        // Limit the number of buffered rows
+                        while ( pending.size() > 2 * parallelism ) {
+                            merge( heap, pending.poll().get(), comparator, limit );
+                        }
+                    } else {
+                        merge( heap, reduce( chunk, projector, comparator, limit ), comparator, limit );
+                    }
+                    chunk = new ArrayList<>( TOP_K_CHUNK_SIZE );
+                }
+            }
+            merge( heap, reduce( chunk, projector, comparator, limit ), comparator, limit );
+            while ( !pending.isEmpty() ) {
+                merge( heap, pending.poll().get(), comparator, limit );
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( e );
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException( e.getCause() );
+        } finally {
+            for ( Future<?> future : pending ) {
+                future.cancel( true );
+            }
+        }
+        return heap;
+    }
+
+
+    /**
+     * Projects the rows and keeps the {@code limit} smallest results in a heap whose head is the largest of them.
+     */
+    private static <TSource, TResult> PriorityQueue<TResult> reduce( List<TSource> rows, Function1<TSource, TResult> projector, Comparator<TResult> comparator, int limit ) {
+        final PriorityQueue<TResult> heap = new PriorityQueue<>( comparator.reversed() );
+        for ( TSource row : rows ) {
+            add( heap, projector.apply( row ), comparator, limit );
+        }
+        return heap;
+    }
+
+
+    private static <TResult> void merge( PriorityQueue<TResult> heap, PriorityQueue<TResult> other, Comparator<TResult> comparator, int limit ) {
+        for ( TResult result : other ) {
+            add( heap, result, comparator, limit );
+        }
+    }
+
+
+    private static <TResult> void add( PriorityQueue<TResult> heap, TResult result, Comparator<TResult> comparator, int limit ) {
+        if ( heap.size() < limit ) {
+            heap.add( result );
+        } else if ( comparator.compare( result, heap.peek() ) < 0 ) {
+            heap.poll();
+            heap.add( result );
+        }
+    }
+
+
+    /**
+     * Returns the {@code fetch} smallest elements of an enumerable, after skipping the {@code offset} smallest ones, in
+     * ascending order. This is the equivalent of {@code orderBy} followed by {@code skip} and {@code take}, but only
+     * {@code offset + fetch} elements are kept in a bounded heap instead of sorting all of them (see {@link #topK}). The order of elements
+     * with equal keys is not defined.
+     *
+     * @param source Input
+     * @param keySelector Function extracting the sort key from an element
+     * @param comparator Comparator of the sort keys; {@code null} for their natural order
+     * @param offset Number of elements to skip
+     * @param fetch Number of elements to return
+     */
+    public static <TSource, TKey> Enumerable<TSource> topN(
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Comparator<TKey> comparator,
+            final int offset,
+            final int fetch ) {
+        return topK( source, Functions.identitySelector(), keySelector, comparator, offset, fetch );
+    }
+
+
+    /**
+     * Concatenates enumerables which are evaluated concurrently. This is used for executing data manipulation on all
+     * placements of a table at the same time, so its results are expected to be small: all of them are materialized
+     * before the first element is returned. The first enumerable is evaluated by the calling thread.
+     *
+     * If the evaluation of an enumerable fails, the evaluation of the others is awaited before the exception is thrown.
+     */
+    @SafeVarargs
+    public static <E> Enumerable<E> concurrentConcat( final Enumerable<E>... enumerables ) {
+        return new AbstractEnumerable<E>() {
+            @Override
+            public Enumerator<E> enumerator() {
+                final List<Future<List<E>>> futures = new ArrayList<>( enumerables.length );
+                for ( int i = 1; i < enumerables.length; i++ ) {
+                    futures.add( CONCURRENT_CONCAT_EXECUTOR.submit( enumerables[i]::toList ) );
+                }
+                final List<E> results = new ArrayList<>();
+                RuntimeException exception = null;
+                try {
+                    if ( enumerables.length > 0 ) {
+                        results.addAll( enumerables[0].toList() );
+                    }
+                } catch ( RuntimeException e ) {
+                    exception = e;
+                }
+                for ( Future<List<E>> future : futures ) {
+                    try {
+                        final List<E> result = future.get();
+                        results.addAll( result );
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                        if ( exception == null ) {
+                            exception = new RuntimeException( e );
+                        }
+                    } catch ( ExecutionException e ) {
+                        if ( exception == null ) {
+                            exception = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException( e.getCause() );
+                        }
+                    }
+                }
+                if ( exception != null ) {
+                    throw exception;
+                }
+                return Linq4j.enumerator( results );
+            }
+        };
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.calcite.avatica.util.ByteString;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.util.FileSystemManager;
+
+
+/**
+ * The memory available to the blocking operators (sort, hash aggregation and hash join) of one statement. Operators
+ * reserve memory for the rows they keep and spill to temporary files (see {@link SpillFile}) if a reservation fails.
+ *
+ * Sizes are rough estimates of the on-heap size of the rows, see {@link #estimateSize(Object)}.
+ */
+public class MemoryBudget {
+
+    /**
+     * A budget without limit, used if the data context has no statement.
+     */
+    public static final MemoryBudget UNLIMITED = new MemoryBudget( 0 );
+
+    private final long limit;
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong peak = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private File spillDirectory;
+
+
+    /**
+     * @param limit Maximum number of bytes; zero or less for no limit
+     */
+    public MemoryBudget( long limit ) {
+        this( limit, null );
+    }
+
+
+    /**
+     * @param limit Maximum number of bytes; zero or less for no limit
+     * @param spillDirectory Directory for the spill files; {@code null} for the default directory
+     */
+    public MemoryBudget( long limit, File spillDirectory ) {
+        this.limit = limit;
+        this.spillDirectory = spillDirectory;
+    }
+
+
+    /**
+     * Returns the budget of the statement the data context belongs to.
+     */
+    public static MemoryBudget of( DataContext dataContext ) {
+        if ( dataContext == null || dataContext.getStatement() == null ) {
+            return UNLIMITED;
+        }
+        return dataContext.getStatement().getMemoryBudget();
+    }
+
+
+    public boolean isLimited() {
+        return limit > 0;
+    }
+
+
+    /**
+     * Reserves memory if the budget allows it.
+     *
+     * @return {@code false} if the reservation would exceed the budget; nothing is reserved in this case
+     */
+    public boolean tryReserve( long bytes ) {
+        while ( true ) {
+            final long current = used.get();
+            if ( limit > 0 && current + bytes > limit ) {
+                return false;
+            }
+            if ( used.compareAndSet( current, current + bytes ) ) {
+                peak.accumulateAndGet( current + bytes, Math::max );
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Reserves memory regardless of the limit. Used for rows which have to be kept in memory anyway.
+     */
+    public void reserve( long bytes ) {
+        peak.accumulateAndGet( used.addAndGet( bytes ), Math::max );
+    }
+
+
+    public void release( long bytes ) {
+        used.addAndGet( -bytes );
+    }
+
+
+    public long getUsed() {
+        return used.get();
+    }
+
+
+    public long getPeak() {
+        return peak.get();
+    }
+
+
+    /**
+     * Number of bytes written to spill files.
+     */
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+
+    void addSpilled( long bytes ) {
+        spilled.addAndGet( bytes );
+    }
+
+
+    synchronized File createSpillFile() throws IOException {
+        if ( spillDirectory == null ) {
+            spillDirectory = FileSystemManager.getInstance().registerNewFolder( "spill" );
+        }
+        return File.createTempFile( "spill", ".tmp", spillDirectory );
+    }
+
+
+    /**
+     * Estimates the on-heap size of a row or value in the representation of the enumerable convention.
+     */
+    public static long estimateSize( Object value ) {
+        if ( value == null ) {
+            return 0;
+        } else if ( value instanceof Object[] ) {
+            long size = 16 + 8L * ((Object[]) value).length;
+            for ( Object element : (Object[]) value ) {
+                size += estimateSize( element );
+            }
+            return size;
+        } else if ( value instanceof List ) {
+            long size = 40 + 8L * ((List<?>) value).size();
+            for ( Object element : (List<?>) value ) {
+                size += estimateSize( element );
+            }
+            return size;
+        } else if ( value instanceof String ) {
+            return 40 + 2L * ((String) value).length();
+        } else if ( value instanceof BigDecimal ) {
+            return 64;
+        } else if ( value instanceof byte[] ) {
+            return 16 + ((byte[]) value).length;
+        } else if ( value instanceof ByteString ) {
+            return 40 + ((ByteString) value).length();
+        } else {
+            return 24;
+        }
+    }
+
+}
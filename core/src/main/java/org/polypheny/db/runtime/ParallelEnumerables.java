@@ -0,0 +1,612 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.EqualityComparer;
+import org.apache.calcite.linq4j.function.Function0;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+import org.polypheny.db.runtime.SpillingEnumerables.GroupKey;
+
+
+/**
+ * Morsel-driven parallel implementations of the hash aggregation and the hash join of {@link SpillingEnumerables}.
+ *
+ * The inputs are read by the calling thread in morsels of {@link #MORSEL_SIZE} rows, which are processed by tasks on
+ * the common fork-join pool. At most {@code parallelism} morsels are processed at the same time. The rows are assigned
+ * to the {@link SpillingEnumerables#PARTITIONS partitions} of the spilling operators by the hash of their key, so that
+ * everything which exceeds the memory budget can be processed further by the sequential implementations. Inputs which
+ * fit into a single morsel are processed by the sequential implementations right away.
+ *
+ * <ul>
+ * <li>{@link #hashAggregate}: each task partitions the rows of its morsel and adds them to the hash tables of the
+ * partitions, locking one partition at a time. There is a single accumulator for each group in the hash table of its
+ * partition; thread-local partial aggregates are not implemented, since merging them would require a merge function
+ * for every aggregate function, which the code generation of the enumerable aggregation does not provide. This is
+ * why parallel aggregation is only planned for many groups (see {@code RelMdParallelism}). If the budget is exceeded,
+ * the rows of new groups of a partition are spilled and aggregated sequentially at the end.</li>
+ * <li>{@link #hashJoin}: the morsels of the inner input are partitioned in parallel, then the hash tables of the
+ * partitions are built in parallel. The morsels of the outer input are probed in parallel; the results keep the order
+ * of the outer input. If the inner input exceeds the budget, the join continues as a sequential grace hash join.</li>
+ * </ul>
+ *
+ * Key selectors, accumulator adders and result selectors are called concurrently and must not share mutable state.
+ */
+@Slf4j
+class ParallelEnumerables {
+
+    /**
+     * Number of rows processed by one task.
+     */
+    static final int MORSEL_SIZE = 4096;
+
+
+    private ParallelEnumerables() {
+    }
+
+
+    static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult> hashAggregate(
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Function0<TAccumulate> accumulatorInitializer,
+            final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+            final Function2<TKey, TAccumulate, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final MemoryBudget budget,
+            final int parallelism ) {
+        return new AbstractEnumerable<TResult>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                final Enumerator<TSource> enumerator = source.enumerator();
+                final List<TSource> first;
+                try {
+                    first = readMorsel( enumerator );
+                } catch ( RuntimeException e ) {
+                    enumerator.close();
+                    throw e;
+                }
+                if ( first.size() < MORSEL_SIZE ) {
+                    // Not worth partitioning
+                    enumerator.close();
+                    return SpillingEnumerables.hashAggregate( Linq4j.asEnumerable( first ), keySelector, accumulatorInitializer, accumulatorAdder, resultSelector, comparer, budget, 0 ).enumerator();
+                }
+
+                final List<AggregatePartition<TKey, TSource, TAccumulate>> partitions = new ArrayList<>( SpillingEnumerables.PARTITIONS );
+                for ( int i = 0; i < SpillingEnumerables.PARTITIONS; i++ ) {
+                    partitions.add( new AggregatePartition<>() );
+                }
+                try {
+                    forEachMorsel( enumerator, first, parallelism, morsel -> {
+                        final Partitioned<TKey, TSource> partitioned = partition( morsel, keySelector, comparer );
+                        // Start at different partitions, so that the tasks do not queue up behind each other
+                        final int offset = ThreadLocalRandom.current().nextInt( SpillingEnumerables.PARTITIONS );
+                        for ( int j = 0; j < SpillingEnumerables.PARTITIONS; j++ ) {
+                            final int i = (offset + j) % SpillingEnumerables.PARTITIONS;
+                            partitions.get( i ).add( partitioned.keys.get( i ), partitioned.rows.get( i ), accumulatorInitializer, accumulatorAdder, budget );
+                        }
+                    } );
+                } catch ( RuntimeException e ) {
+                    for ( AggregatePartition<TKey, TSource, TAccumulate> partition : partitions ) {
+                        partition.close( budget );
+                    }
+                    throw e;
+                }
+
+                final List<TResult> results = new ArrayList<>();
+                final List<Enumerable<TResult>> parts = new ArrayList<>();
+                parts.add( Linq4j.asEnumerable( results ) );
+                final List<SpillFile<TSource>> files = new ArrayList<>();
+                for ( AggregatePartition<TKey, TSource, TAccumulate> partition : partitions ) {
+                    partition.groups.forEach( ( groupKey, accumulator ) -> results.add( resultSelector.apply( groupKey.key, accumulator ) ) );
+                    partition.groups.clear();
+                    budget.release( partition.reserved );
+                    if ( partition.spill != null ) {
+                        // Rows of a partition all share the bits of the hash code of the first level
+                        files.add( partition.spill );
+                        parts.add( SpillingEnumerables.hashAggregate( partition.spill.asEnumerable(), keySelector, accumulatorInitializer, accumulatorAdder, resultSelector, comparer, budget, 1 ) );
+                    }
+                }
+                if ( files.isEmpty() ) {
+                    return Linq4j.enumerator( results );
+                }
+                return SpillingEnumerables.onClose( Linq4j.concat( parts ).enumerator(), () -> SpillingEnumerables.closeAll( files ) );
+            }
+        };
+    }
+
+
+    static <TSource, TInner, TKey, TResult> Enumerable<TResult> hashJoin(
+            final Enumerable<TSource> outer,
+            final Enumerable<TInner> inner,
+            final Function1<TSource, TKey> outerKeySelector,
+            final Function1<TInner, TKey> innerKeySelector,
+            final Function2<TSource, TInner, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final boolean generateNullsOnLeft,
+            final boolean generateNullsOnRight,
+            final MemoryBudget budget,
+            final int parallelism ) {
+        return new AbstractEnumerable<TResult>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                final ForkJoinPool pool = ForkJoinPool.commonPool();
+                final List<List<TInner>> morsels = new ArrayList<>();
+                final List<Future<Partitioned<TKey, TInner>>> pending = new ArrayList<>();
+                final List<Partitioned<TKey, TInner>> partitioned = new ArrayList<>();
+                long reserved = 0;
+                final Enumerator<TInner> innerEnumerator = inner.enumerator();
+                List<TInner> morsel;
+                try {
+                    morsel = readMorsel( innerEnumerator );
+                } catch ( RuntimeException e ) {
+                    innerEnumerator.close();
+                    throw e;
+                }
+                if ( morsel.size() < MORSEL_SIZE ) {
+                    // Not worth partitioning
+                    innerEnumerator.close();
+                    return SpillingEnumerables.hashJoin( outer, Linq4j.asEnumerable( morsel ), outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, budget, 0 ).enumerator();
+                }
+                try {
+                    while ( true ) {
+                        long size = 0;
+                        for ( TInner row : morsel ) {
+                            size += MemoryBudget.estimateSize( row ) + SpillingEnumerables.ENTRY_SIZE;
+                        }
+                        if ( !budget.tryReserve( size ) ) {
+                            // Continue with a sequential grace hash join, starting with the rows read so far
+                            log.debug( "The inner input of a parallel hash join exceeds the memory budget" );
+                            cancelAll( pending );
+                            budget.release( reserved );
+                            morsels.add( morsel );
+                            final List<Enumerable<TInner>> parts = new ArrayList<>();
+                            for ( List<TInner> rows : morsels ) {
+                                parts.add( Linq4j.asEnumerable( rows ) );
+                            }
+                            parts.add( remaining( innerEnumerator ) );
+                            final Enumerable<TResult> joined = SpillingEnumerables.hashJoin( outer, Linq4j.concat( parts ), outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, budget, 0 );
+                            return SpillingEnumerables.onClose( joined.enumerator(), innerEnumerator::close );
+                        }
+                        reserved += size;
+                        morsels.add( morsel );
+                        final List<TInner> rows = morsel;
+                        pending.add( pool.submit( () -> partition( rows, innerKeySelector, comparer ) ) );
+                        if ( pending.size() - partitioned.size() >= parallelism ) {
+                            partitioned.add( await( pending.get( partitioned.size() ) ) );
+                        }
+                        if ( morsel.size() < MORSEL_SIZE ) {
+                            break;
+                        }
+                        morsel = readMorsel( innerEnumerator );
+                    }
+                    while ( partitioned.size() < pending.size() ) {
+                        partitioned.add( await( pending.get( partitioned.size() ) ) );
+                    }
+                } catch ( RuntimeException e ) {
+                    cancelAll( pending );
+                    budget.release( reserved );
+                    innerEnumerator.close();
+                    throw e;
+                }
+                innerEnumerator.close();
+                morsels.clear();
+
+                // Build the hash tables of the partitions
+                final List<Future<Map<GroupKey<TKey>, Bucket<TInner>>>> builds = new ArrayList<>( SpillingEnumerables.PARTITIONS );
+                final List<Map<GroupKey<TKey>, Bucket<TInner>>> tables = new ArrayList<>( SpillingEnumerables.PARTITIONS );
+                try {
+                    for ( int i = 0; i < SpillingEnumerables.PARTITIONS; i++ ) {
+                        final int partition = i;
+                        builds.add( pool.submit( () -> build( partitioned, partition ) ) );
+                    }
+                    for ( Future<Map<GroupKey<TKey>, Bucket<TInner>>> build : builds ) {
+                        tables.add( await( build ) );
+                    }
+                } catch ( RuntimeException e ) {
+                    cancelAll( builds );
+                    budget.release( reserved );
+                    throw e;
+                }
+                partitioned.clear();
+
+                final long innerSize = reserved;
+                return SpillingEnumerables.onClose(
+                        new ProbeEnumerator<>( outer.enumerator(), tables, outerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, parallelism ),
+                        () -> budget.release( innerSize ) );
+            }
+        };
+    }
+
+
+    /**
+     * Reads the rest of the source in morsels and applies the action to each of them, starting with the given first
+     * morsel. Full morsels are processed in parallel, the last one by the calling thread. Returns once all morsels have
+     * been processed; the enumerator is closed.
+     */
+    private static <T> void forEachMorsel( Enumerator<T> source, List<T> first, int parallelism, MorselAction<T> action ) {
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        final Deque<Future<?>> pending = new ArrayDeque<>();
+        try ( Enumerator<T> enumerator = source ) {
+            List<T> morsel = first;
+            while ( morsel.size() == MORSEL_SIZE ) {
+                final List<T> rows = morsel;
+                pending.add( pool.submit( () -> action.apply( rows ) ) );
+                while ( pending.size() >= parallelism ) {
+                    await( pending.poll() );
+                }
+                morsel = readMorsel( enumerator );
+            }
+            if ( !morsel.isEmpty() ) {
+                action.apply( morsel );
+            }
+            while ( !pending.isEmpty() ) {
+                await( pending.poll() );
+            }
+        } finally {
+            cancelAll( pending );
+        }
+    }
+
+
+    private static <T> List<T> readMorsel( Enumerator<T> enumerator ) {
+        final List<T> morsel = new ArrayList<>( MORSEL_SIZE );
+        while ( morsel.size() < MORSEL_SIZE && enumerator.moveNext() ) {
+            morsel.add( enumerator.current() );
+        }
+        return morsel;
+    }
+
+
+    /**
+     * Splits the rows of a morsel into the partitions of their keys.
+     */
+    private static <TKey, T> Partitioned<TKey, T> partition( List<T> morsel, Function1<T, TKey> keySelector, EqualityComparer<TKey> comparer ) {
+        final Partitioned<TKey, T> partitioned = new Partitioned<>();
+        for ( T row : morsel ) {
+            final GroupKey<TKey> key = new GroupKey<>( keySelector.apply( row ), comparer );
+            final int partition = SpillingEnumerables.partition( key.hash, 0 );
+            partitioned.keys.get( partition ).add( key );
+            partitioned.rows.get( partition ).add( row );
+        }
+        return partitioned;
+    }
+
+
+    /**
+     * Builds the hash table of a partition of the inner input, keeping the order of the rows of each key.
+     */
+    private static <TKey, TInner> Map<GroupKey<TKey>, Bucket<TInner>> build( List<Partitioned<TKey, TInner>> morsels, int partition ) {
+        final Map<GroupKey<TKey>, Bucket<TInner>> table = new HashMap<>();
+        for ( Partitioned<TKey, TInner> morsel : morsels ) {
+            final List<GroupKey<TKey>> keys = morsel.keys.get( partition );
+            final List<TInner> rows = morsel.rows.get( partition );
+            for ( int i = 0; i < rows.size(); i++ ) {
+                table.computeIfAbsent( keys.get( i ), k -> new Bucket<>() ).rows.add( rows.get( i ) );
+            }
+        }
+        return table;
+    }
+
+
+    /**
+     * Returns an enumerable over the remaining rows of an enumerator. It can only be enumerated once.
+     */
+    private static <T> Enumerable<T> remaining( final Enumerator<T> enumerator ) {
+        return new AbstractEnumerable<T>() {
+            @Override
+            public Enumerator<T> enumerator() {
+                return enumerator;
+            }
+        };
+    }
+
+
+    private static <R> R await( Future<R> future ) {
+        try {
+            return future.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( e );
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            } else if ( e.getCause() instanceof Error ) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException( e.getCause() );
+        }
+    }
+
+
+    /**
+     * Cancels the tasks which have not been started yet and waits for the others, so that no task is running anymore
+     * when the memory they use is released.
+     */
+    private static void cancelAll( Collection<? extends Future<?>> futures ) {
+        boolean interrupted = false;
+        for ( Future<?> future : futures ) {
+            if ( !future.cancel( false ) ) {
+                while ( true ) {
+                    try {
+                        future.get();
+                        break;
+                    } catch ( InterruptedException e ) {
+                        interrupted = true;
+                    } catch ( ExecutionException | RuntimeException e ) {
+                        // Already reported or superseded by the exception which caused the cancellation
+                        break;
+                    }
+                }
+            }
+        }
+        futures.clear();
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Action processing a morsel.
+     */
+    private interface MorselAction<T> {
+
+        void apply( List<T> morsel );
+
+    }
+
+
+    /**
+     * The rows of a morsel and their keys, split into partitions.
+     */
+    private static class Partitioned<TKey, T> {
+
+        private final List<List<GroupKey<TKey>>> keys = new ArrayList<>( SpillingEnumerables.PARTITIONS );
+        private final List<List<T>> rows = new ArrayList<>( SpillingEnumerables.PARTITIONS );
+
+
+        private Partitioned() {
+            for ( int i = 0; i < SpillingEnumerables.PARTITIONS; i++ ) {
+                keys.add( new ArrayList<>() );
+                rows.add( new ArrayList<>() );
+            }
+        }
+
+    }
+
+
+    /**
+     * The groups of a partition of the hash aggregation. Once the memory budget is exceeded, no new groups are added;
+     * the rows of groups which are not in memory are spilled instead.
+     */
+    private static class AggregatePartition<TKey, TSource, TAccumulate> {
+
+        private final Map<GroupKey<TKey>, TAccumulate> groups = new HashMap<>();
+        private SpillFile<TSource> spill;
+        private long reserved = 0;
+
+
+        private synchronized void add(
+                List<GroupKey<TKey>> keys,
+                List<TSource> rows,
+                Function0<TAccumulate> accumulatorInitializer,
+                Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+                MemoryBudget budget ) {
+            for ( int i = 0; i < rows.size(); i++ ) {
+                final GroupKey<TKey> groupKey = keys.get( i );
+                final TSource row = rows.get( i );
+                final TAccumulate accumulator = groups.get( groupKey );
+                if ( accumulator != null || groups.containsKey( groupKey ) ) {
+                    groups.put( groupKey, accumulatorAdder.apply( accumulator, row ) );
+                    continue;
+                }
+                if ( spill == null ) {
+                    final long size = MemoryBudget.estimateSize( groupKey.key ) + SpillingEnumerables.ACCUMULATOR_SIZE + SpillingEnumerables.ENTRY_SIZE;
+                    final boolean fits = budget.tryReserve( size );
+                    if ( fits || groups.isEmpty() ) {
+                        if ( !fits ) {
+                            budget.reserve( size );
+                        }
+                        reserved += size;
+                        groups.put( groupKey, accumulatorAdder.apply( accumulatorInitializer.apply(), row ) );
+                        continue;
+                    }
+                    log.debug( "Spilling a partition of a parallel hash aggregation" );
+                    spill = new SpillFile<>( budget );
+                }
+                spill.write( row );
+            }
+        }
+
+
+        private synchronized void close( MemoryBudget budget ) {
+            groups.clear();
+            budget.release( reserved );
+            reserved = 0;
+            if ( spill != null ) {
+                spill.close();
+            }
+        }
+
+    }
+
+
+    /**
+     * The rows of the inner input with the same key. Whether a row of the outer input matched them is only tracked for
+     * right and full outer joins; concurrent writes are harmless as they only ever set the flag.
+     */
+    private static class Bucket<TInner> {
+
+        private final List<TInner> rows = new ArrayList<>();
+        private volatile boolean matched = false;
+
+    }
+
+
+    /**
+     * Probes the hash tables with morsels of the outer input, up to {@code parallelism} at the same time, and returns
+     * the results in the order of the outer input. Unmatched inner rows follow at the end if nulls are generated on the
+     * left.
+     */
+    private static class ProbeEnumerator<TSource, TInner, TKey, TResult> implements Enumerator<TResult> {
+
+        private final Enumerator<TSource> outer;
+        private final List<Map<GroupKey<TKey>, Bucket<TInner>>> tables;
+        private final Function1<TSource, TKey> outerKeySelector;
+        private final Function2<TSource, TInner, TResult> resultSelector;
+        private final EqualityComparer<TKey> comparer;
+        private final boolean generateNullsOnLeft;
+        private final boolean generateNullsOnRight;
+        private final int parallelism;
+
+        private final Deque<Future<List<TResult>>> pending = new ArrayDeque<>();
+        private Iterator<TResult> results = Collections.emptyIterator();
+        private boolean outerDone = false;
+        private boolean unmatchedDone = false;
+        private TResult current;
+
+
+        private ProbeEnumerator(
+                Enumerator<TSource> outer,
+                List<Map<GroupKey<TKey>, Bucket<TInner>>> tables,
+                Function1<TSource, TKey> outerKeySelector,
+                Function2<TSource, TInner, TResult> resultSelector,
+                EqualityComparer<TKey> comparer,
+                boolean generateNullsOnLeft,
+                boolean generateNullsOnRight,
+                int parallelism ) {
+            this.outer = outer;
+            this.tables = tables;
+            this.outerKeySelector = outerKeySelector;
+            this.resultSelector = resultSelector;
+            this.comparer = comparer;
+            this.generateNullsOnLeft = generateNullsOnLeft;
+            this.generateNullsOnRight = generateNullsOnRight;
+            this.parallelism = parallelism;
+        }
+
+
+        @Override
+        public TResult current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            while ( true ) {
+                if ( results.hasNext() ) {
+                    current = results.next();
+                    return true;
+                }
+                while ( !outerDone && pending.size() < parallelism ) {
+                    final List<TSource> morsel = readMorsel( outer );
+                    outerDone = morsel.size() < MORSEL_SIZE;
+                    if ( !morsel.isEmpty() ) {
+                        pending.add( ForkJoinPool.commonPool().submit( () -> probe( morsel ) ) );
+                    }
+                }
+                if ( !pending.isEmpty() ) {
+                    results = await( pending.poll() ).iterator();
+                } else if ( !unmatchedDone ) {
+                    unmatchedDone = true;
+                    if ( generateNullsOnLeft ) {
+                        results = unmatched().iterator();
+                    }
+                } else {
+                    return false;
+                }
+            }
+        }
+
+
+        private List<TResult> probe( List<TSource> morsel ) {
+            final List<TResult> joined = new ArrayList<>( morsel.size() );
+            for ( TSource row : morsel ) {
+                final TKey key = outerKeySelector.apply( row );
+                Bucket<TInner> bucket = null;
+                if ( key != null ) {
+                    final GroupKey<TKey> groupKey = new GroupKey<>( key, comparer );
+                    bucket = tables.get( SpillingEnumerables.partition( groupKey.hash, 0 ) ).get( groupKey );
+                }
+                if ( bucket == null ) {
+                    if ( generateNullsOnRight ) {
+                        joined.add( resultSelector.apply( row, null ) );
+                    }
+                    continue;
+                }
+                if ( generateNullsOnLeft && !bucket.matched ) {
+                    bucket.matched = true;
+                }
+                for ( TInner innerRow : bucket.rows ) {
+                    joined.add( resultSelector.apply( row, innerRow ) );
+                }
+            }
+            return joined;
+        }
+
+
+        private List<TResult> unmatched() {
+            final List<TResult> joined = new ArrayList<>();
+            for ( Map<GroupKey<TKey>, Bucket<TInner>> table : tables ) {
+                for ( Bucket<TInner> bucket : table.values() ) {
+                    if ( !bucket.matched ) {
+                        for ( TInner innerRow : bucket.rows ) {
+                            joined.add( resultSelector.apply( null, innerRow ) );
+                        }
+                    }
+                }
+            }
+            return joined;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            cancelAll( pending );
+            outer.close();
+        }
+
+    }
+
+}
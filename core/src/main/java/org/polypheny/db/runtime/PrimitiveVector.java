@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+
+/**
+ * Immutable list of floating point numbers which is backed by a primitive array.
+ *
+ * Arrays of {@code DOUBLE} and {@code REAL} values are represented by this class at runtime. Since it is a list, it can be
+ * used everywhere an array value is expected. Functions operating on vectors, like the ones in {@link DistanceFunctions},
+ * can access the primitive values using {@link #toDoubleArray()} without boxing them.
+ *
+ * @param <E> Type of the elements
+ */
+public abstract class PrimitiveVector<E extends Number> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private PrimitiveVector() {
+    }
+
+
+    /**
+     * Creates a vector of doubles. The array is not copied and must not be modified afterwards.
+     */
+    public static DoubleVector of( double... values ) {
+        return new DoubleVector( values );
+    }
+
+
+    /**
+     * Creates a vector of floats. The array is not copied and must not be modified afterwards.
+     */
+    public static FloatVector of( float... values ) {
+        return new FloatVector( values );
+    }
+
+
+    /**
+     * Returns the values of a list of numbers as array of doubles. If the list is a {@link PrimitiveVector}, no values
+     * need to be converted.
+     *
+     * @param list A list of numbers
+     * @return The values; must not be modified
+     */
+    @SuppressWarnings("unchecked")
+    public static double[] toDoubleArray( List<?> list ) {
+        if ( list instanceof PrimitiveVector ) {
+            return ((PrimitiveVector<?>) list).toDoubleArray();
+        }
+        final double[] values = new double[list.size()];
+        if ( list instanceof RandomAccess ) {
+            for ( int i = 0; i < values.length; i++ ) {
+                values[i] = ((Number) list.get( i )).doubleValue();
+            }
+        } else {
+            int i = 0;
+            for ( Number number : (List<Number>) list ) {
+                values[i++] = number.doubleValue();
+            }
+        }
+        return values;
+    }
+
+
+    /**
+     * Returns the values of this vector as array of doubles. The array must not be modified.
+     */
+    public abstract double[] toDoubleArray();
+
+
+    /**
+     * Vector of {@code double} values.
+     */
+    public static final class DoubleVector extends PrimitiveVector<Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+
+
+        private DoubleVector( double[] values ) {
+            this.values = values;
+        }
+
+
+        @Override
+        public Double get( int index ) {
+            return values[index];
+        }
+
+
+        public double getDouble( int index ) {
+            return values[index];
+        }
+
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+
+        @Override
+        public double[] toDoubleArray() {
+            return values;
+        }
+
+    }
+
+
+    /**
+     * Vector of {@code float} values.
+     */
+    public static final class FloatVector extends PrimitiveVector<Float> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final float[] values;
+        private transient volatile double[] doubleValues;
+
+
+        private FloatVector( float[] values ) {
+            this.values = values;
+        }
+
+
+        @Override
+        public Float get( int index ) {
+            return values[index];
+        }
+
+
+        public float getFloat( int index ) {
+            return values[index];
+        }
+
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+
+        /**
+         * Returns the values widened to doubles. They are converted on the first call.
+         */
+        @Override
+        public double[] toDoubleArray() {
+            double[] result = doubleValues;
+            if ( result == null ) {
+                result = new double[values.length];
+                for ( int i = 0; i < values.length; i++ ) {
+                    result[i] = values[i];
+                }
+                doubleValues = result;
+            }
+            return result;
+        }
+
+    }
+
+}
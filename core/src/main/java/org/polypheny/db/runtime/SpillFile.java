@@ -0,0 +1,374 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.calcite.avatica.util.ByteString;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+
+
+/**
+ * A temporary file holding rows spilled by a blocking operator. Rows are written once and can then be read any number
+ * of times. The file is deleted when the spill file is closed.
+ *
+ * The values of the enumerable convention (numbers, strings, decimals, binaries, arrays and lists, e.g. the
+ * {@link FlatLists flat lists} of composite keys) are written in a compact tagged format. Lists are read back as
+ * {@link FlatLists#of(List) flat lists}. Other serializable values are written using Java serialization. Values which
+ * cannot be serialized at all, e.g. the streams of multimedia columns, are kept in memory and accounted for in the
+ * budget.
+ *
+ * @param <T> Type of the rows
+ */
+public class SpillFile<T> implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte CHAR = 9;
+    private static final byte STRING = 10;
+    private static final byte DECIMAL = 11;
+    private static final byte BYTES = 12;
+    private static final byte BYTE_STRING = 13;
+    private static final byte ARRAY = 14;
+    private static final byte LIST = 15;
+    private static final byte SERIALIZED = 16;
+    private static final byte PINNED = 17;
+
+    private final MemoryBudget budget;
+    private final File file;
+    private DataOutputStream out;
+    private long count = 0;
+
+    /**
+     * Values which cannot be serialized; the file holds their index.
+     */
+    private final List<Object> pinned = new ArrayList<>();
+    private long pinnedSize = 0;
+
+
+    public SpillFile( MemoryBudget budget ) {
+        this.budget = budget;
+        try {
+            this.file = budget.createSpillFile();
+            this.out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ), BUFFER_SIZE ) );
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to create a spill file", e );
+        }
+    }
+
+
+    public void write( T row ) {
+        if ( out == null ) {
+            throw new IllegalStateException( "The spill file has already been finished" );
+        }
+        try {
+            writeValue( row );
+            count++;
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to spill rows to disk", e );
+        }
+    }
+
+
+    /**
+     * Number of rows written to this file.
+     */
+    public long size() {
+        return count;
+    }
+
+
+    /**
+     * Completes writing. Called implicitly when the rows are read for the first time.
+     */
+    public void finish() {
+        if ( out == null ) {
+            return;
+        }
+        try {
+            out.close();
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to spill rows to disk", e );
+        }
+        out = null;
+        budget.addSpilled( file.length() );
+    }
+
+
+    public Enumerable<T> asEnumerable() {
+        return new AbstractEnumerable<T>() {
+            @Override
+            public Enumerator<T> enumerator() {
+                return SpillFile.this.enumerator();
+            }
+        };
+    }
+
+
+    public Enumerator<T> enumerator() {
+        finish();
+        final DataInputStream in;
+        try {
+            in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ), BUFFER_SIZE ) );
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to read spilled rows", e );
+        }
+        return new Enumerator<T>() {
+            private long read = 0;
+            private T current;
+
+
+            @Override
+            public T current() {
+                return current;
+            }
+
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public boolean moveNext() {
+                if ( read == count ) {
+                    return false;
+                }
+                try {
+                    current = (T) readValue( in );
+                } catch ( IOException | ClassNotFoundException e ) {
+                    throw new RuntimeException( "Unable to read spilled rows", e );
+                }
+                read++;
+                return true;
+            }
+
+
+            @Override
+            public void reset() {
+                throw new UnsupportedOperationException();
+            }
+
+
+            @Override
+            public void close() {
+                try {
+                    in.close();
+                } catch ( IOException e ) {
+                    // Ignore, the file is deleted anyway
+                }
+            }
+        };
+    }
+
+
+    @Override
+    public void close() {
+        if ( out != null ) {
+            try {
+                out.close();
+            } catch ( IOException e ) {
+                // Ignore, the file is deleted anyway
+            }
+            out = null;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+        pinned.clear();
+        budget.release( pinnedSize );
+        pinnedSize = 0;
+    }
+
+
+    private void writeValue( Object value ) throws IOException {
+        if ( value == null ) {
+            out.writeByte( NULL );
+        } else if ( value instanceof Boolean ) {
+            out.writeByte( (Boolean) value ? TRUE : FALSE );
+        } else if ( value instanceof Byte ) {
+            out.writeByte( BYTE );
+            out.writeByte( (Byte) value );
+        } else if ( value instanceof Short ) {
+            out.writeByte( SHORT );
+            out.writeShort( (Short) value );
+        } else if ( value instanceof Integer ) {
+            out.writeByte( INT );
+            out.writeInt( (Integer) value );
+        } else if ( value instanceof Long ) {
+            out.writeByte( LONG );
+            out.writeLong( (Long) value );
+        } else if ( value instanceof Float ) {
+            out.writeByte( FLOAT );
+            out.writeFloat( (Float) value );
+        } else if ( value instanceof Double ) {
+            out.writeByte( DOUBLE );
+            out.writeDouble( (Double) value );
+        } else if ( value instanceof Character ) {
+            out.writeByte( CHAR );
+            out.writeChar( (Character) value );
+        } else if ( value instanceof String ) {
+            out.writeByte( STRING );
+            writeBytes( ((String) value).getBytes( StandardCharsets.UTF_8 ) );
+        } else if ( value instanceof BigDecimal ) {
+            out.writeByte( DECIMAL );
+            out.writeInt( ((BigDecimal) value).scale() );
+            writeBytes( ((BigDecimal) value).unscaledValue().toByteArray() );
+        } else if ( value instanceof byte[] ) {
+            out.writeByte( BYTES );
+            writeBytes( (byte[]) value );
+        } else if ( value instanceof ByteString ) {
+            out.writeByte( BYTE_STRING );
+            writeBytes( ((ByteString) value).getBytes() );
+        } else if ( value instanceof Object[] ) {
+            out.writeByte( ARRAY );
+            out.writeInt( ((Object[]) value).length );
+            for ( Object element : (Object[]) value ) {
+                writeValue( element );
+            }
+        } else if ( value instanceof List ) {
+            out.writeByte( LIST );
+            out.writeInt( ((List<?>) value).size() );
+            for ( Object element : (List<?>) value ) {
+                writeValue( element );
+            }
+        } else {
+            final byte[] serialized = value instanceof Serializable ? serialize( value ) : null;
+            if ( serialized != null ) {
+                out.writeByte( SERIALIZED );
+                writeBytes( serialized );
+            } else {
+                final long size = MemoryBudget.estimateSize( value );
+                budget.reserve( size );
+                pinnedSize += size;
+                out.writeByte( PINNED );
+                out.writeInt( pinned.size() );
+                pinned.add( value );
+            }
+        }
+    }
+
+
+    private void writeBytes( byte[] bytes ) throws IOException {
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+
+    /**
+     * Serializes a value using Java serialization; returns {@code null} if it references a value which is not
+     * serializable.
+     */
+    private static byte[] serialize( Object value ) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream objects = new ObjectOutputStream( bytes ) ) {
+            objects.writeObject( value );
+        } catch ( NotSerializableException e ) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+
+    private Object readValue( DataInputStream in ) throws IOException, ClassNotFoundException {
+        final byte tag = in.readByte();
+        switch ( tag ) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case CHAR:
+                return in.readChar();
+            case STRING:
+                return new String( readBytes( in ), StandardCharsets.UTF_8 );
+            case DECIMAL:
+                final int scale = in.readInt();
+                return new BigDecimal( new BigInteger( readBytes( in ) ), scale );
+            case BYTES:
+                return readBytes( in );
+            case BYTE_STRING:
+                return new ByteString( readBytes( in ) );
+            case ARRAY:
+                final Object[] array = new Object[in.readInt()];
+                for ( int i = 0; i < array.length; i++ ) {
+                    array[i] = readValue( in );
+                }
+                return array;
+            case LIST:
+                final Object[] elements = new Object[in.readInt()];
+                for ( int i = 0; i < elements.length; i++ ) {
+                    elements[i] = readValue( in );
+                }
+                return FlatLists.of( Arrays.asList( elements ) );
+            case SERIALIZED:
+                try ( ObjectInputStream objects = new ObjectInputStream( new ByteArrayInputStream( readBytes( in ) ) ) ) {
+                    return objects.readObject();
+                }
+            case PINNED:
+                return pinned.get( in.readInt() );
+            default:
+                throw new IOException( "Unknown tag " + tag + " in spill file" );
+        }
+    }
+
+
+    private static byte[] readBytes( DataInputStream in ) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+}
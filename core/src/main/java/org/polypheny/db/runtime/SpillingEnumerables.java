@@ -0,0 +1,662 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.EnumerableDefaults;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.EqualityComparer;
+import org.apache.calcite.linq4j.function.Function0;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+import org.polypheny.db.adapter.DataContext;
+
+
+/**
+ * Blocking operators of the enumerable convention which track their memory in the {@link MemoryBudget} of the
+ * statement and spill to temporary files if the budget is exceeded:
+ *
+ * <ul>
+ * <li>{@link #orderBy}: external merge sort. Sorted runs are written whenever the buffered rows exceed the budget
+ * and merged at the end, in several passes if there are too many runs to be opened at once.</li>
+ * <li>{@link #groupBy}: hybrid hash aggregation. Once the budget is exceeded, rows of groups which are not yet in
+ * memory are partitioned to disk by the hash of their key and aggregated partition by partition.</li>
+ * <li>{@link #join}: grace hash join. If the inner input exceeds the budget, both inputs are partitioned to disk by
+ * the hash of their key and the partitions are joined pairwise.</li>
+ * </ul>
+ *
+ * Without a limit, the operators delegate to the corresponding in-memory implementations of linq4j. See
+ * {@link SpillFile} for how spilled rows are serialized. The hash aggregation and the hash join are evaluated by {@link ParallelEnumerables} if a
+ * parallelism greater than one is requested.
+ */
+@Slf4j
+public class SpillingEnumerables {
+
+    /**
+     * Number of partitions of the hash aggregation and the hash join. A power of two.
+     */
+    static final int PARTITIONS = 16;
+
+    /**
+     * Maximum number of times a partition is partitioned again. Deeper partitions are processed in memory regardless of
+     * the budget, e.g. if most rows share the same key.
+     */
+    static final int MAX_DEPTH = 4;
+
+    /**
+     * Minimum number of rows of a sorted run. Avoids tiny runs if the budget is used up by other operators.
+     */
+    static final int MIN_RUN_ROWS = 1024;
+
+    /**
+     * Maximum number of sorted runs merged at once. Each of them holds an open file and a read buffer.
+     */
+    static final int MAX_MERGE_FAN_IN = 64;
+
+    /**
+     * Estimated size of an entry of a buffer or hash table, excluding the row or key itself.
+     */
+    static final long ENTRY_SIZE = 32;
+
+    /**
+     * Estimated size of an accumulator of the hash aggregation.
+     */
+    static final long ACCUMULATOR_SIZE = 64;
+
+
+    private SpillingEnumerables() {
+    }
+
+
+    /**
+     * Sorts the rows by the given key; rows with equal keys keep their order.
+     *
+     * @param comparator Comparator of the keys; {@code null} for their natural order
+     * @param root The data context providing the memory budget
+     */
+    public static <TSource, TKey> Enumerable<TSource> orderBy(
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Comparator<TKey> comparator,
+            final DataContext root ) {
+        final MemoryBudget budget = MemoryBudget.of( root );
+        if ( !budget.isLimited() ) {
+            return EnumerableDefaults.orderBy( source, keySelector, comparator );
+        }
+        return sort( source, keySelector, comparator, budget );
+    }
+
+
+    /**
+     * Groups the rows by the given key and aggregates each group.
+     *
+     * @param comparer Equality of the keys; {@code null} for {@link Object#equals(Object)}
+     * @param root The data context providing the memory budget
+     * @param parallelism Maximum number of threads aggregating the rows (see {@link ParallelEnumerables})
+     */
+    public static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult> groupBy(
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Function0<TAccumulate> accumulatorInitializer,
+            final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+            final Function2<TKey, TAccumulate, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final DataContext root,
+            final int parallelism ) {
+        final MemoryBudget budget = MemoryBudget.of( root );
+        if ( parallelism > 1 ) {
+            return ParallelEnumerables.hashAggregate( source, keySelector, accumulatorInitializer, accumulatorAdder, resultSelector, comparer, budget, parallelism );
+        }
+        if ( !budget.isLimited() ) {
+            return comparer == null
+                    ? EnumerableDefaults.groupBy( source, keySelector, accumulatorInitializer, accumulatorAdder, resultSelector )
+                    : EnumerableDefaults.groupBy( source, keySelector, accumulatorInitializer, accumulatorAdder, resultSelector, comparer );
+        }
+        return hashAggregate( source, keySelector, accumulatorInitializer, accumulatorAdder, resultSelector, comparer, budget, 0 );
+    }
+
+
+    /**
+     * Joins the rows with equal keys; the inner input is kept in memory as far as the budget allows.
+     *
+     * @param comparer Equality of the keys; {@code null} for {@link Object#equals(Object)}
+     * @param generateNullsOnLeft Whether unmatched inner rows are joined with nulls (right or full outer join)
+     * @param generateNullsOnRight Whether unmatched outer rows are joined with nulls (left or full outer join)
+     * @param root The data context providing the memory budget
+     * @param parallelism Maximum number of threads building and probing the hash table (see {@link ParallelEnumerables})
+     */
+    public static <TSource, TInner, TKey, TResult> Enumerable<TResult> join(
+            final Enumerable<TSource> outer,
+            final Enumerable<TInner> inner,
+            final Function1<TSource, TKey> outerKeySelector,
+            final Function1<TInner, TKey> innerKeySelector,
+            final Function2<TSource, TInner, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final boolean generateNullsOnLeft,
+            final boolean generateNullsOnRight,
+            final DataContext root,
+            final int parallelism ) {
+        final MemoryBudget budget = MemoryBudget.of( root );
+        if ( parallelism > 1 ) {
+            return ParallelEnumerables.hashJoin( outer, inner, outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, budget, parallelism );
+        }
+        if ( !budget.isLimited() ) {
+            return EnumerableDefaults.join( outer, inner, outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight );
+        }
+        return hashJoin( outer, inner, outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, budget, 0 );
+    }
+
+
+    @SuppressWarnings("unchecked")
+    static <TSource, TKey> Enumerable<TSource> sort(
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Comparator<TKey> comparator,
+            final MemoryBudget budget ) {
+        final Comparator<TKey> keyComparator = comparator != null ? comparator : (Comparator<TKey>) Comparator.naturalOrder();
+        final Comparator<Keyed<TKey, TSource>> entryComparator = ( a, b ) -> keyComparator.compare( a.key, b.key );
+        return new AbstractEnumerable<TSource>() {
+            @Override
+            public Enumerator<TSource> enumerator() {
+                final List<SpillFile<TSource>> runs = new ArrayList<>();
+                final List<Keyed<TKey, TSource>> buffer = new ArrayList<>();
+                long reserved = 0;
+                try ( Enumerator<TSource> enumerator = source.enumerator() ) {
+                    while ( enumerator.moveNext() ) {
+                        final TSource row = enumerator.current();
+                        final long size = MemoryBudget.estimateSize( row ) + ENTRY_SIZE;
+                        if ( !budget.tryReserve( size ) ) {
+                            if ( buffer.size() >= MIN_RUN_ROWS ) {
+                                // Write a sorted run; List.sort is stable
+                                buffer.sort( entryComparator );
+                                final SpillFile<TSource> run = new SpillFile<>( budget );
+                                runs.add( run );
+                                for ( Keyed<TKey, TSource> entry : buffer ) {
+                                    run.write( entry.value );
+                                }
+                                run.finish();
+                                buffer.clear();
+                                budget.release( reserved );
+                                reserved = 0;
+                            }
+                            budget.reserve( size );
+                        }
+                        reserved += size;
+                        buffer.add( new Keyed<>( keySelector.apply( row ), row ) );
+                    }
+                } catch ( RuntimeException e ) {
+                    budget.release( reserved );
+                    runs.forEach( SpillFile::close );
+                    throw e;
+                }
+                buffer.sort( entryComparator );
+                final long bufferSize = reserved;
+                if ( runs.isEmpty() ) {
+                    return onClose( Linq4j.transform( Linq4j.enumerator( buffer ), entry -> entry.value ), () -> budget.release( bufferSize ) );
+                }
+
+                // Merge consecutive runs until the remaining ones and the buffer can be merged at once
+                List<SpillFile<TSource>> remaining = runs;
+                final List<SpillFile<TSource>> created = new ArrayList<>( runs );
+                try {
+                    while ( remaining.size() >= MAX_MERGE_FAN_IN ) {
+                        log.debug( "Merging {} sorted runs in groups of {}", remaining.size(), MAX_MERGE_FAN_IN );
+                        final List<SpillFile<TSource>> merged = new ArrayList<>();
+                        for ( int i = 0; i < remaining.size(); i += MAX_MERGE_FAN_IN ) {
+                            final List<SpillFile<TSource>> group = remaining.subList( i, Math.min( i + MAX_MERGE_FAN_IN, remaining.size() ) );
+                            if ( group.size() == 1 ) {
+                                merged.add( group.get( 0 ) );
+                                continue;
+                            }
+                            final SpillFile<TSource> run = new SpillFile<>( budget );
+                            created.add( run );
+                            merged.add( run );
+                            try ( Enumerator<TSource> rows = merge( group, Collections.emptyIterator(), keySelector, keyComparator ) ) {
+                                while ( rows.moveNext() ) {
+                                    run.write( rows.current() );
+                                }
+                            }
+                            run.finish();
+                            group.forEach( SpillFile::close );
+                        }
+                        remaining = merged;
+                    }
+                } catch ( RuntimeException e ) {
+                    budget.release( bufferSize );
+                    created.forEach( SpillFile::close );
+                    throw e;
+                }
+                log.debug( "Merging {} sorted runs", remaining.size() + 1 );
+
+                final List<SpillFile<TSource>> files = remaining;
+                return onClose( merge( files, buffer.iterator(), keySelector, keyComparator ), () -> {
+                    closeAll( files );
+                    budget.release( bufferSize );
+                } );
+            }
+        };
+    }
+
+
+    /**
+     * Merges sorted runs and a sorted buffer, which is treated as the last run; on equal keys, earlier runs come first.
+     * Closing the returned enumerator closes the readers of the runs, but not the runs themselves.
+     */
+    private static <TKey, TSource> Enumerator<TSource> merge(
+            final List<SpillFile<TSource>> runs,
+            final Iterator<Keyed<TKey, TSource>> buffer,
+            final Function1<TSource, TKey> keySelector,
+            final Comparator<TKey> keyComparator ) {
+        final List<Enumerator<TSource>> readers = new ArrayList<>();
+        final PriorityQueue<RunCursor<TKey, TSource>> queue = new PriorityQueue<>( ( a, b ) -> {
+            final int c = keyComparator.compare( a.current.key, b.current.key );
+            return c != 0 ? c : Integer.compare( a.index, b.index );
+        } );
+        try {
+            for ( int i = 0; i < runs.size(); i++ ) {
+                final Enumerator<TSource> reader = runs.get( i ).enumerator();
+                readers.add( reader );
+                final Iterator<TSource> rows = Linq4j.enumeratorIterator( reader );
+                addCursor( queue, new RunCursor<>( i, new Iterator<Keyed<TKey, TSource>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return rows.hasNext();
+                    }
+
+
+                    @Override
+                    public Keyed<TKey, TSource> next() {
+                        final TSource row = rows.next();
+                        return new Keyed<>( keySelector.apply( row ), row );
+                    }
+                } ) );
+            }
+        } catch ( RuntimeException e ) {
+            readers.forEach( Enumerator::close );
+            throw e;
+        }
+        addCursor( queue, new RunCursor<>( runs.size(), buffer ) );
+
+        return new Enumerator<TSource>() {
+            private TSource current;
+
+
+            @Override
+            public TSource current() {
+                return current;
+            }
+
+
+            @Override
+            public boolean moveNext() {
+                final RunCursor<TKey, TSource> cursor = queue.poll();
+                if ( cursor == null ) {
+                    return false;
+                }
+                current = cursor.current.value;
+                addCursor( queue, cursor );
+                return true;
+            }
+
+
+            @Override
+            public void reset() {
+                throw new UnsupportedOperationException();
+            }
+
+
+            @Override
+            public void close() {
+                readers.forEach( Enumerator::close );
+            }
+        };
+    }
+
+
+    private static <TKey, TSource> void addCursor( PriorityQueue<RunCursor<TKey, TSource>> queue, RunCursor<TKey, TSource> cursor ) {
+        if ( cursor.rows.hasNext() ) {
+            cursor.current = cursor.rows.next();
+            queue.add( cursor );
+        }
+    }
+
+
+    static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult> hashAggregate(
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Function0<TAccumulate> accumulatorInitializer,
+            final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+            final Function2<TKey, TAccumulate, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final MemoryBudget budget,
+            final int depth ) {
+        return new AbstractEnumerable<TResult>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                final Map<GroupKey<TKey>, TAccumulate> groups = new HashMap<>();
+                List<SpillFile<TSource>> partitions = null;
+                long reserved = 0;
+                try ( Enumerator<TSource> enumerator = source.enumerator() ) {
+                    while ( enumerator.moveNext() ) {
+                        final TSource row = enumerator.current();
+                        final TKey key = keySelector.apply( row );
+                        final GroupKey<TKey> groupKey = new GroupKey<>( key, comparer );
+                        final TAccumulate accumulator = groups.get( groupKey );
+                        if ( accumulator != null || groups.containsKey( groupKey ) ) {
+                            groups.put( groupKey, accumulatorAdder.apply( accumulator, row ) );
+                            continue;
+                        }
+                        if ( partitions == null ) {
+                            final long size = MemoryBudget.estimateSize( key ) + ACCUMULATOR_SIZE + ENTRY_SIZE;
+                            final boolean fits = budget.tryReserve( size );
+                            if ( fits || groups.isEmpty() || depth >= MAX_DEPTH ) {
+                                if ( !fits ) {
+                                    budget.reserve( size );
+                                }
+                                reserved += size;
+                                groups.put( groupKey, accumulatorAdder.apply( accumulatorInitializer.apply(), row ) );
+                                continue;
+                            }
+                            log.debug( "Partitioning the input of a hash aggregation (depth {})", depth );
+                            partitions = createPartitions( budget );
+                        }
+                        partitions.get( partition( groupKey.hash, depth ) ).write( row );
+                    }
+                } catch ( RuntimeException e ) {
+                    budget.release( reserved );
+                    closeAll( partitions );
+                    throw e;
+                }
+
+                final List<TResult> results = new ArrayList<>( groups.size() );
+                groups.forEach( ( groupKey, accumulator ) -> results.add( resultSelector.apply( groupKey.key, accumulator ) ) );
+                groups.clear();
+                budget.release( reserved );
+                if ( partitions == null ) {
+                    return Linq4j.enumerator( results );
+                }
+
+                // Aggregate the spilled partitions one after another
+                final List<Enumerable<TResult>> parts = new ArrayList<>();
+                parts.add( Linq4j.asEnumerable( results ) );
+                for ( SpillFile<TSource> partition : partitions ) {
+                    if ( partition.size() > 0 ) {
+                        parts.add( hashAggregate( partition.asEnumerable(), keySelector, accumulatorInitializer, accumulatorAdder, resultSelector, comparer, budget, depth + 1 ) );
+                    }
+                }
+                final List<SpillFile<TSource>> files = partitions;
+                return onClose( Linq4j.concat( parts ).enumerator(), () -> closeAll( files ) );
+            }
+        };
+    }
+
+
+    static <TSource, TInner, TKey, TResult> Enumerable<TResult> hashJoin(
+            final Enumerable<TSource> outer,
+            final Enumerable<TInner> inner,
+            final Function1<TSource, TKey> outerKeySelector,
+            final Function1<TInner, TKey> innerKeySelector,
+            final Function2<TSource, TInner, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final boolean generateNullsOnLeft,
+            final boolean generateNullsOnRight,
+            final MemoryBudget budget,
+            final int depth ) {
+        return new AbstractEnumerable<TResult>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                final List<TInner> innerRows = new ArrayList<>();
+                List<SpillFile<TInner>> innerPartitions = null;
+                List<SpillFile<TSource>> outerPartitions = null;
+                long reserved = 0;
+                try {
+                    try ( Enumerator<TInner> enumerator = inner.enumerator() ) {
+                        while ( enumerator.moveNext() ) {
+                            final TInner row = enumerator.current();
+                            if ( innerPartitions == null ) {
+                                final long size = MemoryBudget.estimateSize( row ) + ENTRY_SIZE;
+                                if ( depth >= MAX_DEPTH ) {
+                                    budget.reserve( size );
+                                }
+                                if ( depth >= MAX_DEPTH || budget.tryReserve( size ) ) {
+                                    reserved += size;
+                                    innerRows.add( row );
+                                    continue;
+                                }
+                                // Switch to a grace hash join, starting with the rows buffered so far
+                                log.debug( "Partitioning the inputs of a hash join (depth {})", depth );
+                                innerPartitions = createPartitions( budget );
+                                for ( TInner buffered : innerRows ) {
+                                    innerPartitions.get( partition( hash( innerKeySelector.apply( buffered ), comparer ), depth ) ).write( buffered );
+                                }
+                                innerRows.clear();
+                                budget.release( reserved );
+                                reserved = 0;
+                            }
+                            innerPartitions.get( partition( hash( innerKeySelector.apply( row ), comparer ), depth ) ).write( row );
+                        }
+                    }
+                    if ( innerPartitions == null ) {
+                        final long innerSize = reserved;
+                        final Enumerable<TResult> joined = EnumerableDefaults.join( outer, Linq4j.asEnumerable( innerRows ), outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight );
+                        return onClose( joined.enumerator(), () -> budget.release( innerSize ) );
+                    }
+
+                    outerPartitions = createPartitions( budget );
+                    try ( Enumerator<TSource> enumerator = outer.enumerator() ) {
+                        while ( enumerator.moveNext() ) {
+                            final TSource row = enumerator.current();
+                            outerPartitions.get( partition( hash( outerKeySelector.apply( row ), comparer ), depth ) ).write( row );
+                        }
+                    }
+                } catch ( RuntimeException e ) {
+                    budget.release( reserved );
+                    closeAll( innerPartitions );
+                    closeAll( outerPartitions );
+                    throw e;
+                }
+
+                // Join the partitions pairwise; rows with equal keys are always in partitions with the same index
+                final List<Enumerable<TResult>> parts = new ArrayList<>();
+                for ( int i = 0; i < PARTITIONS; i++ ) {
+                    final SpillFile<TSource> outerPartition = outerPartitions.get( i );
+                    final SpillFile<TInner> innerPartition = innerPartitions.get( i );
+                    final boolean outerEmpty = outerPartition.size() == 0;
+                    final boolean innerEmpty = innerPartition.size() == 0;
+                    if ( (outerEmpty && (innerEmpty || !generateNullsOnLeft)) || (innerEmpty && !generateNullsOnRight) ) {
+                        continue;
+                    }
+                    parts.add( hashJoin( outerPartition.asEnumerable(), innerPartition.asEnumerable(), outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, budget, depth + 1 ) );
+                }
+                final List<SpillFile<TInner>> innerFiles = innerPartitions;
+                final List<SpillFile<TSource>> outerFiles = outerPartitions;
+                return onClose( Linq4j.concat( parts ).enumerator(), () -> {
+                    closeAll( innerFiles );
+                    closeAll( outerFiles );
+                } );
+            }
+        };
+    }
+
+
+    private static <T> List<SpillFile<T>> createPartitions( MemoryBudget budget ) {
+        final List<SpillFile<T>> partitions = new ArrayList<>( PARTITIONS );
+        try {
+            for ( int i = 0; i < PARTITIONS; i++ ) {
+                partitions.add( new SpillFile<>( budget ) );
+            }
+        } catch ( RuntimeException e ) {
+            closeAll( partitions );
+            throw e;
+        }
+        return partitions;
+    }
+
+
+    static <T> void closeAll( List<SpillFile<T>> files ) {
+        if ( files != null ) {
+            files.forEach( SpillFile::close );
+        }
+    }
+
+
+    static <TKey> int hash( TKey key, EqualityComparer<TKey> comparer ) {
+        if ( key == null ) {
+            return 0;
+        }
+        return comparer == null ? key.hashCode() : comparer.hashCode( key );
+    }
+
+
+    /**
+     * Returns the partition of a key. Each depth uses different bits of the mixed hash code, so that a partition is
+     * split up when it is partitioned again.
+     */
+    static int partition( int hash, int depth ) {
+        int h = hash * 0x9E3779B9;
+        h ^= h >>> 16;
+        return (h >>> (depth * Integer.numberOfTrailingZeros( PARTITIONS ))) & (PARTITIONS - 1);
+    }
+
+
+    /**
+     * Wraps an enumerator with an action executed once when it is closed.
+     */
+    static <T> Enumerator<T> onClose( final Enumerator<T> enumerator, final Runnable action ) {
+        return new Enumerator<T>() {
+            private boolean closed = false;
+
+
+            @Override
+            public T current() {
+                return enumerator.current();
+            }
+
+
+            @Override
+            public boolean moveNext() {
+                return enumerator.moveNext();
+            }
+
+
+            @Override
+            public void reset() {
+                enumerator.reset();
+            }
+
+
+            @Override
+            public void close() {
+                if ( !closed ) {
+                    closed = true;
+                    try {
+                        enumerator.close();
+                    } finally {
+                        action.run();
+                    }
+                }
+            }
+        };
+    }
+
+
+    /**
+     * A row together with its sort key.
+     */
+    private static class Keyed<TKey, TSource> {
+
+        private final TKey key;
+        private final TSource value;
+
+
+        private Keyed( TKey key, TSource value ) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+
+    /**
+     * The position of the merge in one sorted run.
+     */
+    private static class RunCursor<TKey, TSource> {
+
+        private final int index;
+        private final Iterator<Keyed<TKey, TSource>> rows;
+        private Keyed<TKey, TSource> current;
+
+
+        private RunCursor( int index, Iterator<Keyed<TKey, TSource>> rows ) {
+            this.index = index;
+            this.rows = rows;
+        }
+
+    }
+
+
+    /**
+     * A key of the hash aggregation or the hash join, compared using the equality comparer of the keys if there is one.
+     */
+    static class GroupKey<TKey> {
+
+        final TKey key;
+        private final EqualityComparer<TKey> comparer;
+        final int hash;
+
+
+        GroupKey( TKey key, EqualityComparer<TKey> comparer ) {
+            this.key = key;
+            this.comparer = comparer;
+            this.hash = SpillingEnumerables.hash( key, comparer );
+        }
+
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean equals( Object o ) {
+            if ( !(o instanceof GroupKey) ) {
+                return false;
+            }
+            final TKey other = ((GroupKey<TKey>) o).key;
+            if ( key == null || other == null ) {
+                return key == other;
+            }
+            return comparer == null ? key.equals( other ) : comparer.equal( key, other );
+        }
+
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
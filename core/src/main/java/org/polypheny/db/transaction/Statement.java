@@ -21,6 +21,7 @@
 import org.polypheny.db.jdbc.Context;
 import org.polypheny.db.processing.QueryProcessor;
 import org.polypheny.db.routing.Router;
+import org.polypheny.db.runtime.MemoryBudget;
 import org.polypheny.db.util.FileInputHandle;
 
 public interface Statement {
@@ -37,6 +38,8 @@ public interface Statement {
 
     Router getRouter();
 
+    MemoryBudget getMemoryBudget();
+
     void close();
 
     void registerFileInputHandle( FileInputHandle fileInputHandle );
@@ -112,6 +112,7 @@
 import org.polypheny.db.runtime.FlatLists;
 import org.polypheny.db.runtime.RandomFunction;
 import org.polypheny.db.runtime.SortedMultiMap;
+import org.polypheny.db.runtime.SpillingEnumerables;
 import org.polypheny.db.runtime.SqlFunctions;
 import org.polypheny.db.runtime.SqlFunctions.FlatProductInputType;
 import org.polypheny.db.runtime.Utilities;
@@ -161,6 +162,12 @@ public enum BuiltInMethod {
     JOIN( ExtendedEnumerable.class, "join", Enumerable.class, Function1.class, Function1.class, Function2.class ),
     MERGE_JOIN( EnumerableDefaults.class, "mergeJoin", Enumerable.class, Enumerable.class, Function1.class, Function1.class, Function2.class, boolean.class, boolean.class ),
     SLICE0( Enumerables.class, "slice0", Enumerable.class ),
+    TOP_K( Enumerables.class, "topK", Enumerable.class, Function1.class, Function1.class, Comparator.class, int.class, int.class ),
+    TOP_N( Enumerables.class, "topN", Enumerable.class, Function1.class, Comparator.class, int.class, int.class ),
+    CONCURRENT_CONCAT( Enumerables.class, "concurrentConcat", Enumerable[].class ),
+    SPILLING_ORDER_BY( SpillingEnumerables.class, "orderBy", Enumerable.class, Function1.class, Comparator.class, DataContext.class ),
+    SPILLING_GROUP_BY( SpillingEnumerables.class, "groupBy", Enumerable.class, Function1.class, Function0.class, Function2.class, Function2.class, EqualityComparer.class, DataContext.class, int.class ),
+    SPILLING_JOIN( SpillingEnumerables.class, "join", Enumerable.class, Enumerable.class, Function1.class, Function1.class, Function2.class, EqualityComparer.class, boolean.class, boolean.class, DataContext.class, int.class ),
     SEMI_JOIN( EnumerableDefaults.class, "semiJoin", Enumerable.class, Enumerable.class, Function1.class, Function1.class ),
     THETA_JOIN( EnumerableDefaults.class, "thetaJoin", Enumerable.class, Enumerable.class, Predicate2.class, Function2.class, boolean.class, boolean.class ),
     CORRELATE_JOIN( ExtendedEnumerable.class, "correlateJoin", CorrelateJoinType.class, Function1.class, Function2.class ),
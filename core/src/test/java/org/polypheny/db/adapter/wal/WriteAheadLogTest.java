@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.wal;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.polypheny.db.adapter.wal.WriteAheadLog.Recoverable;
+
+
+public class WriteAheadLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Test
+    public void testReplay() throws Exception {
+        File directory = folder.newFolder();
+        ListStore store = new ListStore();
+        WriteAheadLog log = open( directory, store );
+        store.commit( log, "a" );
+        store.commit( log, "b" );
+        log.close();
+
+        ListStore recovered = new ListStore();
+        WriteAheadLog reopened = open( directory, recovered );
+        assertEquals( Arrays.asList( "a", "b" ), recovered.values );
+        assertEquals( 2, reopened.getRecoveredRecordCount() );
+        reopened.close();
+    }
+
+
+    @Test
+    public void testCheckpoint() throws Exception {
+        File directory = folder.newFolder();
+        ListStore store = new ListStore();
+        WriteAheadLog log = open( directory, store );
+        store.commit( log, "a" );
+        log.checkpoint();
+        store.commit( log, "b" );
+        log.close();
+
+        // Only the segment written after the snapshot is left
+        assertEquals( 1, directory.list( ( dir, name ) -> name.startsWith( "log-" ) ).length );
+
+        ListStore recovered = new ListStore();
+        WriteAheadLog reopened = open( directory, recovered );
+        assertEquals( Arrays.asList( "a", "b" ), recovered.values );
+        assertEquals( 1, reopened.getRecoveredRecordCount() );
+        reopened.close();
+    }
+
+
+    @Test
+    public void testIncompleteRecord() throws Exception {
+        File directory = folder.newFolder();
+        ListStore store = new ListStore();
+        WriteAheadLog log = open( directory, store );
+        store.commit( log, "a" );
+        store.commit( log, "b" );
+        log.close();
+
+        // Simulate a crash while writing the second record
+        File segment = directory.listFiles( ( dir, name ) -> name.startsWith( "log-" ) )[0];
+        try ( RandomAccessFile file = new RandomAccessFile( segment, "rw" ) ) {
+            file.setLength( file.length() - 1 );
+        }
+
+        ListStore recovered = new ListStore();
+        open( directory, recovered ).close();
+        assertEquals( Arrays.asList( "a" ), recovered.values );
+        assertEquals( 9, segment.length() );
+
+        // The log is usable after the recovery
+        ListStore again = new ListStore();
+        WriteAheadLog reopened = open( directory, again );
+        again.commit( reopened, "c" );
+        reopened.close();
+        ListStore last = new ListStore();
+        open( directory, last ).close();
+        assertEquals( Arrays.asList( "a", "c" ), last.values );
+    }
+
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        File directory = folder.newFolder();
+        ListStore store = new ListStore();
+        WriteAheadLog log = open( directory, store );
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( int i = 0; i < 200; i++ ) {
+                final String value = "v" + i;
+                futures.add( executor.submit( () -> store.commit( log, value ) ) );
+            }
+            for ( Future<?> future : futures ) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals( 200, log.getCommitCount() );
+        assertTrue( log.getSyncCount() <= 200 );
+        log.close();
+
+        ListStore recovered = new ListStore();
+        open( directory, recovered ).close();
+        assertEquals( 200, recovered.values.size() );
+    }
+
+
+    private static WriteAheadLog open( File directory, ListStore store ) {
+        WriteAheadLog log = new WriteAheadLog( directory, store );
+        log.recover();
+        return log;
+    }
+
+
+    /**
+     * A store holding a list of strings.
+     */
+    private static class ListStore implements Recoverable {
+
+        private final List<String> values = new ArrayList<>();
+
+
+        void commit( WriteAheadLog log, String value ) {
+            log.commit( value.getBytes( StandardCharsets.UTF_8 ), () -> {
+                synchronized ( values ) {
+                    values.add( value );
+                }
+            } );
+        }
+
+
+        @Override
+        public void writeSnapshot( DataOutputStream out ) throws IOException {
+            synchronized ( values ) {
+                out.writeInt( values.size() );
+                for ( String value : values ) {
+                    out.writeUTF( value );
+                }
+            }
+        }
+
+
+        @Override
+        public void loadSnapshot( DataInputStream in ) throws IOException {
+            values.clear();
+            int size = in.readInt();
+            for ( int i = 0; i < size; i++ ) {
+                values.add( in.readUTF() );
+            }
+        }
+
+
+        @Override
+        public void replay( byte[] record ) {
+            values.add( new String( record, StandardCharsets.UTF_8 ) );
+        }
+
+    }
+
+}
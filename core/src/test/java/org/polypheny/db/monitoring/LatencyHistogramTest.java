@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.monitoring;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBounds() {
+        for ( long micros = 0; micros < 1_000_000; micros++ ) {
+            int index = LatencyHistogram.bucketIndex( micros );
+            long upperBound = LatencyHistogram.bucketUpperBound( index );
+            assertTrue( micros <= upperBound );
+            // Relative error is bounded by the width of the sub-buckets
+            assertTrue( upperBound - micros <= micros / 8 );
+        }
+    }
+
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals( 0, histogram.getValueAtPercentile( 50 ) );
+
+        for ( int i = 1; i <= 1000; i++ ) {
+            histogram.record( i * 1000L );
+        }
+        assertEquals( 1000, histogram.getCount() );
+        assertEquals( 1000, histogram.getMax() );
+        assertEquals( 500500, histogram.getSum() );
+
+        long p50 = histogram.getValueAtPercentile( 50 );
+        assertTrue( p50 >= 500 && p50 <= 500 * 1.125 );
+        long p99 = histogram.getValueAtPercentile( 99 );
+        assertTrue( p99 >= 990 && p99 <= 1000 );
+        assertEquals( 1000, histogram.getValueAtPercentile( 100 ) );
+
+        histogram.reset();
+        assertEquals( 0, histogram.getCount() );
+        assertEquals( 0, histogram.getValueAtPercentile( 99 ) );
+    }
+
+}
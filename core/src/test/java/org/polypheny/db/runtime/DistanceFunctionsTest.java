@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.polypheny.db.util.Benchmark;
+
+
+/**
+ * Tests {@link DistanceFunctions} and {@link PrimitiveVector}.
+ */
+public class DistanceFunctionsTest {
+
+    private static final double DELTA = 1e-9;
+
+
+    @Test
+    public void testKernels() {
+        final Random random = new Random( 42 );
+        // Cover all remainders of the unrolled loops
+        for ( int dimensions = 0; dimensions <= 9; dimensions++ ) {
+            final double[] a = randomArray( random, dimensions );
+            final double[] b = randomArray( random, dimensions );
+            final double[] w = randomArray( random, dimensions );
+
+            double l1 = 0, l1w = 0, l2s = 0, l2sw = 0, chi = 0, chiw = 0, dot = 0, normA = 0, normB = 0, dotW = 0, normAW = 0, normBW = 0;
+            for ( int i = 0; i < dimensions; i++ ) {
+                final double d = a[i] - b[i];
+                l1 += Math.abs( d );
+                l1w += Math.abs( d ) * w[i];
+                l2s += d * d;
+                l2sw += d * d * w[i];
+                chi += d * d / (a[i] + b[i]);
+                chiw += d * d / (a[i] + b[i]) * w[i];
+                dot += a[i] * b[i];
+                normA += a[i] * a[i];
+                normB += b[i] * b[i];
+                dotW += a[i] * w[i] * b[i] * w[i];
+                normAW += a[i] * w[i] * a[i] * w[i];
+                normBW += b[i] * w[i] * b[i] * w[i];
+            }
+
+            assertEquals( l1, DistanceFunctions.l1Metric( a, b ), DELTA );
+            assertEquals( l1w, DistanceFunctions.l1MetricWeighted( a, b, w ), DELTA );
+            assertEquals( l2s, DistanceFunctions.l2SquaredMetric( a, b ), DELTA );
+            assertEquals( l2sw, DistanceFunctions.l2SquaredMetricWeighted( a, b, w ), DELTA );
+            assertEquals( Math.sqrt( l2s ), DistanceFunctions.l2Metric( a, b ), DELTA );
+            assertEquals( Math.sqrt( l2sw ), DistanceFunctions.l2MetricWeighted( a, b, w ), DELTA );
+            assertEquals( chi, DistanceFunctions.chiSquaredMetric( a, b ), DELTA );
+            assertEquals( chiw, DistanceFunctions.chiSquaredMetricWeighted( a, b, w ), DELTA );
+            if ( dimensions > 0 ) {
+                assertEquals( 1 - dot / (Math.sqrt( normA ) * Math.sqrt( normB )), DistanceFunctions.cosineMetric( a, b ), DELTA );
+                assertEquals( 1 - dotW / (Math.sqrt( normAW ) * Math.sqrt( normBW )), DistanceFunctions.cosineMetricWeighted( a, b, w ), DELTA );
+            }
+
+            // The list variants give the same results, independent of the type of list
+            final List<Number> boxedA = boxed( a );
+            final List<Number> boxedB = boxed( b );
+            assertEquals( l2s, DistanceFunctions.l2SquaredMetric( boxedA, boxedB ), DELTA );
+            assertEquals( l2s, DistanceFunctions.l2SquaredMetric( vector( a ), boxedB ), DELTA );
+            assertEquals( l1w, DistanceFunctions.l1MetricWeighted( vector( a ), vector( b ), vector( w ) ), DELTA );
+        }
+    }
+
+
+    @Test
+    public void testSqlFunctions() {
+        final List<Integer> value = Arrays.asList( 2, 2 );
+        final List<Double> target = PrimitiveVector.of( 1.0, 1.0 );
+        assertEquals( 2.0, SqlFunctions.distance( value, target, "L2SQUARED" ), DELTA );
+        assertEquals( Math.sqrt( 2.0 ), SqlFunctions.distance( value, target, "L2" ), DELTA );
+        assertEquals( 2.0, SqlFunctions.distance( value, target, "L1" ), DELTA );
+        assertEquals( 0.0, SqlFunctions.distance( value, target, "COSINE" ), DELTA );
+        assertEquals( 1.0, SqlFunctions.distance( value, target, "L2SQUARED", Arrays.asList( 0.5, 0.5 ) ), DELTA );
+    }
+
+
+    @Test
+    public void testPrimitiveVector() {
+        final double[] values = { 1.5, -2.0, 3.25 };
+        final PrimitiveVector<Double> doubles = PrimitiveVector.of( values );
+        assertEquals( Arrays.asList( 1.5, -2.0, 3.25 ), doubles );
+        assertEquals( Arrays.asList( 1.5, -2.0, 3.25 ).hashCode(), doubles.hashCode() );
+        assertSame( values, doubles.toDoubleArray() );
+        assertSame( values, PrimitiveVector.toDoubleArray( doubles ) );
+
+        final PrimitiveVector<Float> floats = PrimitiveVector.of( 1.5f, -2.0f, 3.25f );
+        assertEquals( Arrays.asList( 1.5f, -2.0f, 3.25f ), floats );
+        assertArrayEquals( values, floats.toDoubleArray(), 0 );
+        assertArrayEquals( values, PrimitiveVector.toDoubleArray( Arrays.asList( 1.5, -2, 3.25f ) ), 0 );
+    }
+
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPrimitiveVectorIsImmutable() {
+        PrimitiveVector.of( 1.0, 2.0 ).set( 0, 3.0 );
+    }
+
+
+    /**
+     * Checks that boxed lists and vectors give the same distances for typical embedding sizes.
+     */
+    @Test
+    public void testEmbeddingSizes() {
+        final Random random = new Random( 42 );
+        for ( int dimensions : new int[]{ 128, 256, 512, 1024 } ) {
+            for ( int i = 0; i < 10; i++ ) {
+                final double[] row = randomArray( random, dimensions );
+                final double[] target = randomArray( random, dimensions );
+                assertEquals( DistanceFunctions.l2Metric( row, target ), SqlFunctions.distance( vector( row ), vector( target ), "L2" ), DELTA );
+                assertEquals( DistanceFunctions.cosineMetric( row, target ), SqlFunctions.distance( vector( row ), vector( target ), "COSINE" ), DELTA );
+                for ( String metric : new String[]{ "L1", "L2", "L2SQUARED", "CHISQUARED", "COSINE" } ) {
+                    final double expected = SqlFunctions.distance( boxed( row ), boxed( target ), metric );
+                    assertEquals( metric, expected, SqlFunctions.distance( vector( row ), vector( target ), metric ), DELTA );
+                    assertEquals( metric, expected, SqlFunctions.distance( vector( row ), boxed( target ), metric ), DELTA );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Compares the distance computation on boxed lists with the computation on vectors for typical embedding sizes.
+     */
+    @Test
+    public void testPerformance() {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        final Random random = new Random( 42 );
+        final int rows = 100_000;
+        for ( int dimensions : new int[]{ 128, 256, 512, 1024 } ) {
+            final List<List<Number>> boxedRows = new ArrayList<>();
+            final List<List<Number>> vectorRows = new ArrayList<>();
+            for ( int i = 0; i < rows; i++ ) {
+                final double[] row = randomArray( random, dimensions );
+                boxedRows.add( boxed( row ) );
+                vectorRows.add( vector( row ) );
+            }
+            final double[] target = randomArray( random, dimensions );
+            for ( String metric : new String[]{ "L2", "COSINE" } ) {
+                new Benchmark( metric + ", " + dimensions + " dimensions, boxed", statistician -> {
+                    final List<Number> targetList = boxed( target );
+                    final long start = System.nanoTime();
+                    double sum = 0;
+                    for ( List<Number> row : boxedRows ) {
+                        sum += SqlFunctions.distance( row, targetList, metric );
+                    }
+                    statistician.record( start );
+                    assertEquals( sum, sum, 0 );
+                    return null;
+                }, 5 ).run();
+                new Benchmark( metric + ", " + dimensions + " dimensions, vector", statistician -> {
+                    final List<Number> targetList = vector( target );
+                    final long start = System.nanoTime();
+                    double sum = 0;
+                    for ( List<Number> row : vectorRows ) {
+                        sum += SqlFunctions.distance( row, targetList, metric );
+                    }
+                    statistician.record( start );
+                    assertEquals( sum, sum, 0 );
+                    return null;
+                }, 5 ).run();
+            }
+        }
+    }
+
+
+    private static double[] randomArray( Random random, int length ) {
+        final double[] array = new double[length];
+        for ( int i = 0; i < length; i++ ) {
+            array[i] = random.nextDouble() + 0.1;
+        }
+        return array;
+    }
+
+
+    private static List<Number> boxed( double[] array ) {
+        final List<Number> list = new ArrayList<>( array.length );
+        for ( double value : array ) {
+            list.add( value );
+        }
+        return list;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static List<Number> vector( double[] array ) {
+        return (List<Number>) (List<?>) PrimitiveVector.of( array );
+    }
+
+}
@@ -37,18 +37,25 @@
 import static com.google.common.collect.Lists.newArrayList;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.EnumerableDefaults;
 import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.function.Function2;
 import org.apache.calcite.linq4j.function.Functions;
 import org.apache.calcite.linq4j.function.Predicate2;
 import org.junit.Test;
+import org.polypheny.db.config.RuntimeConfig;
 
 
 /**
@@ -222,6 +229,116 @@ public void testThetaFullJoinBothEmpty() {
     }
 
 
+    @Test
+    public void testTopK() {
+        final Function1<Emp, String> name = emp -> emp.name;
+        assertThat(
+                Enumerables.topK( EMPS, name, Functions.identitySelector(), null, 0, 2 ).toList().toString(),
+                equalTo( "[Fred, Joe]" ) );
+        assertThat(
+                Enumerables.topK( EMPS, name, Functions.identitySelector(), Comparator.<String>reverseOrder(), 1, 2 ).toList().toString(),
+                equalTo( "[Sebastian, Joe]" ) );
+        assertThat(
+                Enumerables.topK( EMPS, name, Functions.identitySelector(), null, 3, 2 ).toList().toString(),
+                equalTo( "[Theodore]" ) );
+        assertThat(
+                Enumerables.topK( EMPS, name, Functions.identitySelector(), null, 0, 0 ).toList().toString(),
+                equalTo( "[]" ) );
+    }
+
+
+    /**
+     * Tests the top-k computation with inputs that span several chunks, which are processed serially or in parallel.
+     */
+    @Test
+    public void testTopKChunks() {
+        final int degree = RuntimeConfig.PARALLEL_EXECUTION_DEGREE.getInteger();
+        try {
+            RuntimeConfig.PARALLEL_EXECUTION_DEGREE.setInteger( 1 );
+            checkTopKChunks();
+            RuntimeConfig.PARALLEL_EXECUTION_DEGREE.setInteger( 4 );
+            checkTopKChunks();
+        } finally {
+            RuntimeConfig.PARALLEL_EXECUTION_DEGREE.setInteger( degree );
+        }
+    }
+
+
+    private void checkTopKChunks() {
+        final int size = Enumerables.TOP_K_CHUNK_SIZE * 10 + 7;
+        final List<Integer> values = new ArrayList<>();
+        for ( int i = 0; i < size; i++ ) {
+            values.add( i );
+        }
+        Collections.shuffle( values, new Random( 42 ) );
+        final Function1<Integer, Integer> distance = v -> Math.abs( v - size / 2 );
+        assertThat(
+                Enumerables.topK( Linq4j.asEnumerable( values ), distance, Functions.identitySelector(), null, 0, 5 ).toList(),
+                equalTo( Arrays.asList( 0, 1, 1, 2, 2 ) ) );
+        assertThat(
+                Enumerables.topK( Linq4j.asEnumerable( values ), distance, Functions.identitySelector(), null, size - 2, 5 ).toList(),
+                equalTo( Arrays.asList( size / 2, size / 2 ) ) );
+    }
+
+
+    @Test
+    public void testTopN() {
+        final Function1<Emp, String> name = emp -> emp.name;
+        assertThat(
+                Enumerables.topN( EMPS, name, null, 0, 2 ).toList().toString(),
+                equalTo( "[Emp(10, Fred), Emp(30, Joe)]" ) );
+        assertThat(
+                Enumerables.topN( EMPS, name, Comparator.<String>reverseOrder(), 1, 2 ).toList().toString(),
+                equalTo( "[Emp(20, Sebastian), Emp(30, Joe)]" ) );
+        assertThat(
+                Enumerables.topN( EMPS, name, null, 3, 2 ).toList().toString(),
+                equalTo( "[Emp(20, Theodore)]" ) );
+        assertThat(
+                Enumerables.topN( EMPS, name, null, 0, 0 ).toList().toString(),
+                equalTo( "[]" ) );
+
+        // Same result as sorting everything, but only offset + fetch values are kept
+        final List<Integer> values = new ArrayList<>();
+        for ( int i = 0; i < 10000; i++ ) {
+            values.add( i );
+        }
+        Collections.shuffle( values, new Random( 42 ) );
+        assertThat(
+                Enumerables.topN( Linq4j.asEnumerable( values ), Functions.identitySelector(), null, 100, 3 ).toList(),
+                equalTo( Arrays.asList( 100, 101, 102 ) ) );
+    }
+
+
+    @Test
+    public void testConcurrentConcat() {
+        assertThat(
+                Enumerables.concurrentConcat( Linq4j.asEnumerable( Arrays.asList( 1, 2 ) ), Linq4j.<Integer>emptyEnumerable(), Linq4j.asEnumerable( Collections.singletonList( 3 ) ) ).toList(),
+                equalTo( Arrays.asList( 1, 2, 3 ) ) );
+
+        // Failures are rethrown after all inputs have been evaluated
+        final AtomicBoolean evaluated = new AtomicBoolean();
+        final Enumerable<Integer> failing = Linq4j.asEnumerable( Collections.singletonList( 1 ) ).select( v -> {
+            throw new IllegalStateException( "failed" );
+        } );
+        final Enumerable<Integer> slow = Linq4j.asEnumerable( Collections.singletonList( 2 ) ).select( v -> {
+            try {
+                Thread.sleep( 100 );
+            } catch ( InterruptedException e ) {
+                throw new RuntimeException( e );
+            }
+            evaluated.set( true );
+            return v;
+        } );
+        try {
+            Enumerables.concurrentConcat( failing, slow ).toList();
+            fail( "Expected exception" );
+        } catch ( IllegalStateException e ) {
+            assertThat( e.getMessage(), equalTo( "failed" ) );
+        }
+        assertThat( evaluated.get(), equalTo( true ) );
+    }
+
+
     /**
      * Employee record.
      */
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.polypheny.db.runtime.RowTestUtil.joinInnerRows;
+import static org.polypheny.db.runtime.RowTestUtil.joinOuterRows;
+import static org.polypheny.db.runtime.RowTestUtil.toSortedStrings;
+import static org.polypheny.db.runtime.RowTestUtil.toStrings;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.EnumerableDefaults;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class ParallelEnumerablesTest {
+
+    private static final int PARALLELISM = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Test
+    public void testGroupBy() throws Exception {
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < 50000; i++ ) {
+            rows.add( new Object[]{ i % 5000, 1 } );
+        }
+        final Enumerable<Object[]> source = Linq4j.asEnumerable( rows );
+
+        final List<String> expected = toSortedStrings( EnumerableDefaults.groupBy(
+                source,
+                row -> (Integer) row[0],
+                () -> 0,
+                ( Integer count, Object[] row ) -> count + (Integer) row[1],
+                ( Integer key, Integer count ) -> new Object[]{ key, count } ).toList() );
+
+        // The second budget is exceeded, so some of the partitions are spilled
+        for ( long limit : new long[]{ 64 * 1024 * 1024, 64 * 1024 } ) {
+            final MemoryBudget budget = new MemoryBudget( limit, folder.getRoot() );
+            final List<String> actual = toSortedStrings( ParallelEnumerables.hashAggregate(
+                    source,
+                    row -> (Integer) row[0],
+                    () -> 0,
+                    ( Integer count, Object[] row ) -> count + (Integer) row[1],
+                    ( Integer key, Integer count ) -> new Object[]{ key, count },
+                    null,
+                    budget,
+                    PARALLELISM ).toList() );
+
+            assertEquals( 5000, actual.size() );
+            assertEquals( expected, actual );
+            assertEquals( limit < 1024 * 1024, budget.getSpilled() > 0 );
+            assertEquals( 0, budget.getUsed() );
+            assertEquals( 0, folder.getRoot().list().length );
+        }
+    }
+
+
+    @Test
+    public void testSmallInput() throws Exception {
+        // Neither input fills a morsel, so both operators run sequentially
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ ) {
+            rows.add( new Object[]{ i % 10, "row" + i } );
+        }
+        final Enumerable<Object[]> source = Linq4j.asEnumerable( rows );
+        final MemoryBudget budget = new MemoryBudget( 64 * 1024 * 1024, folder.getRoot() );
+
+        final List<Object[]> groups = ParallelEnumerables.hashAggregate(
+                source,
+                row -> (Integer) row[0],
+                () -> 0,
+                ( Integer count, Object[] row ) -> count + 1,
+                ( Integer key, Integer count ) -> new Object[]{ key, count },
+                null,
+                budget,
+                PARALLELISM ).toList();
+        assertEquals( 10, groups.size() );
+        for ( Object[] group : groups ) {
+            assertEquals( 10, group[1] );
+        }
+
+        final List<Object[]> joined = ParallelEnumerables.hashJoin(
+                source,
+                source,
+                row -> row[0],
+                row -> row[0],
+                ( Object[] left, Object[] right ) -> new Object[]{ left[1], right[1] },
+                null,
+                false,
+                false,
+                budget,
+                PARALLELISM ).toList();
+        assertEquals( 1000, joined.size() );
+        assertEquals( 0, budget.getUsed() );
+    }
+
+
+    @Test
+    public void testJoin() throws Exception {
+        final Enumerable<Object[]> outer = Linq4j.asEnumerable( joinOuterRows( 20000 ) );
+        final Enumerable<Object[]> inner = Linq4j.asEnumerable( joinInnerRows( 20000 ) );
+
+        // The second budget is exceeded by the inner input, so the join continues as a grace hash join
+        for ( long limit : new long[]{ 64 * 1024 * 1024, 64 * 1024 } ) {
+            final MemoryBudget budget = new MemoryBudget( limit, folder.getRoot() );
+            for ( boolean nullsOnLeft : new boolean[]{ false, true } ) {
+                for ( boolean nullsOnRight : new boolean[]{ false, true } ) {
+                    final List<Object[]> expected = EnumerableDefaults.join(
+                            outer,
+                            inner,
+                            row -> row[0],
+                            row -> row[0],
+                            RowTestUtil::joinResult,
+                            null,
+                            nullsOnLeft,
+                            nullsOnRight ).toList();
+                    final List<Object[]> actual = ParallelEnumerables.hashJoin(
+                            outer,
+                            inner,
+                            row -> row[0],
+                            row -> row[0],
+                            RowTestUtil::joinResult,
+                            null,
+                            nullsOnLeft,
+                            nullsOnRight,
+                            budget,
+                            PARALLELISM ).toList();
+                    assertEquals( toSortedStrings( expected ), toSortedStrings( actual ) );
+                    if ( limit > 1024 * 1024 && !nullsOnLeft ) {
+                        // The parallel probe keeps the order of the outer input
+                        assertEquals( toStrings( expected ), toStrings( actual ) );
+                    }
+                }
+            }
+            assertEquals( limit < 1024 * 1024, budget.getSpilled() > 0 );
+            assertEquals( 0, budget.getUsed() );
+            assertEquals( 0, folder.getRoot().list().length );
+        }
+    }
+
+}
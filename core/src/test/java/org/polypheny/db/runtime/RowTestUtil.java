@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Static utilities for the tests of the operators on rows in {@link SpillingEnumerables} and {@link ParallelEnumerables}.
+ */
+final class RowTestUtil {
+
+    private RowTestUtil() {
+    }
+
+
+    /**
+     * Creates the outer input of the join tests: rows {@code [i, "outer" + i]}.
+     */
+    static List<Object[]> joinOuterRows( int count ) {
+        final List<Object[]> rows = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ ) {
+            rows.add( new Object[]{ i, "outer" + i } );
+        }
+        return rows;
+    }
+
+
+    /**
+     * Creates the inner input of the join tests. Every other outer row has two matching inner rows, the others have
+     * none. In addition, there is a row with a null key.
+     */
+    static List<Object[]> joinInnerRows( int count ) {
+        final List<Object[]> rows = new ArrayList<>( count + 1 );
+        for ( int i = 0; i < count; i++ ) {
+            rows.add( new Object[]{ i / 2 * 4, "inner" + i } );
+        }
+        rows.add( new Object[]{ null, "null key" } );
+        return rows;
+    }
+
+
+    /**
+     * Result selector of the join tests, returning the values of both sides.
+     */
+    static Object[] joinResult( Object[] left, Object[] right ) {
+        return new Object[]{ left == null ? null : left[1], right == null ? null : right[1] };
+    }
+
+
+    static List<String> toStrings( List<Object[]> rows ) {
+        final List<String> strings = new ArrayList<>( rows.size() );
+        for ( Object[] row : rows ) {
+            strings.add( Arrays.toString( row ) );
+        }
+        return strings;
+    }
+
+
+    static List<String> toSortedStrings( List<Object[]> rows ) {
+        final List<String> strings = toStrings( rows );
+        Collections.sort( strings );
+        return strings;
+    }
+
+}
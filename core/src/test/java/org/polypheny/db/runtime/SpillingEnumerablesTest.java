@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.polypheny.db.runtime.RowTestUtil.joinInnerRows;
+import static org.polypheny.db.runtime.RowTestUtil.joinOuterRows;
+import static org.polypheny.db.runtime.RowTestUtil.toSortedStrings;
+import static org.polypheny.db.runtime.RowTestUtil.toStrings;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.calcite.avatica.util.ByteString;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.EnumerableDefaults;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class SpillingEnumerablesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Test
+    public void testSort() throws Exception {
+        final MemoryBudget budget = new MemoryBudget( 64 * 1024, folder.getRoot() );
+        final Random random = new Random( 42 );
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < 20000; i++ ) {
+            rows.add( new Object[]{ random.nextInt( 100 ), i } );
+        }
+        final Enumerable<Object[]> source = Linq4j.asEnumerable( rows );
+
+        final List<Object[]> expected = EnumerableDefaults.orderBy( source, row -> (Integer) row[0], null ).toList();
+        final List<Object[]> actual = SpillingEnumerables.sort( source, row -> (Integer) row[0], null, budget ).toList();
+
+        assertEquals( toStrings( expected ), toStrings( actual ) );
+        assertTrue( budget.getSpilled() > 0 );
+        assertEquals( 0, budget.getUsed() );
+        assertEquals( 0, folder.getRoot().list().length );
+    }
+
+
+    @Test
+    public void testSortWithManyRuns() throws Exception {
+        // Every run holds about MIN_RUN_ROWS rows, so the runs have to be merged in more than one pass
+        final MemoryBudget budget = new MemoryBudget( 1, folder.getRoot() );
+        final Random random = new Random( 42 );
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < (SpillingEnumerables.MAX_MERGE_FAN_IN + 10) * SpillingEnumerables.MIN_RUN_ROWS; i++ ) {
+            rows.add( new Object[]{ random.nextInt( 1000 ), i } );
+        }
+        final Enumerable<Object[]> source = Linq4j.asEnumerable( rows );
+
+        final List<Object[]> expected = EnumerableDefaults.orderBy( source, row -> (Integer) row[0], null ).toList();
+        final List<Object[]> actual = SpillingEnumerables.sort( source, row -> (Integer) row[0], null, budget ).toList();
+
+        assertEquals( toStrings( expected ), toStrings( actual ) );
+        assertEquals( 0, budget.getUsed() );
+        assertEquals( 0, folder.getRoot().list().length );
+    }
+
+
+    @Test
+    public void testSpillFile() throws Exception {
+        final MemoryBudget budget = new MemoryBudget( 64 * 1024, folder.getRoot() );
+        // Neither the flat list nor the stream are serializable
+        final InputStream stream = new ByteArrayInputStream( new byte[]{ 1, 2, 3 } );
+        final Object[] row = new Object[]{
+                FlatLists.of( 1, "a", null ),
+                new BigDecimal( "-12.345" ),
+                new ByteString( new byte[]{ 4, 5 } ),
+                3.5d,
+                Long.MAX_VALUE,
+                true,
+                new java.sql.Date( 0 ),
+                stream };
+
+        try ( SpillFile<Object[]> file = new SpillFile<>( budget ) ) {
+            file.write( row );
+            file.write( new Object[]{ null, Collections.emptyList() } );
+            final List<Object[]> rows = file.asEnumerable().toList();
+            assertEquals( 2, rows.size() );
+            assertEquals( Arrays.asList( row ).subList( 0, 7 ), Arrays.asList( rows.get( 0 ) ).subList( 0, 7 ) );
+            // The stream is kept in memory
+            assertSame( stream, rows.get( 0 )[7] );
+            assertTrue( budget.getUsed() > 0 );
+            assertEquals( "[null, []]", Arrays.toString( rows.get( 1 ) ) );
+        }
+        assertEquals( 0, budget.getUsed() );
+        assertEquals( 0, folder.getRoot().list().length );
+    }
+
+
+    @Test
+    public void testGroupBy() throws Exception {
+        final MemoryBudget budget = new MemoryBudget( 64 * 1024, folder.getRoot() );
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < 20000; i++ ) {
+            rows.add( new Object[]{ i % 5000, 1 } );
+        }
+        final Enumerable<Object[]> source = Linq4j.asEnumerable( rows );
+
+        final List<String> expected = toSortedStrings( EnumerableDefaults.groupBy(
+                source,
+                row -> (Integer) row[0],
+                () -> 0,
+                ( Integer count, Object[] row ) -> count + (Integer) row[1],
+                ( Integer key, Integer count ) -> new Object[]{ key, count } ).toList() );
+        final List<String> actual = toSortedStrings( SpillingEnumerables.hashAggregate(
+                source,
+                row -> (Integer) row[0],
+                () -> 0,
+                ( Integer count, Object[] row ) -> count + (Integer) row[1],
+                ( Integer key, Integer count ) -> new Object[]{ key, count },
+                null,
+                budget,
+                0 ).toList() );
+
+        assertEquals( 5000, actual.size() );
+        assertEquals( expected, actual );
+        assertTrue( budget.getSpilled() > 0 );
+        assertEquals( 0, budget.getUsed() );
+        assertEquals( 0, folder.getRoot().list().length );
+    }
+
+
+    @Test
+    public void testJoin() throws Exception {
+        final MemoryBudget budget = new MemoryBudget( 64 * 1024, folder.getRoot() );
+        final Enumerable<Object[]> outer = Linq4j.asEnumerable( joinOuterRows( 10000 ) );
+        final Enumerable<Object[]> inner = Linq4j.asEnumerable( joinInnerRows( 10000 ) );
+
+        for ( boolean nullsOnLeft : new boolean[]{ false, true } ) {
+            for ( boolean nullsOnRight : new boolean[]{ false, true } ) {
+                final List<String> expected = toSortedStrings( EnumerableDefaults.join(
+                        outer,
+                        inner,
+                        row -> row[0],
+                        row -> row[0],
+                        RowTestUtil::joinResult,
+                        null,
+                        nullsOnLeft,
+                        nullsOnRight ).toList() );
+                final List<String> actual = toSortedStrings( SpillingEnumerables.hashJoin(
+                        outer,
+                        inner,
+                        row -> row[0],
+                        row -> row[0],
+                        RowTestUtil::joinResult,
+                        null,
+                        nullsOnLeft,
+                        nullsOnRight,
+                        budget,
+                        0 ).toList() );
+                assertEquals( expected, actual );
+            }
+        }
+        assertTrue( budget.getSpilled() > 0 );
+        assertEquals( 0, budget.getUsed() );
+        assertEquals( 0, folder.getRoot().list().length );
+    }
+
+}
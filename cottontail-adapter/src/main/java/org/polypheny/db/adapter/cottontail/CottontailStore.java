@@ -35,6 +35,7 @@
 import org.polypheny.db.adapter.Adapter.AdapterSettingString;
 import org.polypheny.db.adapter.DataStore;
 import org.polypheny.db.adapter.DeployMode;
+import org.polypheny.db.adapter.cottontail.CottontailWrapper.InsertPipeline;
 import org.polypheny.db.adapter.cottontail.util.CottontailNameUtil;
 import org.polypheny.db.adapter.cottontail.util.CottontailTypeUtil;
 import org.polypheny.db.catalog.Catalog;
@@ -341,23 +342,28 @@ public void addColumn( Context context, CatalogTable catalogTable, CatalogColumn
 
         final QueryMessage query = QueryMessage.newBuilder().setTxId( txId ).setQuery( Query.newBuilder().setFrom( From.newBuilder().setScan( Scan.newBuilder().setEntity( tableEntity ) ) ) ).build();
         final Iterator<QueryResponseMessage> queryResponse = this.wrapper.query( query );
-        queryResponse.forEachRemaining( responseMessage -> {
-            for ( Tuple tuple : responseMessage.getTuplesList() ) {
-                final InsertMessage.Builder insert = InsertMessage.newBuilder().setTxId( txId ).setFrom(
-                        From.newBuilder().setScan( Scan.newBuilder().setEntity( newTableEntity ) )
-                );
-                int i = 0;
-                for ( CottontailGrpc.Literal literal : tuple.getDataList() ) {
-                    insert.addElementsBuilder().setColumn( responseMessage.getColumns( i++ ) ).setValue( literal );
-                }
-                insert.addElementsBuilder()
-                        .setColumn( ColumnName.newBuilder().setName( newPhysicalColumnName ).build() )
-                        .setValue( defaultData );
-                if ( !this.wrapper.insert( insert.build() ) ) {
-                    throw new RuntimeException( "Unable to migrate data." );
+        try ( InsertPipeline pipeline = this.wrapper.new InsertPipeline() ) {
+            queryResponse.forEachRemaining( responseMessage -> {
+                for ( Tuple tuple : responseMessage.getTuplesList() ) {
+                    final InsertMessage.Builder insert = InsertMessage.newBuilder().setTxId( txId ).setFrom(
+                            From.newBuilder().setScan( Scan.newBuilder().setEntity( newTableEntity ) )
+                    );
+                    int i = 0;
+                    for ( CottontailGrpc.Literal literal : tuple.getDataList() ) {
+                        insert.addElementsBuilder().setColumn( responseMessage.getColumns( i++ ) ).setValue( literal );
+                    }
+                    insert.addElementsBuilder()
+                            .setColumn( ColumnName.newBuilder().setName( newPhysicalColumnName ).build() )
+                            .setValue( defaultData );
+                    if ( !pipeline.add( insert.build() ) ) {
+                        throw new RuntimeException( "Unable to migrate data." );
+                    }
                 }
+            } );
+            if ( !pipeline.finish() ) {
+                throw new RuntimeException( "Unable to migrate data." );
             }
-        } );
+        }
 
         // Update column placement physical table names
         for ( CatalogColumnPlacement placement : this.catalog.getColumnPlacementsOnAdapter( this.getAdapterId(), catalogTable.id ) ) {
@@ -409,28 +415,33 @@ public void dropColumn( Context context, CatalogColumnPlacement columnPlacement
 
         final Query query = Query.newBuilder().setFrom( From.newBuilder().setScan( Scan.newBuilder().setEntity( tableEntity ) ) ).build();
         final Iterator<QueryResponseMessage> queryResponse = this.wrapper.query( QueryMessage.newBuilder().setTxId( txId ).setQuery( query ).build() );
-        queryResponse.forEachRemaining( responseMessage -> {
-            int droppedIndex = 0;
-            for ( ColumnName c : responseMessage.getColumnsList() ) {
-                if ( c.getName().equals( oldPhysicalColumnName ) ) {
-                    break;
-                }
-                droppedIndex++;
-            }
-            for ( Tuple tuple : responseMessage.getTuplesList() ) {
-                final InsertMessage.Builder insert = InsertMessage.newBuilder().setTxId( txId ).setFrom( From.newBuilder().setScan( Scan.newBuilder().setEntity( newTableEntity ) ) );
-                int i = 0;
-                for ( Literal l : tuple.getDataList() ) {
-                    if ( i != droppedIndex ) {
-                        insert.addElementsBuilder().setColumn( responseMessage.getColumns( i ) ).setValue( l );
+        try ( InsertPipeline pipeline = this.wrapper.new InsertPipeline() ) {
+            queryResponse.forEachRemaining( responseMessage -> {
+                int droppedIndex = 0;
+                for ( ColumnName c : responseMessage.getColumnsList() ) {
+                    if ( c.getName().equals( oldPhysicalColumnName ) ) {
+                        break;
                     }
-                    i++;
+                    droppedIndex++;
                 }
-                if ( !this.wrapper.insert( insert.build() ) ) {
-                    throw new RuntimeException( "Failed to migrate data." );
+                for ( Tuple tuple : responseMessage.getTuplesList() ) {
+                    final InsertMessage.Builder insert = InsertMessage.newBuilder().setTxId( txId ).setFrom( From.newBuilder().setScan( Scan.newBuilder().setEntity( newTableEntity ) ) );
+                    int i = 0;
+                    for ( Literal l : tuple.getDataList() ) {
+                        if ( i != droppedIndex ) {
+                            insert.addElementsBuilder().setColumn( responseMessage.getColumns( i ) ).setValue( l );
+                        }
+                        i++;
+                    }
+                    if ( !pipeline.add( insert.build() ) ) {
+                        throw new RuntimeException( "Failed to migrate data." );
+                    }
                 }
+            } );
+            if ( !pipeline.finish() ) {
+                throw new RuntimeException( "Failed to migrate data." );
             }
-        } );
+        }
 
         // Update column placement physical table names
         for ( CatalogColumnPlacement placement : this.catalog.getColumnPlacementsOnAdapter( this.getAdapterId(), columnPlacement.tableId ) ) {
@@ -561,18 +572,25 @@ public void updateColumnType( Context context, CatalogColumnPlacement columnPlac
         final Iterator<QueryResponseMessage> queryResponse = this.wrapper.query( QueryMessage.newBuilder().setTxId( txId ).setQuery( query ).build() );
 
         final From from = From.newBuilder().setScan( Scan.newBuilder().setEntity( newTableEntity ).build() ).build();
-        queryResponse.forEachRemaining( response -> {
-            for ( Tuple tuple : response.getTuplesList() ) {
-                final InsertMessage.Builder insert = InsertMessage.newBuilder().setTxId( txId ).setFrom( from );
-                int i = 0;
-                for ( Literal d : tuple.getDataList() ) {
-                    insert.addElements( InsertElement.newBuilder()
-                            .setColumn( response.getColumns( i++ ) )
-                            .setValue( d ) );
+        try ( InsertPipeline pipeline = this.wrapper.new InsertPipeline() ) {
+            queryResponse.forEachRemaining( response -> {
+                for ( Tuple tuple : response.getTuplesList() ) {
+                    final InsertMessage.Builder insert = InsertMessage.newBuilder().setTxId( txId ).setFrom( from );
+                    int i = 0;
+                    for ( Literal d : tuple.getDataList() ) {
+                        insert.addElements( InsertElement.newBuilder()
+                                .setColumn( response.getColumns( i++ ) )
+                                .setValue( d ) );
+                    }
+                    if ( !pipeline.add( insert.build() ) ) {
+                        throw new RuntimeException( "Unable to migrate data." );
+                    }
                 }
-                this.wrapper.insert( insert.build() );
+            } );
+            if ( !pipeline.finish() ) {
+                throw new RuntimeException( "Unable to migrate data." );
             }
-        } );
+        }
 
         for ( CatalogColumnPlacement ccp : placements ) {
             catalog.updateColumnPlacementPhysicalNames(
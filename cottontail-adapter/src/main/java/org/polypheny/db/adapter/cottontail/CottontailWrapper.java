@@ -21,10 +21,12 @@
 import io.grpc.ManagedChannel;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
 import java.util.Iterator;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.transaction.PolyXid;
 import org.polypheny.db.transaction.Transaction;
@@ -50,6 +52,7 @@
 import org.vitrivr.cottontail.grpc.DDLGrpc.DDLBlockingStub;
 import org.vitrivr.cottontail.grpc.DMLGrpc;
 import org.vitrivr.cottontail.grpc.DMLGrpc.DMLBlockingStub;
+import org.vitrivr.cottontail.grpc.DMLGrpc.DMLStub;
 import org.vitrivr.cottontail.grpc.DQLGrpc;
 import org.vitrivr.cottontail.grpc.DQLGrpc.DQLBlockingStub;
 import org.vitrivr.cottontail.grpc.TXNGrpc;
@@ -68,6 +71,11 @@ public class CottontailWrapper implements AutoCloseable {
     public static final int MAX_MESSAGE_SIZE = 150_000_000;
     private static final long MAX_QUERY_CALL_TIMEOUT = 300_000; // TODO expose to config
 
+    /**
+     * Maximum number of insert messages which have been sent but not yet acknowledged by Cottontail DB.
+     */
+    public static final int MAX_PENDING_INSERTS = 64;
+
     /**
      * A map of all the {@link PolyXid} and the Cottontail DB {@link TransactionId} of all ongoing transactions.
      */
@@ -298,17 +306,108 @@ public boolean insert( InsertMessage message ) {
     }
 
 
-    public boolean insert( List<InsertMessage> messages ) {
-        final DMLBlockingStub stub = DMLGrpc.newBlockingStub( this.channel );
-        try {
-            for ( InsertMessage m : messages ) {
-                stub.insert( m );
+    /**
+     * Inserts a sequence of messages through an {@link InsertPipeline}. The messages are only created when they are sent.
+     *
+     * @param messages The messages to insert
+     * @return The number of inserted messages or -1 if an insert failed
+     */
+    public long insert( Iterator<InsertMessage> messages ) {
+        try ( InsertPipeline pipeline = new InsertPipeline() ) {
+            while ( messages.hasNext() && pipeline.add( messages.next() ) ) {
+                // Messages are sent by add()
             }
+            return pipeline.finish() ? pipeline.getCount() : -1L;
+        }
+    }
+
+
+    /**
+     * Sends insert messages asynchronously without waiting for the response of a message before sending the next one.
+     * At most {@link #MAX_PENDING_INSERTS} messages are in flight at the same time; adding further messages blocks until
+     * older ones have been acknowledged. This keeps the memory usage bounded even if messages are produced faster than
+     * Cottontail DB can process them.
+     */
+    public class InsertPipeline implements AutoCloseable {
+
+        private final DMLStub stub = DMLGrpc.newStub( channel );
+        private final Semaphore permits = new Semaphore( MAX_PENDING_INSERTS );
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private long count = 0;
+        private boolean finished = false;
+
+
+        /**
+         * Sends a message.
+         *
+         * @return {@code false} if a previous message has failed; the message has not been sent in that case
+         */
+        public boolean add( InsertMessage message ) {
+            try {
+                permits.acquire();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                error.compareAndSet( null, e );
+                return false;
+            }
+            if ( error.get() != null ) {
+                permits.release();
+                return false;
+            }
+            stub.insert( message, new StreamObserver<QueryResponseMessage>() {
+                @Override
+                public void onNext( QueryResponseMessage value ) {
+                }
+
+
+                @Override
+                public void onError( Throwable t ) {
+                    error.compareAndSet( null, t );
+                    permits.release();
+                }
+
+
+                @Override
+                public void onCompleted() {
+                    permits.release();
+                }
+            } );
+            count++;
             return true;
-        } catch ( StatusRuntimeException e ) {
-            log.error( "Caught exception", e );
-            return false;
         }
+
+
+        /**
+         * Waits until all messages have been acknowledged.
+         *
+         * @return {@code true} if all messages have been inserted successfully
+         */
+        public boolean finish() {
+            if ( !finished ) {
+                finished = true;
+                permits.acquireUninterruptibly( MAX_PENDING_INSERTS );
+                permits.release( MAX_PENDING_INSERTS );
+                if ( error.get() != null ) {
+                    log.error( "Caught exception", error.get() );
+                }
+            }
+            return error.get() == null;
+        }
+
+
+        /**
+         * @return The number of messages sent
+         */
+        public long getCount() {
+            return count;
+        }
+
+
+        @Override
+        public void close() {
+            finish();
+        }
+
     }
 
 
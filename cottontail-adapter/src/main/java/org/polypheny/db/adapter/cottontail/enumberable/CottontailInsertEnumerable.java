@@ -18,7 +18,7 @@
 
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,13 +56,19 @@
             "fromPreparedStatements",
             String.class, String.class, Function1.class, DataContext.class, CottontailWrapper.class );
 
-    private final List<InsertMessage> inserts;
+    private final Iterable<InsertMessage> inserts;
+    private final int size;
     private final CottontailWrapper wrapper;
     private final boolean fromPrepared;
 
 
-    public CottontailInsertEnumerable( List<InsertMessage> inserts, DataContext dataContext, CottontailWrapper wrapper, boolean fromPrepared ) {
+    /**
+     * @param inserts The messages to insert; they are built while they are sent to Cottontail DB
+     * @param size The number of messages
+     */
+    public CottontailInsertEnumerable( Iterable<InsertMessage> inserts, int size, DataContext dataContext, CottontailWrapper wrapper, boolean fromPrepared ) {
         this.inserts = inserts;
+        this.size = size;
         this.wrapper = wrapper;
         this.fromPrepared = fromPrepared;
     }
@@ -79,18 +85,10 @@ public static CottontailInsertEnumerable<Object> fromValues(
         /* Begin or continue Cottontail DB transaction. */
         final TransactionId txId = wrapper.beginOrContinue( dataContext.getStatement().getTransaction() );
 
-        /* Build INSERT messages and create enumerable. */
+        /* Create enumerable which builds the INSERT messages lazily. */
         final CottontailGrpc.From from_ = CottontailTypeUtil.fromFromTableAndSchema( from, schema );
-        final List<InsertMessage> insertMessages = new ArrayList<>( values.size() );
-        for ( Map<String, CottontailGrpc.Literal> value : values ) {
-            final InsertMessage.Builder message = InsertMessage.newBuilder().setFrom( from_ ).setTxId( txId );
-            for ( Entry<String, Literal> e : value.entrySet() ) {
-                message.addElements( InsertElement.newBuilder().setColumn( ColumnName.newBuilder().setName( e.getKey() ) ).setValue( e.getValue() ).build() );
-            }
-            insertMessages.add( message.build() );
-        }
-
-        return new CottontailInsertEnumerable<>( insertMessages, null, wrapper, false );
+        final Iterable<InsertMessage> insertMessages = () -> values.stream().map( value -> buildInsert( from_, txId, value ) ).iterator();
+        return new CottontailInsertEnumerable<>( insertMessages, values.size(), null, wrapper, false );
     }
 
 
@@ -105,39 +103,35 @@ public static CottontailInsertEnumerable<Object> fromPreparedStatements(
         /* Begin or continue Cottontail DB transaction. */
         final TransactionId txId = wrapper.beginOrContinue( dataContext.getStatement().getTransaction() );
 
-        /* Build INSERT messages and create enumerable. */
+        /* Create enumerable which builds the INSERT messages lazily. */
         final CottontailGrpc.From from_ = CottontailTypeUtil.fromFromTableAndSchema( from, schema );
-        final List<InsertMessage> insertMessages = new ArrayList<>();
-        if ( dataContext.getParameterValues().size() == 0 ) {
-            final InsertMessage.Builder insert = InsertMessage.newBuilder().setFrom( from_ ).setTxId( txId );
-            final Map<String, Literal> values = tupleBuilder.apply( new HashMap<>() );
-            for ( Entry<String, Literal> e : values.entrySet() ) {
-                insert.addElements( InsertElement.newBuilder().setColumn( ColumnName.newBuilder().setName( e.getKey() ) ).setValue( e.getValue() ) );
-            }
-            insertMessages.add( insert.build() );
-        } else {
-            for ( Map<Long, Object> parameterValues : dataContext.getParameterValues() ) {
-                final InsertMessage.Builder insert = InsertMessage.newBuilder().setFrom( from_ ).setTxId( txId );
-                for ( Entry<String, CottontailGrpc.Literal> e : tupleBuilder.apply( parameterValues ).entrySet() ) {
-                    insert.addElements( InsertElement.newBuilder().setColumn( ColumnName.newBuilder().setName( e.getKey() ) ).setValue( e.getValue() ) );
-                }
-                insertMessages.add( insert.build() );
-            }
-        }
+        final List<Map<Long, Object>> parameterValues = dataContext.getParameterValues().size() == 0
+                ? Collections.singletonList( new HashMap<>() )
+                : dataContext.getParameterValues();
+        final Iterable<InsertMessage> insertMessages = () -> parameterValues.stream().map( values -> buildInsert( from_, txId, tupleBuilder.apply( values ) ) ).iterator();
+        return new CottontailInsertEnumerable<>( insertMessages, parameterValues.size(), dataContext, wrapper, true );
+    }
+
 
-        return new CottontailInsertEnumerable<>( insertMessages, dataContext, wrapper, true );
+    private static InsertMessage buildInsert( CottontailGrpc.From from, TransactionId txId, Map<String, Literal> values ) {
+        final InsertMessage.Builder insert = InsertMessage.newBuilder().setFrom( from ).setTxId( txId );
+        for ( Entry<String, Literal> e : values.entrySet() ) {
+            insert.addElements( InsertElement.newBuilder().setColumn( ColumnName.newBuilder().setName( e.getKey() ) ).setValue( e.getValue() ) );
+        }
+        return insert.build();
     }
 
 
     @Override
     public Enumerator<T> enumerator() {
-        return new CottontailInsertResultEnumerator<>( inserts, wrapper, fromPrepared );
+        return new CottontailInsertResultEnumerator<>( inserts, size, wrapper, fromPrepared );
     }
 
 
     private static class CottontailInsertResultEnumerator<T> implements Enumerator<T> {
 
-        private List<InsertMessage> inserts;
+        private Iterable<InsertMessage> inserts;
+        private int size;
         private CottontailWrapper wrapper;
 
         private boolean wasSuccessful;
@@ -146,8 +140,9 @@ public Enumerator<T> enumerator() {
         private boolean fromPrepared;
 
 
-        public CottontailInsertResultEnumerator( List<InsertMessage> inserts, CottontailWrapper wrapper, boolean fromPrepared ) {
+        public CottontailInsertResultEnumerator( Iterable<InsertMessage> inserts, int size, CottontailWrapper wrapper, boolean fromPrepared ) {
             this.inserts = inserts;
+            this.size = size;
             this.wrapper = wrapper;
             this.checkCount = 0;
             this.fromPrepared = fromPrepared;
@@ -158,7 +153,7 @@ public CottontailInsertResultEnumerator( List<InsertMessage> inserts, Cottontail
         @Override
         public T current() {
             if ( this.wasSuccessful ) {
-                return (T) Integer.valueOf( this.inserts.size() );
+                return (T) Integer.valueOf( this.size );
             } else {
                 return (T) Integer.valueOf( -1 );
             }
@@ -168,7 +163,7 @@ public T current() {
         @Override
         public boolean moveNext() {
             if ( !this.executed ) {
-                this.wasSuccessful = this.wrapper.insert( this.inserts );
+                this.wasSuccessful = this.wrapper.insert( this.inserts.iterator() ) >= 0;
                 this.executed = true;
                 this.checkCount += 1;
                 return this.wasSuccessful;
@@ -176,7 +171,7 @@ public boolean moveNext() {
                 if ( !this.fromPrepared ) {
                     return false;
                 }
-                if ( this.checkCount < this.inserts.size() ) {
+                if ( this.checkCount < this.size ) {
                     this.checkCount += 1;
                     return true;
                 } else {
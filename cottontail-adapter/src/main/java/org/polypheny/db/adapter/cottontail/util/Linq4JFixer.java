@@ -22,6 +22,7 @@
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.calcite.avatica.util.ByteString;
+import org.polypheny.db.runtime.PrimitiveVector;
 import org.vitrivr.cottontail.grpc.CottontailGrpc;
 import org.vitrivr.cottontail.grpc.CottontailGrpc.AtomicBooleanOperand;
 import org.vitrivr.cottontail.grpc.CottontailGrpc.AtomicBooleanPredicate;
@@ -187,7 +188,13 @@ public static Object getFloatVector( Object data ) {
         if ( ((CottontailGrpc.Literal) data).hasNullData() ) {
             return null;
         }
-        return ((CottontailGrpc.Literal) data).getVectorData().getFloatVector().getVectorList();
+        // Copy the values into a primitive vector to avoid boxing them on every access
+        final CottontailGrpc.FloatVector vector = ((CottontailGrpc.Literal) data).getVectorData().getFloatVector();
+        final float[] values = new float[vector.getVectorCount()];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = vector.getVector( i );
+        }
+        return PrimitiveVector.of( values );
     }
 
 
@@ -195,7 +202,12 @@ public static Object getDoubleVector( Object data ) {
         if ( ((CottontailGrpc.Literal) data).hasNullData() ) {
             return null;
         }
-        return ((CottontailGrpc.Literal) data).getVectorData().getDoubleVector().getVectorList();
+        final CottontailGrpc.DoubleVector vector = ((CottontailGrpc.Literal) data).getVectorData().getDoubleVector();
+        final double[] values = new double[vector.getVectorCount()];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = vector.getVector( i );
+        }
+        return PrimitiveVector.of( values );
     }
 
 
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.cottontail;
+
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.polypheny.db.adapter.cottontail.CottontailWrapper.InsertPipeline;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.EntityName;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.From;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.InsertMessage;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.QueryResponseMessage;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.Scan;
+import org.vitrivr.cottontail.grpc.DMLGrpc;
+
+
+/**
+ * Tests the {@link InsertPipeline} against an in-process server which records the received insert messages and fails
+ * inserts into the entity {@code fail}.
+ */
+public class CottontailWrapperTest {
+
+    private final BlockingQueue<StreamObserver<QueryResponseMessage>> pending = new LinkedBlockingQueue<>();
+    private final List<String> received = Collections.synchronizedList( new ArrayList<>() );
+    private final AtomicBoolean acknowledge = new AtomicBoolean( true );
+    private Server server;
+    private ManagedChannel channel;
+    private CottontailWrapper wrapper;
+
+
+    @Before
+    public void start() throws IOException {
+        final String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName( name ).addService( new DMLGrpc.DMLImplBase() {
+            @Override
+            public void insert( InsertMessage request, StreamObserver<QueryResponseMessage> responseObserver ) {
+                final String entity = request.getFrom().getScan().getEntity().getName();
+                received.add( entity );
+                if ( entity.equals( "fail" ) ) {
+                    responseObserver.onError( Status.INVALID_ARGUMENT.asRuntimeException() );
+                } else if ( acknowledge.get() ) {
+                    responseObserver.onNext( QueryResponseMessage.getDefaultInstance() );
+                    responseObserver.onCompleted();
+                } else {
+                    pending.add( responseObserver );
+                }
+            }
+        } ).build().start();
+        channel = InProcessChannelBuilder.forName( name ).build();
+        wrapper = new CottontailWrapper( channel, null );
+    }
+
+
+    @After
+    public void stop() throws InterruptedException {
+        channel.shutdownNow().awaitTermination( 5, TimeUnit.SECONDS );
+        server.shutdownNow().awaitTermination( 5, TimeUnit.SECONDS );
+    }
+
+
+    @Test
+    public void testInsert() {
+        try ( InsertPipeline pipeline = wrapper.new InsertPipeline() ) {
+            for ( int i = 0; i < 1000; i++ ) {
+                Assert.assertTrue( pipeline.add( insert( "entity" + i ) ) );
+            }
+            Assert.assertTrue( pipeline.finish() );
+            Assert.assertEquals( 1000, pipeline.getCount() );
+        }
+        Assert.assertEquals( 1000, received.size() );
+        for ( int i = 0; i < 1000; i++ ) {
+            Assert.assertTrue( received.contains( "entity" + i ) );
+        }
+    }
+
+
+    @Test
+    public void testFailure() {
+        try ( InsertPipeline pipeline = wrapper.new InsertPipeline() ) {
+            Assert.assertTrue( pipeline.add( insert( "entity" ) ) );
+            Assert.assertTrue( pipeline.add( insert( "fail" ) ) );
+            Assert.assertFalse( pipeline.finish() );
+            // Further messages are not sent after a failure
+            Assert.assertFalse( pipeline.add( insert( "entity" ) ) );
+            Assert.assertFalse( pipeline.finish() );
+        }
+        Assert.assertEquals( 2, received.size() );
+
+        final List<InsertMessage> messages = new ArrayList<>();
+        messages.add( insert( "entity" ) );
+        messages.add( insert( "fail" ) );
+        Assert.assertEquals( -1L, wrapper.insert( messages.iterator() ) );
+        messages.remove( 1 );
+        Assert.assertEquals( 1L, wrapper.insert( messages.iterator() ) );
+    }
+
+
+    @Test
+    public void testPendingLimit() throws InterruptedException {
+        acknowledge.set( false );
+        final InsertPipeline pipeline = wrapper.new InsertPipeline();
+        final Thread producer = new Thread( () -> {
+            for ( int i = 0; i <= CottontailWrapper.MAX_PENDING_INSERTS; i++ ) {
+                pipeline.add( insert( "entity" + i ) );
+            }
+            pipeline.finish();
+        } );
+        producer.start();
+
+        final List<StreamObserver<QueryResponseMessage>> observers = new ArrayList<>();
+        for ( int i = 0; i < CottontailWrapper.MAX_PENDING_INSERTS; i++ ) {
+            observers.add( pending.take() );
+        }
+        // The last message is only sent after one of the pending ones has been acknowledged
+        Assert.assertNull( pending.poll( 100, TimeUnit.MILLISECONDS ) );
+        Assert.assertEquals( CottontailWrapper.MAX_PENDING_INSERTS, received.size() );
+
+        observers.get( 0 ).onCompleted();
+        final StreamObserver<QueryResponseMessage> last = pending.take();
+        Assert.assertEquals( CottontailWrapper.MAX_PENDING_INSERTS + 1, received.size() );
+
+        // finish() waits for all pending messages
+        Assert.assertTrue( producer.isAlive() );
+        observers.subList( 1, observers.size() ).forEach( StreamObserver::onCompleted );
+        last.onCompleted();
+        producer.join( 5000 );
+        Assert.assertFalse( producer.isAlive() );
+        Assert.assertTrue( pipeline.finish() );
+        Assert.assertEquals( CottontailWrapper.MAX_PENDING_INSERTS + 1, pipeline.getCount() );
+    }
+
+
+    private static InsertMessage insert( String entity ) {
+        return InsertMessage.newBuilder()
+                .setFrom( From.newBuilder().setScan( Scan.newBuilder().setEntity( EntityName.newBuilder().setName( entity ) ) ) )
+                .build();
+    }
+
+}
@@ -37,15 +37,11 @@
 import au.com.bytecode.opencsv.CSVReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.text.ParseException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.TimeZone;
 import java.util.concurrent.atomic.AtomicBoolean;
-import org.apache.calcite.avatica.util.DateTimeUtils;
 import org.apache.calcite.linq4j.Enumerator;
-import org.apache.commons.lang3.time.FastDateFormat;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
 import org.polypheny.db.rel.type.RelDataType;
 import org.polypheny.db.type.PolyType;
@@ -66,24 +62,12 @@
     private final RowConverter<E> rowConverter;
     private E current;
 
-    private static final FastDateFormat TIME_FORMAT_DATE;
-    private static final FastDateFormat TIME_FORMAT_TIME;
-    private static final FastDateFormat TIME_FORMAT_TIMESTAMP;
-
     /**
      * Name of the column that is implicitly created in a CSV stream table to hold the data arrival time.
      */
     private static final String ROWTIME_COLUMN_NAME = "ROWTIME";
 
 
-    static {
-        final TimeZone gmt = TimeZone.getTimeZone( "GMT" );
-        TIME_FORMAT_DATE = FastDateFormat.getInstance( "yyyy-MM-dd", gmt );
-        TIME_FORMAT_TIME = FastDateFormat.getInstance( "HH:mm:ss", gmt );
-        TIME_FORMAT_TIMESTAMP = FastDateFormat.getInstance( "yyyy-MM-dd HH:mm:ss", gmt );
-    }
-
-
     CsvEnumerator( Source source, AtomicBoolean cancelFlag, List<CsvFieldType> fieldTypes ) {
         this( source, cancelFlag, fieldTypes, identityList( fieldTypes.size() ) );
     }
@@ -115,7 +99,7 @@
     private static RowConverter<?> converter( List<CsvFieldType> fieldTypes, int[] fields ) {
         if ( fields.length == 1 ) {
             final int field = fields[0];
-            return new SingleColumnRowConverter( fieldTypes.get( field ), field );
+            return new SingleColumnRowConverter( fieldTypes.get( 0 ), field );
         } else {
             return new ArrayRowConverter( fieldTypes, fields );
         }
@@ -315,35 +299,11 @@ protected Object convert( CsvFieldType fieldType, String string ) {
                     }
                     return Double.parseDouble( string );
                 case DATE:
-                    if ( string.length() == 0 ) {
-                        return null;
-                    }
-                    try {
-                        Date date = TIME_FORMAT_DATE.parse( string );
-                        return (int) (date.getTime() / DateTimeUtils.MILLIS_PER_DAY);
-                    } catch ( ParseException e ) {
-                        return null;
-                    }
                 case TIME:
-                    if ( string.length() == 0 ) {
-                        return null;
-                    }
-                    try {
-                        Date date = TIME_FORMAT_TIME.parse( string );
-                        return (int) date.getTime();
-                    } catch ( ParseException e ) {
-                        return null;
-                    }
                 case TIMESTAMP:
-                    if ( string.length() == 0 ) {
-                        return null;
-                    }
-                    try {
-                        Date date = TIME_FORMAT_TIMESTAMP.parse( string );
-                        return date.getTime();
-                    } catch ( ParseException e ) {
-                        return null;
-                    }
+                    // Dates and times only consist of ASCII characters
+                    byte[] bytes = string.getBytes( StandardCharsets.ISO_8859_1 );
+                    return CsvValueParser.parse( fieldType, bytes, bytes.length );
                 case STRING:
                 default:
                     return string;
@@ -426,7 +386,7 @@ private SingleColumnRowConverter( CsvFieldType fieldType, int fieldIndex ) {
 
         @Override
         public Object convertRow( String[] strings ) {
-            return convert( fieldType, strings[fieldIndex] );
+            return convert( fieldType, strings[fieldIndex - 1] );
         }
     }
 }
@@ -79,6 +79,14 @@ public Enumerable<Object[]> scan( DataContext dataContext, List<RexNode> filters
         return new AbstractEnumerable<Object[]>() {
             @Override
             public Enumerator<Object[]> enumerator() {
+                if ( CsvMappedEnumerator.canMap( source ) ) {
+                    CsvIndex index = getIndex();
+                    if ( index != null && index.isUpToDate() ) {
+                        // Only read the blocks which can contain matching rows
+                        return new CsvMappedEnumerator<>( source, cancelFlag, fieldTypes, fields, filterValues, false, csvSource.getScanExecutor(), csvSource.getScanThreads(), index.getChunks( filterValues ) );
+                    }
+                    return new CsvMappedEnumerator<>( source, cancelFlag, fieldTypes, fields, filterValues, false, csvSource.getScanExecutor(), csvSource.getScanThreads() );
+                }
                 return new CsvEnumerator<>( source, cancelFlag, false, filterValues, new CsvEnumerator.ArrayRowConverter( fieldTypes, fields ) );
             }
         };
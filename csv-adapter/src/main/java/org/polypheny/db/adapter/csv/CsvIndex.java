@@ -0,0 +1,423 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.csv;
+
+
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.Enumerator;
+import org.polypheny.db.util.FileSystemManager;
+import org.polypheny.db.util.Source;
+import org.polypheny.db.util.Sources;
+
+
+/**
+ * Sidecar index of a CSV file. It contains the number of rows of the file and, for blocks of about {@link #BLOCK_SIZE}
+ * bytes, their byte range and the minimum and maximum value of every column (zone map). The row count is reported to the
+ * planner and the zone maps allow scans with filters to skip blocks which cannot contain matching rows.
+ *
+ * Indexes are built in the background and stored in the Polypheny-DB home folder. An index is rebuilt if the modification
+ * time or the size of its file changes. If the file has only been appended to, only the last block and the new lines are
+ * indexed again.
+ */
+@Slf4j
+class CsvIndex {
+
+    /**
+     * Nominal size of a block in bytes
+     */
+    static final int BLOCK_SIZE = 4 * 1024 * 1024;
+
+    private static final int VERSION = 1;
+    private static final int MAX_STRING_LENGTH = 1024;
+
+    private static final Map<String, CsvIndex> INDEXES = new ConcurrentHashMap<>();
+    private static final Map<String, Boolean> BUILDING = new ConcurrentHashMap<>();
+    // Modification time of files for which building the index has failed, to avoid retrying until the file is changed
+    private static final Map<String, Long> FAILED = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final String header;
+    private final CsvFieldType[] types;
+    private final long modified;
+    private final long size;
+    @Getter
+    private final long rowCount;
+    private final List<Block> blocks;
+    private final long lastBlockChecksum;
+
+
+    private CsvIndex( String path, String header, CsvFieldType[] types, long modified, long size, List<Block> blocks, long lastBlockChecksum ) {
+        this.path = path;
+        this.header = header;
+        this.types = types;
+        this.modified = modified;
+        this.size = size;
+        this.blocks = blocks;
+        this.lastBlockChecksum = lastBlockChecksum;
+        long rowCount = 0;
+        for ( Block block : blocks ) {
+            rowCount += block.rows;
+        }
+        this.rowCount = rowCount;
+    }
+
+
+    /**
+     * Returns the index of a file. If there is no up-to-date index, building it is scheduled on the given executor.
+     *
+     * @return The index, which might be outdated (see {@link #isUpToDate()}), or {@code null} if there is no index yet
+     * or if the source is not a local, uncompressed file
+     */
+    static CsvIndex get( Source source, ExecutorService executor ) {
+        if ( !CsvMappedEnumerator.canMap( source ) ) {
+            return null;
+        }
+        final File file = source.file();
+        final String path = file.getAbsolutePath();
+        CsvIndex index = INDEXES.computeIfAbsent( path, p -> read( getIndexFile( p ), p ) );
+        if ( index == null || !index.isUpToDate() ) {
+            Long failed = FAILED.get( path );
+            if ( (failed == null || failed != file.lastModified()) && BUILDING.putIfAbsent( path, true ) == null ) {
+                final CsvIndex previous = index;
+                executor.submit( () -> {
+                    try {
+                        CsvIndex updated = build( file, previous );
+                        updated.write( getIndexFile( path ) );
+                        INDEXES.put( path, updated );
+                        FAILED.remove( path );
+                    } catch ( Exception e ) {
+                        log.warn( "Unable to index CSV file {}", path, e );
+                        FAILED.put( path, file.lastModified() );
+                    } finally {
+                        BUILDING.remove( path );
+                    }
+                } );
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * Returns whether the indexed file has not been changed since it has been indexed.
+     */
+    boolean isUpToDate() {
+        File file = new File( path );
+        return file.lastModified() == modified && file.length() == size;
+    }
+
+
+    /**
+     * Returns the byte ranges of all blocks which can contain rows whose fields are equal to the given filter values.
+     *
+     * @param filterValues Values indexed by the position of the field in the file starting at 0; {@code null} for
+     * fields without a filter
+     */
+    List<long[]> getChunks( String[] filterValues ) {
+        Comparable[] filters = new Comparable[types.length];
+        for ( int i = 0; i < types.length && filterValues != null && i < filterValues.length; i++ ) {
+            if ( filterValues[i] != null ) {
+                try {
+                    byte[] bytes = filterValues[i].getBytes( StandardCharsets.UTF_8 );
+                    filters[i] = (Comparable) CsvValueParser.parse( types[i], bytes, bytes.length );
+                } catch ( NumberFormatException e ) {
+                    // The filter value cannot be compared to the values of this column
+                }
+            }
+        }
+        List<long[]> chunks = new ArrayList<>();
+        outer:
+        for ( Block block : blocks ) {
+            for ( int i = 0; i < filters.length; i++ ) {
+                if ( filters[i] != null && block.min[i] != null && block.max[i] != null && (compare( filters[i], block.min[i] ) < 0 || compare( filters[i], block.max[i] ) > 0) ) {
+                    continue outer;
+                }
+            }
+            chunks.add( new long[]{ block.start, block.end } );
+        }
+        return chunks;
+    }
+
+
+    /**
+     * Indexes a file.
+     *
+     * @param previous An outdated index of the file, which is extended if the file has only been appended to, or {@code null}
+     */
+    static CsvIndex build( File file, CsvIndex previous ) throws IOException {
+        long modified = file.lastModified();
+        long size = file.length();
+        String header = readHeader( file );
+        CsvFieldType[] types = parseTypes( header );
+
+        List<Block> blocks = new ArrayList<>();
+        long start = -1;
+        if ( previous != null && previous.header.equals( header ) && size >= previous.size && !previous.blocks.isEmpty() ) {
+            Block last = previous.blocks.get( previous.blocks.size() - 1 );
+            if ( checksum( file, last.start, last.end ) == previous.lastBlockChecksum ) {
+                // Only lines have been appended; index the last block again because its last line might have been incomplete
+                blocks.addAll( previous.blocks.subList( 0, previous.blocks.size() - 1 ) );
+                start = last.start;
+            }
+        }
+
+        Source source = Sources.of( file );
+        List<CsvFieldType> typeList = new ArrayList<>();
+        Collections.addAll( typeList, types );
+        int[] fields = new int[types.length];
+        for ( int i = 0; i < fields.length; i++ ) {
+            fields[i] = i + 1;
+        }
+        for ( long[] chunk : CsvMappedEnumerator.computeChunks( file, start, BLOCK_SIZE ) ) {
+            Block block = new Block( chunk[0], chunk[1], types.length );
+            Enumerator<Object[]> enumerator = new CsvMappedEnumerator<>( source, new AtomicBoolean( false ), typeList, fields, null, false, null, 1, Collections.singletonList( chunk ) );
+            while ( enumerator.moveNext() ) {
+                block.add( enumerator.current() );
+            }
+            enumerator.close();
+            blocks.add( block );
+        }
+
+        long lastBlockChecksum = blocks.isEmpty() ? 0 : checksum( file, blocks.get( blocks.size() - 1 ).start, blocks.get( blocks.size() - 1 ).end );
+        return new CsvIndex( file.getAbsolutePath(), header, types, modified, size, blocks, lastBlockChecksum );
+    }
+
+
+    private static String readHeader( File file ) throws IOException {
+        try ( InputStream is = new BufferedInputStream( Files.newInputStream( file.toPath() ) ) ) {
+            StringBuilder sb = new StringBuilder();
+            int b;
+            while ( (b = is.read()) >= 0 && b != '\n' ) {
+                sb.append( (char) b );
+            }
+            return sb.toString().trim();
+        }
+    }
+
+
+    /**
+     * Determines the types of the columns from the header row, see {@link CsvEnumerator#deduceRowType}.
+     */
+    private static CsvFieldType[] parseTypes( String header ) {
+        String[] columns = header.split( "," );
+        CsvFieldType[] types = new CsvFieldType[columns.length];
+        for ( int i = 0; i < columns.length; i++ ) {
+            int colon = columns[i].indexOf( ':' );
+            types[i] = colon >= 0 ? CsvFieldType.of( columns[i].substring( colon + 1 ).trim() ) : null;
+        }
+        return types;
+    }
+
+
+    private static long checksum( File file, long start, long end ) throws IOException {
+        CRC32 crc = new CRC32();
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 );
+            long position = start;
+            while ( position < end ) {
+                buffer.clear();
+                buffer.limit( (int) Math.min( buffer.capacity(), end - position ) );
+                int read = channel.read( buffer, position );
+                if ( read <= 0 ) {
+                    break;
+                }
+                crc.update( buffer.array(), 0, read );
+                position += read;
+            }
+        }
+        return crc.getValue();
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static int compare( Comparable a, Comparable b ) {
+        return a.compareTo( b );
+    }
+
+
+    private static File getIndexFile( String path ) {
+        File folder = FileSystemManager.getInstance().registerNewFolder( "data/csv-index" );
+        return new File( folder, Hashing.sha256().hashString( path, StandardCharsets.UTF_8 ).toString() );
+    }
+
+
+    void write( File indexFile ) throws IOException {
+        File temp = new File( indexFile.getParentFile(), indexFile.getName() + ".tmp" );
+        try ( OutputStream os = Files.newOutputStream( temp.toPath() ); DataOutputStream out = new DataOutputStream( new BufferedOutputStream( os ) ) ) {
+            out.writeInt( VERSION );
+            out.writeUTF( path );
+            out.writeUTF( header );
+            out.writeLong( modified );
+            out.writeLong( size );
+            out.writeLong( lastBlockChecksum );
+            out.writeInt( blocks.size() );
+            for ( Block block : blocks ) {
+                out.writeLong( block.start );
+                out.writeLong( block.end );
+                out.writeLong( block.rows );
+                for ( int i = 0; i < types.length; i++ ) {
+                    writeValue( out, block.min[i] );
+                    writeValue( out, block.max[i] );
+                }
+            }
+        }
+        Files.move( temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+
+    /**
+     * Reads a stored index.
+     *
+     * @return The index or {@code null} if there is no valid index for the file
+     */
+    static CsvIndex read( File indexFile, String path ) {
+        if ( !indexFile.exists() ) {
+            return null;
+        }
+        try ( InputStream is = Files.newInputStream( indexFile.toPath() ); DataInputStream in = new DataInputStream( new BufferedInputStream( is ) ) ) {
+            if ( in.readInt() != VERSION || !in.readUTF().equals( path ) ) {
+                return null;
+            }
+            String header = in.readUTF();
+            CsvFieldType[] types = parseTypes( header );
+            long modified = in.readLong();
+            long size = in.readLong();
+            long lastBlockChecksum = in.readLong();
+            int blockCount = in.readInt();
+            List<Block> blocks = new ArrayList<>( blockCount );
+            for ( int b = 0; b < blockCount; b++ ) {
+                Block block = new Block( in.readLong(), in.readLong(), types.length );
+                block.rows = in.readLong();
+                for ( int i = 0; i < types.length; i++ ) {
+                    block.min[i] = readValue( in, types[i] );
+                    block.max[i] = readValue( in, types[i] );
+                }
+                blocks.add( block );
+            }
+            return new CsvIndex( path, header, types, modified, size, blocks, lastBlockChecksum );
+        } catch ( IOException | RuntimeException e ) {
+            log.warn( "Unable to read index of CSV file {}", path, e );
+            return null;
+        }
+    }
+
+
+    private static void writeValue( DataOutputStream out, Comparable value ) throws IOException {
+        // Long strings are not stored; the block is then never skipped because of this column
+        boolean store = value != null && value.toString().length() <= MAX_STRING_LENGTH;
+        out.writeBoolean( store );
+        if ( store ) {
+            out.writeUTF( value.toString() );
+        }
+    }
+
+
+    private static Comparable readValue( DataInputStream in, CsvFieldType type ) throws IOException {
+        if ( !in.readBoolean() ) {
+            return null;
+        }
+        String value = in.readUTF();
+        if ( type == null ) {
+            return value;
+        }
+        switch ( type ) {
+            case BOOLEAN:
+                return Boolean.valueOf( value );
+            case BYTE:
+                return Byte.valueOf( value );
+            case SHORT:
+                return Short.valueOf( value );
+            case INT:
+            case DATE:
+            case TIME:
+                return Integer.valueOf( value );
+            case LONG:
+            case TIMESTAMP:
+                return Long.valueOf( value );
+            case FLOAT:
+                return Float.valueOf( value );
+            case DOUBLE:
+                return Double.valueOf( value );
+            default:
+                return value;
+        }
+    }
+
+
+    /**
+     * A block of lines of the indexed file
+     */
+    private static class Block {
+
+        private final long start;
+        private final long end;
+        private long rows;
+        private final Comparable[] min;
+        private final Comparable[] max;
+
+
+        private Block( long start, long end, int columns ) {
+            this.start = start;
+            this.end = end;
+            this.min = new Comparable[columns];
+            this.max = new Comparable[columns];
+        }
+
+
+        private void add( Object[] row ) {
+            rows++;
+            for ( int i = 0; i < row.length; i++ ) {
+                if ( !(row[i] instanceof Comparable) ) {
+                    continue;
+                }
+                Comparable value = (Comparable) row[i];
+                if ( min[i] == null || compare( value, min[i] ) < 0 ) {
+                    min[i] = value;
+                }
+                if ( max[i] == null || compare( value, max[i] ) > 0 ) {
+                    max[i] = value;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,528 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.csv;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.calcite.linq4j.Enumerator;
+import org.polypheny.db.util.Source;
+
+
+/**
+ * Enumerator that reads from a CSV file by memory mapping it instead of using a {@link au.com.bytecode.opencsv.CSVReader}.
+ *
+ * The file is split into chunks whose boundaries are placed after a line break outside of quoted values. Only the requested fields are converted,
+ * directly from the bytes of the file (see {@link CsvValueParser}); all other fields are skipped. If an executor is provided,
+ * up to {@code parallelism} chunks are parsed concurrently. The rows are returned in the order of the file.
+ *
+ * The format is the same as understood by the default {@link au.com.bytecode.opencsv.CSVParser}: fields are separated by
+ * commas and can be enclosed in double quotes, within which a quote is escaped by a second quote or a backslash.
+ * Quoted values can contain line breaks. Empty lines are skipped.
+ *
+ * @param <E> Row type
+ */
+class CsvMappedEnumerator<E> implements Enumerator<E> {
+
+    /**
+     * Nominal size of a chunk in bytes
+     */
+    static final int CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final byte SEPARATOR = ',';
+    private static final byte QUOTE = '"';
+    private static final byte ESCAPE = '\\';
+
+    private final File file;
+    private final AtomicBoolean cancelFlag;
+    private final CsvFieldType[] fieldTypes;
+    private final int[] fields;
+    private final String[] filterValues;
+    private final boolean singleColumn;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    // Byte ranges of the chunks: start (inclusive) and end (exclusive)
+    private final List<long[]> chunks;
+    private int nextChunk = 0;
+
+    // Used if the chunks are parsed sequentially
+    private ChunkParser parser;
+    // Used if the chunks are parsed concurrently
+    private final ArrayDeque<Future<List<Object>>> pending = new ArrayDeque<>();
+    private List<Object> rows;
+    private int rowIndex;
+
+    private E current;
+
+
+    /**
+     * Creates a CsvMappedEnumerator.
+     *
+     * @param source A local, uncompressed CSV file (see {@link #canMap(Source)})
+     * @param fieldTypes Types of the returned fields
+     * @param fields Positions of the returned fields in the file, starting at 1
+     * @param filterValues Values the fields of a row need to be equal to for the row to be returned, indexed by the position
+     * of the field in the file starting at 0. Can be {@code null}.
+     * @param singleColumn Whether to return the value instead of an array if there is only one field
+     * @param executor Executor for parsing chunks concurrently or {@code null} to parse them in the calling thread
+     * @param parallelism Maximum number of chunks that are parsed concurrently
+     */
+    CsvMappedEnumerator( Source source, AtomicBoolean cancelFlag, List<CsvFieldType> fieldTypes, int[] fields, String[] filterValues, boolean singleColumn, ExecutorService executor, int parallelism ) {
+        this( source, cancelFlag, fieldTypes, fields, filterValues, singleColumn, executor, parallelism, CHUNK_SIZE );
+    }
+
+
+    CsvMappedEnumerator( Source source, AtomicBoolean cancelFlag, List<CsvFieldType> fieldTypes, int[] fields, String[] filterValues, boolean singleColumn, ExecutorService executor, int parallelism, int chunkSize ) {
+        this( source, cancelFlag, fieldTypes, fields, filterValues, singleColumn, executor, parallelism, toChunks( source.file(), chunkSize ) );
+    }
+
+
+    /**
+     * Creates a CsvMappedEnumerator that only reads the given chunks of the file, e.g. the blocks of a {@link CsvIndex}
+     * which can contain matching rows.
+     *
+     * @param chunks Byte ranges of the chunks (start inclusive, end exclusive); every chunk has to start at the beginning
+     * of a line and end after a line break or at the end of the file
+     */
+    CsvMappedEnumerator( Source source, AtomicBoolean cancelFlag, List<CsvFieldType> fieldTypes, int[] fields, String[] filterValues, boolean singleColumn, ExecutorService executor, int parallelism, List<long[]> chunks ) {
+        this.file = source.file();
+        this.cancelFlag = cancelFlag;
+        this.fieldTypes = fieldTypes.toArray( new CsvFieldType[0] );
+        this.fields = fields;
+        this.filterValues = filterValues;
+        this.singleColumn = singleColumn && fields.length == 1;
+        this.executor = parallelism > 1 ? executor : null;
+        this.parallelism = parallelism;
+        this.chunks = chunks;
+    }
+
+
+    /**
+     * Returns whether a source can be read by this enumerator, i.e. whether it is a local file that is not compressed.
+     */
+    static boolean canMap( Source source ) {
+        return source.protocol().equals( "file" ) && !source.path().endsWith( ".gz" );
+    }
+
+
+    private static List<long[]> toChunks( File file, int chunkSize ) {
+        try {
+            return computeChunks( file, -1, chunkSize );
+        } catch ( IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+
+    /**
+     * Splits a file into chunks of at least the given size. The file is scanned sequentially to find the line breaks
+     * which are not part of a quoted value.
+     *
+     * @param start Position of the first chunk, which has to be the beginning of a line, or -1 to start after the header row
+     * @return Byte ranges of the chunks (start inclusive, end exclusive)
+     */
+    static List<long[]> computeChunks( File file, long start, int chunkSize ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            long size = channel.size();
+            List<long[]> chunks = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate( 64 * 1024 );
+            byte[] bytes = buffer.array();
+            // Start of the current chunk or -1 while the header row is skipped
+            long chunkStart = start;
+            long position = Math.max( start, 0 );
+            boolean fieldStart = true;
+            boolean quoted = false;
+            boolean closingQuote = false;
+            boolean escaped = false;
+            while ( position < size ) {
+                buffer.clear();
+                int read = channel.read( buffer, position );
+                if ( read <= 0 ) {
+                    break;
+                }
+                for ( int i = 0; i < read; i++ ) {
+                    byte b = bytes[i];
+                    if ( quoted ) {
+                        // Same rules as in ChunkParser.skipField()
+                        if ( escaped ) {
+                            escaped = false;
+                            continue;
+                        } else if ( closingQuote ) {
+                            closingQuote = false;
+                            if ( b == QUOTE ) {
+                                // Escaped quote
+                                continue;
+                            }
+                            quoted = false;
+                        } else {
+                            if ( b == QUOTE ) {
+                                closingQuote = true;
+                            } else if ( b == ESCAPE ) {
+                                escaped = true;
+                            }
+                            continue;
+                        }
+                    } else if ( b == QUOTE && fieldStart ) {
+                        quoted = true;
+                        fieldStart = false;
+                        continue;
+                    }
+                    fieldStart = b == SEPARATOR || b == '\n';
+                    if ( b == '\n' ) {
+                        long end = position + i + 1;
+                        if ( chunkStart < 0 ) {
+                            chunkStart = end;
+                        } else if ( end - chunkStart >= chunkSize ) {
+                            chunks.add( new long[]{ chunkStart, end } );
+                            chunkStart = end;
+                        }
+                    }
+                }
+                position += read;
+            }
+            if ( chunkStart >= 0 && chunkStart < size ) {
+                chunks.add( new long[]{ chunkStart, size } );
+            }
+            return chunks;
+        }
+    }
+
+
+    @Override
+    public E current() {
+        return current;
+    }
+
+
+    @Override
+    public boolean moveNext() {
+        try {
+            return executor == null ? moveNextSequential() : moveNextConcurrent();
+        } catch ( IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+
+    private boolean moveNextSequential() throws IOException {
+        for ( ; ; ) {
+            if ( cancelFlag.get() ) {
+                return false;
+            }
+            if ( parser != null && parser.next() ) {
+                //noinspection unchecked
+                current = (E) parser.row;
+                return true;
+            }
+            if ( nextChunk >= chunks.size() ) {
+                current = null;
+                return false;
+            }
+            parser = openChunk( nextChunk++ );
+        }
+    }
+
+
+    private boolean moveNextConcurrent() {
+        for ( ; ; ) {
+            if ( cancelFlag.get() ) {
+                close();
+                return false;
+            }
+            if ( rows != null && rowIndex < rows.size() ) {
+                //noinspection unchecked
+                current = (E) rows.get( rowIndex++ );
+                return true;
+            }
+            while ( pending.size() < parallelism && nextChunk < chunks.size() ) {
+                final int chunk = nextChunk++;
+                pending.add( executor.submit( () -> openChunk( chunk ).parseAll() ) );
+            }
+            if ( pending.isEmpty() ) {
+                rows = null;
+                current = null;
+                return false;
+            }
+            try {
+                rows = pending.poll().get();
+                rowIndex = 0;
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( e );
+            } catch ( ExecutionException e ) {
+                close();
+                throw new RuntimeException( "Error while reading CSV file " + file.getName(), e.getCause() );
+            }
+        }
+    }
+
+
+    private ChunkParser openChunk( int chunk ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            long[] range = chunks.get( chunk );
+            MappedByteBuffer buffer = channel.map( MapMode.READ_ONLY, range[0], range[1] - range[0] );
+            return new ChunkParser( buffer );
+        }
+    }
+
+
+    @Override
+    public void reset() {
+        throw new UnsupportedOperationException();
+    }
+
+
+    @Override
+    public void close() {
+        for ( Future<List<Object>> future : pending ) {
+            future.cancel( true );
+        }
+        pending.clear();
+        parser = null;
+        rows = null;
+        nextChunk = chunks.size();
+    }
+
+
+    /**
+     * Parses the lines of a chunk. Not thread-safe; every chunk is parsed by a single thread.
+     */
+    private class ChunkParser {
+
+        private final ByteBuffer buffer;
+        private final int limit;
+        private int position = 0;
+
+        // Index of the returned field for every field in the file or -1 if the field is not returned
+        private final int[] targets;
+        private final String[] filters;
+        private final Object[] values;
+        private byte[] scratch = new byte[256];
+        private int scratchLength;
+
+        Object row;
+
+
+        ChunkParser( ByteBuffer buffer ) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+            int maxField = 0;
+            for ( int field : fields ) {
+                maxField = Math.max( maxField, field );
+            }
+            if ( filterValues != null ) {
+                maxField = Math.max( maxField, filterValues.length );
+            }
+            this.targets = new int[maxField];
+            Arrays.fill( targets, -1 );
+            for ( int i = 0; i < fields.length; i++ ) {
+                targets[fields[i] - 1] = i;
+            }
+            this.filters = filterValues == null ? new String[0] : filterValues;
+            this.values = new Object[fields.length];
+        }
+
+
+        /**
+         * Parses the next line that matches the filters.
+         *
+         * @return false if the end of the chunk has been reached
+         */
+        boolean next() {
+            outer:
+            while ( position < limit ) {
+                if ( buffer.get( position ) == '\n' || (buffer.get( position ) == '\r' && position + 1 < limit && buffer.get( position + 1 ) == '\n') ) {
+                    // Empty line
+                    position = skipLineBreak( position );
+                    continue;
+                }
+                Object[] values = singleColumn ? this.values : new Object[fields.length];
+                int field = 0;
+                boolean endOfLine = false;
+                while ( !endOfLine ) {
+                    int target = field < targets.length ? targets[field] : -1;
+                    String filter = field < filters.length ? filters[field] : null;
+                    if ( target < 0 && filter == null ) {
+                        endOfLine = skipField();
+                    } else {
+                        endOfLine = readField();
+                        if ( filter != null && !filter.equals( new String( scratch, 0, scratchLength, StandardCharsets.UTF_8 ) ) ) {
+                            if ( !endOfLine ) {
+                                skipLine();
+                            }
+                            continue outer;
+                        }
+                        if ( target >= 0 ) {
+                            values[target] = CsvValueParser.parse( fieldTypes[target], scratch, scratchLength );
+                        }
+                    }
+                    field++;
+                }
+                row = singleColumn ? values[0] : values;
+                return true;
+            }
+            return false;
+        }
+
+
+        /**
+         * Parses all remaining lines of the chunk.
+         */
+        List<Object> parseAll() {
+            List<Object> rows = new ArrayList<>();
+            while ( next() ) {
+                rows.add( row );
+                if ( (rows.size() & 0x3FF) == 0 && cancelFlag.get() ) {
+                    break;
+                }
+            }
+            return rows;
+        }
+
+
+        /**
+         * Copies the field at the current position into the scratch buffer, removing enclosing quotes and escape characters.
+         *
+         * @return true if the field is the last one of the line
+         */
+        private boolean readField() {
+            scratchLength = 0;
+            if ( position < limit && buffer.get( position ) == QUOTE ) {
+                position++;
+                while ( position < limit ) {
+                    byte b = buffer.get( position++ );
+                    if ( b == QUOTE ) {
+                        if ( position < limit && buffer.get( position ) == QUOTE ) {
+                            // Escaped quote
+                            append( QUOTE );
+                            position++;
+                        } else {
+                            break;
+                        }
+                    } else if ( b == ESCAPE && position < limit && (buffer.get( position ) == QUOTE || buffer.get( position ) == ESCAPE) ) {
+                        append( buffer.get( position++ ) );
+                    } else {
+                        append( b );
+                    }
+                }
+            }
+            // Unquoted field or characters after the closing quote
+            int start = position;
+            while ( position < limit ) {
+                byte b = buffer.get( position );
+                if ( b == SEPARATOR || b == '\n' ) {
+                    break;
+                }
+                position++;
+            }
+            int end = position;
+            if ( end > start && buffer.get( end - 1 ) == '\r' && (end == limit || buffer.get( end ) == '\n') ) {
+                end--;
+            }
+            for ( int i = start; i < end; i++ ) {
+                append( buffer.get( i ) );
+            }
+            return endOfField();
+        }
+
+
+        /**
+         * Moves the position past the field at the current position.
+         *
+         * @return true if the field is the last one of the line
+         */
+        private boolean skipField() {
+            if ( position < limit && buffer.get( position ) == QUOTE ) {
+                position++;
+                while ( position < limit ) {
+                    byte b = buffer.get( position++ );
+                    if ( b == QUOTE ) {
+                        if ( position < limit && buffer.get( position ) == QUOTE ) {
+                            position++;
+                        } else {
+                            break;
+                        }
+                    } else if ( b == ESCAPE && position < limit ) {
+                        position++;
+                    }
+                }
+            }
+            while ( position < limit ) {
+                byte b = buffer.get( position );
+                if ( b == SEPARATOR || b == '\n' ) {
+                    break;
+                }
+                position++;
+            }
+            return endOfField();
+        }
+
+
+        private void skipLine() {
+            while ( !skipField() ) {
+                // skip the remaining fields
+            }
+        }
+
+
+        /**
+         * Moves the position past the separator or line break at the end of a field.
+         *
+         * @return true if the end of the line has been reached
+         */
+        private boolean endOfField() {
+            if ( position < limit && buffer.get( position ) == SEPARATOR ) {
+                position++;
+                return false;
+            }
+            if ( position < limit ) {
+                position++; // line break
+            }
+            return true;
+        }
+
+
+        private int skipLineBreak( int position ) {
+            return buffer.get( position ) == '\r' ? position + 2 : position + 1;
+        }
+
+
+        private void append( byte b ) {
+            if ( scratchLength == scratch.length ) {
+                scratch = Arrays.copyOf( scratch, scratch.length * 2 );
+            }
+            scratch[scratchLength++] = b;
+        }
+
+    }
+
+}
@@ -72,6 +72,9 @@ public Enumerable<Object[]> scan( DataContext dataContext ) {
         return new AbstractEnumerable<Object[]>() {
             @Override
             public Enumerator<Object[]> enumerator() {
+                if ( CsvMappedEnumerator.canMap( source ) ) {
+                    return new CsvMappedEnumerator<>( source, cancelFlag, fieldTypes, fields, null, false, csvSource.getScanExecutor(), csvSource.getScanThreads() );
+                }
                 return new CsvEnumerator<>( source, cancelFlag, false, null, new CsvEnumerator.ArrayRowConverter( fieldTypes, fields ) );
             }
         };
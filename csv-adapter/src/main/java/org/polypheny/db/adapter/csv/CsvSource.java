@@ -13,10 +13,14 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.adapter.Adapter.AdapterProperties;
+import org.polypheny.db.adapter.Adapter.AdapterSettingBoolean;
 import org.polypheny.db.adapter.Adapter.AdapterSettingDirectory;
 import org.polypheny.db.adapter.Adapter.AdapterSettingInteger;
 import org.polypheny.db.adapter.DataSource;
@@ -47,12 +51,24 @@
 @AdapterSettingDirectory(name = "directory", description = "You can upload one or multiple .csv or .csv.gz files.", position = 1)
 @AdapterSettingInteger(name = "maxStringLength", defaultValue = 255, position = 2,
         description = "Which length (number of characters including whitespace) should be used for the varchar columns. Make sure this is equal or larger than the longest string in any of the columns.")
+@AdapterSettingInteger(name = "scanThreads", defaultValue = 1, position = 3, required = false,
+        description = "Number of threads used to parse a CSV file. Large files are split into chunks at line breaks, "
+                + "up to this number of chunks are parsed concurrently.")
+@AdapterSettingBoolean(name = "index", defaultValue = true, position = 4, required = false,
+        description = "Maintain an index with the number of rows and the minimum and maximum values of blocks of every CSV file. "
+                + "The index is built in the background and updated when a file changes.")
 public class CsvSource extends DataSource {
 
 
     private URL csvDir;
     private CsvSchema currentSchema;
     private final int maxStringLength;
+    @Getter
+    private final int scanThreads;
+    private ExecutorService scanExecutor;
+    @Getter
+    private final boolean indexing;
+    private ExecutorService indexExecutor;
 
 
     public CsvSource( final int storeId, final String uniqueName, final Map<String, String> settings ) {
@@ -64,6 +80,13 @@ public CsvSource( final int storeId, final String uniqueName, final Map<String,
             throw new RuntimeException( "Invalid value for maxStringLength: " + maxStringLength );
         }
 
+        // Validate scanThreads setting
+        scanThreads = settings.get( "scanThreads" ) == null ? 1 : Integer.parseInt( settings.get( "scanThreads" ) );
+        if ( scanThreads < 1 ) {
+            throw new RuntimeException( "Invalid value for scanThreads: " + scanThreads );
+        }
+        indexing = settings.get( "index" ) == null || Boolean.parseBoolean( settings.get( "index" ) );
+
         setCsvDir( settings );
         registerInformationPage( uniqueName );
         enableInformationPage();
@@ -237,8 +260,46 @@ public void rollback( PolyXid xid ) {
     }
 
 
+    /**
+     * Returns the executor used to parse chunks of CSV files concurrently or {@code null} if they are parsed sequentially.
+     */
+    synchronized ExecutorService getScanExecutor() {
+        if ( scanThreads > 1 && scanExecutor == null ) {
+            scanExecutor = Executors.newFixedThreadPool( scanThreads, r -> {
+                Thread thread = new Thread( r, "CSV-Scan-" + getUniqueName() );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+        return scanExecutor;
+    }
+
+
+    /**
+     * Returns the executor used to build the indexes of the CSV files in the background.
+     */
+    synchronized ExecutorService getIndexExecutor() {
+        if ( indexExecutor == null ) {
+            indexExecutor = Executors.newSingleThreadExecutor( r -> {
+                Thread thread = new Thread( r, "CSV-Index-" + getUniqueName() );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+        return indexExecutor;
+    }
+
+
     @Override
-    public void shutdown() {
+    public synchronized void shutdown() {
+        if ( scanExecutor != null ) {
+            scanExecutor.shutdownNow();
+            scanExecutor = null;
+        }
+        if ( indexExecutor != null ) {
+            indexExecutor.shutdownNow();
+            indexExecutor = null;
+        }
         removeInformationPage();
     }
 
@@ -34,12 +34,15 @@
 package org.polypheny.db.adapter.csv;
 
 
+import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.List;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
 import org.polypheny.db.rel.type.RelDataType;
 import org.polypheny.db.rel.type.RelDataTypeFactory;
 import org.polypheny.db.rel.type.RelProtoDataType;
+import org.polypheny.db.schema.Statistic;
+import org.polypheny.db.schema.Statistics;
 import org.polypheny.db.schema.impl.AbstractTable;
 import org.polypheny.db.util.Source;
 
@@ -82,6 +85,30 @@ public RelDataType getRowType( RelDataTypeFactory typeFactory ) {
     }
 
 
+    /**
+     * Returns the number of rows of the CSV file if it has been indexed (see {@link CsvIndex}).
+     */
+    @Override
+    public Statistic getStatistic() {
+        CsvIndex index = getIndex();
+        if ( index == null ) {
+            return Statistics.UNKNOWN;
+        }
+        return Statistics.of( index.getRowCount(), ImmutableList.of() );
+    }
+
+
+    /**
+     * Returns the index of the CSV file, which might be outdated, or {@code null} if there is no index (yet).
+     */
+    protected CsvIndex getIndex() {
+        if ( csvSource == null || !csvSource.isIndexing() ) {
+            return null;
+        }
+        return CsvIndex.get( source, csvSource.getIndexExecutor() );
+    }
+
+
     /**
      * Various degrees of table "intelligence".
      */
@@ -35,6 +35,7 @@
 
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.calcite.linq4j.AbstractEnumerable;
@@ -75,14 +76,26 @@ public String toString() {
      * Returns an enumerable over a given projection of the fields.
      *
      * Called from generated code.
+     *
+     * @param fields Indexes of the projected fields in the row type of this table
      */
     public Enumerable<Object> project( final DataContext dataContext, final int[] fields ) {
         dataContext.getStatement().getTransaction().registerInvolvedAdapter( csvSource );
         final AtomicBoolean cancelFlag = DataContext.Variable.CANCEL_FLAG.get( dataContext );
+        // Map the projection to the positions of the fields in the file
+        final int[] positions = new int[fields.length];
+        final List<CsvFieldType> types = new ArrayList<>( fields.length );
+        for ( int i = 0; i < fields.length; i++ ) {
+            positions[i] = this.fields[fields[i]];
+            types.add( fieldTypes.get( fields[i] ) );
+        }
         return new AbstractEnumerable<Object>() {
             @Override
             public Enumerator<Object> enumerator() {
-                return new CsvEnumerator<>( source, cancelFlag, fieldTypes, fields );
+                if ( CsvMappedEnumerator.canMap( source ) ) {
+                    return new CsvMappedEnumerator<>( source, cancelFlag, types, positions, null, true, csvSource.getScanExecutor(), csvSource.getScanThreads() );
+                }
+                return new CsvEnumerator<>( source, cancelFlag, types, positions );
             }
         };
     }
@@ -109,6 +122,6 @@ public <T> Queryable<T> asQueryable( DataContext dataContext, SchemaPlus schema,
     @Override
     public RelNode toRel( RelOptTable.ToRelContext context, RelOptTable relOptTable ) {
         // Request all fields.
-        return new CsvTableScan( context.getCluster(), relOptTable, this, fields );
+        return new CsvTableScan( context.getCluster(), relOptTable, this, CsvEnumerator.identityList( fields.length ) );
     }
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.csv;
+
+
+import java.nio.charset.StandardCharsets;
+import org.apache.calcite.avatica.util.DateTimeUtils;
+
+
+/**
+ * Converts the bytes of a CSV field into the value of its {@link CsvFieldType}.
+ * Numbers, dates, times and timestamps are parsed directly from the bytes without creating intermediate objects.
+ * The methods are stateless and can be used concurrently.
+ */
+final class CsvValueParser {
+
+    private static final int DATE_LENGTH = "yyyy-MM-dd".length();
+    private static final int TIME_LENGTH = "HH:mm:ss".length();
+    private static final long INVALID = Long.MIN_VALUE;
+
+
+    private CsvValueParser() {
+        // Utility class
+    }
+
+
+    /**
+     * Converts a field.
+     *
+     * @param fieldType Type of the field; {@code null} is treated as string
+     * @param bytes Buffer holding the UTF-8 encoded field, starting at index 0
+     * @param length Length of the field
+     */
+    static Object parse( CsvFieldType fieldType, byte[] bytes, int length ) {
+        if ( fieldType == null ) {
+            return new String( bytes, 0, length, StandardCharsets.UTF_8 );
+        }
+        switch ( fieldType ) {
+            case BOOLEAN:
+                if ( length == 0 ) {
+                    return null;
+                }
+                return length == 4
+                        && (bytes[0] | 0x20) == 't'
+                        && (bytes[1] | 0x20) == 'r'
+                        && (bytes[2] | 0x20) == 'u'
+                        && (bytes[3] | 0x20) == 'e';
+            case BYTE:
+                if ( length == 0 ) {
+                    return null;
+                }
+                return (byte) parseLong( bytes, length, Byte.MIN_VALUE, Byte.MAX_VALUE );
+            case SHORT:
+                if ( length == 0 ) {
+                    return null;
+                }
+                return (short) parseLong( bytes, length, Short.MIN_VALUE, Short.MAX_VALUE );
+            case INT:
+                if ( length == 0 ) {
+                    return null;
+                }
+                return (int) parseLong( bytes, length, Integer.MIN_VALUE, Integer.MAX_VALUE );
+            case LONG:
+                if ( length == 0 ) {
+                    return null;
+                }
+                return parseLong( bytes, length, Long.MIN_VALUE, Long.MAX_VALUE );
+            case FLOAT:
+                if ( length == 0 ) {
+                    return null;
+                }
+                return Float.parseFloat( new String( bytes, 0, length, StandardCharsets.ISO_8859_1 ) );
+            case DOUBLE:
+                if ( length == 0 ) {
+                    return null;
+                }
+                return Double.parseDouble( new String( bytes, 0, length, StandardCharsets.ISO_8859_1 ) );
+            case DATE:
+                return parseDate( bytes, length );
+            case TIME:
+                return parseTime( bytes, length );
+            case TIMESTAMP:
+                return parseTimestamp( bytes, length );
+            case STRING:
+            default:
+                return new String( bytes, 0, length, StandardCharsets.UTF_8 );
+        }
+    }
+
+
+    /**
+     * Parses a number without a decimal point, e.g. {@code -42}.
+     *
+     * @throws NumberFormatException If the field is not a number or if it is out of the given range
+     */
+    static long parseLong( byte[] bytes, int length, long min, long max ) {
+        int i = 0;
+        boolean negative = false;
+        if ( bytes[0] == '-' || bytes[0] == '+' ) {
+            negative = bytes[0] == '-';
+            i++;
+        }
+        if ( i == length ) {
+            throw numberFormatException( bytes, length );
+        }
+        // Accumulate negatively to be able to represent Long.MIN_VALUE
+        long result = 0;
+        for ( ; i < length; i++ ) {
+            int digit = bytes[i] - '0';
+            if ( digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10 ) {
+                throw numberFormatException( bytes, length );
+            }
+            result = result * 10 - digit;
+        }
+        if ( !negative ) {
+            if ( result == Long.MIN_VALUE ) {
+                throw numberFormatException( bytes, length );
+            }
+            result = -result;
+        }
+        if ( result < min || result > max ) {
+            throw numberFormatException( bytes, length );
+        }
+        return result;
+    }
+
+
+    /**
+     * Parses a date of the form {@code yyyy-MM-dd}.
+     *
+     * @return The number of days since the epoch or {@code null} if the field is empty or not a valid date
+     */
+    static Integer parseDate( byte[] bytes, int length ) {
+        if ( length != DATE_LENGTH ) {
+            return null;
+        }
+        long date = parseDaysSinceEpoch( bytes, 0 );
+        return date == INVALID ? null : (int) date;
+    }
+
+
+    /**
+     * Parses a time of the form {@code HH:mm:ss}, optionally followed by fractional seconds.
+     *
+     * @return The milliseconds since midnight or {@code null} if the field is empty or not a valid time
+     */
+    static Integer parseTime( byte[] bytes, int length ) {
+        long time = parseMillisOfDay( bytes, 0, length );
+        return time == INVALID ? null : (int) time;
+    }
+
+
+    /**
+     * Parses a timestamp of the form {@code yyyy-MM-dd HH:mm:ss}, optionally followed by fractional seconds.
+     *
+     * @return The milliseconds since the epoch or {@code null} if the field is empty or not a valid timestamp
+     */
+    static Long parseTimestamp( byte[] bytes, int length ) {
+        if ( length <= DATE_LENGTH || bytes[DATE_LENGTH] != ' ' ) {
+            return null;
+        }
+        long date = parseDaysSinceEpoch( bytes, 0 );
+        long time = parseMillisOfDay( bytes, DATE_LENGTH + 1, length );
+        if ( date == INVALID || time == INVALID ) {
+            return null;
+        }
+        return date * DateTimeUtils.MILLIS_PER_DAY + time;
+    }
+
+
+    private static long parseDaysSinceEpoch( byte[] bytes, int offset ) {
+        int year = parseDigits( bytes, offset, 4 );
+        int month = parseDigits( bytes, offset + 5, 2 );
+        int day = parseDigits( bytes, offset + 8, 2 );
+        if ( bytes[offset + 4] != '-' || bytes[offset + 7] != '-' || year < 0 || month < 1 || month > 12 || day < 1 || day > 31 ) {
+            return INVALID;
+        }
+        return DateTimeUtils.ymdToUnixDate( year, month, day );
+    }
+
+
+    private static long parseMillisOfDay( byte[] bytes, int offset, int length ) {
+        if ( length - offset < TIME_LENGTH || bytes[offset + 2] != ':' || bytes[offset + 5] != ':' ) {
+            return INVALID;
+        }
+        int hour = parseDigits( bytes, offset, 2 );
+        int minute = parseDigits( bytes, offset + 3, 2 );
+        int second = parseDigits( bytes, offset + 6, 2 );
+        if ( hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 ) {
+            return INVALID;
+        }
+        int millis = 0;
+        int i = offset + TIME_LENGTH;
+        if ( i < length ) {
+            // Fractional seconds; digits beyond milliseconds are ignored
+            if ( bytes[i] != '.' || i + 1 == length ) {
+                return INVALID;
+            }
+            int factor = 100;
+            for ( i++; i < length; i++ ) {
+                int digit = bytes[i] - '0';
+                if ( digit < 0 || digit > 9 ) {
+                    return INVALID;
+                }
+                millis += digit * factor;
+                factor /= 10;
+            }
+        }
+        return hour * DateTimeUtils.MILLIS_PER_HOUR + minute * DateTimeUtils.MILLIS_PER_MINUTE + second * 1000L + millis;
+    }
+
+
+    /**
+     * @return The number formed by the digits or -1 if one of them is not a digit
+     */
+    private static int parseDigits( byte[] bytes, int offset, int digits ) {
+        int value = 0;
+        for ( int i = offset; i < offset + digits; i++ ) {
+            int digit = bytes[i] - '0';
+            if ( digit < 0 || digit > 9 ) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+
+    private static NumberFormatException numberFormatException( byte[] bytes, int length ) {
+        return new NumberFormatException( "For input string: \"" + new String( bytes, 0, length, StandardCharsets.UTF_8 ) + "\"" );
+    }
+
+}
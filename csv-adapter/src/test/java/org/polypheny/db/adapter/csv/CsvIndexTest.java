@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.csv;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.calcite.linq4j.Enumerator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.polypheny.db.util.Sources;
+
+
+public class CsvIndexTest {
+
+    // About 25 bytes per row, i.e. two blocks
+    private static final int ROWS = 300_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Test
+    public void testRowCountAndPruning() throws IOException {
+        File file = folder.newFile( "sorted.csv" );
+        writeRows( file, 0, ROWS, false );
+        CsvIndex index = CsvIndex.build( file, null );
+
+        assertEquals( ROWS, index.getRowCount() );
+        assertTrue( index.isUpToDate() );
+        List<long[]> all = index.getChunks( null );
+        assertTrue( all.size() > 1 );
+
+        // The ids are sorted, so an equality filter on the id matches exactly one block
+        String[] filterValues = new String[3];
+        filterValues[0] = "150000";
+        List<long[]> pruned = index.getChunks( filterValues );
+        assertEquals( 1, pruned.size() );
+        assertEquals( 1, count( file, pruned, filterValues ) );
+
+        // Values outside of the indexed range do not match any block
+        filterValues[0] = String.valueOf( ROWS );
+        assertEquals( 0, index.getChunks( filterValues ).size() );
+
+        // Filters on unsorted columns cannot be used for pruning
+        filterValues[0] = null;
+        filterValues[2] = "true";
+        assertEquals( all.size(), index.getChunks( filterValues ).size() );
+    }
+
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        File file = folder.newFile( "data.csv" );
+        writeRows( file, 0, ROWS, false );
+        CsvIndex index = CsvIndex.build( file, null );
+
+        File indexFile = new File( folder.getRoot(), "data.idx" );
+        index.write( indexFile );
+        CsvIndex read = CsvIndex.read( indexFile, file.getAbsolutePath() );
+        assertNotNull( read );
+        assertEquals( index.getRowCount(), read.getRowCount() );
+        assertTrue( read.isUpToDate() );
+
+        String[] filterValues = new String[3];
+        filterValues[1] = "Name 42";
+        assertEquals( index.getChunks( filterValues ).size(), read.getChunks( filterValues ).size() );
+        filterValues[1] = null;
+        filterValues[0] = "123456";
+        assertEquals( 1, read.getChunks( filterValues ).size() );
+    }
+
+
+    @Test
+    public void testAppend() throws IOException {
+        File file = folder.newFile( "appended.csv" );
+        writeRows( file, 0, ROWS, false );
+        CsvIndex index = CsvIndex.build( file, null );
+
+        writeRows( file, ROWS, ROWS + 100, true );
+        // Make sure the modification is detected on file systems with a coarse timestamp resolution
+        assertTrue( file.setLastModified( file.lastModified() + 2000 ) );
+        assertFalse( index.isUpToDate() );
+
+        CsvIndex updated = CsvIndex.build( file, index );
+        assertEquals( ROWS + 100, updated.getRowCount() );
+        assertEquals( CsvIndex.build( file, null ).getChunks( null ).size(), updated.getChunks( null ).size() );
+
+        String[] filterValues = new String[3];
+        filterValues[0] = String.valueOf( ROWS + 50 );
+        List<long[]> chunks = updated.getChunks( filterValues );
+        assertEquals( 1, chunks.size() );
+        assertEquals( 1, count( file, chunks, filterValues ) );
+    }
+
+
+    private static void writeRows( File file, int from, int to, boolean append ) throws IOException {
+        StandardOpenOption option = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try ( BufferedWriter writer = Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.WRITE, option ) ) {
+            if ( !append ) {
+                writer.write( "id:int,name:string,active:boolean\n" );
+            }
+            for ( int i = from; i < to; i++ ) {
+                writer.write( i + ",Name " + i + "," + (i % 2 == 0) + "\n" );
+            }
+        }
+    }
+
+
+    private static long count( File file, List<long[]> chunks, String[] filterValues ) {
+        List<CsvFieldType> types = Arrays.asList( CsvFieldType.INT, CsvFieldType.STRING, CsvFieldType.BOOLEAN );
+        Enumerator<Object[]> enumerator = new CsvMappedEnumerator<>( Sources.of( file ), new AtomicBoolean( false ), types, new int[]{ 1, 2, 3 }, filterValues, false, null, 1, chunks );
+        long count = 0;
+        while ( enumerator.moveNext() ) {
+            count++;
+        }
+        enumerator.close();
+        return count;
+    }
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.csv;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.calcite.linq4j.Enumerator;
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.polypheny.db.util.Benchmark;
+import org.polypheny.db.util.Source;
+import org.polypheny.db.util.Sources;
+
+
+public class CsvMappedEnumeratorTest {
+
+    private static final List<CsvFieldType> TYPES = Arrays.asList(
+            CsvFieldType.INT,
+            CsvFieldType.STRING,
+            CsvFieldType.DOUBLE,
+            CsvFieldType.DATE,
+            CsvFieldType.TIMESTAMP,
+            CsvFieldType.BOOLEAN );
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool( 4 );
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+
+    @Test
+    public void testValueParser() {
+        assertEquals( 42, parse( CsvFieldType.INT, "42" ) );
+        assertEquals( -42L, parse( CsvFieldType.LONG, "-42" ) );
+        assertEquals( Long.MIN_VALUE, parse( CsvFieldType.LONG, String.valueOf( Long.MIN_VALUE ) ) );
+        assertNull( parse( CsvFieldType.INT, "" ) );
+        assertEquals( true, parse( CsvFieldType.BOOLEAN, "TRUE" ) );
+        assertEquals( false, parse( CsvFieldType.BOOLEAN, "no" ) );
+        assertEquals( 0, parse( CsvFieldType.DATE, "1970-01-01" ) );
+        assertEquals( 18266, parse( CsvFieldType.DATE, "2020-01-05" ) );
+        assertNull( parse( CsvFieldType.DATE, "2020-13-05" ) );
+        assertEquals( 37230000, parse( CsvFieldType.TIME, "10:20:30" ) );
+        assertEquals( 37230500, parse( CsvFieldType.TIME, "10:20:30.5" ) );
+        assertEquals( 1578219630000L, parse( CsvFieldType.TIMESTAMP, "2020-01-05 10:20:30" ) );
+        assertNull( parse( CsvFieldType.TIMESTAMP, "2020-01-05" ) );
+        assertEquals( "äöü", parse( CsvFieldType.STRING, "äöü" ) );
+    }
+
+
+    @Test(expected = NumberFormatException.class)
+    public void testIntegerOverflow() {
+        parse( CsvFieldType.INT, "2147483648" );
+    }
+
+
+    @Test
+    public void testQuotedValues() throws IOException {
+        File file = folder.newFile( "quoted.csv" );
+        Files.write( file.toPath(), ("id:int,name:string\r\n"
+                + "1,\"Smith, John\"\r\n"
+                + "\r\n"
+                + "2,\"He said \"\"hi\"\"\"\r\n"
+                + "3,\n"
+                + "4,\"multi\nline\"").getBytes( StandardCharsets.UTF_8 ) );
+        List<Object[]> rows = readMapped( Sources.of( file ), new int[]{ 1, 2 }, Arrays.asList( CsvFieldType.INT, CsvFieldType.STRING ), null, 1 );
+        assertEquals( 4, rows.size() );
+        assertArrayEquals( new Object[]{ 1, "Smith, John" }, rows.get( 0 ) );
+        assertArrayEquals( new Object[]{ 2, "He said \"hi\"" }, rows.get( 1 ) );
+        assertArrayEquals( new Object[]{ 3, "" }, rows.get( 2 ) );
+        assertArrayEquals( new Object[]{ 4, "multi\nline" }, rows.get( 3 ) );
+    }
+
+
+    @Test
+    public void testSameAsCsvEnumerator() throws IOException {
+        Source source = Sources.of( writeFile( 10_000 ) );
+        int[] fields = { 1, 2, 3, 4, 5, 6 };
+        List<Object[]> expected = readCsvReader( source, fields, TYPES, null );
+        assertEquals( 10_000, expected.size() );
+
+        for ( int parallelism : new int[]{ 1, 4 } ) {
+            for ( int chunkSize : new int[]{ 100, 4096, CsvMappedEnumerator.CHUNK_SIZE } ) {
+                List<Object[]> actual = readMapped( source, fields, TYPES, null, parallelism, chunkSize );
+                assertEquals( expected.size(), actual.size() );
+                for ( int i = 0; i < expected.size(); i++ ) {
+                    assertArrayEquals( expected.get( i ), actual.get( i ) );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testProjectionAndFilter() throws IOException {
+        Source source = Sources.of( writeFile( 1000 ) );
+        int[] fields = { 5, 1 };
+        List<CsvFieldType> types = Arrays.asList( CsvFieldType.TIMESTAMP, CsvFieldType.INT );
+        String[] filterValues = new String[TYPES.size()];
+        filterValues[5] = "true";
+
+        List<Object[]> expected = readCsvReader( source, fields, types, filterValues );
+        assertEquals( 500, expected.size() );
+        List<Object[]> actual = readMapped( source, fields, types, filterValues, 4, 1000 );
+        assertEquals( expected.size(), actual.size() );
+        for ( int i = 0; i < expected.size(); i++ ) {
+            assertArrayEquals( expected.get( i ), actual.get( i ) );
+        }
+    }
+
+
+    @Test
+    public void testQuotedLineBreaksAcrossChunks() throws IOException {
+        File file = folder.newFile( "multiline.csv" );
+        try ( BufferedWriter writer = Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8 ) ) {
+            writer.write( "id:int,text:string\n" );
+            for ( int i = 0; i < 1000; i++ ) {
+                // Quoted values with line breaks, escaped quotes and backslashes, which have to be skipped when splitting
+                writer.write( i + ",\"line " + i + "\n\"\"quoted\"\"\n\\\"x\n\"\n" );
+            }
+        }
+        Source source = Sources.of( file );
+        List<CsvFieldType> types = Arrays.asList( CsvFieldType.INT, CsvFieldType.STRING );
+        int[] fields = { 1, 2 };
+        List<Object[]> expected = readCsvReader( source, fields, types, null );
+        assertEquals( 1000, expected.size() );
+
+        byte[] bytes = Files.readAllBytes( file.toPath() );
+        for ( int chunkSize : new int[]{ 1, 10, 100, 4096 } ) {
+            for ( long[] chunk : CsvMappedEnumerator.computeChunks( file, -1, chunkSize ) ) {
+                // Every chunk starts with the id of a row
+                assertTrue( Character.isDigit( (char) bytes[(int) chunk[0]] ) );
+            }
+            List<Object[]> actual = readMapped( source, fields, types, null, 4, chunkSize );
+            assertEquals( expected.size(), actual.size() );
+            for ( int i = 0; i < expected.size(); i++ ) {
+                assertArrayEquals( expected.get( i ), actual.get( i ) );
+            }
+        }
+    }
+
+
+    /**
+     * Compares the time needed for reading a large file using the {@link CsvEnumerator} and the {@link CsvMappedEnumerator}.
+     * The size of the generated file in megabytes can be configured using the system property {@code csv.benchmark.size}.
+     */
+    @Test
+    public void testPerformance() throws IOException {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        long megabytes = Long.getLong( "csv.benchmark.size", 2048 );
+        // A row is about 80 bytes
+        Source source = Sources.of( writeFile( megabytes * 1024 * 1024 / 80 ) );
+        final AtomicBoolean cancelFlag = new AtomicBoolean( false );
+        for ( int[] fields : new int[][]{ { 1, 2, 3, 4, 5, 6 }, { 1 } } ) {
+            List<CsvFieldType> types = new ArrayList<>();
+            for ( int field : fields ) {
+                types.add( TYPES.get( field - 1 ) );
+            }
+            new Benchmark( "CsvEnumerator, " + fields.length + " fields", statistician -> {
+                long start = System.nanoTime();
+                count( new CsvEnumerator<>( source, cancelFlag, false, null, new CsvEnumerator.ArrayRowConverter( types, fields ) ) );
+                statistician.record( start );
+                return null;
+            }, 3 ).run();
+            for ( int parallelism : new int[]{ 1, 4 } ) {
+                new Benchmark( "CsvMappedEnumerator, " + fields.length + " fields, parallelism " + parallelism, statistician -> {
+                    long start = System.nanoTime();
+                    count( new CsvMappedEnumerator<>( source, cancelFlag, types, fields, null, false, EXECUTOR, parallelism ) );
+                    statistician.record( start );
+                    return null;
+                }, 3 ).run();
+            }
+        }
+    }
+
+
+    private File writeFile( long rows ) throws IOException {
+        File file = folder.newFile();
+        try ( BufferedWriter writer = Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8 ) ) {
+            writer.write( "id:int,name:string,price:double,day:date,created:timestamp,active:boolean\n" );
+            for ( long i = 0; i < rows; i++ ) {
+                writer.write( String.valueOf( i ) );
+                writer.write( i % 7 == 0 ? ",\"Name, " + i + "\"" : ",Name " + i );
+                writer.write( "," + (i * 0.25) );
+                writer.write( String.format( ",%04d-%02d-%02d", 1990 + i % 30, 1 + i % 12, 1 + i % 28 ) );
+                writer.write( String.format( ",%04d-%02d-%02d %02d:%02d:%02d", 1990 + i % 30, 1 + i % 12, 1 + i % 28, i % 24, i % 60, (i * 7) % 60 ) );
+                writer.write( i % 2 == 0 ? ",true\n" : ",false\n" );
+            }
+        }
+        return file;
+    }
+
+
+    private static Object parse( CsvFieldType type, String value ) {
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        return CsvValueParser.parse( type, bytes, bytes.length );
+    }
+
+
+    private static List<Object[]> readCsvReader( Source source, int[] fields, List<CsvFieldType> types, String[] filterValues ) {
+        return collect( new CsvEnumerator<>( source, new AtomicBoolean( false ), false, filterValues, new CsvEnumerator.ArrayRowConverter( types, fields ) ) );
+    }
+
+
+    private static List<Object[]> readMapped( Source source, int[] fields, List<CsvFieldType> types, String[] filterValues, int parallelism ) {
+        return readMapped( source, fields, types, filterValues, parallelism, CsvMappedEnumerator.CHUNK_SIZE );
+    }
+
+
+    private static List<Object[]> readMapped( Source source, int[] fields, List<CsvFieldType> types, String[] filterValues, int parallelism, int chunkSize ) {
+        return collect( new CsvMappedEnumerator<>( source, new AtomicBoolean( false ), types, fields, filterValues, false, EXECUTOR, parallelism, chunkSize ) );
+    }
+
+
+    private static List<Object[]> collect( Enumerator<Object[]> enumerator ) {
+        List<Object[]> rows = new ArrayList<>();
+        while ( enumerator.moveNext() ) {
+            rows.add( enumerator.current() );
+        }
+        enumerator.close();
+        return rows;
+    }
+
+
+    private static long count( Enumerator<Object[]> enumerator ) {
+        long count = 0;
+        while ( enumerator.moveNext() ) {
+            count++;
+        }
+        enumerator.close();
+        return count;
+    }
+
+}
@@ -41,6 +41,9 @@
 import org.apache.calcite.avatica.Meta.CursorFactory;
 import org.apache.calcite.avatica.Meta.StatementType;
 import org.apache.calcite.avatica.MetaImpl;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.linq4j.Ord;
 import org.apache.commons.lang3.time.StopWatch;
 import org.polypheny.db.adapter.DataContext;
@@ -67,6 +70,8 @@
 import org.polypheny.db.interpreter.BindableConvention;
 import org.polypheny.db.interpreter.Interpreters;
 import org.polypheny.db.jdbc.PolyphenyDbSignature;
+import org.polypheny.db.monitoring.QueryLatencyMonitor;
+import org.polypheny.db.monitoring.QueryLatencyMonitor.Phase;
 import org.polypheny.db.plan.Convention;
 import org.polypheny.db.plan.RelOptUtil;
 import org.polypheny.db.plan.RelTraitSet;
@@ -121,6 +126,9 @@
 import org.polypheny.db.tools.Program;
 import org.polypheny.db.tools.Programs;
 import org.polypheny.db.tools.RelBuilder;
+import org.polypheny.db.transaction.AdmissionController;
+import org.polypheny.db.transaction.AdmissionController.Admission;
+import org.polypheny.db.transaction.AdmissionException;
 import org.polypheny.db.transaction.DeadlockException;
 import org.polypheny.db.transaction.Lock.LockMode;
 import org.polypheny.db.transaction.LockManager;
@@ -170,6 +178,32 @@ public PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType param
 
 
     protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType parameterRowType, boolean isRouted, boolean isSubquery ) {
+        if ( logicalRoot.rel.hasView() ) {
+            logicalRoot = logicalRoot.tryExpandView();
+        }
+
+        // Admission control; the statement waits here if its workload class is saturated and keeps its slot until its
+        // result is closed
+        Admission admission = null;
+        if ( !isRouted && !isSubquery ) {
+            try {
+                admission = AdmissionController.INSTANCE.admit( (TransactionImpl) statement.getTransaction(), logicalRoot.rel );
+            } catch ( AdmissionException e ) {
+                throw new RuntimeException( e );
+            }
+        }
+        try {
+            return prepareQuery( logicalRoot, parameterRowType, isRouted, isSubquery, admission );
+        } catch ( RuntimeException | Error e ) {
+            if ( admission != null ) {
+                admission.release();
+            }
+            throw e;
+        }
+    }
+
+
+    private PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType parameterRowType, boolean isRouted, boolean isSubquery, Admission admission ) {
         boolean isAnalyze = statement.getTransaction().isAnalyze() && !isSubquery;
         boolean lock = !isSubquery;
 
@@ -180,10 +214,6 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
         }
         stopWatch.start();
 
-        if ( logicalRoot.rel.hasView() ) {
-            logicalRoot = logicalRoot.tryExpandView();
-        }
-
         ExecutionTimeMonitor executionTimeMonitor = new ExecutionTimeMonitor();
 
         final Convention resultConvention =
@@ -198,6 +228,7 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
                 if ( isAnalyze ) {
                     statement.getDuration().start( "Locking" );
                 }
+                long lockingStart = System.nanoTime();
                 try {
                     // Get a shared global schema lock (only DDLs acquire a exclusive global schema lock)
                     LockManager.INSTANCE.lock( LockManager.GLOBAL_LOCK, (TransactionImpl) statement.getTransaction(), LockMode.SHARED );
@@ -214,6 +245,7 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
                 } catch ( DeadlockException e ) {
                     throw new RuntimeException( e );
                 }
+                QueryLatencyMonitor.INSTANCE.record( Phase.LOCKING, System.nanoTime() - lockingStart );
             }
 
             // Index Update
@@ -252,6 +284,7 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
                 statement.getDuration().stop( "Index Lookup Rewrite" );
                 statement.getDuration().start( "Routing" );
             }
+            long routingStart = System.nanoTime();
             routedRoot = route( indexLookupRoot, statement, executionTimeMonitor );
 
             RelStructuredTypeFlattener typeFlattener = new RelStructuredTypeFlattener(
@@ -260,6 +293,7 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
                     ViewExpanders.toRelContext( this, routedRoot.rel.getCluster() ),
                     true );
             routedRoot = routedRoot.withRel( typeFlattener.rewrite( routedRoot.rel ) );
+            QueryLatencyMonitor.INSTANCE.record( Phase.ROUTING, System.nanoTime() - routingStart );
             if ( isAnalyze ) {
                 statement.getDuration().stop( "Routing" );
             }
@@ -291,7 +325,7 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
         if ( RuntimeConfig.IMPLEMENTATION_CACHING.getBoolean() && (!routedRoot.kind.belongsTo( SqlKind.DML ) || RuntimeConfig.IMPLEMENTATION_CACHING_DML.getBoolean() || statement.getDataContext().getParameterValues().size() > 0) ) {
             PreparedResult preparedResult = ImplementationCache.INSTANCE.getIfPresent( parameterizedRoot.rel );
             if ( preparedResult != null ) {
-                PolyphenyDbSignature signature = createSignature( preparedResult, routedRoot, resultConvention, executionTimeMonitor );
+                PolyphenyDbSignature signature = createSignature( preparedResult, routedRoot, resultConvention, executionTimeMonitor, admission );
                 if ( isAnalyze ) {
                     statement.getDuration().stop( "Implementation Caching" );
                 }
@@ -321,7 +355,9 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
         }
 
         if ( optimalNode == null ) {
+            long planningStart = System.nanoTime();
             optimalNode = optimize( parameterizedRoot, resultConvention );
+            QueryLatencyMonitor.INSTANCE.record( Phase.PLANNING, System.nanoTime() - planningStart );
 
             // For transformation from DML -> DML, use result of rewrite (e.g. UPDATE -> MERGE). For anything else (e.g. CALL -> SELECT), use original kind.
             //if ( !optimalRoot.kind.belongsTo( SqlKind.DML ) ) {
@@ -344,6 +380,7 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
             statement.getDuration().start( "Implementation" );
         }
 
+        long implementationStart = System.nanoTime();
         PreparedResult preparedResult = implement( optimalRoot, parameterRowType );
 
         // Cache implementation
@@ -355,7 +392,8 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
             }
         }
 
-        PolyphenyDbSignature signature = createSignature( preparedResult, optimalRoot, resultConvention, executionTimeMonitor );
+        PolyphenyDbSignature signature = createSignature( preparedResult, optimalRoot, resultConvention, executionTimeMonitor, admission );
+        QueryLatencyMonitor.INSTANCE.record( Phase.IMPLEMENTATION, System.nanoTime() - implementationStart );
 
         if ( isAnalyze ) {
             statement.getDuration().stop( "Implementation" );
@@ -807,7 +845,7 @@ public int size() {
     }
 
 
-    private PolyphenyDbSignature createSignature( PreparedResult preparedResult, RelRoot optimalRoot, Convention resultConvention, ExecutionTimeMonitor executionTimeMonitor ) {
+    private PolyphenyDbSignature createSignature( PreparedResult preparedResult, RelRoot optimalRoot, Convention resultConvention, ExecutionTimeMonitor executionTimeMonitor, Admission admission ) {
         final RelDataType jdbcType = makeStruct( optimalRoot.rel.getCluster().getTypeFactory(), optimalRoot.validatedRowType );
         final List<AvaticaParameter> parameters = new ArrayList<>();
         for ( RelDataTypeField field : preparedResult.getParameterRowType().getFieldList() ) {
@@ -848,7 +886,14 @@ private PolyphenyDbSignature createSignature( PreparedResult preparedResult, Rel
                 resultConvention == BindableConvention.INSTANCE
                         ? CursorFactory.ARRAY
                         : CursorFactory.deduce( columns, resultClazz );
-        final Bindable bindable = preparedResult.getBindable( cursorFactory );
+        final Bindable bindable = admission == null
+                ? preparedResult.getBindable( cursorFactory )
+                : releaseOnClose( preparedResult.getBindable( cursorFactory ), admission );
+
+        // Record the execution time for the query class and the adapters involved in the execution
+        executionTimeMonitor.subscribe(
+                ( queryClass, nanoTime ) -> QueryLatencyMonitor.INSTANCE.recordExecution( queryClass, statement.getTransaction().getInvolvedAdapters(), nanoTime ),
+                optimalRoot.kind.name() );
 
         return new PolyphenyDbSignature<Object[]>(
                 "",
@@ -866,6 +911,62 @@ private PolyphenyDbSignature createSignature( PreparedResult preparedResult, Rel
     }
 
 
+    /**
+     * Releases the admission of the statement once the enumerator of its result is closed or cannot be created.
+     */
+    private static Bindable<Object> releaseOnClose( Bindable<Object> bindable, Admission admission ) {
+        return dataContext -> {
+            final Enumerable<Object> enumerable;
+            try {
+                enumerable = bindable.bind( dataContext );
+            } catch ( RuntimeException e ) {
+                admission.release();
+                throw e;
+            }
+            return new AbstractEnumerable<Object>() {
+                @Override
+                public Enumerator<Object> enumerator() {
+                    final Enumerator<Object> enumerator;
+                    try {
+                        enumerator = enumerable.enumerator();
+                    } catch ( RuntimeException e ) {
+                        admission.release();
+                        throw e;
+                    }
+                    return new Enumerator<Object>() {
+                        @Override
+                        public Object current() {
+                            return enumerator.current();
+                        }
+
+
+                        @Override
+                        public boolean moveNext() {
+                            return enumerator.moveNext();
+                        }
+
+
+                        @Override
+                        public void reset() {
+                            enumerator.reset();
+                        }
+
+
+                        @Override
+                        public void close() {
+                            try {
+                                enumerator.close();
+                            } finally {
+                                admission.release();
+                            }
+                        }
+                    };
+                }
+            };
+        };
+    }
+
+
     private RelNode optimize( RelRoot logicalRoot, Convention resultConvention ) {
         RelNode logicalPlan = logicalRoot.rel;
 
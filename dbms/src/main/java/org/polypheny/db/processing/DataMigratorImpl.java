@@ -24,10 +24,12 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.LongConsumer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.calcite.avatica.ColumnMetaData;
 import org.apache.calcite.avatica.MetaImpl;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.commons.lang3.time.StopWatch;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.entity.CatalogAdapter;
 import org.polypheny.db.catalog.entity.CatalogColumn;
@@ -39,9 +41,12 @@
 import org.polypheny.db.plan.RelOptCluster;
 import org.polypheny.db.plan.RelOptTable;
 import org.polypheny.db.plan.ViewExpanders;
+import org.polypheny.db.prepare.PolyphenyDbCatalogReader;
+import org.polypheny.db.prepare.Prepare.PreparingTable;
 import org.polypheny.db.rel.RelNode;
 import org.polypheny.db.rel.RelRoot;
 import org.polypheny.db.rel.core.TableModify.Operation;
+import org.polypheny.db.rel.logical.LogicalTableModify;
 import org.polypheny.db.rel.logical.LogicalValues;
 import org.polypheny.db.rel.type.RelDataTypeFactory;
 import org.polypheny.db.rel.type.RelDataTypeSystem;
@@ -145,6 +150,95 @@ public void copyData( Transaction transaction, CatalogAdapter store, List<Catalo
     }
 
 
+    @Override
+    public long insertRows( Transaction transaction, CatalogTable table, List<CatalogColumn> columns, Iterator<List<Object>> rows, int batchSize, LongConsumer progressListener ) {
+        Statement statement = transaction.createStatement();
+        RelRoot insertRel = buildLogicalInsertStatement( statement, table, columns );
+
+        final StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        long insertedRows = 0;
+        try {
+            while ( rows.hasNext() ) {
+                Map<Long, List<Object>> values = new HashMap<>();
+                for ( long i = 0; i < columns.size(); i++ ) {
+                    values.put( i, new ArrayList<>( batchSize ) );
+                }
+                int batchRows = 0;
+                while ( batchRows < batchSize && rows.hasNext() ) {
+                    List<Object> row = rows.next();
+                    for ( int i = 0; i < columns.size(); i++ ) {
+                        values.get( (long) i ).add( row.get( i ) );
+                    }
+                    batchRows++;
+                }
+                for ( Map.Entry<Long, List<Object>> v : values.entrySet() ) {
+                    statement.getDataContext().addParameterValues( v.getKey(), null, v.getValue() );
+                }
+                Iterator iterator = statement.getQueryProcessor()
+                        .prepareQuery( insertRel )
+                        .enumerable( statement.getDataContext() )
+                        .iterator();
+                //noinspection WhileLoopReplaceableByForEach
+                while ( iterator.hasNext() ) {
+                    iterator.next();
+                }
+                statement.getDataContext().resetParameterValues();
+                insertedRows += batchRows;
+                progressListener.accept( insertedRows );
+            }
+        } catch ( Throwable t ) {
+            throw new RuntimeException( t );
+        }
+        stopWatch.stop();
+        if ( log.isDebugEnabled() ) {
+            log.debug(
+                    "Inserted {} rows into {}.{} [{} rows/s]",
+                    insertedRows,
+                    table.getSchemaName(),
+                    table.name,
+                    stopWatch.getTime() == 0 ? insertedRows : insertedRows * 1000 / stopWatch.getTime() );
+        }
+        return insertedRows;
+    }
+
+
+    private RelRoot buildLogicalInsertStatement( Statement statement, CatalogTable table, List<CatalogColumn> columns ) {
+        PolyphenyDbCatalogReader catalogReader = statement.getTransaction().getCatalogReader();
+        PreparingTable logical = catalogReader.getTable( ImmutableList.of( table.getSchemaName(), table.name ) );
+
+        RelOptCluster cluster = RelOptCluster.create(
+                statement.getQueryProcessor().getPlanner(),
+                new RexBuilder( statement.getTransaction().getTypeFactory() ) );
+        RelDataTypeFactory typeFactory = new PolyTypeFactoryImpl( RelDataTypeSystem.DEFAULT );
+
+        List<String> columnNames = new LinkedList<>();
+        List<RexNode> values = new LinkedList<>();
+        int i = 0;
+        for ( CatalogColumn catalogColumn : columns ) {
+            columnNames.add( catalogColumn.name );
+            values.add( new RexDynamicParam( catalogColumn.getRelDataType( typeFactory ), i++ ) );
+        }
+        RelBuilder builder = RelBuilder.create( statement, cluster );
+        builder.push( LogicalValues.createOneRow( cluster ) );
+        builder.project( values, columnNames );
+
+        RelNode input = builder.build();
+        RelNode node = new LogicalTableModify(
+                cluster,
+                input.getTraitSet(),
+                logical,
+                catalogReader,
+                input,
+                Operation.INSERT,
+                null,
+                null,
+                false
+        );
+        return RelRoot.of( node, SqlKind.INSERT );
+    }
+
+
     private RelRoot buildInsertStatement( Statement statement, List<CatalogColumnPlacement> to ) {
         List<String> qualifiedTableName = ImmutableList.of(
                 PolySchemaBuilder.buildAdapterSchemaName(
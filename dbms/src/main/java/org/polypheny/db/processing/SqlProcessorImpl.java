@@ -42,6 +42,8 @@
 import org.polypheny.db.information.InformationPage;
 import org.polypheny.db.information.InformationQueryPlan;
 import org.polypheny.db.jdbc.PolyphenyDbSignature;
+import org.polypheny.db.monitoring.QueryLatencyMonitor;
+import org.polypheny.db.monitoring.QueryLatencyMonitor.Phase;
 import org.polypheny.db.plan.RelOptCluster;
 import org.polypheny.db.plan.RelOptTable.ViewExpander;
 import org.polypheny.db.plan.RelOptUtil;
@@ -125,6 +127,7 @@ public SqlNode parse( String sql ) {
             throw new RuntimeException( e );
         }
         stopWatch.stop();
+        QueryLatencyMonitor.INSTANCE.record( Phase.PARSE, stopWatch.getNanoTime() );
         if ( log.isTraceEnabled() ) {
             log.trace( "Parsed query: [{}]", parsed );
         }
@@ -166,6 +169,7 @@ public Pair<SqlNode, RelDataType> validate( Transaction transaction, SqlNode par
             throw new AvaticaRuntimeException( message == null ? "null" : message, -1, "", AvaticaSeverity.ERROR );
         }
         stopWatch.stop();
+        QueryLatencyMonitor.INSTANCE.record( Phase.VALIDATE, stopWatch.getNanoTime() );
         if ( log.isTraceEnabled() ) {
             log.trace( "Validated query: [{}]", validated );
         }
@@ -225,6 +229,7 @@ public RelRoot translate( Statement statement, SqlNode sql ) {
             log.trace( "Logical query plan: [{}]", RelOptUtil.dumpPlan( "-- Logical Plan", logicalRoot.rel, SqlExplainFormat.TEXT, SqlExplainLevel.DIGEST_ATTRIBUTES ) );
         }
         stopWatch.stop();
+        QueryLatencyMonitor.INSTANCE.record( Phase.TRANSLATE, stopWatch.getNanoTime() );
         if ( log.isDebugEnabled() ) {
             log.debug( "Planning Statement ... done. [{}]", stopWatch );
         }
@@ -19,12 +19,14 @@
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.polypheny.db.adapter.Adapter;
@@ -36,6 +38,7 @@
 import org.polypheny.db.catalog.entity.CatalogColumn;
 import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
 import org.polypheny.db.catalog.entity.CatalogDatabase;
+import org.polypheny.db.catalog.entity.CatalogPartition;
 import org.polypheny.db.catalog.entity.CatalogSchema;
 import org.polypheny.db.catalog.entity.CatalogTable;
 import org.polypheny.db.config.RuntimeConfig;
@@ -45,13 +48,37 @@
 import org.polypheny.db.schema.impl.AbstractSchema;
 import org.polypheny.db.type.PolyTypeFactoryImpl;
 import org.polypheny.db.util.BuiltInMethod;
+import org.polypheny.db.util.Pair;
 
 
+/**
+ * Builds the schema tree used for query processing out of the catalog.
+ *
+ * The logical tables and the sub-schemas of the adapters are cached. If the catalog changes, only the logical tables
+ * affected by the change, their logical schemas and the adapter sub-schemas containing them are rebuilt. The other parts
+ * are reused when assembling the new version of the tree. A version is never modified after it has been published, so
+ * queries can keep using the version they started with while the next one is built.
+ */
+@Slf4j
 public class PolySchemaBuilder implements PropertyChangeListener {
 
     private final static PolySchemaBuilder INSTANCE = new PolySchemaBuilder();
 
-    private AbstractPolyphenyDbSchema current;
+    private volatile AbstractPolyphenyDbSchema current;
+
+    // The cached parts of the schema; they are only accessed while holding the lock of this builder
+    private final Map<Long, LogicalTable> logicalTables = new HashMap<>();
+    private final Map<Long, Long> schemaIdPerTable = new HashMap<>();
+    private final Map<Long, Map<String, LogicalTable>> logicalSchemas = new HashMap<>();
+    private final Map<Pair<Integer, Long>, List<PhysicalSchema>> physicalSchemas = new HashMap<>();
+    private final Map<Long, Set<Pair<Integer, Long>>> physicalSchemasPerTable = new HashMap<>();
+
+    /**
+     * Parent passed to the adapters when creating their sub-schemas. The adapters only use it for generating the
+     * expression of their sub-schema, which starts at the root schema of the data context and is therefore the same
+     * for all versions of the schema.
+     */
+    private final SchemaPlus adapterParentSchema = new SimplePolyphenyDbSchema( null, new RootSchema(), "" ).plus();
 
 
     private PolySchemaBuilder() {
@@ -68,105 +95,235 @@ public AbstractPolyphenyDbSchema getCurrent() {
         if ( !RuntimeConfig.SCHEMA_CACHING.getBoolean() ) {
             return buildSchema();
         }
-        if ( current == null ) {
-            current = buildSchema();
+        AbstractPolyphenyDbSchema schema = current;
+        if ( schema == null ) {
+            synchronized ( this ) {
+                if ( current == null ) {
+                    current = buildSchema();
+                }
+                schema = current;
+            }
         }
-        return current;
+        return schema;
     }
 
 
+    /**
+     * Rebuilds all parts of the schema.
+     */
     private synchronized AbstractPolyphenyDbSchema buildSchema() {
-        final Schema schema = new RootSchema();
-        final AbstractPolyphenyDbSchema polyphenyDbSchema = new SimplePolyphenyDbSchema( null, schema, "" );
+        final long start = System.nanoTime();
+        logicalTables.clear();
+        schemaIdPerTable.clear();
+        logicalSchemas.clear();
+        physicalSchemas.clear();
+        physicalSchemasPerTable.clear();
 
-        SchemaPlus rootSchema = polyphenyDbSchema.plus();
         Catalog catalog = Catalog.getInstance();
-        //
-        // Build logical schema
         CatalogDatabase catalogDatabase = catalog.getDatabase( 1 );
+        List<CatalogAdapter> adapters = catalog.getAdapters();
         for ( CatalogSchema catalogSchema : catalog.getSchemas( catalogDatabase.id, null ) ) {
-            Map<String, LogicalTable> tableMap = new HashMap<>();
-            SchemaPlus s = new SimplePolyphenyDbSchema( polyphenyDbSchema, new AbstractSchema(), catalogSchema.name ).plus();
-            for ( CatalogTable catalogTable : catalog.getTables( catalogSchema.id, null ) ) {
-                List<String> columnNames = new LinkedList<>();
-
-                final RelDataTypeFactory typeFactory = new PolyTypeFactoryImpl( RelDataTypeSystem.DEFAULT );
-                final RelDataTypeFactory.Builder fieldInfo = typeFactory.builder();
-
-                for ( CatalogColumn catalogColumn : catalog.getColumns( catalogTable.id ) ) {
-                    columnNames.add( catalogColumn.name );
-                    fieldInfo.add( catalogColumn.name, null, catalogColumn.getRelDataType( typeFactory ) );
-                    fieldInfo.nullable( catalogColumn.nullable );
-                }
-                List<Long> columnIds = new LinkedList<>();
-                catalog.getColumns( catalogTable.id ).forEach( c -> columnIds.add( c.id ) );
-                if ( catalogTable.tableType == TableType.VIEW ) {
-                    LogicalView view = new LogicalView(
-                            catalogTable.id,
-                            catalogTable.getSchemaName(),
-                            catalogTable.name,
-                            columnIds,
-                            columnNames,
-                            RelDataTypeImpl.proto( fieldInfo.build() ) );
-                    s.add( catalogTable.name, view );
-                    tableMap.put( catalogTable.name, view );
-                } else if ( catalogTable.tableType == TableType.TABLE || catalogTable.tableType == TableType.SOURCE ) {
-                    LogicalTable table = new LogicalTable(
-                            catalogTable.id,
-                            catalogTable.getSchemaName(),
-                            catalogTable.name,
-                            columnIds,
-                            columnNames,
-                            RelDataTypeImpl.proto( fieldInfo.build() ) );
-                    s.add( catalogTable.name, table );
-                    tableMap.put( catalogTable.name, table );
-                } else {
-                    throw new RuntimeException( "Unhandled table type: " + catalogTable.tableType.name() );
+            buildLogicalSchema( catalogSchema.id );
+            for ( CatalogAdapter catalogAdapter : adapters ) {
+                buildPhysicalSchemas( catalogAdapter.id, catalogSchema );
+            }
+        }
+
+        final AbstractPolyphenyDbSchema schema = assemble();
+        log.debug( "Built schema with {} tables in {} ms", logicalTables.size(), (System.nanoTime() - start) / 1_000_000 );
+        return schema;
+    }
+
+
+    /**
+     * Rebuilds the parts of the schema which contain the specified tables and publishes a new version of the schema.
+     */
+    private synchronized void updateSchema( Set<Long> tableIds, Set<Long> schemaIds ) {
+        if ( current == null ) {
+            // Built on first use
+            return;
+        }
+        final long start = System.nanoTime();
+        Catalog catalog = Catalog.getInstance();
+
+        // Collect the parts containing the tables before and after the change
+        final Set<Pair<Integer, Long>> changedPhysicalSchemas = new HashSet<>();
+        for ( long tableId : tableIds ) {
+            logicalTables.remove( tableId );
+            Long schemaId = schemaIdPerTable.remove( tableId );
+            if ( schemaId != null ) {
+                schemaIds.add( schemaId );
+            }
+            Set<Pair<Integer, Long>> containing = physicalSchemasPerTable.get( tableId );
+            if ( containing != null ) {
+                changedPhysicalSchemas.addAll( containing );
+            }
+        }
+        for ( long schemaId : schemaIds ) {
+            buildLogicalSchema( schemaId );
+            for ( CatalogTable catalogTable : catalog.getTables( schemaId, null ) ) {
+                if ( tableIds.contains( catalogTable.id ) ) {
+                    for ( int adapterId : catalogTable.placementsByAdapter.keySet() ) {
+                        changedPhysicalSchemas.add( new Pair<>( adapterId, schemaId ) );
+                    }
                 }
             }
+        }
 
-            rootSchema.add( catalogSchema.name, s );
-            tableMap.forEach( rootSchema.getSubSchema( catalogSchema.name )::add );
-            if ( catalogDatabase.defaultSchemaId != null && catalogSchema.id == catalogDatabase.defaultSchemaId ) {
-                tableMap.forEach( rootSchema::add );
+        for ( Pair<Integer, Long> physicalSchema : changedPhysicalSchemas ) {
+            buildPhysicalSchemas( physicalSchema.left, catalog.getSchema( physicalSchema.right ) );
+        }
+
+        current = assemble();
+        log.debug( "Rebuilt {} logical and {} adapter schemas in {} ms", schemaIds.size(), changedPhysicalSchemas.size(), (System.nanoTime() - start) / 1_000_000 );
+    }
+
+
+    /**
+     * Builds the map of logical tables of a schema. Only tables which are not cached are created.
+     */
+    private void buildLogicalSchema( long schemaId ) {
+        Catalog catalog = Catalog.getInstance();
+        Map<String, LogicalTable> tableMap = new HashMap<>();
+        for ( CatalogTable catalogTable : catalog.getTables( schemaId, null ) ) {
+            LogicalTable table = logicalTables.get( catalogTable.id );
+            if ( table == null ) {
+                table = buildLogicalTable( catalogTable );
+                logicalTables.put( catalogTable.id, table );
+                schemaIdPerTable.put( catalogTable.id, schemaId );
             }
-            s.polyphenyDbSchema().setSchema( new LogicalSchema( catalogSchema.name, tableMap ) );
+            tableMap.put( catalogTable.name, table );
         }
+        logicalSchemas.put( schemaId, tableMap );
+    }
 
-        //
-        // Build adapter schema (physical schema)
-        List<CatalogAdapter> adapters = Catalog.getInstance().getAdapters();
-        for ( CatalogSchema catalogSchema : catalog.getSchemas( catalogDatabase.id, null ) ) {
-            for ( CatalogAdapter catalogAdapter : adapters ) {
-                // Get list of tables on this adapter
-                Map<String, Set<Long>> tableIdsPerSchema = new HashMap<>();
-                for ( CatalogColumnPlacement placement : Catalog.getInstance().getColumnPlacementsOnAdapterAndSchema( catalogAdapter.id, catalogSchema.id ) ) {
-                    tableIdsPerSchema.putIfAbsent( placement.physicalSchemaName, new HashSet<>() );
-                    tableIdsPerSchema.get( placement.physicalSchemaName ).add( placement.tableId );
-                }
 
-                for ( String physicalSchemaName : tableIdsPerSchema.keySet() ) {
-                    Set<Long> tableIds = tableIdsPerSchema.get( physicalSchemaName );
-                    Map<String, Table> physicalTables = new HashMap<>();
-                    Adapter adapter = AdapterManager.getInstance().getAdapter( catalogAdapter.id );
-                    final String schemaName = buildAdapterSchemaName( catalogAdapter.uniqueName, catalogSchema.name, physicalSchemaName );
-                    adapter.createNewSchema( rootSchema, schemaName );
-                    SchemaPlus s = new SimplePolyphenyDbSchema( polyphenyDbSchema, adapter.getCurrentSchema(), schemaName ).plus();
-                    for ( long tableId : tableIds ) {
-                        CatalogTable catalogTable = catalog.getTable( tableId );
-                        Table table = adapter.createTableSchema(
-                                catalogTable,
-                                Catalog.getInstance().getColumnPlacementsOnAdapterSortedByPhysicalPosition( adapter.getAdapterId(), catalogTable.id ) );
-                        physicalTables.put( catalog.getTable( tableId ).name, table );
-                        s.add( catalog.getTable( tableId ).name, table );
+    private LogicalTable buildLogicalTable( CatalogTable catalogTable ) {
+        List<String> columnNames = new LinkedList<>();
+        List<Long> columnIds = new LinkedList<>();
+
+        final RelDataTypeFactory typeFactory = new PolyTypeFactoryImpl( RelDataTypeSystem.DEFAULT );
+        final RelDataTypeFactory.Builder fieldInfo = typeFactory.builder();
+
+        for ( CatalogColumn catalogColumn : Catalog.getInstance().getColumns( catalogTable.id ) ) {
+            columnNames.add( catalogColumn.name );
+            columnIds.add( catalogColumn.id );
+            fieldInfo.add( catalogColumn.name, null, catalogColumn.getRelDataType( typeFactory ) );
+            fieldInfo.nullable( catalogColumn.nullable );
+        }
+        if ( catalogTable.tableType == TableType.VIEW ) {
+            return new LogicalView(
+                    catalogTable.id,
+                    catalogTable.getSchemaName(),
+                    catalogTable.name,
+                    columnIds,
+                    columnNames,
+                    RelDataTypeImpl.proto( fieldInfo.build() ) );
+        } else if ( catalogTable.tableType == TableType.TABLE || catalogTable.tableType == TableType.SOURCE ) {
+            return new LogicalTable(
+                    catalogTable.id,
+                    catalogTable.getSchemaName(),
+                    catalogTable.name,
+                    columnIds,
+                    columnNames,
+                    RelDataTypeImpl.proto( fieldInfo.build() ) );
+        } else {
+            throw new RuntimeException( "Unhandled table type: " + catalogTable.tableType.name() );
+        }
+    }
+
+
+    /**
+     * Builds the sub-schemas of an adapter (physical schemas) containing the tables of a logical schema which are
+     * placed on this adapter.
+     *
+     * All tables of a sub-schema are created again, even if only some of them have changed. Tables created by an
+     * adapter are bound to the schema they are created in (e.g., its JDBC convention), therefore tables of different
+     * versions of a sub-schema must not be mixed. The sub-schemas of the previous version are never modified.
+     */
+    private void buildPhysicalSchemas( int adapterId, CatalogSchema catalogSchema ) {
+        Catalog catalog = Catalog.getInstance();
+        final Pair<Integer, Long> key = new Pair<>( adapterId, catalogSchema.id );
+        final List<PhysicalSchema> old = physicalSchemas.remove( key );
+        if ( old != null ) {
+            for ( PhysicalSchema physicalSchema : old ) {
+                for ( long tableId : physicalSchema.tableNames.keySet() ) {
+                    Set<Pair<Integer, Long>> keys = physicalSchemasPerTable.get( tableId );
+                    if ( keys != null ) {
+                        keys.remove( key );
+                        if ( keys.isEmpty() ) {
+                            physicalSchemasPerTable.remove( tableId );
+                        }
                     }
-                    rootSchema.add( schemaName, s );
-                    physicalTables.forEach( rootSchema.getSubSchema( schemaName )::add );
-                    rootSchema.getSubSchema( schemaName ).polyphenyDbSchema().setSchema( adapter.getCurrentSchema() );
                 }
             }
         }
 
+        // Get list of tables on this adapter
+        Map<String, Set<Long>> tableIdsPerSchema = new HashMap<>();
+        for ( CatalogColumnPlacement placement : catalog.getColumnPlacementsOnAdapterAndSchema( adapterId, catalogSchema.id ) ) {
+            tableIdsPerSchema.putIfAbsent( placement.physicalSchemaName, new HashSet<>() );
+            tableIdsPerSchema.get( placement.physicalSchemaName ).add( placement.tableId );
+        }
+        if ( tableIdsPerSchema.isEmpty() ) {
+            return;
+        }
+
+        Adapter adapter = AdapterManager.getInstance().getAdapter( adapterId );
+        List<PhysicalSchema> schemas = new ArrayList<>();
+        for ( String physicalSchemaName : tableIdsPerSchema.keySet() ) {
+            Set<Long> tableIds = tableIdsPerSchema.get( physicalSchemaName );
+            Map<String, Table> physicalTables = new HashMap<>();
+            Map<Long, String> tableNames = new HashMap<>();
+            final String schemaName = buildAdapterSchemaName( adapter.getUniqueName(), catalogSchema.name, physicalSchemaName );
+            adapter.createNewSchema( adapterParentSchema, schemaName );
+            for ( long tableId : tableIds ) {
+                CatalogTable catalogTable = catalog.getTable( tableId );
+                Table table = adapter.createTableSchema(
+                        catalogTable,
+                        catalog.getColumnPlacementsOnAdapterSortedByPhysicalPosition( adapter.getAdapterId(), catalogTable.id ) );
+                physicalTables.put( catalogTable.name, table );
+                tableNames.put( tableId, catalogTable.name );
+                physicalSchemasPerTable.computeIfAbsent( tableId, id -> new HashSet<>() ).add( key );
+            }
+            schemas.add( new PhysicalSchema( schemaName, adapter.getCurrentSchema(), physicalTables, tableNames ) );
+        }
+        physicalSchemas.put( key, schemas );
+    }
+
+
+    /**
+     * Assembles a new version of the schema tree out of the cached parts.
+     */
+    private AbstractPolyphenyDbSchema assemble() {
+        final AbstractPolyphenyDbSchema polyphenyDbSchema = new SimplePolyphenyDbSchema( null, new RootSchema(), "" );
+        SchemaPlus rootSchema = polyphenyDbSchema.plus();
+        Catalog catalog = Catalog.getInstance();
+
+        // Logical schemas
+        CatalogDatabase catalogDatabase = catalog.getDatabase( 1 );
+        for ( CatalogSchema catalogSchema : catalog.getSchemas( catalogDatabase.id, null ) ) {
+            Map<String, LogicalTable> tableMap = logicalSchemas.get( catalogSchema.id );
+            if ( tableMap == null ) {
+                // Schema has been created in the meantime
+                buildLogicalSchema( catalogSchema.id );
+                tableMap = logicalSchemas.get( catalogSchema.id );
+            }
+            SchemaPlus s = rootSchema.add( catalogSchema.name, new LogicalSchema( catalogSchema.name, tableMap ) );
+            tableMap.forEach( s::add );
+            if ( catalogDatabase.defaultSchemaId != null && catalogSchema.id == catalogDatabase.defaultSchemaId ) {
+                tableMap.forEach( rootSchema::add );
+            }
+        }
+
+        // Adapter schemas (physical schemas)
+        for ( List<PhysicalSchema> schemas : physicalSchemas.values() ) {
+            for ( PhysicalSchema physicalSchema : schemas ) {
+                SchemaPlus s = rootSchema.add( physicalSchema.name, physicalSchema.schema );
+                physicalSchema.tables.forEach( s::add );
+            }
+        }
+
         return polyphenyDbSchema;
     }
 
@@ -179,11 +336,80 @@ public static String buildAdapterSchemaName( String storeName, String logicalSch
     // Listens on changes to the catalog
     @Override
     public void propertyChange( PropertyChangeEvent evt ) {
+        switch ( evt.getPropertyName() ) {
+            case "table":
+            case "column":
+            case "columnPlacement":
+            case "partition":
+                // Catalog changed, rebuild the parts of the schema containing the changed table
+                final Set<Long> tableIds = new HashSet<>();
+                final Set<Long> schemaIds = new HashSet<>();
+                if ( addChangedTable( evt.getOldValue(), tableIds, schemaIds ) && addChangedTable( evt.getNewValue(), tableIds, schemaIds ) ) {
+                    updateSchema( tableIds, schemaIds );
+                    return;
+                }
+                break;
+            case "user":
+            case "queryInterface":
+            case "key":
+            case "index":
+            case "constraint":
+            case "foreignKey":
+                // Not part of the schema
+                return;
+        }
         // Catalog changed, rebuild schema
         current = buildSchema();
     }
 
 
+    /**
+     * Adds the id of the table an entity belongs to.
+     *
+     * @return false if it is unknown which table has been changed
+     */
+    private static boolean addChangedTable( Object entity, Set<Long> tableIds, Set<Long> schemaIds ) {
+        if ( entity == null ) {
+            return true;
+        } else if ( entity instanceof CatalogTable ) {
+            tableIds.add( ((CatalogTable) entity).id );
+            schemaIds.add( ((CatalogTable) entity).schemaId );
+        } else if ( entity instanceof CatalogColumn ) {
+            tableIds.add( ((CatalogColumn) entity).tableId );
+            schemaIds.add( ((CatalogColumn) entity).schemaId );
+        } else if ( entity instanceof CatalogColumnPlacement ) {
+            tableIds.add( ((CatalogColumnPlacement) entity).tableId );
+        } else if ( entity instanceof CatalogPartition ) {
+            tableIds.add( ((CatalogPartition) entity).tableId );
+            schemaIds.add( ((CatalogPartition) entity).schemaId );
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * A sub-schema of an adapter together with its tables.
+     */
+    private static class PhysicalSchema {
+
+        private final String name;
+        private final Schema schema;
+        private final Map<String, Table> tables;
+        private final Map<Long, String> tableNames;
+
+
+        private PhysicalSchema( String name, Schema schema, Map<String, Table> tables, Map<Long, String> tableNames ) {
+            this.name = name;
+            this.schema = schema;
+            this.tables = tables;
+            this.tableNames = tableNames;
+        }
+
+    }
+
+
     /**
      * Schema that has no parents.
      */
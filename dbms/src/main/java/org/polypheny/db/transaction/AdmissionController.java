@@ -0,0 +1,412 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.transaction;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.information.InformationTable;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+
+
+/**
+ * Limits the number of concurrently running statements per workload class. A statement is admitted before it acquires
+ * its locks and keeps its slot until its result is closed (see {@link Admission}). Statements which do not fit into
+ * the limits of their class are queued in arrival order and fail after {@link RuntimeConfig#ADMISSION_TIMEOUT}.
+ *
+ * Every statement is checked against the limits, including further statements of a transaction. Since locks are held
+ * until the end of the transaction, a transaction which already ran a statement might hold locks other statements wait
+ * for. Its statements are therefore queued ahead of statements of new transactions. If all running statements of the
+ * class belong to such a transaction or wait (directly or transitively) for its locks, it is admitted beyond the
+ * limits, since no slot would be released otherwise.
+ *
+ * The workload class is determined by the interface and the user of the transaction and by the estimated number
+ * of rows processed by the statement. The memory limits apply to a rough estimate derived from the same plan; a
+ * statement exceeding the memory limit on its own is admitted once no other statement of its class is running.
+ */
+@Slf4j
+public class AdmissionController {
+
+    public static final AdmissionController INSTANCE = new AdmissionController();
+
+    /**
+     * Bytes assumed per row if the metadata does not provide an average row size.
+     */
+    private static final double DEFAULT_ROW_SIZE = 64;
+
+    /**
+     * Interval (in milliseconds) in which a queued statement of a transaction holding locks checks whether the running
+     * statements wait for these locks. Lock waits do not notify the admission controller.
+     */
+    private static final long LOCK_WAIT_CHECK_INTERVAL = 100;
+
+
+    public enum WorkloadClass {
+        SYSTEM( "System", null, null ),
+        TRANSACTIONAL( "Transactional", RuntimeConfig.ADMISSION_TRANSACTIONAL_CONCURRENCY, RuntimeConfig.ADMISSION_TRANSACTIONAL_MEMORY ),
+        ANALYTICAL( "Analytical", RuntimeConfig.ADMISSION_ANALYTICAL_CONCURRENCY, RuntimeConfig.ADMISSION_ANALYTICAL_MEMORY );
+
+        public final String label;
+        private final RuntimeConfig concurrencyLimit;
+        private final RuntimeConfig memoryLimit;
+
+
+        WorkloadClass( String label, RuntimeConfig concurrencyLimit, RuntimeConfig memoryLimit ) {
+            this.label = label;
+            this.concurrencyLimit = concurrencyLimit;
+            this.memoryLimit = memoryLimit;
+        }
+
+
+        /**
+         * Maximum number of concurrently running statements; zero if unlimited.
+         */
+        public int getConcurrencyLimit() {
+            return concurrencyLimit == null ? 0 : concurrencyLimit.getInteger();
+        }
+
+
+        /**
+         * Maximum estimated memory (in bytes) of the concurrently running statements; zero if unlimited.
+         */
+        public long getMemoryLimit() {
+            return memoryLimit == null ? 0 : memoryLimit.getInteger() * 1024L * 1024L;
+        }
+    }
+
+
+    private final Map<WorkloadClass, ClassState> states = new EnumMap<>( WorkloadClass.class );
+    /**
+     * The open admissions of every transaction which has been admitted before, i.e., which might hold locks. Guarded by
+     * this.
+     */
+    private final Map<PolyXid, List<Admission>> admissions = new HashMap<>();
+
+
+    private AdmissionController() {
+        for ( WorkloadClass workloadClass : WorkloadClass.values() ) {
+            states.put( workloadClass, new ClassState() );
+        }
+        registerMonitoringPage();
+    }
+
+
+    /**
+     * Admits a statement of the transaction. Blocks until the statement fits into the limits of its workload class.
+     *
+     * @param transaction The transaction of the statement
+     * @param logicalPlan The query of the statement, used for classifying it
+     * @return The admission, which has to be released once the result of the statement is closed, or {@code null} if
+     * admission control is disabled
+     * @throws AdmissionException if the statement could not be admitted in time
+     */
+    public Admission admit( @NonNull TransactionImpl transaction, RelNode logicalPlan ) throws AdmissionException {
+        if ( !RuntimeConfig.ADMISSION_CONTROL.getBoolean() ) {
+            return null;
+        }
+        final double rows = estimateRows( logicalPlan );
+        final long memory = estimateMemory( logicalPlan, rows );
+        return admit( transaction.getXid(), transaction, classify( transaction, rows ), memory );
+    }
+
+
+    Admission admit( PolyXid xid, WorkloadClass workloadClass, long memory ) throws AdmissionException {
+        return admit( xid, null, workloadClass, memory );
+    }
+
+
+    /**
+     * @param transaction The transaction of the statement, used for detecting running statements waiting for its
+     * locks; {@code null} if unknown
+     */
+    private synchronized Admission admit( PolyXid xid, TransactionImpl transaction, WorkloadClass workloadClass, long memory ) throws AdmissionException {
+        final ClassState state = states.get( workloadClass );
+        final long start = System.nanoTime();
+        final boolean holdsLocks = admissions.containsKey( xid );
+        final long deadline = start + TimeUnit.SECONDS.toNanos( RuntimeConfig.ADMISSION_TIMEOUT.getInteger() );
+        final Object ticket = new Object();
+        if ( holdsLocks ) {
+            state.queue.addFirst( ticket );
+        } else {
+            state.queue.addLast( ticket );
+        }
+        try {
+            while ( state.queue.peekFirst() != ticket || !state.fits( workloadClass, memory ) ) {
+                if ( holdsLocks && runningWaitFor( workloadClass, xid, transaction ) ) {
+                    log.debug( "Admitting a statement of transaction {} beyond the limits, the running statements wait for its locks", xid );
+                    break;
+                }
+                final long remaining = deadline - System.nanoTime();
+                if ( remaining <= 0 ) {
+                    state.timedOut++;
+                    throw new AdmissionException( "The statement has not been admitted within " + RuntimeConfig.ADMISSION_TIMEOUT.getInteger() + " seconds. "
+                            + "Too many statements of the workload class '" + workloadClass.label + "' are running." );
+                }
+                if ( holdsLocks && transaction != null ) {
+                    TimeUnit.NANOSECONDS.timedWait( this, Math.min( remaining, TimeUnit.MILLISECONDS.toNanos( LOCK_WAIT_CHECK_INTERVAL ) ) );
+                } else {
+                    TimeUnit.NANOSECONDS.timedWait( this, remaining );
+                }
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new AdmissionException( "Interrupted while waiting for admission." );
+        } finally {
+            state.queue.remove( ticket );
+            // The next statement in the queue might fit as well
+            notifyAll();
+        }
+        state.running++;
+        state.reservedMemory += memory;
+        state.admitted++;
+        state.waitTime += System.nanoTime() - start;
+        final Admission admission = new Admission( xid, transaction, workloadClass, memory );
+        admissions.computeIfAbsent( xid, k -> new ArrayList<>() ).add( admission );
+        if ( log.isDebugEnabled() ) {
+            log.debug( "Admitted a statement of transaction {} as {} with an estimated memory of {} bytes", xid, workloadClass.label, memory );
+        }
+        return admission;
+    }
+
+
+    /**
+     * Checks whether there are running statements of the workload class and all of them either belong to the given
+     * transaction itself (e.g. a result which is still open) or to transactions waiting for its locks.
+     */
+    private boolean runningWaitFor( WorkloadClass workloadClass, PolyXid xid, TransactionImpl transaction ) {
+        final WaitForGraph waitForGraph = LockManager.INSTANCE.getWaitForGraph();
+        boolean running = false;
+        for ( List<Admission> open : admissions.values() ) {
+            for ( Admission admission : open ) {
+                if ( admission.workloadClass != workloadClass ) {
+                    continue;
+                }
+                if ( !admission.xid.equals( xid )
+                        && (transaction == null || admission.transaction == null || !waitForGraph.waitsFor( admission.transaction, transaction )) ) {
+                    return false;
+                }
+                running = true;
+            }
+        }
+        return running;
+    }
+
+
+    private synchronized void releaseAdmission( Admission admission ) {
+        final List<Admission> open = admissions.get( admission.xid );
+        if ( open == null || !open.remove( admission ) ) {
+            return;
+        }
+        final ClassState state = states.get( admission.workloadClass );
+        state.running--;
+        state.reservedMemory -= admission.memory;
+        notifyAll();
+    }
+
+
+    /**
+     * Called at the end of the transaction. Releases the slots of statements whose results have not been closed.
+     */
+    public void release( @NonNull TransactionImpl transaction ) {
+        release( transaction.getXid() );
+    }
+
+
+    synchronized void release( PolyXid xid ) {
+        final List<Admission> open = admissions.get( xid );
+        if ( open == null ) {
+            return;
+        }
+        for ( Admission admission : new ArrayList<>( open ) ) {
+            releaseAdmission( admission );
+        }
+        admissions.remove( xid );
+    }
+
+
+    /**
+     * Returns the number of statements of the transaction which are currently admitted.
+     */
+    synchronized int getAdmitted( PolyXid xid ) {
+        final List<Admission> open = admissions.get( xid );
+        return open == null ? 0 : open.size();
+    }
+
+
+    private static WorkloadClass classify( TransactionImpl transaction, double rows ) {
+        if ( contains( RuntimeConfig.ADMISSION_SYSTEM_ORIGINS, transaction.getOrigin() ) ) {
+            return WorkloadClass.SYSTEM;
+        }
+        if ( contains( RuntimeConfig.ADMISSION_ANALYTICAL_ORIGINS, transaction.getOrigin() )
+                || contains( RuntimeConfig.ADMISSION_ANALYTICAL_USERS, transaction.getUser().name )
+                || rows >= RuntimeConfig.ADMISSION_ANALYTICAL_THRESHOLD.getInteger() ) {
+            return WorkloadClass.ANALYTICAL;
+        }
+        return WorkloadClass.TRANSACTIONAL;
+    }
+
+
+    private static boolean contains( RuntimeConfig list, String value ) {
+        if ( value == null ) {
+            return false;
+        }
+        for ( String entry : list.getString().split( "," ) ) {
+            if ( entry.trim().equals( value ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Estimates the number of rows processed by all operators of the plan.
+     */
+    private static double estimateRows( RelNode logicalPlan ) {
+        if ( logicalPlan == null ) {
+            return 0;
+        }
+        try {
+            final RelOptCost cost = logicalPlan.getCluster().getMetadataQuery().getCumulativeCost( logicalPlan );
+            return cost == null || cost.isInfinite() ? 0 : cost.getRows();
+        } catch ( Exception e ) {
+            log.debug( "Unable to estimate the cost of the plan", e );
+            return 0;
+        }
+    }
+
+
+    private static long estimateMemory( RelNode logicalPlan, double rows ) {
+        if ( logicalPlan == null ) {
+            return 0;
+        }
+        Double rowSize = null;
+        try {
+            final RelMetadataQuery mq = logicalPlan.getCluster().getMetadataQuery();
+            rowSize = mq.getAverageRowSize( logicalPlan );
+        } catch ( Exception e ) {
+            log.debug( "Unable to estimate the row size of the plan", e );
+        }
+        return (long) (rows * (rowSize == null ? DEFAULT_ROW_SIZE : rowSize));
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Admission Control", "Running and queued statements per workload class. A statement keeps its slot until its result is closed." );
+        page.fullWidth();
+        im.addPage( page );
+
+        InformationGroup group = new InformationGroup( page, "Workload Classes" );
+        im.addGroup( group );
+        InformationTable table = new InformationTable(
+                group,
+                Arrays.asList( "Class", "Running", "Queued", "Concurrency Limit", "Reserved Memory (MB)", "Memory Limit (MB)", "Admitted", "Timed Out", "Avg. Wait (ms)" ) );
+        im.registerInformation( table );
+        group.setRefreshFunction( () -> {
+            table.reset();
+            synchronized ( this ) {
+                states.forEach( ( workloadClass, state ) -> table.addRow(
+                        workloadClass.label,
+                        state.running,
+                        state.queue.size(),
+                        workloadClass.getConcurrencyLimit() == 0 ? "-" : workloadClass.getConcurrencyLimit(),
+                        state.reservedMemory / (1024 * 1024),
+                        workloadClass.getMemoryLimit() == 0 ? "-" : workloadClass.getMemoryLimit() / (1024 * 1024),
+                        state.admitted,
+                        state.timedOut,
+                        state.admitted == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis( state.waitTime / state.admitted ) ) );
+            }
+        } );
+    }
+
+
+    /**
+     * The state of a workload class. Guarded by the admission controller.
+     */
+    private static class ClassState {
+
+        private final Deque<Object> queue = new ArrayDeque<>();
+        private int running = 0;
+        private long reservedMemory = 0;
+        private long admitted = 0;
+        private long timedOut = 0;
+        private long waitTime = 0;
+
+
+        private boolean fits( WorkloadClass workloadClass, long memory ) {
+            final int concurrencyLimit = workloadClass.getConcurrencyLimit();
+            if ( concurrencyLimit > 0 && running >= concurrencyLimit ) {
+                return false;
+            }
+            final long memoryLimit = workloadClass.getMemoryLimit();
+            return memoryLimit <= 0 || running == 0 || reservedMemory + memory <= memoryLimit;
+        }
+
+    }
+
+
+    /**
+     * The slot of an admitted statement.
+     */
+    public class Admission {
+
+        private final PolyXid xid;
+        private final TransactionImpl transaction;
+        private final WorkloadClass workloadClass;
+        private final long memory;
+
+
+        private Admission( PolyXid xid, TransactionImpl transaction, WorkloadClass workloadClass, long memory ) {
+            this.xid = xid;
+            this.transaction = transaction;
+            this.workloadClass = workloadClass;
+            this.memory = memory;
+        }
+
+
+        public WorkloadClass getWorkloadClass() {
+            return workloadClass;
+        }
+
+
+        /**
+         * Releases the slot, e.g. when the result of the statement is closed. Can be called more than once.
+         */
+        public void release() {
+            AdmissionController.this.releaseAdmission( this );
+        }
+
+    }
+
+}
@@ -37,6 +37,7 @@
 import org.polypheny.db.processing.VolcanoQueryProcessor;
 import org.polypheny.db.router.RouterManager;
 import org.polypheny.db.routing.Router;
+import org.polypheny.db.runtime.MemoryBudget;
 import org.polypheny.db.util.FileInputHandle;
 
 public class StatementImpl implements Statement {
@@ -57,6 +58,8 @@ public class StatementImpl implements Statement {
 
     private InformationDuration duration;
 
+    private MemoryBudget memoryBudget;
+
 
     StatementImpl( TransactionImpl transaction ) {
         this.id = STATEMENT_COUNTER.getAndIncrement();
@@ -132,6 +135,15 @@ public Router getRouter() {
     }
 
 
+    @Override
+    public MemoryBudget getMemoryBudget() {
+        if ( memoryBudget == null ) {
+            memoryBudget = new MemoryBudget( RuntimeConfig.STATEMENT_MEMORY_BUDGET.getInteger() * 1024L * 1024L );
+        }
+        return memoryBudget;
+    }
+
+
     @Override
     public void close() {
         prepareContext = null;
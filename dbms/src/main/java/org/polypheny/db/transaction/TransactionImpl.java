@@ -19,12 +19,25 @@
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -80,15 +93,22 @@ public class TransactionImpl implements Transaction, Comparable {
     @Getter
     private final boolean analyze;
 
+    private JavaTypeFactory typeFactory;
+    private PolyphenyDbCatalogReader catalogReader;
+    private PolyphenyDbSchema catalogReaderSchema;
+
     private final List<Statement> statements = new ArrayList<>();
 
     private final List<String> changedTables = new ArrayList<>();
 
     @Getter
-    private final List<Adapter> involvedAdapters = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<Adapter> involvedAdapters = new CopyOnWriteArrayList<>();
 
     private final Set<Lock> lockList = new HashSet<>();
 
+    // Adapters on which an action of the commit protocol did not terminate after the timeout and the interruption
+    private final Set<Adapter> unresponsiveAdapters = new HashSet<>();
+
 
     TransactionImpl(
             PolyXid xid,
@@ -125,9 +145,8 @@ public InformationManager getQueryAnalyzer() {
 
     @Override
     public void registerInvolvedAdapter( Adapter adapter ) {
-        if ( !involvedAdapters.contains( adapter ) ) {
-            involvedAdapters.add( adapter );
-        }
+        // Might be called concurrently if statements are executed on multiple adapters at the same time
+        involvedAdapters.addIfAbsent( adapter );
     }
 
 
@@ -138,36 +157,67 @@ public void commit() throws TransactionException {
             return;
         }
         // Prepare to commit changes on all involved adapters and the catalog
-        boolean okToCommit = true;
         if ( RuntimeConfig.TWO_PC_MODE.getBoolean() ) {
-            for ( Adapter adapter : involvedAdapters ) {
-                okToCommit &= adapter.prepare( xid );
+            final List<Adapter> failed = runOnAdapters( "prepare", true, involvedAdapters, adapter -> adapter.prepare( xid ) );
+            if ( !failed.isEmpty() ) {
+                log.error( "Unable to prepare all involved entities for commit. Rollback changes!" );
+                throw rollbackAfter( new TransactionException( "Unable to prepare all involved entities for commit (" + names( failed ) + "). Changes have been rolled back." ) );
             }
         }
 
-        if ( okToCommit ) {
-            // Commit changes
-            for ( Adapter adapter : involvedAdapters ) {
-                adapter.commit( xid );
-            }
-
-            if ( changedTables.size() > 0 ) {
-                StatisticsManager.getInstance().apply( changedTables );
-            }
+        // Commit changes; adapters which fail are retried once
+        final Predicate<Adapter> commit = adapter -> {
+            adapter.commit( xid );
+            return true;
+        };
+        List<Adapter> failed = runOnAdapters( "commit", false, involvedAdapters, commit );
+        if ( !failed.isEmpty() ) {
+            log.warn( "Unable to commit on {}. Retrying.", names( failed ) );
+            failed = runOnAdapters( "commit", false, failed, commit );
+        }
+        if ( !failed.isEmpty() && failed.size() == involvedAdapters.size() ) {
+            // None of the adapters has committed, so the transaction can still be rolled back
+            log.error( "Unable to commit on any involved entity. Rollback changes!" );
+            throw rollbackAfter( new TransactionException( "Unable to commit on any involved entity (" + names( failed ) + "). Changes have been rolled back." ) );
+        }
+        // Once an adapter has committed, the others must not be rolled back
+        final List<Adapter> inDoubt = failed;
+        if ( !inDoubt.isEmpty() ) {
+            log.error( "Transaction {} has been committed on some entities, but is in doubt on {}", xid, names( inDoubt ) );
+        }
 
-            IndexManager.getInstance().commit( this.xid );
-        } else {
-            log.error( "Unable to prepare all involved entities for commit. Rollback changes!" );
-            rollback();
-            throw new TransactionException( "Unable to prepare all involved entities for commit. Changes have been rolled back." );
+        if ( changedTables.size() > 0 ) {
+            StatisticsManager.getInstance().apply( changedTables );
         }
+
+        IndexManager.getInstance().commit( this.xid );
+
         // Free resources hold by statements
         statements.forEach( Statement::close );
 
         // Release locks
         LockManager.INSTANCE.removeTransaction( this );
+        AdmissionController.INSTANCE.release( this );
         // Remove transaction
         transactionManager.removeTransaction( xid );
+
+        if ( !inDoubt.isEmpty() ) {
+            throw new TransactionException( "Unable to commit on all involved entities. The changes have been committed on the other entities, but their outcome is in doubt on " + names( inDoubt ) + "." );
+        }
+    }
+
+
+    /**
+     * Rolls back the transaction after a failure of the commit and returns the exception reporting that failure, with
+     * a failure of the rollback attached as suppressed exception.
+     */
+    private TransactionException rollbackAfter( TransactionException exception ) {
+        try {
+            rollback();
+        } catch ( TransactionException | RuntimeException e ) {
+            exception.addSuppressed( e );
+        }
+        return exception;
     }
 
 
@@ -179,22 +229,187 @@ public void rollback() throws TransactionException {
         }
         try {
             //  Rollback changes to the adapters
-            for ( Adapter adapter : involvedAdapters ) {
+            final List<Adapter> failed = runOnAdapters( "rollback", null, involvedAdapters, adapter -> {
                 adapter.rollback( xid );
-            }
+                return true;
+            } );
             IndexManager.getInstance().rollback( this.xid );
             Catalog.getInstance().rollback();
             // Free resources hold by statements
             statements.forEach( Statement::close );
+            if ( !failed.isEmpty() ) {
+                throw new TransactionException( "Unable to rollback changes on all involved entities (" + names( failed ) + ")." );
+            }
         } finally {
             // Release locks
             LockManager.INSTANCE.removeTransaction( this );
+            AdmissionController.INSTANCE.release( this );
             // Remove transaction
             transactionManager.removeTransaction( xid );
         }
     }
 
 
+    /**
+     * Executes one phase of the commit protocol on the given adapters. If there is more than one adapter, they are
+     * processed concurrently. Adapters which fail, return {@code false} or do not finish within the configured timeout
+     * are considered as failed. Adapters which time out are interrupted and awaited for at most the timeout again. If
+     * the action still has not finished, the outcome on this adapter is in doubt: the adapter is marked as unresponsive
+     * and no further action of this transaction is executed on it, since it would run concurrently to the pending one.
+     *
+     * @param phase Name of the phase, used for logging
+     * @param prepare Whether the latency is recorded as prepare ({@code true}) or commit ({@code false}) time; {@code null} for not recording it
+     * @param adapters The adapters
+     * @param action The action to execute per adapter
+     * @return The adapters which have failed
+     */
+    private List<Adapter> runOnAdapters( String phase, Boolean prepare, List<Adapter> adapters, Predicate<Adapter> action ) {
+        final List<Adapter> failed = new ArrayList<>();
+        if ( !unresponsiveAdapters.isEmpty() ) {
+            final List<Adapter> responsive = new ArrayList<>();
+            for ( Adapter adapter : adapters ) {
+                if ( unresponsiveAdapters.contains( adapter ) ) {
+                    log.error( "Skipping {} of transaction {} on adapter {}, a previous action is still running", phase, xid, adapter.getUniqueName() );
+                    failed.add( adapter );
+                } else {
+                    responsive.add( adapter );
+                }
+            }
+            adapters = responsive;
+        }
+        final ExecutorService executor = transactionManager.getCommitExecutor();
+        if ( executor == null || adapters.size() <= 1 ) {
+            for ( Adapter adapter : adapters ) {
+                if ( !runOnAdapter( phase, prepare, adapter, action ) ) {
+                    failed.add( adapter );
+                }
+            }
+            return failed;
+        }
+
+        final Map<Adapter, AdapterTask> tasks = new LinkedHashMap<>();
+        for ( Adapter adapter : adapters ) {
+            final AdapterTask task = new AdapterTask();
+            task.future = executor.submit( () -> task.run( () -> runOnAdapter( phase, prepare, adapter, action ) ) );
+            tasks.put( adapter, task );
+        }
+        final long timeout = TimeUnit.SECONDS.toNanos( RuntimeConfig.TWO_PC_TIMEOUT.getInteger() );
+        final long deadline = System.nanoTime() + timeout;
+        for ( Entry<Adapter, AdapterTask> entry : tasks.entrySet() ) {
+            final Adapter adapter = entry.getKey();
+            final AdapterTask task = entry.getValue();
+            try {
+                if ( !task.future.get( Math.max( deadline - System.nanoTime(), 0 ), TimeUnit.NANOSECONDS ) ) {
+                    failed.add( adapter );
+                }
+            } catch ( TimeoutException e ) {
+                log.error( "Adapter {} did not {} transaction {} in time", adapter.getUniqueName(), phase, xid );
+                if ( !task.cancelAndAwait( timeout ) ) {
+                    log.error( "Adapter {} did not react to the interruption, the outcome of transaction {} is in doubt on it", adapter.getUniqueName(), xid );
+                    unresponsiveAdapters.add( adapter );
+                }
+                if ( prepare != null ) {
+                    transactionManager.recordLatency( adapter, prepare, 0, false );
+                }
+                failed.add( adapter );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                if ( !task.cancelAndAwait( timeout ) ) {
+                    unresponsiveAdapters.add( adapter );
+                }
+                failed.add( adapter );
+            } catch ( ExecutionException e ) {
+                // Not expected, exceptions are handled in runOnAdapter
+                log.error( "Exception while trying to {} transaction {} on adapter {}", phase, xid, adapter.getUniqueName(), e.getCause() );
+                failed.add( adapter );
+            }
+        }
+        return failed;
+    }
+
+
+    private boolean runOnAdapter( String phase, Boolean prepare, Adapter adapter, Predicate<Adapter> action ) {
+        final long start = System.nanoTime();
+        boolean success;
+        try {
+            success = action.test( adapter );
+        } catch ( Exception e ) {
+            log.error( "Exception while trying to {} transaction {} on adapter {}", phase, xid, adapter.getUniqueName(), e );
+            success = false;
+        }
+        if ( prepare != null ) {
+            transactionManager.recordLatency( adapter, prepare, System.nanoTime() - start, success );
+        }
+        return success;
+    }
+
+
+    /**
+     * The execution of a phase on one adapter. A task which times out is interrupted and awaited for a limited time,
+     * unless it has not been started yet.
+     */
+    private static class AdapterTask {
+
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int FINISHED = 2;
+
+        private final AtomicInteger state = new AtomicInteger( PENDING );
+        private final CountDownLatch finished = new CountDownLatch( 1 );
+        private Future<Boolean> future;
+
+
+        private boolean run( Supplier<Boolean> action ) {
+            if ( !state.compareAndSet( PENDING, RUNNING ) ) {
+                return false;
+            }
+            try {
+                return action.get();
+            } finally {
+                state.set( FINISHED );
+                finished.countDown();
+            }
+        }
+
+
+        /**
+         * Cancels the task and waits until it has finished, but at most for the given time.
+         *
+         * @param timeout The maximum time to wait in nanoseconds
+         * @return Whether the task is no longer running
+         */
+        private boolean cancelAndAwait( long timeout ) {
+            if ( state.compareAndSet( PENDING, FINISHED ) ) {
+                // Never started
+                future.cancel( false );
+                return true;
+            }
+            future.cancel( true );
+            final long deadline = System.nanoTime() + timeout;
+            boolean interrupted = false;
+            boolean terminated;
+            while ( true ) {
+                try {
+                    terminated = finished.await( Math.max( deadline - System.nanoTime(), 0 ), TimeUnit.NANOSECONDS );
+                    break;
+                } catch ( InterruptedException e ) {
+                    interrupted = true;
+                }
+            }
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+            return terminated;
+        }
+
+    }
+
+
+    private static String names( List<Adapter> adapters ) {
+        return adapters.stream().map( Adapter::getUniqueName ).collect( Collectors.joining( ", " ) );
+    }
+
+
     @Override
     public boolean isActive() {
         return transactionManager.isActive( xid );
@@ -202,17 +417,27 @@ public boolean isActive() {
 
 
     @Override
-    public JavaTypeFactory getTypeFactory() {
-        return new JavaTypeFactoryImpl();
+    public synchronized JavaTypeFactory getTypeFactory() {
+        if ( typeFactory == null ) {
+            typeFactory = new JavaTypeFactoryImpl();
+        }
+        return typeFactory;
     }
 
 
+    /**
+     * Returns a catalog reader for the current version of the schema. The reader is reused as long as the schema has not
+     * changed, e.g. by a DDL statement executed within this transaction.
+     */
     @Override
-    public PolyphenyDbCatalogReader getCatalogReader() {
-        return new PolyphenyDbCatalogReader(
-                PolyphenyDbSchema.from( getSchema().plus() ),
-                PolyphenyDbSchema.from( getSchema().plus() ).path( null ),
-                getTypeFactory() );
+    public synchronized PolyphenyDbCatalogReader getCatalogReader() {
+        final PolyphenyDbSchema schema = getSchema();
+        if ( catalogReader == null || catalogReaderSchema != schema ) {
+            final PolyphenyDbSchema rootSchema = PolyphenyDbSchema.from( schema.plus() );
+            catalogReader = new PolyphenyDbCatalogReader( rootSchema, rootSchema.path( null ), getTypeFactory() );
+            catalogReaderSchema = schema;
+        }
+        return catalogReader;
     }
 
 
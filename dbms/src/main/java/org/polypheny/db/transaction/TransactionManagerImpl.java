@@ -19,7 +19,13 @@
 
 import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.adapter.Adapter;
 import org.polypheny.db.catalog.Catalog;
@@ -30,6 +36,7 @@
 import org.polypheny.db.catalog.exceptions.UnknownDatabaseException;
 import org.polypheny.db.catalog.exceptions.UnknownSchemaException;
 import org.polypheny.db.catalog.exceptions.UnknownUserException;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.information.InformationGroup;
 import org.polypheny.db.information.InformationManager;
 import org.polypheny.db.information.InformationPage;
@@ -46,8 +53,29 @@ public class TransactionManagerImpl implements TransactionManager {
 
     private ConcurrentHashMap<PolyXid, Transaction> transactions = new ConcurrentHashMap<>();
 
+    private final ConcurrentHashMap<String, AdapterLatency> adapterLatencies = new ConcurrentHashMap<>();
+
+    /**
+     * Executor used for preparing, committing and rolling back transactions on multiple adapters concurrently.
+     * {@code null} if the concurrent execution is disabled.
+     */
+    @Getter
+    private final ExecutorService commitExecutor;
+
 
     public TransactionManagerImpl() {
+        final int parallelism = RuntimeConfig.TWO_PC_PARALLELISM.getInteger();
+        if ( parallelism > 1 ) {
+            final AtomicInteger threadCounter = new AtomicInteger();
+            commitExecutor = Executors.newFixedThreadPool( parallelism, r -> {
+                Thread thread = new Thread( r, "Commit-Worker-" + threadCounter.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        } else {
+            commitExecutor = null;
+        }
+
         InformationManager im = InformationManager.getInstance();
         InformationPage page = new InformationPage( "Transactions" );
         page.fullWidth();
@@ -58,6 +86,12 @@ public TransactionManagerImpl() {
                 runningTransactionsGroup,
                 Arrays.asList( "ID", "XID Hash", "Statements", "Analyze", "Involved Adapters", "Origin" ) );
         im.registerInformation( runningTransactionsTable );
+        InformationGroup adapterLatencyGroup = new InformationGroup( page, "Commit Latency per Adapter" );
+        im.addGroup( adapterLatencyGroup );
+        InformationTable adapterLatencyTable = new InformationTable(
+                adapterLatencyGroup,
+                Arrays.asList( "Adapter", "Prepares", "Avg. Prepare (ms)", "Commits", "Avg. Commit (ms)", "Last Commit (ms)", "Failures" ) );
+        im.registerInformation( adapterLatencyTable );
         page.setRefreshFunction( () -> {
             runningTransactionsTable.reset();
             transactions.forEach( ( k, v ) -> runningTransactionsTable.addRow(
@@ -67,10 +101,42 @@ public TransactionManagerImpl() {
                     v.isAnalyze(),
                     v.getInvolvedAdapters().stream().map( Adapter::getUniqueName ).collect( Collectors.joining( ", " ) ),
                     v.getOrigin() ) );
+            adapterLatencyTable.reset();
+            adapterLatencies.forEach( ( k, v ) -> adapterLatencyTable.addRow(
+                    k,
+                    v.prepares.sum(),
+                    v.average( v.prepares, v.prepareNanos ),
+                    v.commits.sum(),
+                    v.average( v.commits, v.commitNanos ),
+                    TimeUnit.NANOSECONDS.toMillis( v.lastCommitNanos ),
+                    v.failures.sum() ) );
         } );
     }
 
 
+    /**
+     * Records the time an adapter needed for preparing or committing a transaction.
+     *
+     * @param adapter The adapter
+     * @param prepare Whether the time has been needed for preparing ({@code true}) or committing ({@code false})
+     * @param nanos The elapsed time in nanoseconds
+     * @param success Whether the adapter has successfully finished in time
+     */
+    void recordLatency( Adapter adapter, boolean prepare, long nanos, boolean success ) {
+        final AdapterLatency latency = adapterLatencies.computeIfAbsent( adapter.getUniqueName(), k -> new AdapterLatency() );
+        if ( !success ) {
+            latency.failures.increment();
+        } else if ( prepare ) {
+            latency.prepares.increment();
+            latency.prepareNanos.add( nanos );
+        } else {
+            latency.commits.increment();
+            latency.commitNanos.add( nanos );
+            latency.lastCommitNanos = nanos;
+        }
+    }
+
+
     @Override
     public Transaction startTransaction( CatalogUser user, CatalogSchema defaultSchema, CatalogDatabase database, boolean analyze, String origin, MultimediaFlavor flavor ) {
         final NodeId nodeId = (NodeId) PUID.randomPUID( Type.NODE ); // TODO: get real node id -- configuration.get("nodeid")
@@ -125,4 +191,25 @@ private static PolyXid generateNewTransactionId( final NodeId nodeId, final User
     }
 
 
+
+    /**
+     * Accumulated prepare and commit times of an adapter.
+     */
+    private static class AdapterLatency {
+
+        private final LongAdder prepares = new LongAdder();
+        private final LongAdder prepareNanos = new LongAdder();
+        private final LongAdder commits = new LongAdder();
+        private final LongAdder commitNanos = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private volatile long lastCommitNanos;
+
+
+        private double average( LongAdder count, LongAdder nanos ) {
+            final long n = count.sum();
+            return n == 0 ? 0 : nanos.sum() / (n * 1_000_000.0);
+        }
+
+    }
+
 }
@@ -79,6 +79,36 @@ List<List<TransactionImpl>> findCycles() {
     }
 
 
+    /**
+     * Checks whether a transaction waits (directly or transitively) for locks held by another transaction.
+     */
+    boolean waitsFor( TransactionImpl waiter, TransactionImpl holder ) {
+        sharedLock.lock();
+        try {
+            final Set<TransactionImpl> visited = new HashSet<>();
+            final List<TransactionImpl> pending = new ArrayList<>();
+            pending.add( waiter );
+            while ( !pending.isEmpty() ) {
+                final Set<TransactionImpl> successors = adjacencyList.get( pending.remove( pending.size() - 1 ) );
+                if ( successors == null ) {
+                    continue;
+                }
+                for ( TransactionImpl successor : successors ) {
+                    if ( successor.equals( holder ) ) {
+                        return true;
+                    }
+                    if ( visited.add( successor ) ) {
+                        pending.add( successor );
+                    }
+                }
+            }
+            return false;
+        } finally {
+            sharedLock.unlock();
+        }
+    }
+
+
     void detectDeadlock( TransactionImpl currentTxn ) {
         List<List<TransactionImpl>> cycles = findCycles();
 
@@ -302,4 +302,83 @@ public void testRollback() throws SQLException {
         }
     }
 
+
+    @Test
+    public void testSegmentLayout() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "ALTER ADAPTERS ADD \"segments\" USING 'org.polypheny.db.adapter.file.FileStore' WITH '{mode:embedded,layout:segments}'" );
+                try {
+                    statement.executeUpdate( "CREATE TABLE segmentTest (a INTEGER NOT NULL, b VARCHAR(20), c FILE, PRIMARY KEY (a)) ON STORE \"segments\"" );
+
+                    PreparedStatement preparedStatement = connection.prepareStatement( "INSERT INTO segmentTest (a,b,c) VALUES (?,?,?)" );
+                    for ( int i = 1; i <= 3; i++ ) {
+                        preparedStatement.setInt( 1, i );
+                        preparedStatement.setString( 2, "v" + i );
+                        preparedStatement.setBytes( 3, ("file" + i).getBytes() );
+                        preparedStatement.addBatch();
+                    }
+                    preparedStatement.executeBatch();
+                    preparedStatement.close();
+                    connection.commit();
+
+                    // Rows of a rolled back transaction must not be visible
+                    statement.executeUpdate( "INSERT INTO segmentTest (a,b) VALUES (10,'x')" );
+                    connection.rollback();
+
+                    // Primary key conflict
+                    boolean failed = false;
+                    try {
+                        statement.executeUpdate( "INSERT INTO segmentTest (a,b) VALUES (2,'duplicate')" );
+                    } catch ( SQLException e ) {
+                        failed = true;
+                    }
+                    Assert.assertTrue( failed );
+                    connection.rollback();
+
+                    statement.executeUpdate( "UPDATE segmentTest SET b = 'updated' WHERE a = 2" );
+                    statement.executeUpdate( "DELETE FROM segmentTest WHERE a = 3" );
+                    statement.executeUpdate( "INSERT INTO segmentTest (a,b) VALUES (4,null)" );
+                    connection.commit();
+
+                    // Primary key conflicts of updates, with an existing row and between the updated rows
+                    for ( String update : new String[]{ "UPDATE segmentTest SET a = 1 WHERE a = 2", "UPDATE segmentTest SET a = 7 WHERE a >= 2" } ) {
+                        failed = false;
+                        try {
+                            statement.executeUpdate( update );
+                        } catch ( SQLException e ) {
+                            failed = true;
+                        }
+                        Assert.assertTrue( update, failed );
+                        connection.rollback();
+                    }
+                    // A row may keep its primary key
+                    statement.executeUpdate( "UPDATE segmentTest SET a = 4 WHERE a = 4" );
+                    connection.commit();
+
+                    ResultSet rs = statement.executeQuery( "SELECT a, b FROM segmentTest ORDER BY a" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of(
+                            new Object[]{ 1, "v1" },
+                            new Object[]{ 2, "updated" },
+                            new Object[]{ 4, null } ) );
+                    rs.close();
+
+                    rs = statement.executeQuery( "SELECT b FROM segmentTest WHERE a >= 2 AND a < 4" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ "updated" } ) );
+                    rs.close();
+
+                    rs = statement.executeQuery( "SELECT c FROM segmentTest WHERE a = 2" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ "file2".getBytes() } ) );
+                    rs.close();
+                    connection.commit();
+                } finally {
+                    statement.executeUpdate( "DROP TABLE IF EXISTS segmentTest" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP \"segments\"" );
+                    connection.commit();
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.polypheny.db.AdapterTestSuite;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.excluded.CassandraExcluded;
+
+/**
+ * Checks that results which are larger than the fetch size of a JDBC store are streamed completely.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Category({ AdapterTestSuite.class, CassandraExcluded.class })
+public class JdbcFetchSizeTest {
+
+    private static final int ROWS = 250;
+
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    @Test
+    public void streamedResultTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "ALTER ADAPTERS ADD \"fetchstore\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                        + " WITH '{maxConnections:\"25\",fetchSize:\"10\",trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                statement.executeUpdate( "CREATE TABLE fetchsizetest( id INTEGER NOT NULL, name VARCHAR(20) NULL, PRIMARY KEY (id) )" );
+
+                try {
+                    // Move the table to the store with the small fetch size
+                    statement.executeUpdate( "ALTER TABLE \"fetchsizetest\" ADD PLACEMENT ON STORE \"fetchstore\"" );
+                    statement.executeUpdate( "ALTER TABLE \"fetchsizetest\" DROP PLACEMENT ON STORE \"hsqldb\"" );
+
+                    PreparedStatement preparedInsert = connection.prepareStatement( "INSERT INTO fetchsizetest(id, name) VALUES (?, ?)" );
+                    for ( int i = 0; i < ROWS; i++ ) {
+                        preparedInsert.setInt( 1, i );
+                        preparedInsert.setString( 2, "Name " + i );
+                        preparedInsert.addBatch();
+                    }
+                    preparedInsert.executeBatch();
+                    connection.commit();
+
+                    // Statement
+                    checkRows( statement.executeQuery( "SELECT id, name FROM fetchsizetest ORDER BY id" ), 0 );
+
+                    // Prepared statement
+                    PreparedStatement preparedSelect = connection.prepareStatement( "SELECT id, name FROM fetchsizetest WHERE id >= ? ORDER BY id" );
+                    preparedSelect.setInt( 1, 7 );
+                    checkRows( preparedSelect.executeQuery(), 7 );
+                    connection.commit();
+                } finally {
+                    statement.executeUpdate( "DROP TABLE fetchsizetest" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP \"fetchstore\"" );
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+
+    private static void checkRows( ResultSet resultSet, int from ) throws SQLException {
+        int expected = from;
+        while ( resultSet.next() ) {
+            Assert.assertEquals( expected, resultSet.getInt( 1 ) );
+            Assert.assertEquals( "Name " + expected, resultSet.getString( 2 ) );
+            expected++;
+        }
+        Assert.assertEquals( ROWS, expected );
+        resultSet.close();
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter;
+
+
+import com.google.common.collect.ImmutableList;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+public class MemoryAdapterTest {
+
+    @BeforeClass
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        // noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "ALTER ADAPTERS ADD \"mem\" USING 'org.polypheny.db.adapter.memory.MemoryStore' WITH '{mode:embedded}'" );
+            }
+        }
+    }
+
+
+    @AfterClass
+    public static void end() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "ALTER ADAPTERS DROP mem" );
+                connection.commit();
+            }
+        }
+    }
+
+
+    @Test
+    public void testMemoryStore() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                try {
+                    statement.executeUpdate( "CREATE TABLE memtest (a INTEGER NOT NULL, b VARCHAR(20), c DOUBLE, PRIMARY KEY (a)) ON STORE \"mem\"" );
+
+                    int insertCount = statement.executeUpdate( "INSERT INTO memtest (a,b,c) VALUES (1,'x',1.5),(2,'y',2.5),(3,'x',null),(4,null,4.5)" );
+                    Assert.assertEquals( 4, insertCount );
+                    PreparedStatement preparedStatement = connection.prepareStatement( "INSERT INTO memtest (a,b,c) VALUES (?,?,?)" );
+                    preparedStatement.setInt( 1, 5 );
+                    preparedStatement.setString( 2, "y" );
+                    preparedStatement.setDouble( 3, 5.5 );
+                    preparedStatement.executeUpdate();
+                    preparedStatement.close();
+                    connection.commit();
+
+                    // filters
+                    ResultSet rs = statement.executeQuery( "SELECT a, c FROM memtest WHERE b = 'x' ORDER BY a" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ 1, 1.5 }, new Object[]{ 3, null } ) );
+                    rs.close();
+                    rs = statement.executeQuery( "SELECT a FROM memtest WHERE a IN (2, 4, 7) ORDER BY a" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ 2 }, new Object[]{ 4 } ) );
+                    rs.close();
+                    rs = statement.executeQuery( "SELECT a FROM memtest WHERE b IS NULL" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ 4 } ) );
+                    rs.close();
+                    preparedStatement = connection.prepareStatement( "SELECT a FROM memtest WHERE c >= ? ORDER BY a DESC" );
+                    preparedStatement.setDouble( 1, 2.5 );
+                    rs = preparedStatement.executeQuery();
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ 5 }, new Object[]{ 4 }, new Object[]{ 2 } ) );
+                    rs.close();
+                    preparedStatement.close();
+
+                    // aggregations
+                    rs = statement.executeQuery( "SELECT b, COUNT(*), SUM(a), MAX(c) FROM memtest WHERE b IS NOT NULL GROUP BY b ORDER BY b" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ "x", 2L, 4, 1.5 }, new Object[]{ "y", 2L, 7, 5.5 } ) );
+                    rs.close();
+                    rs = statement.executeQuery( "SELECT COUNT(*) FROM memtest" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ 5L } ) );
+                    rs.close();
+
+                    // limit
+                    rs = statement.executeQuery( "SELECT a FROM memtest ORDER BY c DESC NULLS LAST LIMIT 2" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ 5 }, new Object[]{ 4 } ) );
+                    rs.close();
+
+                    // update and delete
+                    statement.executeUpdate( "UPDATE memtest SET c = 3.5 WHERE a = 3" );
+                    Assert.assertEquals( 2, statement.executeUpdate( "DELETE FROM memtest WHERE b = 'y'" ) );
+                    connection.commit();
+                    rs = statement.executeQuery( "SELECT a, b, c FROM memtest ORDER BY a" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of(
+                            new Object[]{ 1, "x", 1.5 },
+                            new Object[]{ 3, "x", 3.5 },
+                            new Object[]{ 4, null, 4.5 } ) );
+                    rs.close();
+
+                    // rollback
+                    statement.executeUpdate( "DELETE FROM memtest" );
+                    connection.rollback();
+                    rs = statement.executeQuery( "SELECT COUNT(*) FROM memtest" );
+                    TestHelper.checkResultSet( rs, ImmutableList.of( new Object[]{ 3L } ) );
+                    rs.close();
+
+                    connection.commit();
+                } finally {
+                    statement.executeUpdate( "DROP TABLE public.memtest" );
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+}
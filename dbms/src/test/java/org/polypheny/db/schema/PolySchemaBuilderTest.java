@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.schema;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.polypheny.db.AdapterTestSuite;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.excluded.CassandraExcluded;
+import org.polypheny.db.jdbc.JavaTypeFactoryImpl;
+import org.polypheny.db.schema.PolyphenyDbSchema.TableEntry;
+import org.polypheny.db.util.Benchmark;
+
+/**
+ * Checks that the schema is updated incrementally on changes of the catalog.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Category({ AdapterTestSuite.class, CassandraExcluded.class })
+public class PolySchemaBuilderTest {
+
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    @Test
+    public void incrementalUpdateTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE schematest1( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                try {
+                    final AbstractPolyphenyDbSchema before = PolySchemaBuilder.getInstance().getCurrent();
+                    final Table table = getTable( before, "schematest1" );
+                    Assert.assertNotNull( table );
+
+                    statement.executeUpdate( "CREATE TABLE schematest2( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                    try {
+                        final AbstractPolyphenyDbSchema after = PolySchemaBuilder.getInstance().getCurrent();
+                        Assert.assertNotSame( before, after );
+                        // The unchanged logical table is reused
+                        Assert.assertSame( table, getTable( after, "schematest1" ) );
+                        Assert.assertNotNull( getTable( after, "schematest2" ) );
+                        // The previous version of the schema has not been changed
+                        Assert.assertNull( getTable( before, "schematest2" ) );
+
+                        statement.executeUpdate( "ALTER TABLE schematest2 ADD COLUMN name VARCHAR(20) NULL" );
+                        final AbstractPolyphenyDbSchema altered = PolySchemaBuilder.getInstance().getCurrent();
+                        Assert.assertSame( table, getTable( altered, "schematest1" ) );
+                        Assert.assertEquals( 2, getTable( altered, "schematest2" ).getRowType( new JavaTypeFactoryImpl() ).getFieldCount() );
+                        statement.executeUpdate( "INSERT INTO schematest2 VALUES (1, 'Name')" );
+                    } finally {
+                        statement.executeUpdate( "DROP TABLE schematest2" );
+                    }
+                    Assert.assertNull( getTable( PolySchemaBuilder.getInstance().getCurrent(), "schematest2" ) );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE schematest1" );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Checks that the adapter sub-schemas of a published version are not modified by later changes.
+     */
+    @Test
+    public void previousVersionUnchangedTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE schematest3( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                try {
+                    final AbstractPolyphenyDbSchema before = PolySchemaBuilder.getInstance().getCurrent();
+                    final Map<String, Set<String>> tableNames = getPhysicalTableNames( before );
+
+                    statement.executeUpdate( "CREATE TABLE schematest4( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                    try {
+                        Assert.assertEquals( tableNames, getPhysicalTableNames( before ) );
+                        Assert.assertNotEquals( tableNames, getPhysicalTableNames( PolySchemaBuilder.getInstance().getCurrent() ) );
+                    } finally {
+                        statement.executeUpdate( "DROP TABLE schematest4" );
+                    }
+                    Assert.assertEquals( tableNames, getPhysicalTableNames( before ) );
+                    Assert.assertEquals( tableNames, getPhysicalTableNames( PolySchemaBuilder.getInstance().getCurrent() ) );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE schematest3" );
+                }
+                Assert.assertNull( getTable( PolySchemaBuilder.getInstance().getCurrent(), "schematest3" ) );
+            }
+        }
+    }
+
+
+    /**
+     * Measures the time needed for creating and dropping a table depending on the number of tables in the schema.
+     * The maximum number of tables can be configured using the system property {@code schema.benchmark.tables}.
+     */
+    @Test
+    public void testPerformance() throws SQLException {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        final int maxTables = Integer.getInteger( "schema.benchmark.tables", 2000 );
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                int tables = 0;
+                try {
+                    for ( int size = 10; size <= maxTables; size *= 10 ) {
+                        for ( ; tables < size; tables++ ) {
+                            statement.executeUpdate( "CREATE TABLE schemabench" + tables + "( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                        }
+                        new Benchmark( "Create and drop table, " + size + " tables", statistician -> {
+                            long start = System.nanoTime();
+                            try {
+                                statement.executeUpdate( "CREATE TABLE schemabench( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                                statement.executeUpdate( "DROP TABLE schemabench" );
+                            } catch ( SQLException e ) {
+                                throw new RuntimeException( e );
+                            }
+                            statistician.record( start );
+                            return null;
+                        }, 5 ).run();
+                    }
+                } finally {
+                    for ( int i = 0; i < tables; i++ ) {
+                        statement.executeUpdate( "DROP TABLE schemabench" + i );
+                    }
+                }
+            }
+        }
+    }
+
+
+    private static Map<String, Set<String>> getPhysicalTableNames( AbstractPolyphenyDbSchema schema ) {
+        final Map<String, Set<String>> tableNames = new TreeMap<>();
+        schema.getSubSchemaMap().forEach( ( name, subSchema ) -> {
+            if ( !name.equals( "public" ) ) {
+                tableNames.put( name, new TreeSet<>( subSchema.getTableNames() ) );
+            }
+        } );
+        return tableNames;
+    }
+
+
+    private static Table getTable( AbstractPolyphenyDbSchema schema, String name ) {
+        final TableEntry entry = schema.getSubSchema( "public", false ).getTable( name, false );
+        return entry == null ? null : entry.getTable();
+    }
+
+}
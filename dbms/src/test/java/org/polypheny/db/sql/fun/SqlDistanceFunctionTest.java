@@ -238,6 +238,29 @@ public void knnFilterTest() throws SQLException {
     }
 
 
+    @Test
+    public void knnLimitTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+
+            try ( Statement statement = connection.createStatement() ) {
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT id, distance(myarray, ARRAY[1,1], 'L2SQUARED') as dist FROM knninttest ORDER BY dist LIMIT 2" ),
+                        ImmutableList.of(
+                                new Object[]{ 1, 0.0 },
+                                new Object[]{ 2, 2.0 } )
+                );
+
+                TestHelper.checkResultSet(
+                        statement.executeQuery( "SELECT id, distance(myarray, ARRAY[1,1], 'L1') as dist FROM knndoubletest ORDER BY dist DESC LIMIT 1 OFFSET 1" ),
+                        ImmutableList.of(
+                                new Object[]{ 2, 2.0 } )
+                );
+            }
+        }
+    }
+
+
     @Test
     public void preparedStatementTest() throws SQLException {
         try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
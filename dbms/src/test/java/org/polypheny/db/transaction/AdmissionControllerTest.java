@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.transaction;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.transaction.AdmissionController.Admission;
+import org.polypheny.db.transaction.AdmissionController.WorkloadClass;
+import org.polypheny.db.transaction.PUID.Type;
+
+
+public class AdmissionControllerTest {
+
+    private int concurrency;
+    private int memory;
+    private int timeout;
+
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    @Before
+    public void setLimits() {
+        concurrency = RuntimeConfig.ADMISSION_ANALYTICAL_CONCURRENCY.getInteger();
+        memory = RuntimeConfig.ADMISSION_ANALYTICAL_MEMORY.getInteger();
+        timeout = RuntimeConfig.ADMISSION_TIMEOUT.getInteger();
+        RuntimeConfig.ADMISSION_ANALYTICAL_CONCURRENCY.setInteger( 1 );
+        RuntimeConfig.ADMISSION_ANALYTICAL_MEMORY.setInteger( 0 );
+        RuntimeConfig.ADMISSION_TIMEOUT.setInteger( 1 );
+    }
+
+
+    @After
+    public void resetLimits() {
+        RuntimeConfig.ADMISSION_ANALYTICAL_CONCURRENCY.setInteger( concurrency );
+        RuntimeConfig.ADMISSION_ANALYTICAL_MEMORY.setInteger( memory );
+        RuntimeConfig.ADMISSION_TIMEOUT.setInteger( timeout );
+    }
+
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        final AdmissionController controller = AdmissionController.INSTANCE;
+        final PolyXid first = newXid();
+        final PolyXid second = newXid();
+        final Admission running = controller.admit( first, WorkloadClass.ANALYTICAL, 0 );
+        try {
+            controller.admit( second, WorkloadClass.ANALYTICAL, 0 );
+            Assert.fail( "Expected the second statement to time out" );
+        } catch ( AdmissionException e ) {
+            // Expected
+        }
+        Assert.assertEquals( 0, controller.getAdmitted( second ) );
+
+        // Other workload classes are not affected
+        final PolyXid transactional = newXid();
+        controller.admit( transactional, WorkloadClass.TRANSACTIONAL, 0 );
+        controller.release( transactional );
+
+        // A queued statement is admitted as soon as the running one is released
+        RuntimeConfig.ADMISSION_TIMEOUT.setInteger( 10 );
+        final CompletableFuture<Admission> queued = CompletableFuture.supplyAsync( () -> {
+            try {
+                return controller.admit( second, WorkloadClass.ANALYTICAL, 0 );
+            } catch ( AdmissionException e ) {
+                throw new RuntimeException( e );
+            }
+        } );
+        Thread.sleep( 100 );
+        Assert.assertFalse( queued.isDone() );
+        running.release();
+        Assert.assertEquals( WorkloadClass.ANALYTICAL, queued.get( 5, TimeUnit.SECONDS ).getWorkloadClass() );
+        Assert.assertEquals( 1, controller.getAdmitted( second ) );
+        controller.release( first );
+        controller.release( second );
+        Assert.assertEquals( 0, controller.getAdmitted( second ) );
+    }
+
+
+    @Test
+    public void testStatementsOfAdmittedTransaction() throws Exception {
+        final AdmissionController controller = AdmissionController.INSTANCE;
+        final PolyXid first = newXid();
+        final PolyXid second = newXid();
+
+        // The slot is released with the result of the statement, not with the transaction
+        controller.admit( first, WorkloadClass.ANALYTICAL, 0 ).release();
+        final Admission admission = controller.admit( second, WorkloadClass.ANALYTICAL, 0 );
+
+        // Further statements of a transaction are checked against the limits as well
+        try {
+            controller.admit( first, WorkloadClass.ANALYTICAL, 0 );
+            Assert.fail( "Expected the statement to time out" );
+        } catch ( AdmissionException e ) {
+            // Expected
+        }
+        Assert.assertEquals( 0, controller.getAdmitted( first ) );
+
+        // A statement of a transaction whose own open result holds the slot does not wait for itself
+        final Admission other = controller.admit( second, WorkloadClass.ANALYTICAL, 0 );
+        Assert.assertEquals( 2, controller.getAdmitted( second ) );
+
+        // Releasing twice has no effect
+        other.release();
+        other.release();
+        Assert.assertEquals( 1, controller.getAdmitted( second ) );
+
+        admission.release();
+        final Admission next = controller.admit( first, WorkloadClass.ANALYTICAL, 0 );
+        Assert.assertEquals( 1, controller.getAdmitted( first ) );
+        next.release();
+        controller.release( first );
+        controller.release( second );
+    }
+
+
+    @Test
+    public void testMemoryLimit() throws Exception {
+        final AdmissionController controller = AdmissionController.INSTANCE;
+        RuntimeConfig.ADMISSION_ANALYTICAL_CONCURRENCY.setInteger( 0 );
+        RuntimeConfig.ADMISSION_ANALYTICAL_MEMORY.setInteger( 1 );
+        final long megabyte = 1024 * 1024;
+
+        // A statement exceeding the limit on its own is admitted if it is the only one
+        final PolyXid large = newXid();
+        controller.admit( large, WorkloadClass.ANALYTICAL, 2 * megabyte );
+        try {
+            controller.admit( newXid(), WorkloadClass.ANALYTICAL, 1 );
+            Assert.fail( "Expected the statement to time out" );
+        } catch ( AdmissionException e ) {
+            // Expected
+        }
+        controller.release( large );
+
+        final PolyXid first = newXid();
+        final PolyXid second = newXid();
+        controller.admit( first, WorkloadClass.ANALYTICAL, megabyte / 2 );
+        controller.admit( second, WorkloadClass.ANALYTICAL, megabyte / 2 );
+        controller.release( first );
+        controller.release( second );
+    }
+
+
+    private static PolyXid newXid() {
+        return PolyXid.generateLocalTransactionIdentifier( PUID.randomPUID( Type.NODE ), PUID.randomPUID( Type.TRANSACTION ) );
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.transaction;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.polypheny.db.AdapterTestSuite;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.excluded.CassandraExcluded;
+import org.polypheny.db.util.Benchmark;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Category({ AdapterTestSuite.class, CassandraExcluded.class })
+public class TransactionImplTest {
+
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    @Test
+    public void reuseTypeFactoryAndCatalogReaderTest() throws TransactionException {
+        Transaction transaction = TestHelper.getInstance().getTransaction();
+        try {
+            Assert.assertSame( transaction.getTypeFactory(), transaction.getTypeFactory() );
+            Assert.assertSame( transaction.getCatalogReader(), transaction.getCatalogReader() );
+            Assert.assertSame( transaction.getTypeFactory(), transaction.getCatalogReader().getTypeFactory() );
+        } finally {
+            transaction.commit();
+        }
+    }
+
+
+    /**
+     * Checks that statements of a transaction see the changes of the schema made by preceding statements, although the
+     * catalog reader is reused.
+     */
+    @Test
+    public void catalogReaderFollowsSchemaChangesTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE readertest( id INTEGER NOT NULL, name VARCHAR(20), PRIMARY KEY (id) )" );
+                try {
+                    try ( PreparedStatement insert = connection.prepareStatement( "INSERT INTO readertest VALUES (?, ?)" ) ) {
+                        for ( int i = 0; i < 10; i++ ) {
+                            insert.setInt( 1, i );
+                            insert.setString( 2, "Name " + i );
+                            insert.executeUpdate();
+                        }
+                    }
+                    for ( int i = 0; i < 10; i++ ) {
+                        try ( ResultSet rs = statement.executeQuery( "SELECT name FROM readertest WHERE id = " + i ) ) {
+                            Assert.assertTrue( rs.next() );
+                            Assert.assertEquals( "Name " + i, rs.getString( 1 ) );
+                            Assert.assertFalse( rs.next() );
+                        }
+                    }
+                    connection.commit();
+
+                    statement.executeUpdate( "ALTER TABLE readertest ADD COLUMN age INTEGER NULL" );
+                    statement.executeUpdate( "UPDATE readertest SET age = id + 20" );
+                    try ( ResultSet rs = statement.executeQuery( "SELECT name, age FROM readertest WHERE id = 5" ) ) {
+                        Assert.assertTrue( rs.next() );
+                        Assert.assertEquals( "Name 5", rs.getString( 1 ) );
+                        Assert.assertEquals( 25, rs.getInt( 2 ) );
+                    }
+                    connection.commit();
+                } finally {
+                    statement.executeUpdate( "DROP TABLE readertest" );
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Measures the time needed for executing simple point queries. Run with a profiler attached for getting the allocation profile.
+     */
+    @Test
+    public void testPointQueryPerformance() throws SQLException {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE pointquerybench( id INTEGER NOT NULL, name VARCHAR(20), PRIMARY KEY (id) )" );
+                try {
+                    try ( PreparedStatement insert = connection.prepareStatement( "INSERT INTO pointquerybench VALUES (?, ?)" ) ) {
+                        for ( int i = 0; i < 1000; i++ ) {
+                            insert.setInt( 1, i );
+                            insert.setString( 2, "Name " + i );
+                            insert.executeUpdate();
+                        }
+                    }
+                    connection.commit();
+                    new Benchmark( "Point query", statistician -> {
+                        long start = System.nanoTime();
+                        try ( ResultSet rs = statement.executeQuery( "SELECT name FROM pointquerybench WHERE id = " + (start & 1023) % 1000 ) ) {
+                            Assert.assertTrue( rs.next() );
+                        } catch ( SQLException e ) {
+                            throw new RuntimeException( e );
+                        }
+                        statistician.record( start );
+                        return null;
+                    }, 1000 ).run();
+                } finally {
+                    statement.executeUpdate( "DROP TABLE pointquerybench" );
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+}
@@ -213,11 +213,118 @@ public boolean matches( final Object[] columnValues, final PolyType[] columnType
             //if there is no null check and the column value is null, any check on the column value would return false
             return false;
         }
-        Object parameterValue = getParamValue( dataContext, polyType );
-        if ( parameterValue == null ) {
+        Integer comparison = compareWithParameter( columnValue, polyType, dataContext );
+        if ( comparison == null ) {
             //WHERE x = null is always false, see https://stackoverflow.com/questions/9581745/sql-is-null-and-null
             return false;
         }
+
+        switch ( operator ) {
+            case AND:
+                for ( Condition c : operands ) {
+                    if ( !c.matches( columnValues, columnTypes, dataContext ) ) {
+                        return false;
+                    }
+                }
+                return true;
+            case OR:
+                for ( Condition c : operands ) {
+                    if ( c.matches( columnValues, columnTypes, dataContext ) ) {
+                        return true;
+                    }
+                }
+                return false;
+            case EQUALS:
+                return comparison == 0;
+            case NOT_EQUALS:
+                return comparison != 0;
+            case GREATER_THAN:
+                return comparison > 0;
+            case GREATER_THAN_OR_EQUAL:
+                return comparison >= 0;
+            case LESS_THAN:
+                return comparison < 0;
+            case LESS_THAN_OR_EQUAL:
+                return comparison <= 0;
+            case LIKE:
+                //todo maybe replace '%' by '(.*)' etc.
+                Pattern pattern = Pattern.compile( getParamValue( dataContext, polyType ).toString() );
+                Matcher matcher = pattern.matcher( columnValue.toString() );
+                return matcher.matches();
+            default:
+                throw new RuntimeException( operator + " comparison not supported by file adapter." );
+        }
+    }
+
+
+    /**
+     * Determines if a segment with the given minimum and maximum column values could contain a row matching this condition.
+     * Used to skip segments in the segment layout of the file store.
+     *
+     * @param minValues Minimum value per column, {@code null} if unknown
+     * @param maxValues Maximum value per column, {@code null} if unknown
+     * @return {@code False} if no row within the bounds can match, {@code true} otherwise
+     */
+    public boolean mayMatch( final Object[] minValues, final Object[] maxValues, final PolyType[] columnTypes, final DataContext dataContext ) {
+        if ( columnReference == null ) {
+            switch ( operator ) {
+                case AND:
+                    for ( Condition c : operands ) {
+                        if ( !c.mayMatch( minValues, maxValues, columnTypes, dataContext ) ) {
+                            return false;
+                        }
+                    }
+                    return true;
+                case OR:
+                    for ( Condition c : operands ) {
+                        if ( c.mayMatch( minValues, maxValues, columnTypes, dataContext ) ) {
+                            return true;
+                        }
+                    }
+                    return false;
+                default:
+                    return true;
+            }
+        }
+        Object min = minValues[columnReference];
+        Object max = maxValues[columnReference];
+        if ( !(min instanceof Comparable) || !(max instanceof Comparable) ) {
+            return true;
+        }
+        PolyType polyType = columnTypes[columnReference];
+        Integer minComparison = compareWithParameter( (Comparable) min, polyType, dataContext );
+        Integer maxComparison = compareWithParameter( (Comparable) max, polyType, dataContext );
+        if ( minComparison == null || maxComparison == null ) {
+            return true;
+        }
+        switch ( operator ) {
+            case EQUALS:
+                return minComparison <= 0 && maxComparison >= 0;
+            case GREATER_THAN:
+                return maxComparison > 0;
+            case GREATER_THAN_OR_EQUAL:
+                return maxComparison >= 0;
+            case LESS_THAN:
+                return minComparison < 0;
+            case LESS_THAN_OR_EQUAL:
+                return minComparison <= 0;
+            default:
+                return true;
+        }
+    }
+
+
+    /**
+     * Compares a (non-null) column value with the parameter of this condition
+     *
+     * @return The result of the comparison or {@code null} if the parameter is null
+     */
+    @Nullable
+    private Integer compareWithParameter( Comparable columnValue, final PolyType polyType, final DataContext dataContext ) {
+        Object parameterValue = getParamValue( dataContext, polyType );
+        if ( parameterValue == null ) {
+            return null;
+        }
         if ( columnValue instanceof Number && parameterValue instanceof Number ) {
             columnValue = ((Number) columnValue).doubleValue();
             parameterValue = ((Number) parameterValue).doubleValue();
@@ -257,42 +364,7 @@ public boolean matches( final Object[] columnValues, final PolyType[] columnType
         } else {
             comparison = columnValue.compareTo( parameterValue );
         }
-
-        switch ( operator ) {
-            case AND:
-                for ( Condition c : operands ) {
-                    if ( !c.matches( columnValues, columnTypes, dataContext ) ) {
-                        return false;
-                    }
-                }
-                return true;
-            case OR:
-                for ( Condition c : operands ) {
-                    if ( c.matches( columnValues, columnTypes, dataContext ) ) {
-                        return true;
-                    }
-                }
-                return false;
-            case EQUALS:
-                return comparison == 0;
-            case NOT_EQUALS:
-                return comparison != 0;
-            case GREATER_THAN:
-                return comparison > 0;
-            case GREATER_THAN_OR_EQUAL:
-                return comparison >= 0;
-            case LESS_THAN:
-                return comparison < 0;
-            case LESS_THAN_OR_EQUAL:
-                return comparison <= 0;
-            case LIKE:
-                //todo maybe replace '%' by '(.*)' etc.
-                Pattern pattern = Pattern.compile( parameterValue.toString() );
-                Matcher matcher = pattern.matcher( columnValue.toString() );
-                return matcher.matches();
-            default:
-                throw new RuntimeException( operator + " comparison not supported by file adapter." );
-        }
+        return comparison;
     }
 
 }
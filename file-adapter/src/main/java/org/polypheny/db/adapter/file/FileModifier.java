@@ -111,25 +111,41 @@ static void write( File newFile, Object value ) throws IOException {
         if ( !newFile.createNewFile() ) {
             throw new RuntimeException( "Primary key conflict! You are trying to insert a row with a primary key that already exists." );
         }
-        if ( value instanceof byte[] ) {
-            Files.write( newFile.toPath(), (byte[]) value );
-        } else if ( value instanceof InputStream ) {
+        if ( value instanceof InputStream ) {
             //see https://attacomsian.com/blog/java-convert-inputstream-to-outputstream
             try ( InputStream is = (InputStream) value; FileOutputStream os = new FileOutputStream( newFile ) ) {
                 IOUtils.copyLarge( is, os );
             }
+        } else {
+            Files.write( newFile.toPath(), encode( value ) );
+        }
+    }
+
+
+    /**
+     * Encodes a value the way it is stored by the file store. Streams are read completely.
+     */
+    static byte[] encode( Object value ) throws IOException {
+        if ( value instanceof byte[] ) {
+            return (byte[]) value;
+        } else if ( value instanceof FileInputHandle ) {
+            try ( InputStream is = ((FileInputHandle) value).getData() ) {
+                return IOUtils.toByteArray( is );
+            }
+        } else if ( value instanceof InputStream ) {
+            try ( InputStream is = (InputStream) value ) {
+                return IOUtils.toByteArray( is );
+            }
         } else if ( FileHelper.isSqlDateOrTimeOrTS( value ) ) {
-            Long l = FileHelper.sqlToLong( value );
-            Files.write( newFile.toPath(), l.toString().getBytes( FileStore.CHARSET ) );
+            return FileHelper.sqlToLong( value ).toString().getBytes( FileStore.CHARSET );
         } else if ( value instanceof TimestampString ) {
-            Files.write( newFile.toPath(), ("" + ((TimestampString) value).getMillisSinceEpoch()).getBytes( StandardCharsets.UTF_8 ) );
+            return ("" + ((TimestampString) value).getMillisSinceEpoch()).getBytes( StandardCharsets.UTF_8 );
         } else if ( value instanceof DateString ) {
-            Files.write( newFile.toPath(), ("" + ((DateString) value).getDaysSinceEpoch()).getBytes( StandardCharsets.UTF_8 ) );
+            return ("" + ((DateString) value).getDaysSinceEpoch()).getBytes( StandardCharsets.UTF_8 );
         } else if ( value instanceof TimeString ) {
-            Files.write( newFile.toPath(), ("" + ((TimeString) value).getMillisOfDay()).getBytes( StandardCharsets.UTF_8 ) );
+            return ("" + ((TimeString) value).getMillisOfDay()).getBytes( StandardCharsets.UTF_8 );
         } else {
-            String writeString = value.toString();
-            Files.write( newFile.toPath(), writeString.getBytes( FileStore.CHARSET ) );
+            return value.toString().getBytes( FileStore.CHARSET );
         }
     }
 
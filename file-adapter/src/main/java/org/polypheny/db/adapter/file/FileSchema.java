@@ -19,6 +19,8 @@
 
 import java.io.File;
 import org.polypheny.db.plan.Convention;
+import org.polypheny.db.schema.Statistic;
+import org.polypheny.db.schema.Statistics;
 
 
 public interface FileSchema {
@@ -29,4 +31,11 @@ public interface FileSchema {
 
     int getAdapterId();
 
+    /**
+     * Statistics of a table of this schema, used by {@link FileTranslatableTable#getStatistic()}.
+     */
+    default Statistic getStatistic( long tableId ) {
+        return Statistics.UNKNOWN;
+    }
+
 }
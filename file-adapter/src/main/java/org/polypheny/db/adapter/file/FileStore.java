@@ -24,6 +24,7 @@
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.SystemUtils;
 import org.polypheny.db.adapter.Adapter.AdapterProperties;
+import org.polypheny.db.adapter.Adapter.AdapterSettingList;
 import org.polypheny.db.adapter.DataStore;
 import org.polypheny.db.adapter.DeployMode;
 import org.polypheny.db.catalog.Catalog;
@@ -51,6 +52,9 @@
         name = "File",
         description = "An adapter that stores all data as files. It is especially suitable for multimedia collections.",
         usedModes = DeployMode.EMBEDDED)
+@AdapterSettingList(name = "layout", options = { "files", "segments" }, required = false,
+        description = "How the data is stored on disk. \"files\" stores every value in its own file, which suits multimedia collections. "
+                + "\"segments\" stores rows in append-only columnar segments, which is considerably faster for large tables.")
 public class FileStore extends DataStore {
 
     // Standards
@@ -69,9 +73,16 @@ public class FileStore extends DataStore {
 
     private final File WAL; // A folder containing the write ahead log
 
+    /**
+     * If true, tables are stored as columnar segments (see {@link SegmentTable}) instead of one file per value
+     */
+    @Getter
+    private final boolean segmentLayout;
+
 
     public FileStore( final int storeId, final String uniqueName, final Map<String, String> settings ) {
         super( storeId, uniqueName, settings, true );
+        segmentLayout = "segments".equals( settings.get( "layout" ) );
         FileSystemManager fileManager = FileSystemManager.getInstance();
         File adapterRoot = fileManager.registerNewFolder( "data/file-store" );
 
@@ -148,6 +159,10 @@ public void createTable( Context context, CatalogTable catalogTable ) {
                     getPhysicalColumnName( placement.columnId ),
                     true );
         }
+        if ( segmentLayout ) {
+            new SegmentTable( getTableFolder( catalogTable.id ) ).create();
+            return;
+        }
         for ( Long colId : catalogTable.columnIds ) {
             File newColumnFolder = getColumnFolder( colId );
             if ( !newColumnFolder.mkdir() ) {
@@ -161,6 +176,14 @@ public void createTable( Context context, CatalogTable catalogTable ) {
     public void dropTable( Context context, CatalogTable catalogTable ) {
         context.getStatement().getTransaction().registerInvolvedAdapter( this );
         //todo check if it is on this store?
+        if ( segmentLayout ) {
+            try {
+                new SegmentTable( getTableFolder( catalogTable.id ) ).drop();
+            } catch ( IOException e ) {
+                throw new RuntimeException( "Could not drop table " + catalogTable.id, e );
+            }
+            return;
+        }
         for ( Long colId : catalogTable.columnIds ) {
             File f = getColumnFolder( colId );
             try {
@@ -175,6 +198,22 @@ public void dropTable( Context context, CatalogTable catalogTable ) {
     @Override
     public void addColumn( Context context, CatalogTable catalogTable, CatalogColumn catalogColumn ) {
         context.getStatement().getTransaction().registerInvolvedAdapter( this );
+        if ( segmentLayout ) {
+            byte[] defaultValue = catalogColumn.defaultValue == null ? null : catalogColumn.defaultValue.value.getBytes( CHARSET );
+            try {
+                new SegmentTable( getTableFolder( catalogTable.id ) ).addColumn( catalogColumn.id, catalogColumn.type, defaultValue );
+            } catch ( IOException e ) {
+                throw new RuntimeException( "Caught exception while adding column", e );
+            }
+            catalog.updateColumnPlacementPhysicalNames(
+                    getAdapterId(),
+                    catalogColumn.id,
+                    currentSchema.getSchemaName(),
+                    getPhysicalTableName( catalogTable.id ),
+                    getPhysicalColumnName( catalogColumn.id ),
+                    false );
+            return;
+        }
         File newColumnFolder = getColumnFolder( catalogColumn.id );
         if ( !newColumnFolder.mkdir() ) {
             throw new RuntimeException( "Could not create column folder " + newColumnFolder.getName() );
@@ -208,6 +247,10 @@ public void dropColumn( Context context, CatalogColumnPlacement columnPlacement
         context.getStatement().getTransaction().registerInvolvedAdapter( this );
         File columnFile = getColumnFolder( columnPlacement.columnId );
         try {
+            if ( segmentLayout ) {
+                new SegmentTable( getTableFolder( columnPlacement.tableId ) ).dropColumn( columnPlacement.columnId );
+                return;
+            }
             FileUtils.deleteDirectory( columnFile );
         } catch ( IOException e ) {
             throw new RuntimeException( "Could not delete column folder", e );
@@ -318,7 +361,16 @@ public void commitOrRollback( final PolyXid xid, final boolean commit ) {
             deletePrefix = "_ins_" + xidHash;
             movePrefix = "_del_" + xidHash;
         }
-        if ( rootDir.listFiles() != null ) {
+        if ( segmentLayout ) {
+            File[] tableFolders = rootDir.listFiles( f -> f.isDirectory() && f.getName().startsWith( "tab" ) );
+            try {
+                for ( File tableFolder : tableFolders == null ? new File[0] : tableFolders ) {
+                    new SegmentTable( tableFolder ).commitOrRollback( xidHash, commit );
+                }
+            } catch ( IOException e ) {
+                throw new RuntimeException( "Could not " + (commit ? "commit" : "rollback") + " segments", e );
+            }
+        } else if ( rootDir.listFiles() != null ) {
             for ( File columnFolder : rootDir.listFiles( f -> f.isDirectory() ) ) {
                 for ( File data : columnFolder.listFiles( f -> !f.isHidden() && f.getName().startsWith( deletePrefix ) ) ) {
                     data.delete();
@@ -371,6 +423,10 @@ public void truncate( Context context, CatalogTable table ) {
         //context.getStatement().getTransaction().registerInvolvedStore( this );
         FileTranslatableTable fileTable = (FileTranslatableTable) currentSchema.getTable( table.name );
         try {
+            if ( segmentLayout ) {
+                new SegmentTable( getTableFolder( table.id ) ).truncate();
+                return;
+            }
             for ( String colName : fileTable.getColumnNames() ) {
                 File columnFolder = getColumnFolder( fileTable.getColumnIdMap().get( colName ) );
                 FileUtils.cleanDirectory( columnFolder );
@@ -446,4 +502,17 @@ public File getColumnFolder( final Long columnId ) {
         return new File( rootDir, getPhysicalColumnName( columnId ) );
     }
 
+
+    File getTableFolder( final long tableId ) {
+        return new File( rootDir, getPhysicalTableName( tableId ) );
+    }
+
+
+    /**
+     * Returns the segment table a column belongs to (only for stores using the segment layout)
+     */
+    SegmentTable getSegmentTable( final long columnId ) {
+        return new SegmentTable( getTableFolder( catalog.getColumn( columnId ).tableId ) );
+    }
+
 }
@@ -135,7 +135,17 @@ public Table createFileTable( CatalogTable catalogTable, List<CatalogColumnPlace
      * see {@link FileMethod#EXECUTE} and {@link org.polypheny.db.adapter.file.rel.FileToEnumerableConverter#implement}
      */
     public static Enumerable<Object> execute( final Operation operation, final Integer adapterId, final DataContext dataContext, final String path, final Long[] columnIds, final PolyType[] columnTypes, final List<Long> pkIds, final Integer[] projectionMapping, final Condition condition, final Value[] updates ) {
-        dataContext.getStatement().getTransaction().registerInvolvedAdapter( AdapterManager.getInstance().getAdapter( adapterId ) );
+        FileStore store = (FileStore) AdapterManager.getInstance().getAdapter( adapterId );
+        dataContext.getStatement().getTransaction().registerInvolvedAdapter( store );
+        if ( store.isSegmentLayout() ) {
+            final SegmentTable table = store.getSegmentTable( columnIds[0] );
+            return new AbstractEnumerable<Object>() {
+                @Override
+                public Enumerator<Object> enumerator() {
+                    return new SegmentEnumerator( operation, table, store.getRootDir(), columnIds, columnTypes, pkIds, projectionMapping, dataContext, condition, updates );
+                }
+            };
+        }
         return new AbstractEnumerable<Object>() {
             @Override
             public Enumerator<Object> enumerator() {
@@ -151,7 +161,8 @@ public Enumerator<Object> enumerator() {
      * see {@link FileMethod#EXECUTE_MODIFY} and {@link org.polypheny.db.adapter.file.rel.FileToEnumerableConverter#implement}
      */
     public static Enumerable<Object> executeModify( final Operation operation, final Integer adapterId, final DataContext dataContext, final String path, final Long[] columnIds, final PolyType[] columnTypes, final List<Long> pkIds, final Boolean isBatch, final Object[] insertValues, final Condition condition ) {
-        dataContext.getStatement().getTransaction().registerInvolvedAdapter( AdapterManager.getInstance().getAdapter( adapterId ) );
+        FileStore store = (FileStore) AdapterManager.getInstance().getAdapter( adapterId );
+        dataContext.getStatement().getTransaction().registerInvolvedAdapter( store );
         final Object[] insert;
 
         ArrayList<Object[]> rows = new ArrayList<>();
@@ -180,6 +191,15 @@ public static Enumerable<Object> executeModify( final Operation operation, final
         }
         insert = rows.toArray( new Object[0] );
 
+        if ( store.isSegmentLayout() ) {
+            final SegmentTable table = store.getSegmentTable( columnIds[0] );
+            return new AbstractEnumerable<Object>() {
+                @Override
+                public Enumerator<Object> enumerator() {
+                    return new SegmentModifier( table, columnIds, columnTypes, pkIds, dataContext, insert );
+                }
+            };
+        }
         return new AbstractEnumerable<Object>() {
             @Override
             public Enumerator<Object> enumerator() {
@@ -44,6 +44,7 @@
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.schema.ModifiableTable;
 import org.polypheny.db.schema.SchemaPlus;
+import org.polypheny.db.schema.Statistic;
 import org.polypheny.db.schema.TranslatableTable;
 import org.polypheny.db.schema.impl.AbstractTableQueryable;
 import org.polypheny.db.type.PolyType;
@@ -112,6 +113,12 @@ public RelDataType getRowType( RelDataTypeFactory typeFactory ) {
     }
 
 
+    @Override
+    public Statistic getStatistic() {
+        return fileSchema.getStatistic( tableId );
+    }
+
+
     @Override
     public Collection getModifiableCollection() {
         throw new UnsupportedOperationException( "getModifiableCollection not implemented" );
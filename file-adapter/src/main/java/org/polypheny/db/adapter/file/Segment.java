@@ -0,0 +1,378 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.file;
+
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import lombok.Getter;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.PolyTypeFamily;
+import org.polypheny.db.type.PolyTypeUtil;
+
+
+/**
+ * A segment of a table stored in the segment layout of the {@link FileStore}.
+ * A segment is a folder containing one append-only file per column, a {@code meta} file with the number of rows, the size of
+ * the column files and the minimum and maximum value of every column, and optional bitmaps of deleted rows.
+ * Within a column file, every value is stored as its length (-1 for null) followed by its encoding, see {@link FileModifier#encode}.
+ */
+class Segment {
+
+    static final String META = "meta";
+    static final String DELETED = "deleted";
+
+    private static final String ROWS = "rows";
+    private static final String BYTES = "bytes.";
+    private static final String MIN = "min.";
+    private static final String MAX = "max.";
+
+    @Getter
+    private final File folder;
+    @Getter
+    private final boolean committed;
+    private final Properties meta = new Properties();
+
+
+    Segment( final File folder, final boolean committed ) throws IOException {
+        this.folder = folder;
+        this.committed = committed;
+        File metaFile = new File( folder, META );
+        if ( metaFile.exists() ) {
+            try ( InputStream is = Files.newInputStream( metaFile.toPath() ) ) {
+                meta.load( is );
+            }
+        }
+    }
+
+
+    String getName() {
+        return folder.getName();
+    }
+
+
+    int getRowCount() {
+        return Integer.parseInt( meta.getProperty( ROWS, "0" ) );
+    }
+
+
+    long getByteCount() {
+        long bytes = 0;
+        for ( String key : meta.stringPropertyNames() ) {
+            if ( key.startsWith( BYTES ) ) {
+                bytes += Long.parseLong( meta.getProperty( key ) );
+            }
+        }
+        return bytes;
+    }
+
+
+    /**
+     * @return The smallest non-null value of a column or {@code null} if it is unknown
+     */
+    Object getMin( final long columnId, final PolyType type ) {
+        return PolyTypeUtil.stringToObject( meta.getProperty( MIN + columnId ), type );
+    }
+
+
+    /**
+     * @return The largest non-null value of a column or {@code null} if it is unknown
+     */
+    Object getMax( final long columnId, final PolyType type ) {
+        return PolyTypeUtil.stringToObject( meta.getProperty( MAX + columnId ), type );
+    }
+
+
+    /**
+     * Reads the values of a column.
+     * Committed segments are memory mapped. Segments of running transactions are read onto the heap, because they are renamed
+     * when the transaction commits, which fails for mapped files on some platforms.
+     */
+    Column readColumn( final long columnId ) throws IOException {
+        int rowCount = getRowCount();
+        int[] offsets = new int[rowCount];
+        int[] lengths = new int[rowCount];
+        File columnFile = getColumnFile( columnId );
+        if ( !columnFile.exists() || rowCount == 0 ) {
+            // The column has been added without a default value after this segment has been written
+            Arrays.fill( lengths, -1 );
+            return new Column( null, offsets, lengths );
+        }
+        ByteBuffer buffer;
+        try ( FileChannel channel = FileChannel.open( columnFile.toPath(), StandardOpenOption.READ ) ) {
+            long size = Math.min( channel.size(), Long.parseLong( meta.getProperty( BYTES + columnId, String.valueOf( channel.size() ) ) ) );
+            if ( committed ) {
+                buffer = channel.map( MapMode.READ_ONLY, 0, size );
+            } else {
+                buffer = ByteBuffer.allocate( (int) size );
+                while ( buffer.hasRemaining() && channel.read( buffer ) >= 0 ) {
+                    // read until the buffer is full
+                }
+                buffer.flip();
+            }
+        }
+        int position = 0;
+        for ( int i = 0; i < rowCount; i++ ) {
+            int length = buffer.getInt( position );
+            position += Integer.BYTES;
+            offsets[i] = position;
+            lengths[i] = length;
+            if ( length > 0 ) {
+                position += length;
+            }
+        }
+        return new Column( buffer, offsets, lengths );
+    }
+
+
+    /**
+     * Appends rows to this segment. Columns of the segment that are not part of {@code columnIds} are filled with null values.
+     */
+    void append( final Long[] columnIds, final PolyType[] columnTypes, final List<Object[]> rows ) throws IOException {
+        Set<Long> appended = new HashSet<>( Arrays.asList( columnIds ) );
+        for ( long columnId : getColumnIds() ) {
+            if ( !appended.contains( columnId ) ) {
+                appendValues( columnId, Collections.nCopies( rows.size(), null ) );
+            }
+        }
+        for ( int i = 0; i < columnIds.length; i++ ) {
+            List<byte[]> values = new ArrayList<>( rows.size() );
+            for ( Object[] row : rows ) {
+                values.add( row[i] == null ? null : FileModifier.encode( row[i] ) );
+            }
+            appendValues( columnIds[i], values );
+            updateMinMax( columnIds[i], columnTypes[i], values );
+        }
+        meta.setProperty( ROWS, String.valueOf( getRowCount() + rows.size() ) );
+        storeMeta();
+    }
+
+
+    /**
+     * Writes the column file of a new column, using the default value for all existing rows.
+     */
+    void addColumn( final long columnId, final PolyType type, final byte[] defaultValue ) throws IOException {
+        if ( getColumnFile( columnId ).exists() ) {
+            return;
+        }
+        List<byte[]> values = Collections.nCopies( getRowCount(), defaultValue );
+        writeValues( columnId, 0, values );
+        updateMinMax( columnId, type, values );
+        storeMeta();
+    }
+
+
+    void dropColumn( final long columnId ) throws IOException {
+        Files.deleteIfExists( getColumnFile( columnId ).toPath() );
+        meta.remove( BYTES + columnId );
+        meta.remove( MIN + columnId );
+        meta.remove( MAX + columnId );
+        storeMeta();
+    }
+
+
+    BitSet readBitmap( final String name ) throws IOException {
+        File file = new File( folder, name );
+        if ( !file.exists() ) {
+            return new BitSet();
+        }
+        return BitSet.valueOf( Files.readAllBytes( file.toPath() ) );
+    }
+
+
+    void writeBitmap( final String name, final BitSet bitmap ) throws IOException {
+        writeAtomically( new File( folder, name ), bitmap.toByteArray() );
+    }
+
+
+    private void appendValues( final long columnId, final List<byte[]> values ) throws IOException {
+        String bytes = meta.getProperty( BYTES + columnId );
+        if ( bytes == null ) {
+            // The column has no file yet, so the values of the existing rows are null
+            List<byte[]> padded = new ArrayList<>( Collections.nCopies( getRowCount(), null ) );
+            padded.addAll( values );
+            writeValues( columnId, 0, padded );
+        } else {
+            writeValues( columnId, Long.parseLong( bytes ), values );
+        }
+    }
+
+
+    /**
+     * Writes values to a column file starting at the given position. Everything after the position (e.g. leftovers of a failed
+     * statement) is discarded.
+     */
+    private void writeValues( final long columnId, final long position, final List<byte[]> values ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( getColumnFile( columnId ).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE ) ) {
+            channel.truncate( position );
+            channel.position( position );
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Channels.newOutputStream( channel ), 1 << 16 ) );
+            for ( byte[] value : values ) {
+                if ( value == null ) {
+                    out.writeInt( -1 );
+                } else {
+                    out.writeInt( value.length );
+                    out.write( value );
+                }
+            }
+            out.flush();
+            meta.setProperty( BYTES + columnId, String.valueOf( position + out.size() ) );
+        }
+    }
+
+
+    private void updateMinMax( final long columnId, final PolyType type, final List<byte[]> values ) {
+        if ( type.getFamily() == PolyTypeFamily.MULTIMEDIA || type == PolyType.ARRAY ) {
+            return;
+        }
+        String minString = meta.getProperty( MIN + columnId );
+        String maxString = meta.getProperty( MAX + columnId );
+        Comparable min = (Comparable) PolyTypeUtil.stringToObject( minString, type );
+        Comparable max = (Comparable) PolyTypeUtil.stringToObject( maxString, type );
+        for ( byte[] value : values ) {
+            if ( value == null ) {
+                continue;
+            }
+            String string = new String( value, FileStore.CHARSET );
+            Comparable decoded = (Comparable) PolyTypeUtil.stringToObject( string, type );
+            if ( decoded == null ) {
+                continue;
+            }
+            if ( min == null || decoded.compareTo( min ) < 0 ) {
+                min = decoded;
+                minString = string;
+            }
+            if ( max == null || decoded.compareTo( max ) > 0 ) {
+                max = decoded;
+                maxString = string;
+            }
+        }
+        if ( minString != null ) {
+            meta.setProperty( MIN + columnId, minString );
+            meta.setProperty( MAX + columnId, maxString );
+        }
+    }
+
+
+    private List<Long> getColumnIds() {
+        List<Long> columnIds = new ArrayList<>();
+        for ( String key : meta.stringPropertyNames() ) {
+            if ( key.startsWith( BYTES ) ) {
+                columnIds.add( Long.parseLong( key.substring( BYTES.length() ) ) );
+            }
+        }
+        return columnIds;
+    }
+
+
+    private File getColumnFile( final long columnId ) {
+        return new File( folder, FileStore.getPhysicalColumnName( columnId ) );
+    }
+
+
+    private void storeMeta() throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        meta.store( os, null );
+        writeAtomically( new File( folder, META ), os.toByteArray() );
+    }
+
+
+    private static void writeAtomically( final File target, final byte[] bytes ) throws IOException {
+        File temp = new File( target.getParentFile(), target.getName() + ".tmp" );
+        Files.write( temp.toPath(), bytes );
+        Files.move( temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+
+    /**
+     * The values of a column of a segment. All values are read from one buffer using absolute positions.
+     */
+    static class Column {
+
+        private final ByteBuffer buffer;
+        private final int[] offsets;
+        private final int[] lengths;
+
+
+        private Column( final ByteBuffer buffer, final int[] offsets, final int[] lengths ) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+            this.lengths = lengths;
+        }
+
+
+        boolean isNull( final int row ) {
+            return lengths[row] < 0;
+        }
+
+
+        /**
+         * @return The encoded value of a row or {@code null}
+         */
+        byte[] getBytes( final int row ) {
+            int length = lengths[row];
+            if ( length < 0 ) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            if ( buffer.hasArray() ) {
+                System.arraycopy( buffer.array(), buffer.arrayOffset() + offsets[row], bytes, 0, length );
+            } else {
+                for ( int i = 0; i < length; i++ ) {
+                    bytes[i] = buffer.get( offsets[row] + i );
+                }
+            }
+            return bytes;
+        }
+
+
+        /**
+         * @return The encoded value of a row as string or {@code null}
+         */
+        String getString( final int row ) {
+            int length = lengths[row];
+            if ( length < 0 ) {
+                return null;
+            }
+            if ( buffer.hasArray() ) {
+                return new String( buffer.array(), buffer.arrayOffset() + offsets[row], length, FileStore.CHARSET );
+            }
+            return new String( getBytes( row ), FileStore.CHARSET );
+        }
+
+    }
+
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.file;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.Enumerator;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.file.FileRel.FileImplementor.Operation;
+import org.polypheny.db.transaction.Transaction.MultimediaFlavor;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.PolyTypeFamily;
+import org.polypheny.db.type.PolyTypeUtil;
+
+
+/**
+ * Enumerator for SELECT, UPDATE and DELETE operations on tables stored in the segment layout of the {@link FileStore}.
+ * Segments whose minimum and maximum values cannot match the condition are skipped. If there is a projection and no
+ * condition, only the column files of the projected columns are read.
+ * UPDATE and DELETE mark the affected rows as deleted and, in case of an UPDATE, append the updated rows to the insert
+ * segment of the transaction. Like for an INSERT, the primary keys of updated rows are checked for conflicts.
+ */
+public class SegmentEnumerator implements Enumerator<Object> {
+
+    private static final String PK_CONFLICT = "Primary key conflict! This update would lead to a primary key that already exists.";
+
+    Object current;
+    final Operation operation;
+    final SegmentTable table;
+    final String xidHash;
+    final Long[] columnIds;
+    final PolyType[] columnTypes;
+    final int[] pkMapping;
+    final DataContext dataContext;
+    final Condition condition;
+    final Integer[] projectionMapping;
+    final Map<Integer, Value> updates = new HashMap<>();
+    final File hardlinkFolder;
+
+    // Columns that are read from the segments
+    final Long[] readColumnIds;
+    final PolyType[] readColumnTypes;
+
+    private Iterator<Segment> segments;
+    private Segment segment;
+    private Segment.Column[] columns;
+    private BitSet deletedRows;
+    private int row;
+    private boolean done = false;
+
+
+    /**
+     * @param columnIds Ids of the columns that come from a tableScan
+     * @param columnTypes DataTypes of the columns that are given by the {@code columnIds} array
+     * @param pkIds Ids of the primary key columns
+     * @param projectionMapping Mapping on how to project a table, see {@link FileEnumerator}
+     * @param condition Condition that can be {@code null}. The columnReferences in the filter point to the columns coming from the tableScan, not from the projection
+     * @param updates Values of an UPDATE operation, can be {@code null}
+     */
+    public SegmentEnumerator( final Operation operation,
+            final SegmentTable table,
+            final File rootDir,
+            final Long[] columnIds,
+            final PolyType[] columnTypes,
+            final List<Long> pkIds,
+            final Integer[] projectionMapping,
+            final DataContext dataContext,
+            final Condition condition,
+            final Value[] updates ) {
+        this.operation = operation;
+        if ( operation == Operation.DELETE || operation == Operation.UPDATE ) {
+            current = Long.valueOf( 0L );
+        }
+        this.table = table;
+        this.xidHash = FileStore.SHA.hashString( dataContext.getStatement().getTransaction().getXid().toString(), FileStore.CHARSET ).toString();
+        this.columnIds = columnIds;
+        this.columnTypes = columnTypes;
+        this.pkMapping = SegmentTable.getPkMapping( columnIds, pkIds );
+        this.projectionMapping = projectionMapping;
+        this.dataContext = dataContext;
+        this.condition = condition;
+        if ( updates != null ) {
+            for ( Value update : updates ) {
+                this.updates.put( update.getColumnReference(), update );
+            }
+        }
+        this.hardlinkFolder = new File( rootDir, "hardlinks/" + xidHash );
+
+        // Without a filter, it is sufficient to read the projected columns
+        if ( operation == Operation.SELECT && condition == null && projectionMapping != null ) {
+            readColumnIds = new Long[projectionMapping.length];
+            readColumnTypes = new PolyType[projectionMapping.length];
+            for ( int i = 0; i < projectionMapping.length; i++ ) {
+                readColumnIds[i] = columnIds[projectionMapping[i]];
+                readColumnTypes[i] = columnTypes[projectionMapping[i]];
+            }
+        } else {
+            readColumnIds = columnIds;
+            readColumnTypes = columnTypes;
+        }
+    }
+
+
+    @Override
+    public Object current() {
+        return current;
+    }
+
+
+    @Override
+    public boolean moveNext() {
+        try {
+            if ( operation == Operation.SELECT ) {
+                return moveNextSelect();
+            } else if ( operation == Operation.UPDATE || operation == Operation.DELETE ) {
+                if ( done ) {
+                    return false;
+                }
+                current = modify();
+                done = true;
+                return true;
+            } else {
+                throw new RuntimeException( operation + " operation is not supported in SegmentEnumerator" );
+            }
+        } catch ( IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+
+    private boolean moveNextSelect() throws IOException {
+        if ( segments == null ) {
+            segments = table.getSegments( xidHash ).iterator();
+        }
+        for ( ; ; ) {
+            if ( dataContext.getStatement().getTransaction().getCancelFlag().get() ) {
+                return false;
+            }
+            if ( columns == null || row >= segment.getRowCount() ) {
+                if ( !nextSegment() ) {
+                    return false;
+                }
+                continue;
+            }
+            int r = row++;
+            if ( deletedRows.get( r ) ) {
+                continue;
+            }
+            Object[] values = readRow( r, false );
+            if ( condition != null ) {
+                if ( !condition.matches( values, columnTypes, dataContext ) ) {
+                    continue;
+                }
+                if ( projectionMapping != null ) {
+                    values = project( values );
+                }
+            }
+            current = values.length == 1 ? values[0] : values;
+            return true;
+        }
+    }
+
+
+    private boolean nextSegment() throws IOException {
+        while ( segments.hasNext() ) {
+            Segment next = segments.next();
+            if ( next.getRowCount() == 0 || !mayMatch( next ) ) {
+                continue;
+            }
+            load( next );
+            return true;
+        }
+        columns = null;
+        return false;
+    }
+
+
+    private boolean mayMatch( final Segment segment ) {
+        if ( condition == null ) {
+            return true;
+        }
+        Object[] minValues = new Object[columnIds.length];
+        Object[] maxValues = new Object[columnIds.length];
+        for ( int i = 0; i < columnIds.length; i++ ) {
+            minValues[i] = segment.getMin( columnIds[i], columnTypes[i] );
+            maxValues[i] = segment.getMax( columnIds[i], columnTypes[i] );
+        }
+        return condition.mayMatch( minValues, maxValues, columnTypes, dataContext );
+    }
+
+
+    private void load( final Segment segment ) throws IOException {
+        this.segment = segment;
+        this.columns = new Segment.Column[readColumnIds.length];
+        for ( int i = 0; i < readColumnIds.length; i++ ) {
+            columns[i] = segment.readColumn( readColumnIds[i] );
+        }
+        this.deletedRows = table.getDeletedRows( segment, xidHash );
+        this.row = 0;
+    }
+
+
+    /**
+     * Executes an UPDATE or DELETE. All affected rows are determined before anything is written, so that updated rows are
+     * not visited again.
+     *
+     * @return The number of affected rows
+     */
+    private Long modify() throws IOException {
+        Map<Segment, BitSet> deletions = new HashMap<>();
+        List<Object[]> updatedRows = new ArrayList<>();
+        for ( Segment s : table.getSegments( xidHash ) ) {
+            if ( s.getRowCount() == 0 || !mayMatch( s ) ) {
+                continue;
+            }
+            load( s );
+            BitSet affected = new BitSet();
+            for ( int r = 0; r < s.getRowCount(); r++ ) {
+                if ( deletedRows.get( r ) ) {
+                    continue;
+                }
+                if ( condition != null && !condition.matches( readRow( r, true ), columnTypes, dataContext ) ) {
+                    continue;
+                }
+                affected.set( r );
+                if ( operation == Operation.UPDATE ) {
+                    Object[] updated = new Object[columnIds.length];
+                    for ( int c = 0; c < columnIds.length; c++ ) {
+                        if ( updates.containsKey( c ) ) {
+                            updated[c] = updates.get( c ).getValue( dataContext, 0 );
+                        } else {
+                            // Not updated values are copied in their encoded form
+                            updated[c] = columns[c].getBytes( r );
+                        }
+                    }
+                    updatedRows.add( updated );
+                }
+            }
+            if ( !affected.isEmpty() ) {
+                deletions.put( s, affected );
+            }
+        }
+        columns = null;
+
+        if ( !updatedRows.isEmpty() && updatesPrimaryKey() ) {
+            // The updated rows replace the affected ones
+            Map<String, BitSet> replaced = new HashMap<>();
+            deletions.forEach( ( s, affected ) -> replaced.put( s.getName(), affected ) );
+            table.checkPrimaryKeys( xidHash, columnIds, columnTypes, pkMapping, updatedRows, replaced, PK_CONFLICT );
+        }
+
+        long count = 0;
+        for ( Map.Entry<Segment, BitSet> entry : deletions.entrySet() ) {
+            table.delete( entry.getKey(), xidHash, entry.getValue() );
+            count += entry.getValue().cardinality();
+        }
+        if ( !updatedRows.isEmpty() ) {
+            table.append( xidHash, columnIds, columnTypes, updatedRows );
+        }
+        return count;
+    }
+
+
+    private boolean updatesPrimaryKey() {
+        if ( pkMapping == null ) {
+            return false;
+        }
+        for ( int pkIndex : pkMapping ) {
+            if ( updates.containsKey( pkIndex ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Decodes a row of the current segment
+     *
+     * @param raw If true, multimedia values are always returned as byte arrays
+     */
+    private Object[] readRow( final int r, final boolean raw ) throws IOException {
+        Object[] values = new Object[readColumnIds.length];
+        for ( int i = 0; i < readColumnIds.length; i++ ) {
+            Segment.Column column = columns[i];
+            if ( column.isNull( r ) ) {
+                continue;
+            }
+            if ( readColumnTypes[i].getFamily() == PolyTypeFamily.MULTIMEDIA ) {
+                if ( raw || dataContext.getStatement().getTransaction().getFlavor() == MultimediaFlavor.DEFAULT ) {
+                    values[i] = column.getBytes( r );
+                } else {
+                    values[i] = materialize( readColumnIds[i], r, column );
+                }
+            } else {
+                values[i] = PolyTypeUtil.stringToObject( column.getString( r ), readColumnTypes[i] );
+            }
+        }
+        return values;
+    }
+
+
+    /**
+     * Writes a multimedia value to a file in the hardlink folder of the transaction, which is removed on commit or rollback
+     */
+    private File materialize( final long columnId, final int r, final Segment.Column column ) throws IOException {
+        if ( !hardlinkFolder.exists() && !hardlinkFolder.mkdirs() ) {
+            throw new RuntimeException( "Could not create hardlink directory " + hardlinkFolder.getAbsolutePath() );
+        }
+        File file = new File( hardlinkFolder, FileStore.getPhysicalColumnName( columnId ) + "_" + segment.getName() + "_" + r );
+        if ( !file.exists() ) {
+            Files.write( file.toPath(), column.getBytes( r ) );
+        }
+        return file;
+    }
+
+
+    private Object[] project( final Object[] row ) {
+        Object[] out = new Object[projectionMapping.length];
+        for ( int i = 0; i < projectionMapping.length; i++ ) {
+            out[i] = row[projectionMapping[i]];
+        }
+        return out;
+    }
+
+
+    @Override
+    public void reset() {
+        segments = null;
+        columns = null;
+    }
+
+
+    @Override
+    public void close() {
+
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.file;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerator;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * Executes INSERT operations on tables stored in the segment layout of the {@link FileStore}.
+ * The rows are appended to the insert segment of the transaction after checking that their primary keys do not exist yet.
+ */
+public class SegmentModifier implements Enumerator<Object> {
+
+    private static final String PK_CONFLICT = "Primary key conflict! You are trying to insert a row with a primary key that already exists.";
+
+    private Object current;
+    private final SegmentTable table;
+    private final String xidHash;
+    private final Long[] columnIds;
+    private final PolyType[] columnTypes;
+    private final int[] pkMapping;
+    private final DataContext dataContext;
+    private final Object[] insertValues;
+    private boolean inserted = false;
+
+
+    public SegmentModifier( final SegmentTable table,
+            final Long[] columnIds,
+            final PolyType[] columnTypes,
+            final List<Long> pkIds,
+            final DataContext dataContext,
+            final Object[] insertValues ) {
+        this.table = table;
+        this.xidHash = FileStore.SHA.hashString( dataContext.getStatement().getTransaction().getXid().toString(), FileStore.CHARSET ).toString();
+        this.columnIds = columnIds;
+        this.columnTypes = columnTypes;
+        this.dataContext = dataContext;
+        this.insertValues = insertValues;
+        this.pkMapping = SegmentTable.getPkMapping( columnIds, pkIds );
+    }
+
+
+    @Override
+    public Object current() {
+        return current;
+    }
+
+
+    /**
+     * First call: insert all rows, set current to the insert count and return true.
+     * Second call: return false
+     */
+    @Override
+    public boolean moveNext() {
+        if ( dataContext.getStatement().getTransaction().getCancelFlag().get() || inserted ) {
+            return false;
+        }
+        try {
+            List<Object[]> rows = new ArrayList<>( insertValues.length );
+            for ( Object row : insertValues ) {
+                rows.add( (Object[]) row );
+            }
+            if ( pkMapping != null ) {
+                table.checkPrimaryKeys( xidHash, columnIds, columnTypes, pkMapping, rows, null, PK_CONFLICT );
+            }
+            table.append( xidHash, columnIds, columnTypes, rows );
+            current = Long.valueOf( rows.size() );
+            inserted = true;
+            return true;
+        } catch ( IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+
+    @Override
+    public void reset() {
+
+    }
+
+
+    @Override
+    public void close() {
+
+    }
+
+}
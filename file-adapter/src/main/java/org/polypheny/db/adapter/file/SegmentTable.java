@@ -0,0 +1,328 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.file;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.PolyTypeUtil;
+
+
+/**
+ * The folder of a table stored in the segment layout of the {@link FileStore}.
+ *
+ * Committed segments are named {@code seg<n>} and are never modified except for their bitmap of deleted rows.
+ * Rows inserted by a transaction are appended to segments named {@code _ins_<xid hash>_<n>}, which are only visible to this
+ * transaction. Deletions of rows in committed segments are recorded in a bitmap named {@code _del_<xid hash>} within the segment.
+ * On commit, the insert segments are renamed to committed segments and the delete bitmaps are merged into the {@code deleted}
+ * bitmap of the segment. On rollback, they are removed. Both operations can be repeated if they have been interrupted,
+ * which allows recovering them from the WAL of the file store.
+ */
+class SegmentTable {
+
+    /**
+     * Maximum number of rows of a segment
+     */
+    static final int SEGMENT_SIZE = 100_000;
+
+    /**
+     * Maximum size of all column files of a segment in bytes (a column file needs to be mappable into a single buffer)
+     */
+    static final long SEGMENT_MAX_BYTES = 1L << 30;
+
+    private static final Pattern COMMITTED_SEGMENT = Pattern.compile( "seg(\\d+)" );
+    private static final String INSERT_PREFIX = "_ins_";
+    private static final String DELETE_PREFIX = "_del_";
+
+    private final File folder;
+
+
+    SegmentTable( final File folder ) {
+        this.folder = folder;
+    }
+
+
+    void create() {
+        if ( !folder.mkdirs() ) {
+            throw new RuntimeException( "Could not create table folder " + folder.getAbsolutePath() );
+        }
+    }
+
+
+    void drop() throws IOException {
+        if ( folder.exists() ) {
+            FileHelper.deleteDirRecursively( folder );
+        }
+    }
+
+
+    void truncate() throws IOException {
+        drop();
+        create();
+    }
+
+
+    /**
+     * @return All segments visible to a transaction: the committed segments followed by the segments it has written itself
+     */
+    List<Segment> getSegments( final String xidHash ) throws IOException {
+        List<Segment> segments = getCommittedSegments();
+        segments.addAll( getInsertSegments( xidHash ) );
+        return segments;
+    }
+
+
+    /**
+     * @return The bitmap of rows of a segment which have been deleted, including the rows deleted by the given transaction
+     */
+    BitSet getDeletedRows( final Segment segment, final String xidHash ) throws IOException {
+        BitSet deleted = segment.readBitmap( Segment.DELETED );
+        if ( segment.isCommitted() ) {
+            deleted.or( segment.readBitmap( DELETE_PREFIX + xidHash ) );
+        }
+        return deleted;
+    }
+
+
+    void delete( final Segment segment, final String xidHash, final BitSet rows ) throws IOException {
+        // Rows of segments written by the transaction itself are not visible to others and can be deleted directly
+        String bitmapName = segment.isCommitted() ? DELETE_PREFIX + xidHash : Segment.DELETED;
+        BitSet deleted = segment.readBitmap( bitmapName );
+        deleted.or( rows );
+        segment.writeBitmap( bitmapName, deleted );
+    }
+
+
+    /**
+     * Makes sure that neither the given rows nor the rows visible to a transaction contain the same primary key.
+     * Segments are skipped if the primary keys of the given rows are outside of their minimum and maximum values.
+     *
+     * @param pkMapping Indexes of the primary key columns in {@code columnIds}, see {@link #getPkMapping}
+     * @param replaced Rows per segment name which are replaced by the given rows and are therefore not checked, can be {@code null}
+     * @param message Message of the exception that is thrown in case of a conflict
+     */
+    void checkPrimaryKeys( final String xidHash, final Long[] columnIds, final PolyType[] columnTypes, final int[] pkMapping, final List<Object[]> rows, final Map<String, BitSet> replaced, final String message ) throws IOException {
+        PolyType firstPkType = columnTypes[pkMapping[0]];
+        Set<List<String>> keys = new HashSet<>();
+        Comparable min = null;
+        Comparable max = null;
+        for ( Object[] row : rows ) {
+            List<String> key = new ArrayList<>( pkMapping.length );
+            for ( int pkIndex : pkMapping ) {
+                key.add( row[pkIndex] == null ? null : new String( FileModifier.encode( row[pkIndex] ), FileStore.CHARSET ) );
+            }
+            if ( !keys.add( key ) ) {
+                throw new RuntimeException( message );
+            }
+            Comparable value = (Comparable) PolyTypeUtil.stringToObject( key.get( 0 ), firstPkType );
+            if ( value == null ) {
+                continue;
+            }
+            if ( min == null || value.compareTo( min ) < 0 ) {
+                min = value;
+            }
+            if ( max == null || value.compareTo( max ) > 0 ) {
+                max = value;
+            }
+        }
+
+        for ( Segment segment : getSegments( xidHash ) ) {
+            if ( segment.getRowCount() == 0 ) {
+                continue;
+            }
+            Comparable segmentMin = (Comparable) segment.getMin( columnIds[pkMapping[0]], firstPkType );
+            Comparable segmentMax = (Comparable) segment.getMax( columnIds[pkMapping[0]], firstPkType );
+            if ( min != null && segmentMin != null && segmentMax != null && (segmentMax.compareTo( min ) < 0 || segmentMin.compareTo( max ) > 0) ) {
+                continue;
+            }
+            Segment.Column[] pkColumns = new Segment.Column[pkMapping.length];
+            for ( int i = 0; i < pkMapping.length; i++ ) {
+                pkColumns[i] = segment.readColumn( columnIds[pkMapping[i]] );
+            }
+            BitSet skipped = getDeletedRows( segment, xidHash );
+            if ( replaced != null && replaced.containsKey( segment.getName() ) ) {
+                skipped.or( replaced.get( segment.getName() ) );
+            }
+            for ( int r = 0; r < segment.getRowCount(); r++ ) {
+                if ( skipped.get( r ) ) {
+                    continue;
+                }
+                List<String> key = new ArrayList<>( pkMapping.length );
+                for ( Segment.Column pkColumn : pkColumns ) {
+                    key.add( pkColumn.getString( r ) );
+                }
+                if ( keys.contains( key ) ) {
+                    throw new RuntimeException( message );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Appends rows to the insert segments of a transaction
+     */
+    void append( final String xidHash, final Long[] columnIds, final PolyType[] columnTypes, final List<Object[]> rows ) throws IOException {
+        int offset = 0;
+        while ( offset < rows.size() ) {
+            Segment segment = getAppendableSegment( xidHash );
+            int count = Math.min( rows.size() - offset, SEGMENT_SIZE - segment.getRowCount() );
+            segment.append( columnIds, columnTypes, rows.subList( offset, offset + count ) );
+            offset += count;
+        }
+    }
+
+
+    void commitOrRollback( final String xidHash, final boolean commit ) throws IOException {
+        synchronized ( SegmentTable.class ) {
+            List<Segment> committedSegments = getCommittedSegments();
+            for ( Segment segment : committedSegments ) {
+                File deleteBitmap = new File( segment.getFolder(), DELETE_PREFIX + xidHash );
+                if ( deleteBitmap.exists() ) {
+                    if ( commit ) {
+                        BitSet deleted = segment.readBitmap( Segment.DELETED );
+                        deleted.or( segment.readBitmap( deleteBitmap.getName() ) );
+                        segment.writeBitmap( Segment.DELETED, deleted );
+                    }
+                    Files.delete( deleteBitmap.toPath() );
+                }
+            }
+            int next = committedSegments.isEmpty() ? 0 : getSegmentNumber( committedSegments.get( committedSegments.size() - 1 ) ) + 1;
+            for ( Segment segment : getInsertSegments( xidHash ) ) {
+                if ( commit && segment.getRowCount() > 0 ) {
+                    File target = new File( folder, "seg" + next++ );
+                    Files.move( segment.getFolder().toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE );
+                } else {
+                    FileHelper.deleteDirRecursively( segment.getFolder() );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Adds a column to all segments, including the segments of running transactions
+     *
+     * @param defaultValue The encoded default value or {@code null}
+     */
+    void addColumn( final long columnId, final PolyType type, final byte[] defaultValue ) throws IOException {
+        for ( Segment segment : getAllSegments() ) {
+            segment.addColumn( columnId, type, defaultValue );
+        }
+    }
+
+
+    void dropColumn( final long columnId ) throws IOException {
+        for ( Segment segment : getAllSegments() ) {
+            segment.dropColumn( columnId );
+        }
+    }
+
+
+    private Segment getAppendableSegment( final String xidHash ) throws IOException {
+        List<Segment> insertSegments = getInsertSegments( xidHash );
+        if ( !insertSegments.isEmpty() ) {
+            Segment last = insertSegments.get( insertSegments.size() - 1 );
+            if ( last.getRowCount() < SEGMENT_SIZE && last.getByteCount() < SEGMENT_MAX_BYTES ) {
+                return last;
+            }
+        }
+        File newFolder = new File( folder, INSERT_PREFIX + xidHash + "_" + insertSegments.size() );
+        if ( !newFolder.mkdir() ) {
+            throw new RuntimeException( "Could not create segment folder " + newFolder.getAbsolutePath() );
+        }
+        return new Segment( newFolder, false );
+    }
+
+
+    private List<Segment> getCommittedSegments() throws IOException {
+        File[] folders = folder.listFiles( f -> f.isDirectory() && COMMITTED_SEGMENT.matcher( f.getName() ).matches() );
+        List<Segment> segments = new ArrayList<>();
+        if ( folders != null ) {
+            for ( File f : folders ) {
+                segments.add( new Segment( f, true ) );
+            }
+        }
+        segments.sort( Comparator.comparingInt( SegmentTable::getSegmentNumber ) );
+        return segments;
+    }
+
+
+    private List<Segment> getInsertSegments( final String xidHash ) throws IOException {
+        String prefix = INSERT_PREFIX + xidHash + "_";
+        File[] folders = folder.listFiles( f -> f.isDirectory() && f.getName().startsWith( prefix ) );
+        List<Segment> segments = new ArrayList<>();
+        if ( folders != null ) {
+            for ( File f : folders ) {
+                segments.add( new Segment( f, false ) );
+            }
+        }
+        segments.sort( Comparator.comparingInt( s -> Integer.parseInt( s.getName().substring( prefix.length() ) ) ) );
+        return segments;
+    }
+
+
+    private List<Segment> getAllSegments() throws IOException {
+        File[] folders = folder.listFiles( File::isDirectory );
+        List<Segment> segments = new ArrayList<>();
+        if ( folders != null ) {
+            for ( File f : folders ) {
+                segments.add( new Segment( f, COMMITTED_SEGMENT.matcher( f.getName() ).matches() ) );
+            }
+        }
+        return segments;
+    }
+
+
+    private static int getSegmentNumber( final Segment segment ) {
+        Matcher matcher = COMMITTED_SEGMENT.matcher( segment.getName() );
+        if ( !matcher.matches() ) {
+            throw new IllegalArgumentException( "Not a committed segment: " + segment.getName() );
+        }
+        return Integer.parseInt( matcher.group( 1 ) );
+    }
+
+
+    /**
+     * @return The indexes of the primary key columns in {@code columnIds} or {@code null} if the table has no primary key or not all of its columns are contained
+     */
+    static int[] getPkMapping( final Long[] columnIds, final List<Long> pkIds ) {
+        List<Long> columnIdList = Arrays.asList( columnIds );
+        if ( pkIds.isEmpty() || !columnIdList.containsAll( pkIds ) ) {
+            return null;
+        }
+        int[] pkMapping = new int[pkIds.size()];
+        for ( int i = 0; i < pkIds.size(); i++ ) {
+            pkMapping[i] = columnIdList.indexOf( pkIds.get( i ) );
+        }
+        return pkMapping;
+    }
+
+}
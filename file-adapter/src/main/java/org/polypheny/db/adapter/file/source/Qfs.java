@@ -30,6 +30,10 @@
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.adapter.Adapter.AdapterProperties;
@@ -65,6 +69,9 @@ public class Qfs extends DataSource {
     @Getter
     private File rootDir;
     private QfsSchema currentSchema;
+    private QfsDirectoryIndex directoryIndex;
+    private ExecutorService indexExecutor;
+    private final AtomicBoolean indexUpdatePending = new AtomicBoolean( false );
 
 
     public Qfs( int adapterId, String uniqueName, Map<String, String> settings ) {
@@ -79,6 +86,46 @@ private void init( final Map<String, String> settings ) {
         if ( !rootDir.exists() ) {
             throw new RuntimeException( "The specified root dir does not exist!" );
         }
+        directoryIndex = new QfsDirectoryIndex( rootDir );
+    }
+
+
+    /**
+     * Returns the number of entries below the root dir as of the last update and schedules an update in the background.
+     * Updating only lists the directories which have been modified since the previous update.
+     *
+     * @return The number of entries or {@code null} if it has not been counted yet
+     */
+    Long getEntryCount() {
+        QfsDirectoryIndex index = directoryIndex;
+        if ( indexUpdatePending.compareAndSet( false, true ) ) {
+            try {
+                getIndexExecutor().execute( () -> {
+                    indexUpdatePending.set( false );
+                    try {
+                        index.update();
+                    } catch ( IOException | RuntimeException e ) {
+                        log.warn( "Could not count the entries of the QFS root dir", e );
+                    }
+                } );
+            } catch ( RejectedExecutionException e ) {
+                // The adapter has been shut down
+                indexUpdatePending.set( false );
+            }
+        }
+        return index.getCount();
+    }
+
+
+    private synchronized ExecutorService getIndexExecutor() {
+        if ( indexExecutor == null ) {
+            indexExecutor = Executors.newSingleThreadExecutor( r -> {
+                Thread thread = new Thread( r, "QFS-Index-" + getUniqueName() );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+        return indexExecutor;
     }
 
 
@@ -126,8 +173,11 @@ public void rollback( PolyXid xid ) {
 
 
     @Override
-    public void shutdown() {
+    public synchronized void shutdown() {
         removeInformationPage();
+        if ( indexExecutor != null ) {
+            indexExecutor.shutdownNow();
+        }
     }
 
 
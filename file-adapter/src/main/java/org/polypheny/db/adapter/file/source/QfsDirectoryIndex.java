@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.file.source;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Counts the entries of the directory tree of a QFS data source, which is the number of rows of its table
+ * (see {@link QfsEnumerator}).
+ *
+ * For every directory, the number of its direct entries and its subdirectories are cached together with its modification
+ * time. Since creating, deleting or renaming an entry changes the modification time of the parent directory, only
+ * directories whose modification time has changed need to be listed again when the count is updated.
+ */
+class QfsDirectoryIndex {
+
+    private final File root;
+    private Map<Path, Directory> directories = new HashMap<>();
+    private volatile Long count = null;
+
+
+    QfsDirectoryIndex( File root ) {
+        this.root = root;
+    }
+
+
+    /**
+     * @return The number of entries at the time of the last update or {@code null} if the index has not been updated yet
+     */
+    Long getCount() {
+        return count;
+    }
+
+
+    /**
+     * Updates the count by listing all directories which have been modified since the last update.
+     */
+    synchronized void update() throws IOException {
+        Map<Path, Directory> updated = new HashMap<>();
+        Path rootPath = root.toPath();
+        long count = root.isHidden() ? 0 : 1;
+        List<Path> pending = new ArrayList<>();
+        pending.add( rootPath );
+        while ( !pending.isEmpty() ) {
+            Path path = pending.remove( pending.size() - 1 );
+            long modified = Files.getLastModifiedTime( path, LinkOption.NOFOLLOW_LINKS ).toMillis();
+            Directory directory = directories.get( path );
+            if ( directory == null || directory.modified != modified ) {
+                directory = list( path, modified );
+            }
+            updated.put( path, directory );
+            count += directory.entries;
+            pending.addAll( directory.subdirectories );
+        }
+        directories = updated;
+        this.count = count;
+    }
+
+
+    private static Directory list( Path path, long modified ) throws IOException {
+        Directory directory = new Directory( modified );
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( path ) ) {
+            for ( Path entry : stream ) {
+                // Like Files.walk, hidden directories are not counted but their content is
+                if ( !entry.toFile().isHidden() ) {
+                    directory.entries++;
+                }
+                if ( Files.isDirectory( entry, LinkOption.NOFOLLOW_LINKS ) ) {
+                    directory.subdirectories.add( entry );
+                }
+            }
+        }
+        return directory;
+    }
+
+
+    private static class Directory {
+
+        private final long modified;
+        private long entries = 0;
+        private final List<Path> subdirectories = new ArrayList<>();
+
+
+        private Directory( long modified ) {
+            this.modified = modified;
+        }
+
+    }
+
+}
@@ -17,6 +17,7 @@
 package org.polypheny.db.adapter.file.source;
 
 
+import com.google.common.collect.ImmutableList;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -47,6 +48,8 @@
 import org.polypheny.db.rel.type.RelProtoDataType;
 import org.polypheny.db.schema.SchemaPlus;
 import org.polypheny.db.schema.Schemas;
+import org.polypheny.db.schema.Statistic;
+import org.polypheny.db.schema.Statistics;
 import org.polypheny.db.schema.Table;
 import org.polypheny.db.schema.impl.AbstractSchema;
 import org.polypheny.db.type.PolyType;
@@ -85,6 +88,20 @@ public int getAdapterId() {
     }
 
 
+    /**
+     * The row count is the number of entries below the root dir, as counted by the last background update of the
+     * {@link QfsDirectoryIndex}.
+     */
+    @Override
+    public Statistic getStatistic( long tableId ) {
+        Long count = source.getEntryCount();
+        if ( count == null ) {
+            return Statistics.UNKNOWN;
+        }
+        return Statistics.of( count, ImmutableList.of() );
+    }
+
+
     @Override
     protected Map<String, Table> getTableMap() {
         return new HashMap<>( tableMap );
@@ -100,6 +100,10 @@ public class JdbcToEnumerableConverter extends ConverterImpl implements Enumerab
             ResultSetEnumerable.class,
             "setTimeout",
             DataContext.class );
+    public static final Method RESULT_SET_ENUMERABLE_SET_ESTIMATED_ROW_COUNT_METHOD = Types.lookupMethod(
+            ResultSetEnumerable.class,
+            "setEstimatedRowCount",
+            double.class );
     public static final Method RESULT_SET_ENUMERABLE_OF_METHOD = Types.lookupMethod(
             ResultSetEnumerable.class,
             "of",
@@ -249,6 +253,15 @@ public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
                                 enumerable,
                                 RESULT_SET_ENUMERABLE_SET_TIMEOUT_METHOD,
                                 DataContext.ROOT ) ) );
+        // Used to decide whether the result is streamed; the estimate may be unknown or infinite
+        final Double rowCount = getCluster().getMetadataQuery().getRowCount( child );
+        final double estimatedRowCount = rowCount == null || rowCount.isNaN() || rowCount.isInfinite() ? -1 : rowCount;
+        builder0.add(
+                Expressions.statement(
+                        Expressions.call(
+                                enumerable,
+                                RESULT_SET_ENUMERABLE_SET_ESTIMATED_ROW_COUNT_METHOD,
+                                Expressions.constant( estimatedRowCount, double.class ) ) ) );
         builder0.add( Expressions.return_( null, enumerable ) );
         return implementor.result( physType, builder0.toBlock() );
     }
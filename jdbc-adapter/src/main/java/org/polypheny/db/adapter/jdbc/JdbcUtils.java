@@ -61,6 +61,7 @@
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionFactory;
+import org.polypheny.db.adapter.jdbc.connection.PreparedStatementCache;
 import org.polypheny.db.information.Information;
 import org.polypheny.db.information.InformationGraph;
 import org.polypheny.db.information.InformationGraph.GraphData;
@@ -79,11 +80,35 @@
  */
 public final class JdbcUtils {
 
+    /**
+     * Fetch size used for adapters which have been created before the setting was introduced.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+
     private JdbcUtils() {
         throw new AssertionError( "no instances!" );
     }
 
 
+    /**
+     * Returns the fetch size configured in the settings of a JDBC adapter.
+     *
+     * @param settings The settings of the adapter
+     * @return The number of rows to fetch per round trip; zero leaves the decision to the driver
+     */
+    public static int getFetchSize( Map<String, String> settings ) {
+        if ( settings.get( "fetchSize" ) == null ) {
+            return DEFAULT_FETCH_SIZE;
+        }
+        final int fetchSize = Integer.parseInt( settings.get( "fetchSize" ) );
+        if ( fetchSize < 0 ) {
+            throw new RuntimeException( "Invalid value for fetchSize: " + fetchSize );
+        }
+        return fetchSize;
+    }
+
+
     /**
      * Pool of dialects.
      */
@@ -317,5 +342,36 @@ public static void addInformationPoolSize( InformationPage informationPage, List
 
     }
 
+
+    /**
+     * Builds and adds an new information group, observing the prepared statement caches of the connections, to the
+     * provided information objects
+     *
+     * @param informationPage The information page used to show information on this jdbc adapter
+     * @param groups The collection of information groups associated with this adapter
+     * @param informationElements The collection of information elements associated with this adapter
+     */
+    public static void addInformationStatementCache( InformationPage informationPage, List<InformationGroup> groups, List<Information> informationElements, ConnectionFactory connectionFactory ) {
+        InformationGroup group = new InformationGroup( informationPage, "Prepared Statement Cache" );
+
+        InformationTable statementCacheTable = new InformationTable(
+                group,
+                Arrays.asList( "Attribute", "Value" ) );
+        informationElements.add( statementCacheTable );
+
+        group.setRefreshFunction( () -> {
+            PreparedStatementCache cache = connectionFactory.getStatementCache();
+            statementCacheTable.reset();
+            statementCacheTable.addRow( "Hits", cache.getHits() );
+            statementCacheTable.addRow( "Misses", cache.getMisses() );
+            statementCacheTable.addRow( "Hit Rate", String.format( "%.1f %%", cache.getHitRate() * 100 ) );
+            statementCacheTable.addRow( "Evictions", cache.getEvictions() );
+            statementCacheTable.addRow( "Cached Statements", cache.getSize() );
+            statementCacheTable.addRow( "Max per Connection", cache.getMaxSize() );
+        } );
+
+        groups.add( group );
+    }
+
 }
 
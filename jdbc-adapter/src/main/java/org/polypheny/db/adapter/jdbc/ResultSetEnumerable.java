@@ -78,6 +78,7 @@
 import org.apache.calcite.linq4j.tree.Primitive;
 import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionHandler;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.rel.type.RelDataType;
 import org.polypheny.db.sql.SqlDialect.IntervalParameterStrategy;
 import org.polypheny.db.type.IntervalPolyType;
@@ -108,6 +109,7 @@
     private Long queryStart;
     private long timeout;
     private boolean timeoutSetFailed;
+    private double estimatedRowCount = -1;
 
     private static final Function1<ResultSet, Function0<Object>> AUTO_ROW_BUILDER_FACTORY =
             resultSet -> {
@@ -235,35 +237,100 @@ public void setTimeout( DataContext context ) {
     }
 
 
+    /**
+     * Sets the number of rows the planner expects this query to return. It is used to decide whether the result set is
+     * streamed using the fetch size of the connection handler. A negative value means that the size is unknown.
+     */
+    public void setEstimatedRowCount( double estimatedRowCount ) {
+        this.estimatedRowCount = estimatedRowCount;
+    }
+
+
     /**
      * Called from generated code that proposes to create a {@code ResultSetEnumerable} over a prepared statement.
+     *
+     * If there are multiple sets of parameter values, they are added to a batch. To limit the memory required by the
+     * driver, the batch is executed whenever the approximate size of its values exceeds
+     * {@link RuntimeConfig#JDBC_BATCH_SIZE_BYTES}.
      */
     public static PreparedStatementEnricher createEnricher( Integer[] indexes, DataContext context ) {
         return ( preparedStatement, connectionHandler ) -> {
-            boolean batch = false;
-            if ( context.getParameterValues().size() > 1 ) {
-                batch = true;
+            final boolean batch = context.getParameterValues().size() > 1;
+            final long maxBatchSize = RuntimeConfig.JDBC_BATCH_SIZE_BYTES.getInteger();
+            final int[] sqlTypes = new int[indexes.length];
+            for ( int i = 0; i < indexes.length; i++ ) {
+                sqlTypes[i] = preparedStatement.getParameterMetaData().getParameterType( i + 1 );
             }
+            long updateCount = 0;
+            long batchSize = 0;
             for ( Map<Long, Object> values : context.getParameterValues() ) {
                 for ( int i = 0; i < indexes.length; i++ ) {
                     final long index = indexes[i];
+                    final Object value = values.get( index );
                     setDynamicParam(
                             preparedStatement,
                             i + 1,
-                            values.get( index ),
+                            value,
                             context.getParameterType( index ),
-                            preparedStatement.getParameterMetaData().getParameterType( i + 1 ),
+                            sqlTypes[i],
                             connectionHandler );
+                    if ( batch ) {
+                        batchSize += estimateSize( value );
+                    }
                 }
                 if ( batch ) {
                     preparedStatement.addBatch();
+                    if ( maxBatchSize > 0 && batchSize >= maxBatchSize ) {
+                        updateCount += sumUpdateCounts( preparedStatement.executeBatch() );
+                        batchSize = 0;
+                    }
                 }
             }
-            return batch;
+            return batch ? updateCount : -1;
         };
     }
 
 
+    /**
+     * Approximates the number of bytes required for transferring a parameter value.
+     */
+    private static long estimateSize( Object value ) {
+        if ( value == null ) {
+            return 1;
+        } else if ( value instanceof Number || value instanceof Boolean ) {
+            return 8;
+        } else if ( value instanceof String ) {
+            return ((String) value).length();
+        } else if ( value instanceof NlsString ) {
+            return ((NlsString) value).getValue().length();
+        } else if ( value instanceof byte[] ) {
+            return ((byte[]) value).length;
+        } else if ( value instanceof ByteString ) {
+            return ((ByteString) value).length();
+        } else if ( value instanceof List ) {
+            long size = 0;
+            for ( Object o : (List<?>) value ) {
+                size += estimateSize( o );
+            }
+            return size;
+        }
+        return 16;
+    }
+
+
+    /**
+     * Sums the update counts of an executed batch. Drivers which do not report the number of affected rows return
+     * {@link Statement#SUCCESS_NO_INFO}; these statements are counted as one row.
+     */
+    private static long sumUpdateCounts( int[] updateCounts ) {
+        long sum = 0;
+        for ( int updateCount : updateCounts ) {
+            sum += updateCount == Statement.SUCCESS_NO_INFO ? 1 : updateCount;
+        }
+        return sum;
+    }
+
+
     /**
      * Assigns a value to a dynamic parameter in a prepared statement, calling the appropriate {@code setXxx}
      * method based on the type of the parameter.
@@ -454,10 +521,11 @@ private Enumerator<T> enumeratorBasedOnStatement() {
         try {
             statement = connectionHandler.getStatement();
             setTimeoutIfPossible( statement );
+            setFetchSizeIfRequired( statement );
             if ( statement.execute( sql ) ) {
-                final ResultSet resultSet = statement.getResultSet();
+                final ResultSetEnumerator<T> enumerator = new ResultSetEnumerator<>( statement.getResultSet(), statement, connectionHandler, rowBuilderFactory );
                 statement = null;
-                return new ResultSetEnumerator<>( resultSet, rowBuilderFactory );
+                return enumerator;
             } else {
                 Integer updateCount = statement.getUpdateCount();
                 return Linq4j.singletonEnumerator( (T) updateCount );
@@ -475,16 +543,17 @@ private Enumerator<T> enumeratorBasedOnPreparedStatement() {
         try {
             preparedStatement = connectionHandler.prepareStatement( sql );
             setTimeoutIfPossible( preparedStatement );
-            if ( preparedStatementEnricher.enrich( preparedStatement, connectionHandler ) ) {
+            setFetchSizeIfRequired( preparedStatement );
+            final long flushedUpdateCount = preparedStatementEnricher.enrich( preparedStatement, connectionHandler );
+            if ( flushedUpdateCount >= 0 ) {
                 // batch
-                preparedStatement.executeBatch();
-                Integer updateCount = preparedStatement.getUpdateCount();
+                Integer updateCount = (int) (flushedUpdateCount + sumUpdateCounts( preparedStatement.executeBatch() ));
                 return Linq4j.singletonEnumerator( (T) updateCount );
             } else {
                 if ( preparedStatement.execute() ) {
-                    final ResultSet resultSet = preparedStatement.getResultSet();
+                    final ResultSetEnumerator<T> enumerator = new ResultSetEnumerator<>( preparedStatement.getResultSet(), preparedStatement, connectionHandler, rowBuilderFactory );
                     preparedStatement = null;
-                    return new ResultSetEnumerator<>( resultSet, rowBuilderFactory );
+                    return enumerator;
                 } else {
                     Integer updateCount = preparedStatement.getUpdateCount();
                     return Linq4j.singletonEnumerator( (T) updateCount );
@@ -500,6 +569,10 @@ private Enumerator<T> enumeratorBasedOnPreparedStatement() {
 
     private void setTimeoutIfPossible( Statement statement ) throws SQLException {
         if ( timeout == 0 ) {
+            // Prepared statements are reused, so a timeout of a previous execution might still be set
+            if ( statement instanceof PreparedStatement && !timeoutSetFailed && statement.getQueryTimeout() != 0 ) {
+                statement.setQueryTimeout( 0 );
+            }
             return;
         }
         long now = System.currentTimeMillis();
@@ -523,13 +596,31 @@ private void setTimeoutIfPossible( Statement statement ) throws SQLException {
     }
 
 
+    /**
+     * Sets the fetch size of the statement if the result is expected to be larger than one fetch. The rows are then
+     * streamed in chunks using a cursor instead of being buffered entirely before the first row is returned. Smaller
+     * results are transferred in a single round trip, which avoids the overhead of a cursor.
+     */
+    private void setFetchSizeIfRequired( Statement statement ) throws SQLException {
+        final int fetchSize = connectionHandler.getFetchSize();
+        if ( fetchSize <= 0 || (estimatedRowCount >= 0 && estimatedRowCount <= fetchSize) ) {
+            // Prepared statements are reused, so reset a fetch size set by a previous execution
+            if ( statement instanceof PreparedStatement && statement.getFetchSize() > 0 ) {
+                statement.setFetchSize( 0 );
+            }
+            return;
+        }
+        try {
+            statement.setFetchSize( fetchSize );
+        } catch ( SQLFeatureNotSupportedException e ) {
+            log.debug( "Failed to set fetch size {}", fetchSize, e );
+        }
+    }
+
+
     private void closeIfPossible( Statement statement ) {
         if ( statement != null ) {
-            try {
-                statement.close();
-            } catch ( SQLException e ) {
-                // ignore
-            }
+            connectionHandler.releaseStatement( statement );
         }
     }
 
@@ -542,11 +633,15 @@ private void closeIfPossible( Statement statement ) {
     private static class ResultSetEnumerator<T> implements Enumerator<T> {
 
         private final Function0<T> rowBuilder;
+        private final Statement statement;
+        private final ConnectionHandler connectionHandler;
         private ResultSet resultSet;
 
 
-        ResultSetEnumerator( ResultSet resultSet, Function1<ResultSet, Function0<T>> rowBuilderFactory ) {
+        ResultSetEnumerator( ResultSet resultSet, Statement statement, ConnectionHandler connectionHandler, Function1<ResultSet, Function0<T>> rowBuilderFactory ) {
             this.resultSet = resultSet;
+            this.statement = statement;
+            this.connectionHandler = connectionHandler;
             this.rowBuilder = rowBuilderFactory.apply( resultSet );
         }
 
@@ -581,20 +676,14 @@ public void reset() {
         public void close() {
             ResultSet savedResultSet = resultSet;
             if ( savedResultSet != null ) {
+                resultSet = null;
                 try {
-                    resultSet = null;
-                    final Statement statement = savedResultSet.getStatement();
                     savedResultSet.close();
-                    if ( statement != null ) {
-                        //final Connection connection = statement.getConnection();
-                        statement.close();
-                        /*if ( connection != null ) {
-                            connection.close();
-                        }*/
-                    }
                 } catch ( SQLException e ) {
                     // ignore
                 }
+                // Prepared statements are kept open for reuse by the connection handler
+                connectionHandler.releaseStatement( statement );
             }
         }
 
@@ -643,8 +732,13 @@ public void close() {
      */
     public interface PreparedStatementEnricher {
 
-        // returns true if this needs to be executed as batch
-        boolean enrich( PreparedStatement statement, ConnectionHandler connectionHandler ) throws SQLException;
+        /**
+         * Sets the parameters of the statement.
+         *
+         * @return -1 if the statement is not executed as a batch. Otherwise, the parameters have been added to the batch
+         * and the number of rows affected by parts of the batch which have already been executed is returned.
+         */
+        long enrich( PreparedStatement statement, ConnectionHandler connectionHandler ) throws SQLException;
 
     }
 
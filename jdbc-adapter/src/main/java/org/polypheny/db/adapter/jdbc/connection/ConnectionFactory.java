@@ -37,4 +37,17 @@ public interface ConnectionFactory {
     int getNumActive();
 
     int getNumIdle();
+
+    /**
+     * Sets the number of rows which are fetched per round trip when large result sets are streamed from the database.
+     * It applies to connection handlers which are handed out afterwards.
+     *
+     * @param fetchSize The number of rows; zero leaves the decision to the driver
+     */
+    void setFetchSize( int fetchSize );
+
+    /**
+     * @return The settings and statistics of the prepared statement caches of the connection handlers
+     */
+    PreparedStatementCache getStatementCache();
 }
@@ -23,7 +23,13 @@
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.sql.SqlDialect;
 
@@ -43,9 +49,36 @@ public abstract class ConnectionHandler {
      */
     protected ConcurrentLinkedQueue<Statement> openStatements;
 
+    /**
+     * Number of rows fetched per round trip when a large result set is streamed from the database. Zero means that the
+     * driver decides, which usually means that the whole result set is transferred at once.
+     */
+    @Getter
+    protected int fetchSize;
+
+    /**
+     * Settings and statistics of the prepared statement cache; {@code null} disables caching.
+     */
+    protected PreparedStatementCache statementCache;
+
+    /**
+     * Prepared statements of this connection which are kept open for reuse, by SQL in least recently used order.
+     */
+    private final Map<String, PreparedStatement> cachedStatements = new LinkedHashMap<>( 16, 0.75f, true );
+
+    /**
+     * Prepared statements handed out by {@link #prepareStatement(String)} which have not yet been released, with the SQL
+     * used to create them.
+     */
+    private final Map<PreparedStatement, String> statementsInUse = new IdentityHashMap<>();
+
+    private long cacheVersion;
+
 
     public int executeUpdate( final String sql ) throws SQLException {
         log.trace( "Executing query on database: {}", sql );
+        // This is used for changing the schema, which might invalidate prepared statements
+        invalidateStatementCache();
         return statement.executeUpdate( sql );
     }
 
@@ -58,6 +91,7 @@ public ResultSet executeQuery( final String sql ) throws SQLException {
 
     public void execute( final String sql ) throws SQLException {
         log.trace( "Executing query on database: {}", sql );
+        invalidateStatementCache();
         statement.execute( sql );
     }
 
@@ -72,16 +106,139 @@ public Statement getStatement() throws SQLException {
     }
 
 
+    /**
+     * Returns a prepared statement for the given SQL. If a statement for the same SQL has been prepared on this connection
+     * before and is not in use, it is reused. Statements obtained using this method have to be returned using
+     * {@link #releaseStatement(Statement)} instead of closing them.
+     */
     public PreparedStatement prepareStatement( String sql ) throws SQLException {
         if ( openStatements == null ) {
             openStatements = new ConcurrentLinkedQueue<>();
         }
-        PreparedStatement preparedStatement = connection.prepareStatement( sql );
+        if ( statementCache != null && statementCache.getMaxSize() > 0 ) {
+            synchronized ( cachedStatements ) {
+                if ( cacheVersion != statementCache.getVersion() ) {
+                    clearStatementCache();
+                    cacheVersion = statementCache.getVersion();
+                }
+                PreparedStatement cached = cachedStatements.get( sql );
+                if ( cached != null && cached.isClosed() ) {
+                    // The statement has been closed by the driver, replace it
+                    cachedStatements.remove( sql );
+                    statementCache.removed( 1, false );
+                    cached = null;
+                }
+                if ( cached != null && !statementsInUse.containsKey( cached ) ) {
+                    statementCache.hit();
+                    cached.clearParameters();
+                    cached.clearBatch();
+                    statementsInUse.put( cached, sql );
+                    return cached;
+                }
+                statementCache.miss();
+                if ( cached == null ) {
+                    PreparedStatement preparedStatement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+                    cachedStatements.put( sql, preparedStatement );
+                    statementCache.added();
+                    statementsInUse.put( preparedStatement, sql );
+                    evictStatements();
+                    return preparedStatement;
+                }
+                // The cached statement is in use, e.g. because the same query is executed twice in a plan. Use a
+                // statement which is closed at the end of the transaction.
+            }
+        }
+        PreparedStatement preparedStatement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
         openStatements.add( preparedStatement );
         return preparedStatement;
     }
 
 
+    /**
+     * Releases a statement which is no longer used. Statements kept in the prepared statement cache remain open, all
+     * other statements are closed.
+     */
+    public void releaseStatement( Statement statement ) {
+        if ( statement instanceof PreparedStatement ) {
+            synchronized ( cachedStatements ) {
+                final String sql = statementsInUse.remove( statement );
+                if ( sql != null && cachedStatements.get( sql ) == statement ) {
+                    return;
+                }
+            }
+        }
+        try {
+            statement.close();
+        } catch ( SQLException e ) {
+            // ignore
+        }
+    }
+
+
+    /**
+     * Releases all statements which are still in use, e.g. because an enumerator has not been closed. This is called
+     * when the transaction of this handler has ended.
+     */
+    protected void releaseStatementsInUse() {
+        synchronized ( cachedStatements ) {
+            for ( Entry<PreparedStatement, String> entry : statementsInUse.entrySet() ) {
+                if ( cachedStatements.get( entry.getValue() ) != entry.getKey() ) {
+                    closeQuietly( entry.getKey() );
+                }
+            }
+            statementsInUse.clear();
+        }
+    }
+
+
+    /**
+     * Closes all cached prepared statements of this connection, e.g. before the connection is closed.
+     */
+    public void clearStatementCache() {
+        synchronized ( cachedStatements ) {
+            if ( !cachedStatements.isEmpty() ) {
+                statementCache.removed( cachedStatements.size(), false );
+                for ( PreparedStatement preparedStatement : cachedStatements.values() ) {
+                    // Statements which are in use are closed when they are released
+                    if ( !statementsInUse.containsKey( preparedStatement ) ) {
+                        closeQuietly( preparedStatement );
+                    }
+                }
+                cachedStatements.clear();
+            }
+        }
+    }
+
+
+    private void invalidateStatementCache() {
+        if ( statementCache != null ) {
+            statementCache.invalidate();
+        }
+    }
+
+
+    private void evictStatements() {
+        final Iterator<Entry<String, PreparedStatement>> iterator = cachedStatements.entrySet().iterator();
+        while ( cachedStatements.size() > statementCache.getMaxSize() && iterator.hasNext() ) {
+            final PreparedStatement eldest = iterator.next().getValue();
+            iterator.remove();
+            statementCache.removed( 1, true );
+            if ( !statementsInUse.containsKey( eldest ) ) {
+                closeQuietly( eldest );
+            }
+        }
+    }
+
+
+    private static void closeQuietly( Statement statement ) {
+        try {
+            statement.close();
+        } catch ( SQLException e ) {
+            log.debug( "Exception while closing a cached prepared statement", e );
+        }
+    }
+
+
     public abstract boolean prepare() throws ConnectionHandlerException;
 
     public abstract void commit() throws ConnectionHandlerException;
@@ -93,7 +250,7 @@ private Statement createStatement() throws SQLException {
         if ( openStatements == null ) {
             openStatements = new ConcurrentLinkedQueue<>();
         }
-        Statement statement = connection.createStatement();
+        Statement statement = connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
         openStatements.add( statement );
         return statement;
     }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.jdbc.connection;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+
+
+/**
+ * Settings and statistics of the prepared statement caches of all connection handlers created by a connection factory.
+ *
+ * Every {@link ConnectionHandler} keeps the prepared statements of its physical connection in a least recently used
+ * cache. This class holds the maximum size of these caches, counts hits and misses, and allows invalidating all caches,
+ * e.g. after the schema of the underlying database has been changed.
+ */
+public class PreparedStatementCache {
+
+    /**
+     * Default maximum number of prepared statements cached per connection.
+     */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    /**
+     * Maximum number of prepared statements cached per connection; zero disables caching.
+     */
+    @Getter
+    private final int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+
+
+    public PreparedStatementCache( int maxSize ) {
+        if ( maxSize < 0 ) {
+            throw new IllegalArgumentException( "Invalid cache size: " + maxSize );
+        }
+        this.maxSize = maxSize;
+    }
+
+
+    public PreparedStatementCache() {
+        this( DEFAULT_MAX_SIZE );
+    }
+
+
+    /**
+     * Invalidates the cached statements of all connections. They are closed when the connection handler is used the
+     * next time.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+
+    long getVersion() {
+        return version.get();
+    }
+
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+
+    void added() {
+        size.incrementAndGet();
+    }
+
+
+    void removed( int count, boolean evicted ) {
+        size.addAndGet( -count );
+        if ( evicted ) {
+            evictions.addAndGet( count );
+        }
+    }
+
+
+    public long getHits() {
+        return hits.get();
+    }
+
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+
+    /**
+     * @return The number of statements currently cached by all connections
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+
+    /**
+     * @return The share of requests served from the cache or zero if there have not been any requests yet
+     */
+    public double getHitRate() {
+        final long hits = getHits();
+        final long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+}
@@ -41,6 +41,9 @@ public class TransactionalConnectionFactory implements ConnectionFactory {
     protected final Queue<TransactionalConnectionHandler> freeInstances;
 
     private final int maxConnections;
+    private volatile int fetchSize = 0;
+    @Getter
+    private final PreparedStatementCache statementCache = new PreparedStatementCache();
     private final BasicDataSource dataSource;
 
     private final SqlDialect dialect;
@@ -61,6 +64,7 @@ public TransactionalConnectionHandler getOrCreateConnectionHandler( Xid xid ) th
         if ( !activeInstances.containsKey( xid ) ) {
             TransactionalConnectionHandler transactionHandler = getFreeTransactionHandler();
             transactionHandler.xid = xid;
+            transactionHandler.fetchSize = fetchSize;
             activeInstances.put( xid, transactionHandler );
             return transactionHandler;
         }
@@ -131,6 +135,15 @@ public int getNumIdle() {
     }
 
 
+    @Override
+    public void setFetchSize( int fetchSize ) {
+        if ( fetchSize < 0 ) {
+            throw new IllegalArgumentException( "Invalid fetch size: " + fetchSize );
+        }
+        this.fetchSize = fetchSize;
+    }
+
+
     public class TransactionalConnectionHandler extends ConnectionHandler {
 
         private Xid xid;
@@ -144,6 +157,7 @@ public class TransactionalConnectionHandler extends ConnectionHandler {
             try {
                 this.connection = connection;
                 this.statement = connection.createStatement();
+                this.statementCache = TransactionalConnectionFactory.this.statementCache;
                 this.dialect = dialect;
             } catch ( SQLException e ) {
                 throw new ConnectionHandlerException( "Error while connecting to database!", e );
@@ -193,6 +207,7 @@ private void close() {
             } catch ( SQLException e ) {
                 log.debug( "Exception while closing connections in connection handler", e );
             } finally {
+                releaseStatementsInUse();
                 openStatements = null;
                 activeInstances.remove( xid );
                 xid = null;
@@ -43,6 +43,9 @@ public class XaConnectionFactory implements ConnectionFactory {
     protected final Queue<XaConnectionHandler> freeInstances;
 
     private final int maxConnections;
+    private volatile int fetchSize = 0;
+    @Getter
+    private final PreparedStatementCache statementCache = new PreparedStatementCache();
     private final XADataSource dataSource;
 
     @Getter
@@ -64,6 +67,7 @@ public XaConnectionHandler getOrCreateConnectionHandler( Xid xid ) throws Connec
         if ( !activeInstances.containsKey( xid ) ) {
             XaConnectionHandler xaConnectionHandler = getFreeTransactionHandler();
             xaConnectionHandler.init( xid );
+            xaConnectionHandler.fetchSize = fetchSize;
             activeInstances.put( xid, xaConnectionHandler );
             return xaConnectionHandler;
         }
@@ -134,6 +138,15 @@ public int getNumIdle() {
     }
 
 
+    @Override
+    public void setFetchSize( int fetchSize ) {
+        if ( fetchSize < 0 ) {
+            throw new IllegalArgumentException( "Invalid fetch size: " + fetchSize );
+        }
+        this.fetchSize = fetchSize;
+    }
+
+
     public class XaConnectionHandler extends ConnectionHandler {
 
         private final XAResource xaResource;
@@ -149,6 +162,7 @@ public class XaConnectionHandler extends ConnectionHandler {
                 xaResource = xaConnection.getXAResource();
                 connection = xaConnection.getConnection();
                 statement = connection.createStatement();
+                this.statementCache = XaConnectionFactory.this.statementCache;
                 this.dialect = dialect;
             } catch ( SQLException e ) {
                 throw new ConnectionHandlerException( "Error while connecting to database!", e );
@@ -216,6 +230,7 @@ private void close() {
             } catch ( SQLException e ) {
                 log.debug( "Exception while closing connections in connection handler", e );
             } finally {
+                releaseStatementsInUse();
                 openStatements = null;
                 activeInstances.remove( xid );
                 xid = null;
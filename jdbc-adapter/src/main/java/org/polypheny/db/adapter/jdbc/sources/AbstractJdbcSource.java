@@ -64,6 +64,7 @@ public AbstractJdbcSource(
             boolean readOnly ) {
         super( storeId, uniqueName, settings, readOnly );
         this.connectionFactory = createConnectionFactory( settings, MysqlSqlDialect.DEFAULT, diverClass );
+        this.connectionFactory.setFetchSize( JdbcUtils.getFetchSize( settings ) );
         this.dialect = dialect;
         // Register the JDBC Pool Size as information in the information manager and enable it
         registerInformationPage();
@@ -72,6 +73,7 @@ public AbstractJdbcSource(
 
     protected void registerInformationPage() {
         JdbcUtils.addInformationPoolSize( informationPage, informationGroups, informationElements, connectionFactory, getUniqueName() );
+        JdbcUtils.addInformationStatementCache( informationPage, informationGroups, informationElements, connectionFactory );
         addInformationPhysicalNames();
         enableInformationPage();
     }
@@ -74,6 +74,7 @@ public AbstractJdbcStore(
         } else {
             throw new RuntimeException( "Unknown deploy mode: " + deployMode.name() );
         }
+        connectionFactory.setFetchSize( JdbcUtils.getFetchSize( settings ) );
 
         // Register the JDBC Pool Size as information in the information manager and enable it
         registerJdbcInformation();
@@ -97,6 +98,7 @@ protected ConnectionFactory deployRemote() {
 
     protected void registerJdbcInformation() {
         JdbcUtils.addInformationPoolSize( informationPage, informationGroups, informationElements, connectionFactory, getUniqueName() );
+        JdbcUtils.addInformationStatementCache( informationPage, informationGroups, informationElements, connectionFactory );
         addInformationPhysicalNames();
         enableInformationPage();
     }
@@ -39,6 +39,7 @@
         usedModes = DeployMode.EMBEDDED)
 @AdapterSettingList(name = "tableType", options = { "Memory", "Cached" }, position = 1)
 @AdapterSettingInteger(name = "maxConnections", defaultValue = 25)
+@AdapterSettingInteger(name = "fetchSize", defaultValue = 1000, required = false)
 @AdapterSettingList(name = "trxControlMode", options = { "locks", "mvlocks", "mvcc" })
 @AdapterSettingList(name = "trxIsolationLevel", options = { "read_committed", "serializable" })
 @AdapterSettingList(name = "type", options = { "Memory", "File" })
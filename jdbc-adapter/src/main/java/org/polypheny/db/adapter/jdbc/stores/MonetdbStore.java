@@ -63,6 +63,7 @@
 @AdapterSettingString(name = "username", defaultValue = "polypheny", description = "Name of the database to connect to.", position = 4, appliesTo = DeploySetting.REMOTE)
 @AdapterSettingString(name = "password", defaultValue = "polypheny", description = "Username to be used for authenticating at the remote instance.")
 @AdapterSettingInteger(name = "maxConnections", defaultValue = 25, description = "Password to be used for authenticating at the remote instance.")
+@AdapterSettingInteger(name = "fetchSize", defaultValue = 1000, required = false, description = "Number of rows fetched per round trip (0 lets the driver decide).")
 public class MonetdbStore extends AbstractJdbcStore {
 
     private String host;
@@ -69,6 +69,8 @@
         description = "Password to be used for authenticating at the remote instance.")
 @AdapterSettingInteger(name = "maxConnections", defaultValue = 25,
         description = "Maximum number of concurrent JDBC connections.")
+@AdapterSettingInteger(name = "fetchSize", defaultValue = 1000, required = false,
+        description = "Number of rows fetched per round trip (0 lets the driver decide).")
 public class PostgresqlStore extends AbstractJdbcStore {
 
     private String host;
@@ -118,6 +120,8 @@ private ConnectionFactory createConnectionFactory() {
         dataSource.setPassword( settings.get( "password" ) );
         dataSource.setDefaultAutoCommit( false );
         dataSource.setDefaultTransactionIsolation( Connection.TRANSACTION_READ_UNCOMMITTED );
+        // Let the driver send batched inserts as multi-row INSERT statements
+        dataSource.addConnectionProperty( "reWriteBatchedInserts", "true" );
         return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), dialect );
     }
 
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.jdbc.connection;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.polypheny.db.sql.dialect.HsqldbSqlDialect;
+import org.polypheny.db.transaction.PUID;
+import org.polypheny.db.transaction.PUID.Type;
+import org.polypheny.db.transaction.PolyXid;
+
+
+/**
+ * Tests the prepared statement cache of the {@link ConnectionHandler} using an in-memory HSQLDB.
+ */
+public class PreparedStatementCacheTest {
+
+    private static final String SELECT = "SELECT id FROM cachetest WHERE id >= ?";
+
+    private TransactionalConnectionFactory connectionFactory;
+    private ConnectionHandler handler;
+
+
+    @Before
+    public void setUp() throws Exception {
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setDriverClassName( "org.hsqldb.jdbcDriver" );
+        dataSource.setUrl( "jdbc:hsqldb:mem:statementcachetest" );
+        dataSource.setUsername( "sa" );
+        dataSource.setPassword( "" );
+        dataSource.setDefaultAutoCommit( false );
+        connectionFactory = new TransactionalConnectionFactory( dataSource, 1, HsqldbSqlDialect.DEFAULT );
+        handler = connectionFactory.getOrCreateConnectionHandler( newXid() );
+        handler.executeUpdate( "CREATE TABLE cachetest ( id INTEGER )" );
+        handler.executeUpdate( "INSERT INTO cachetest VALUES (1), (2), (3)" );
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        handler.executeUpdate( "DROP TABLE cachetest" );
+        handler.commit();
+        handler.clearStatementCache();
+        connectionFactory.close();
+    }
+
+
+    @Test
+    public void testReuse() throws Exception {
+        PreparedStatementCache cache = connectionFactory.getStatementCache();
+
+        PreparedStatement first = handler.prepareStatement( SELECT );
+        assertEquals( 3, count( first, 1 ) );
+        handler.releaseStatement( first );
+        assertFalse( first.isClosed() );
+
+        // The statement is reused after it has been released, also in another transaction
+        handler.commit();
+        handler = connectionFactory.getOrCreateConnectionHandler( newXid() );
+        PreparedStatement second = handler.prepareStatement( SELECT );
+        assertSame( first, second );
+        assertEquals( 2, count( second, 2 ) );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+
+        // Statements which are in use are not handed out twice
+        PreparedStatement third = handler.prepareStatement( SELECT );
+        assertNotSame( second, third );
+        assertEquals( 1, count( third, 3 ) );
+        handler.releaseStatement( third );
+        handler.releaseStatement( second );
+        assertTrue( third.isClosed() );
+        assertFalse( second.isClosed() );
+        assertEquals( 1, cache.getSize() );
+    }
+
+
+    @Test
+    public void testEviction() throws Exception {
+        PreparedStatementCache cache = connectionFactory.getStatementCache();
+        PreparedStatement first = handler.prepareStatement( SELECT );
+        handler.releaseStatement( first );
+        for ( int i = 0; i < cache.getMaxSize(); i++ ) {
+            handler.releaseStatement( handler.prepareStatement( SELECT + " AND id <> " + i ) );
+        }
+        assertEquals( cache.getMaxSize(), cache.getSize() );
+        assertEquals( 1, cache.getEvictions() );
+        assertTrue( first.isClosed() );
+    }
+
+
+    @Test
+    public void testInvalidation() throws Exception {
+        PreparedStatement first = handler.prepareStatement( SELECT );
+        handler.releaseStatement( first );
+
+        // Changing the schema invalidates the cached statements
+        handler.executeUpdate( "ALTER TABLE cachetest ADD COLUMN name VARCHAR(20)" );
+        PreparedStatement second = handler.prepareStatement( SELECT );
+        assertNotSame( first, second );
+        assertTrue( first.isClosed() );
+        assertEquals( 3, count( second, 0 ) );
+        handler.releaseStatement( second );
+    }
+
+
+    @Test
+    public void testClosedStatementReplaced() throws Exception {
+        PreparedStatementCache cache = connectionFactory.getStatementCache();
+        PreparedStatement first = handler.prepareStatement( SELECT );
+        handler.releaseStatement( first );
+        first.close();
+
+        // The closed statement is replaced by a new one, which is cached again
+        PreparedStatement second = handler.prepareStatement( SELECT );
+        assertNotSame( first, second );
+        assertEquals( 3, count( second, 1 ) );
+        handler.releaseStatement( second );
+        assertFalse( second.isClosed() );
+        assertSame( second, handler.prepareStatement( SELECT ) );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 1, cache.getSize() );
+        handler.releaseStatement( second );
+    }
+
+
+    private static int count( PreparedStatement statement, int from ) throws SQLException {
+        statement.setInt( 1, from );
+        int count = 0;
+        try ( ResultSet resultSet = statement.executeQuery() ) {
+            while ( resultSet.next() ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    private static PolyXid newXid() {
+        return PolyXid.generateLocalTransactionIdentifier( PUID.randomPUID( Type.NODE ), PUID.randomPUID( Type.TRANSACTION ) );
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory;
+
+
+import org.polypheny.db.adapter.memory.rel.MemoryRules;
+import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelOptRule;
+
+
+public class MemoryConvention extends Convention.Impl {
+
+    public MemoryConvention( String name ) {
+        super( "MemoryConvention." + name, MemoryRel.class );
+    }
+
+
+    @Override
+    public void register( RelOptPlanner planner ) {
+        for ( RelOptRule rule : MemoryRules.rules( this ) ) {
+            planner.addRule( rule );
+        }
+    }
+
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.avatica.util.ByteString;
+import org.polypheny.db.adapter.memory.column.ColumnTable;
+import org.polypheny.db.adapter.wal.WriteAheadLog;
+import org.polypheny.db.adapter.wal.WriteAheadLog.Recoverable;
+import org.polypheny.db.transaction.PUID;
+import org.polypheny.db.transaction.PUID.Type;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.util.FileSystemManager;
+
+
+/**
+ * Logs the changes to the tables of a persistent {@link MemoryStore} in a {@link WriteAheadLog}.
+ *
+ * Inserts and deletes are collected per transaction and logged as one record. Deletes are logged by primary key. DDL
+ * operations are not transactional and therefore logged immediately.
+ *
+ * With two-phase commit, the record is forced to the log when the transaction is prepared, so that a failure is
+ * reported before any participant commits. The commit appends a commit marker and applies the changes once the marker
+ * is durable; a rollback after the prepare appends an abort marker. On recovery, prepared transactions without a
+ * commit marker are rolled back (presumed abort), since the coordinator does not log its decision. Without two-phase
+ * commit, the record is logged and forced when the transaction commits.
+ */
+@Slf4j
+class MemoryLog implements Recoverable {
+
+    private static final byte CREATE_TABLE = 1;
+    private static final byte DROP_TABLE = 2;
+    private static final byte ADD_COLUMN = 3;
+    private static final byte DROP_COLUMN = 4;
+    private static final byte TRUNCATE = 5;
+    private static final byte INSERT = 6;
+    private static final byte DELETE = 7;
+    private static final byte PREPARE = 8;
+    private static final byte COMMIT = 9;
+    private static final byte ABORT = 10;
+
+    private final Map<Long, ColumnTable> tables;
+    @Getter
+    private final WriteAheadLog writeAheadLog;
+    private final Map<PolyXid, ByteArrayOutputStream> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Changes of prepared transactions which have been logged but not yet committed or rolled back, by transaction.
+     */
+    private final Map<ByteString, byte[]> prepared = new ConcurrentHashMap<>();
+
+
+    MemoryLog( int adapterId, Map<Long, ColumnTable> tables ) {
+        this.tables = tables;
+        this.writeAheadLog = new WriteAheadLog( FileSystemManager.getInstance().registerNewFolder( "data/memory-store/" + adapterId ), this );
+        this.writeAheadLog.recover();
+        resolvePrepared();
+    }
+
+
+    void createTable( long tableId, List<Long> columnIds, List<PolyType> columnTypes, Runnable apply ) {
+        logDdl( out -> {
+            out.writeByte( CREATE_TABLE );
+            out.writeLong( tableId );
+            out.writeInt( columnIds.size() );
+            for ( int i = 0; i < columnIds.size(); i++ ) {
+                out.writeLong( columnIds.get( i ) );
+                out.writeUTF( columnTypes.get( i ).name() );
+            }
+        }, apply );
+    }
+
+
+    void dropTable( long tableId, Runnable apply ) {
+        logDdl( out -> {
+            out.writeByte( DROP_TABLE );
+            out.writeLong( tableId );
+        }, apply );
+    }
+
+
+    void addColumn( long tableId, long columnId, PolyType type, Object defaultValue, Runnable apply ) {
+        logDdl( out -> {
+            out.writeByte( ADD_COLUMN );
+            out.writeLong( tableId );
+            out.writeLong( columnId );
+            out.writeUTF( type.name() );
+            writeValue( out, defaultValue );
+        }, apply );
+    }
+
+
+    void dropColumn( long tableId, long columnId, Runnable apply ) {
+        logDdl( out -> {
+            out.writeByte( DROP_COLUMN );
+            out.writeLong( tableId );
+            out.writeLong( columnId );
+        }, apply );
+    }
+
+
+    void truncate( long tableId, Runnable apply ) {
+        logDdl( out -> {
+            out.writeByte( TRUNCATE );
+            out.writeLong( tableId );
+        }, apply );
+    }
+
+
+    /**
+     * Records rows inserted by a transaction.
+     *
+     * @param columnIds The columns of the rows
+     */
+    void insert( PolyXid xid, long tableId, Long[] columnIds, List<Object[]> rows ) {
+        logChange( xid, out -> {
+            out.writeByte( INSERT );
+            out.writeLong( tableId );
+            writeColumnIds( out, columnIds );
+            out.writeInt( rows.size() );
+            for ( Object[] row : rows ) {
+                for ( Object value : row ) {
+                    writeValue( out, value );
+                }
+            }
+        } );
+    }
+
+
+    /**
+     * Records rows deleted by a transaction.
+     *
+     * @param keyColumnIds The primary key columns
+     * @param keys The keys of the deleted rows, as passed to {@link ColumnTable#delete}
+     */
+    void delete( PolyXid xid, long tableId, Long[] keyColumnIds, Set<Object> keys ) {
+        logChange( xid, out -> {
+            out.writeByte( DELETE );
+            out.writeLong( tableId );
+            writeColumnIds( out, keyColumnIds );
+            out.writeInt( keys.size() );
+            for ( Object key : keys ) {
+                writeValue( out, key );
+            }
+        } );
+    }
+
+
+    /**
+     * Forces the changes of the transaction to the log without applying them.
+     *
+     * @return {@code false} if the changes could not be logged
+     */
+    boolean prepare( PolyXid xid ) {
+        final ByteArrayOutputStream changes = pending.get( xid );
+        if ( changes == null ) {
+            return true;
+        }
+        final ByteString key = key( xid );
+        final byte[] record = changes.toByteArray();
+        try {
+            writeAheadLog.commit( encode( out -> {
+                out.writeByte( PREPARE );
+                writeBytes( out, key.getBytes() );
+                writeBytes( out, record );
+            } ), () -> {
+                prepared.put( key, record );
+                pending.remove( xid );
+            } );
+            return true;
+        } catch ( RuntimeException e ) {
+            log.error( "Unable to prepare transaction {} in the log of the memory store", xid, e );
+            return false;
+        }
+    }
+
+
+    /**
+     * Applies the changes of the transaction. If it has been prepared, a commit marker is appended; otherwise, the
+     * changes are logged and applied once they are durable.
+     */
+    void commit( PolyXid xid, Runnable apply ) {
+        final ByteString key = key( xid );
+        if ( prepared.containsKey( key ) ) {
+            // Prepared transactions without a commit marker are rolled back on recovery, so the marker needs to be forced
+            writeAheadLog.commit( marker( COMMIT, key ), () -> {
+                prepared.remove( key );
+                apply.run();
+            } );
+            return;
+        }
+        final ByteArrayOutputStream changes = pending.remove( xid );
+        if ( changes == null ) {
+            apply.run();
+        } else {
+            writeAheadLog.commit( changes.toByteArray(), apply );
+        }
+    }
+
+
+    void rollback( PolyXid xid ) {
+        pending.remove( xid );
+        final ByteString key = key( xid );
+        if ( prepared.containsKey( key ) ) {
+            // Not forced, a prepared transaction without a marker is rolled back anyway
+            writeAheadLog.commit( marker( ABORT, key ), () -> prepared.remove( key ), false );
+        }
+    }
+
+
+    /**
+     * Rolls back the transactions which have been prepared but neither committed nor rolled back before the shutdown.
+     */
+    private void resolvePrepared() {
+        for ( ByteString key : new ArrayList<>( prepared.keySet() ) ) {
+            log.warn( "Rolling back a prepared transaction without outcome found in the log of the memory store" );
+            writeAheadLog.commit( marker( ABORT, key ), () -> prepared.remove( key ) );
+        }
+    }
+
+
+    private static ByteString key( PolyXid xid ) {
+        final byte[] globalTransactionId = xid.getGlobalTransactionId();
+        final byte[] branchQualifier = xid.getBranchQualifier();
+        final byte[] key = new byte[globalTransactionId.length + branchQualifier.length];
+        System.arraycopy( globalTransactionId, 0, key, 0, globalTransactionId.length );
+        System.arraycopy( branchQualifier, 0, key, globalTransactionId.length, branchQualifier.length );
+        return new ByteString( key );
+    }
+
+
+    private static byte[] marker( byte operation, ByteString key ) {
+        return encode( out -> {
+            out.writeByte( operation );
+            writeBytes( out, key.getBytes() );
+        } );
+    }
+
+
+    private static byte[] encode( Writer writer ) {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            writer.write( new DataOutputStream( buffer ) );
+        } catch ( IOException e ) {
+            throw new RuntimeException( e );
+        }
+        return buffer.toByteArray();
+    }
+
+
+    private void logChange( PolyXid xid, Writer writer ) {
+        final ByteArrayOutputStream changes = pending.computeIfAbsent( xid, x -> new ByteArrayOutputStream() );
+        // Encode into a separate buffer first, the record of the transaction must not contain partial changes
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            writer.write( new DataOutputStream( buffer ) );
+        } catch ( IOException e ) {
+            throw new RuntimeException( e );
+        }
+        synchronized ( changes ) {
+            buffer.writeTo( changes );
+        }
+    }
+
+
+    private void logDdl( Writer writer, Runnable apply ) {
+        writeAheadLog.commit( encode( writer ), apply );
+    }
+
+
+    @Override
+    public void writeSnapshot( DataOutputStream out ) throws IOException {
+        final Collection<ColumnTable> snapshot = new ArrayList<>( tables.values() );
+        out.writeInt( snapshot.size() );
+        for ( ColumnTable table : snapshot ) {
+            table.readLock().lock();
+            try {
+                out.writeLong( table.getTableId() );
+                final List<Long> columnIds = table.getColumnIds();
+                out.writeInt( columnIds.size() );
+                for ( int i = 0; i < columnIds.size(); i++ ) {
+                    out.writeLong( columnIds.get( i ) );
+                    out.writeUTF( table.getColumnType( i ).name() );
+                }
+                final List<Object[]> rows = table.getCommittedRows();
+                out.writeInt( rows.size() );
+                for ( Object[] row : rows ) {
+                    for ( Object value : row ) {
+                        writeValue( out, value );
+                    }
+                }
+            } finally {
+                table.readLock().unlock();
+            }
+        }
+        // Prepared transactions whose record is in one of the segments replaced by this snapshot
+        final Map<ByteString, byte[]> preparedSnapshot = new HashMap<>( prepared );
+        out.writeInt( preparedSnapshot.size() );
+        for ( Map.Entry<ByteString, byte[]> entry : preparedSnapshot.entrySet() ) {
+            writeBytes( out, entry.getKey().getBytes() );
+            writeBytes( out, entry.getValue() );
+        }
+    }
+
+
+    @Override
+    public void loadSnapshot( DataInputStream in ) throws IOException {
+        tables.clear();
+        prepared.clear();
+        final int tableCount = in.readInt();
+        for ( int t = 0; t < tableCount; t++ ) {
+            final ColumnTable table = readTable( in );
+            final int columnCount = table.getColumnCount();
+            final int rowCount = in.readInt();
+            final List<Object[]> rows = new ArrayList<>( rowCount );
+            for ( int r = 0; r < rowCount; r++ ) {
+                final Object[] row = new Object[columnCount];
+                for ( int c = 0; c < columnCount; c++ ) {
+                    row[c] = readValue( in );
+                }
+                rows.add( row );
+            }
+            apply( table, rows, null, null );
+            tables.put( table.getTableId(), table );
+        }
+        final int preparedCount = in.readInt();
+        for ( int p = 0; p < preparedCount; p++ ) {
+            prepared.put( new ByteString( readBytes( in ) ), readBytes( in ) );
+        }
+    }
+
+
+    @Override
+    public void replay( byte[] record ) throws IOException {
+        final DataInputStream in = new DataInputStream( new ByteArrayInputStream( record ) );
+        while ( in.available() > 0 ) {
+            final byte operation = in.readByte();
+            if ( operation == PREPARE ) {
+                prepared.put( new ByteString( readBytes( in ) ), readBytes( in ) );
+                continue;
+            } else if ( operation == COMMIT ) {
+                final byte[] changes = prepared.remove( new ByteString( readBytes( in ) ) );
+                if ( changes != null ) {
+                    replay( changes );
+                }
+                continue;
+            } else if ( operation == ABORT ) {
+                prepared.remove( new ByteString( readBytes( in ) ) );
+                continue;
+            } else if ( operation == CREATE_TABLE ) {
+                final ColumnTable table = readTable( in );
+                tables.put( table.getTableId(), table );
+                continue;
+            }
+            final ColumnTable table = tables.get( in.readLong() );
+            switch ( operation ) {
+                case DROP_TABLE:
+                    tables.remove( table.getTableId() );
+                    break;
+                case ADD_COLUMN:
+                    table.addColumn( in.readLong(), PolyType.valueOf( in.readUTF() ), readValue( in ) );
+                    break;
+                case DROP_COLUMN:
+                    table.dropColumn( in.readLong() );
+                    break;
+                case TRUNCATE:
+                    table.truncate();
+                    break;
+                case INSERT: {
+                    final Long[] columnIds = readColumnIds( in );
+                    final int rowCount = in.readInt();
+                    final List<Object[]> rows = new ArrayList<>( rowCount );
+                    for ( int r = 0; r < rowCount; r++ ) {
+                        final Object[] row = new Object[table.getColumnCount()];
+                        for ( Long columnId : columnIds ) {
+                            row[table.indexOf( columnId )] = readValue( in );
+                        }
+                        rows.add( row );
+                    }
+                    apply( table, rows, null, null );
+                    break;
+                }
+                case DELETE: {
+                    final Long[] keyColumnIds = readColumnIds( in );
+                    final int keyCount = in.readInt();
+                    final Set<Object> keys = new HashSet<>();
+                    for ( int k = 0; k < keyCount; k++ ) {
+                        keys.add( readValue( in ) );
+                    }
+                    final int[] keyColumns = new int[keyColumnIds.length];
+                    for ( int k = 0; k < keyColumns.length; k++ ) {
+                        keyColumns[k] = table.indexOf( keyColumnIds[k] );
+                    }
+                    apply( table, null, keyColumns, keys );
+                    break;
+                }
+                default:
+                    throw new IOException( "Unknown operation in the log of the memory store: " + operation );
+            }
+        }
+    }
+
+
+    /**
+     * Applies changes to a table as a transaction of its own.
+     */
+    private static void apply( ColumnTable table, List<Object[]> rows, int[] keyColumns, Set<Object> keys ) {
+        final PolyXid xid = PolyXid.generateLocalTransactionIdentifier( PUID.randomPUID( Type.NODE ), PUID.randomPUID( Type.TRANSACTION ) );
+        table.writeLock().lock();
+        try {
+            if ( keys != null ) {
+                table.delete( xid, keyColumns, keys );
+            }
+            if ( rows != null ) {
+                table.insert( xid, rows );
+            }
+        } finally {
+            table.writeLock().unlock();
+        }
+        table.commit( xid );
+    }
+
+
+    private static ColumnTable readTable( DataInputStream in ) throws IOException {
+        final long tableId = in.readLong();
+        final int columnCount = in.readInt();
+        final List<Long> columnIds = new ArrayList<>( columnCount );
+        final List<PolyType> columnTypes = new ArrayList<>( columnCount );
+        for ( int c = 0; c < columnCount; c++ ) {
+            columnIds.add( in.readLong() );
+            columnTypes.add( PolyType.valueOf( in.readUTF() ) );
+        }
+        return new ColumnTable( tableId, columnIds, columnTypes );
+    }
+
+
+    private static void writeColumnIds( DataOutputStream out, Long[] columnIds ) throws IOException {
+        out.writeInt( columnIds.length );
+        for ( Long columnId : columnIds ) {
+            out.writeLong( columnId );
+        }
+    }
+
+
+    private static Long[] readColumnIds( DataInputStream in ) throws IOException {
+        final Long[] columnIds = new Long[in.readInt()];
+        for ( int i = 0; i < columnIds.length; i++ ) {
+            columnIds[i] = in.readLong();
+        }
+        return columnIds;
+    }
+
+
+    /**
+     * Writes a value in the representation of the enumerable convention, preceded by a tag identifying its class.
+     */
+    private static void writeValue( DataOutputStream out, Object value ) throws IOException {
+        if ( value == null ) {
+            out.writeByte( 0 );
+        } else if ( value instanceof Boolean ) {
+            out.writeByte( 1 );
+            out.writeBoolean( (Boolean) value );
+        } else if ( value instanceof Byte ) {
+            out.writeByte( 2 );
+            out.writeByte( (Byte) value );
+        } else if ( value instanceof Short ) {
+            out.writeByte( 3 );
+            out.writeShort( (Short) value );
+        } else if ( value instanceof Integer ) {
+            out.writeByte( 4 );
+            out.writeInt( (Integer) value );
+        } else if ( value instanceof Long ) {
+            out.writeByte( 5 );
+            out.writeLong( (Long) value );
+        } else if ( value instanceof Float ) {
+            out.writeByte( 6 );
+            out.writeFloat( (Float) value );
+        } else if ( value instanceof Double ) {
+            out.writeByte( 7 );
+            out.writeDouble( (Double) value );
+        } else if ( value instanceof String ) {
+            out.writeByte( 8 );
+            writeBytes( out, ((String) value).getBytes( StandardCharsets.UTF_8 ) );
+        } else if ( value instanceof BigDecimal ) {
+            out.writeByte( 9 );
+            out.writeInt( ((BigDecimal) value).scale() );
+            writeBytes( out, ((BigDecimal) value).unscaledValue().toByteArray() );
+        } else if ( value instanceof ByteString ) {
+            out.writeByte( 10 );
+            writeBytes( out, ((ByteString) value).getBytes() );
+        } else if ( value instanceof byte[] ) {
+            out.writeByte( 11 );
+            writeBytes( out, (byte[]) value );
+        } else if ( value instanceof List ) {
+            out.writeByte( 12 );
+            out.writeInt( ((List<?>) value).size() );
+            for ( Object element : (List<?>) value ) {
+                writeValue( out, element );
+            }
+        } else {
+            throw new RuntimeException( "The memory store cannot persist values of type " + value.getClass().getSimpleName() );
+        }
+    }
+
+
+    private static Object readValue( DataInputStream in ) throws IOException {
+        final byte tag = in.readByte();
+        switch ( tag ) {
+            case 0:
+                return null;
+            case 1:
+                return in.readBoolean();
+            case 2:
+                return in.readByte();
+            case 3:
+                return in.readShort();
+            case 4:
+                return in.readInt();
+            case 5:
+                return in.readLong();
+            case 6:
+                return in.readFloat();
+            case 7:
+                return in.readDouble();
+            case 8:
+                return new String( readBytes( in ), StandardCharsets.UTF_8 );
+            case 9: {
+                final int scale = in.readInt();
+                return new BigDecimal( new BigInteger( readBytes( in ) ), scale );
+            }
+            case 10:
+                return new ByteString( readBytes( in ) );
+            case 11:
+                return readBytes( in );
+            case 12: {
+                final int size = in.readInt();
+                final List<Object> list = new ArrayList<>( size );
+                for ( int i = 0; i < size; i++ ) {
+                    list.add( readValue( in ) );
+                }
+                return list;
+            }
+            default:
+                throw new IOException( "Unknown value tag in the log of the memory store: " + tag );
+        }
+    }
+
+
+    private static void writeBytes( DataOutputStream out, byte[] bytes ) throws IOException {
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+
+    private static byte[] readBytes( DataInputStream in ) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+
+    void delete() {
+        writeAheadLog.delete();
+    }
+
+
+    @FunctionalInterface
+    private interface Writer {
+
+        void write( DataOutputStream out ) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory;
+
+
+import com.google.common.collect.ImmutableMap;
+import java.lang.reflect.Method;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.tree.Types;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.memory.column.ColumnQuery;
+import org.polypheny.db.rel.core.TableModify.Operation;
+
+
+public enum MemoryMethod {
+
+    EXECUTE( MemorySchema.class, "execute", DataContext.class, int.class, long.class, ColumnQuery.class ),
+    MODIFY( MemorySchema.class, "modify", DataContext.class, int.class, long.class, Long[].class, Long[].class, Operation.class, int[].class, Enumerable.class );
+
+    public final Method method;
+    public static final ImmutableMap<Method, MemoryMethod> MAP;
+
+
+    static {
+        final ImmutableMap.Builder<Method, MemoryMethod> builder = ImmutableMap.builder();
+        for ( MemoryMethod value : MemoryMethod.values() ) {
+            builder.put( value.method, value );
+        }
+        MAP = builder.build();
+    }
+
+
+    MemoryMethod( Class clazz, String methodName, Class... argumentTypes ) {
+        this.method = Types.lookupMethod( clazz, methodName, argumentTypes );
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory;
+
+
+import lombok.Getter;
+import org.polypheny.db.adapter.memory.column.ColumnQuery;
+import org.polypheny.db.rel.RelNode;
+
+
+/**
+ * Relational expression evaluated by the column engine of the {@link MemoryStore}. A tree of memory rels is translated
+ * into a single {@link ColumnQuery}, which is why the rules only push operators in the order of the {@link Stage}s.
+ */
+public interface MemoryRel extends RelNode {
+
+    /**
+     * When implementing this method, make sure to call {@link MemoryImplementor#visitChild} first!
+     * => the query is built from bottom-up
+     */
+    void implement( MemoryImplementor implementor );
+
+    /**
+     * The last operator of the query which is evaluated by this rel or its inputs.
+     */
+    Stage getStage();
+
+
+    enum Stage {
+        SCAN,
+        FILTER,
+        PROJECT,
+        AGGREGATE,
+        SORT;
+
+
+        /**
+         * Whether an operator of this stage can be evaluated on top of an input of the given stage. Filters and
+         * projections are applied while scanning, hence they can be stacked in any order.
+         */
+        public boolean accepts( Stage input ) {
+            switch ( this ) {
+                case SCAN:
+                    return false;
+                case SORT:
+                    return input.compareTo( AGGREGATE ) <= 0;
+                default:
+                    return input.compareTo( PROJECT ) <= 0;
+            }
+        }
+
+
+        /**
+         * Returns the stage of an operator of this stage on top of an input of the given stage.
+         */
+        public Stage after( Stage input ) {
+            return input.compareTo( this ) > 0 ? input : this;
+        }
+    }
+
+
+    class MemoryImplementor {
+
+        @Getter
+        private MemoryTable table;
+        @Getter
+        private ColumnQuery query;
+
+        /**
+         * For every field of the current row type, the index of the scanned column it refers to.
+         */
+        private int[] fields;
+        private Stage stage = Stage.SCAN;
+
+
+        public void setTable( MemoryTable table ) {
+            this.table = table;
+            this.query = new ColumnQuery( table.getColumnIds().toArray( new Long[0] ) );
+            this.fields = new int[table.getColumnIds().size()];
+            for ( int i = 0; i < fields.length; i++ ) {
+                fields[i] = i;
+            }
+        }
+
+
+        /**
+         * Returns the index of the scanned column the given field of the current row type refers to.
+         */
+        public int getColumn( int field ) {
+            return fields[field];
+        }
+
+
+        public void project( int[] projects ) {
+            final int[] columns = new int[projects.length];
+            for ( int i = 0; i < projects.length; i++ ) {
+                columns[i] = fields[projects[i]];
+            }
+            fields = columns;
+            query.setProjection( columns );
+        }
+
+
+        /**
+         * Has to be called by every memory rel (except the scan) after its input has been implemented.
+         */
+        public void advance( Stage next ) {
+            if ( !next.accepts( stage ) ) {
+                throw new IllegalStateException( "Cannot evaluate " + next + " on top of " + stage );
+            }
+            stage = next.after( stage );
+        }
+
+
+        public void visitChild( int ordinal, RelNode input ) {
+            assert ordinal == 0;
+            ((MemoryRel) input).implement( this );
+        }
+
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Getter;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.polypheny.db.adapter.AdapterManager;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.memory.column.ColumnQuery;
+import org.polypheny.db.adapter.memory.column.ColumnTable;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.rel.core.TableModify.Operation;
+import org.polypheny.db.rel.type.RelDataTypeFactory;
+import org.polypheny.db.rel.type.RelDataTypeImpl;
+import org.polypheny.db.rel.type.RelDataTypeSystem;
+import org.polypheny.db.rel.type.RelProtoDataType;
+import org.polypheny.db.schema.Table;
+import org.polypheny.db.schema.impl.AbstractSchema;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.type.PolyTypeFactoryImpl;
+
+
+public class MemorySchema extends AbstractSchema {
+
+    @Getter
+    private final String schemaName;
+    private final Map<String, MemoryTable> tableMap = new HashMap<>();
+    @Getter
+    private final MemoryStore store;
+    @Getter
+    private final MemoryConvention convention;
+
+
+    public MemorySchema( String schemaName, MemoryStore store ) {
+        super();
+        this.schemaName = schemaName;
+        this.store = store;
+        this.convention = new MemoryConvention( schemaName );
+    }
+
+
+    @Override
+    protected Map<String, Table> getTableMap() {
+        return new HashMap<>( tableMap );
+    }
+
+
+    public Table createTable( CatalogTable catalogTable, List<CatalogColumnPlacement> columnPlacementsOnStore ) {
+        final RelDataTypeFactory typeFactory = new PolyTypeFactoryImpl( RelDataTypeSystem.DEFAULT );
+        final RelDataTypeFactory.Builder fieldInfo = typeFactory.builder();
+        final List<Long> columnIds = new ArrayList<>();
+        for ( CatalogColumnPlacement placement : columnPlacementsOnStore ) {
+            CatalogColumn catalogColumn = Catalog.getInstance().getColumn( placement.columnId );
+            columnIds.add( catalogColumn.id );
+            if ( catalogColumn.type.allowsScale() && catalogColumn.length != null && catalogColumn.scale != null ) {
+                fieldInfo.add( catalogColumn.name, placement.physicalColumnName, catalogColumn.type, catalogColumn.length, catalogColumn.scale ).nullable( catalogColumn.nullable );
+            } else if ( catalogColumn.type.allowsPrec() && catalogColumn.length != null ) {
+                fieldInfo.add( catalogColumn.name, placement.physicalColumnName, catalogColumn.type, catalogColumn.length ).nullable( catalogColumn.nullable );
+            } else {
+                fieldInfo.add( catalogColumn.name, placement.physicalColumnName, catalogColumn.type ).nullable( catalogColumn.nullable );
+            }
+        }
+        final List<Long> primaryKey = Catalog.getInstance().getPrimaryKey( catalogTable.primaryKey ).columnIds;
+        RelProtoDataType protoRowType = RelDataTypeImpl.proto( fieldInfo.build() );
+        MemoryTable table = new MemoryTable( this, catalogTable.id, columnIds, primaryKey, protoRowType );
+        tableMap.put( catalogTable.name, table );
+        return table;
+    }
+
+
+    private static ColumnTable getColumnTable( int adapterId, long tableId ) {
+        return ((MemoryStore) AdapterManager.getInstance().getAdapter( adapterId )).getColumnTable( tableId );
+    }
+
+
+    /**
+     * Called from generated code (see {@link MemoryMethod#EXECUTE}).
+     */
+    public static Enumerable<Object> execute( DataContext dataContext, int adapterId, long tableId, ColumnQuery query ) {
+        final ColumnTable table = getColumnTable( adapterId, tableId );
+        final PolyXid xid = dataContext.getStatement().getTransaction().getXid();
+        final List<Object[]> rows = query.execute( table, xid, dataContext::getParameterValue );
+        if ( query.getOutputColumnCount() == 1 ) {
+            final List<Object> values = new ArrayList<>( rows.size() );
+            for ( Object[] row : rows ) {
+                values.add( row[0] );
+            }
+            return Linq4j.asEnumerable( values );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    /**
+     * Called from generated code (see {@link MemoryMethod#MODIFY}).
+     *
+     * @param columnIds The columns of the table, in the order of the rows returned by {@code input}
+     * @param keyColumnIds The primary key columns, used for identifying the rows to update or delete
+     * @param operation The operation
+     * @param updateColumns For updates: positions of the updated columns; the new values are appended to the input rows
+     * @param input The rows to insert, or the current values of the rows to update or delete
+     * @return The number of modified rows
+     */
+    public static Enumerable<Long> modify( DataContext dataContext, int adapterId, long tableId, Long[] columnIds, Long[] keyColumnIds, Operation operation, int[] updateColumns, Enumerable<Object> input ) {
+        final MemoryStore store = (MemoryStore) AdapterManager.getInstance().getAdapter( adapterId );
+        final ColumnTable table = store.getColumnTable( tableId );
+        final PolyXid xid = dataContext.getStatement().getTransaction().getXid();
+        final MemoryLog memoryLog = store.getMemoryLog();
+        dataContext.getStatement().getTransaction().registerInvolvedAdapter( store );
+
+        // Evaluate the input first, it might read from this table as well
+        final List<Object[]> rows = new ArrayList<>();
+        for ( Object row : input ) {
+            rows.add( row instanceof Object[] ? (Object[]) row : new Object[]{ row } );
+        }
+
+        table.writeLock().lock();
+        try {
+            // Map the columns of the input rows to the columns of the table
+            final int[] positions = new int[table.getColumnCount()];
+            for ( int i = 0; i < columnIds.length; i++ ) {
+                positions[table.indexOf( columnIds[i] )] = i;
+            }
+            final int[] keyColumns = new int[keyColumnIds.length];
+            final int[] inputKeyColumns = new int[keyColumnIds.length];
+            for ( int k = 0; k < keyColumnIds.length; k++ ) {
+                keyColumns[k] = table.indexOf( keyColumnIds[k] );
+                inputKeyColumns[k] = positions[keyColumns[k]];
+            }
+
+            if ( operation != Operation.INSERT ) {
+                final Set<Object> keys = new HashSet<>();
+                for ( Object[] row : rows ) {
+                    keys.add( getKey( row, inputKeyColumns ) );
+                }
+                final int deleted = table.delete( xid, keyColumns, keys );
+                if ( memoryLog != null ) {
+                    memoryLog.delete( xid, tableId, keyColumnIds, keys );
+                }
+                if ( operation == Operation.DELETE ) {
+                    return Linq4j.singletonEnumerable( (long) deleted );
+                }
+            }
+
+            final List<Object[]> inserted = new ArrayList<>( rows.size() );
+            for ( Object[] row : rows ) {
+                if ( operation == Operation.UPDATE ) {
+                    final Object[] updated = new Object[columnIds.length];
+                    System.arraycopy( row, 0, updated, 0, columnIds.length );
+                    for ( int u = 0; u < updateColumns.length; u++ ) {
+                        updated[updateColumns[u]] = row[columnIds.length + u];
+                    }
+                    row = updated;
+                }
+                final Object[] tableRow = new Object[positions.length];
+                for ( int c = 0; c < positions.length; c++ ) {
+                    tableRow[c] = row[positions[c]];
+                }
+                inserted.add( tableRow );
+            }
+            table.insert( xid, inserted );
+            if ( memoryLog != null ) {
+                memoryLog.insert( xid, tableId, table.getColumnIds().toArray( new Long[0] ), inserted );
+            }
+            return Linq4j.singletonEnumerable( (long) inserted.size() );
+        } finally {
+            table.writeLock().unlock();
+        }
+    }
+
+
+    private static Object getKey( Object[] row, int[] keyColumns ) {
+        if ( keyColumns.length == 1 ) {
+            return row[keyColumns[0]];
+        }
+        final List<Object> key = new ArrayList<>( keyColumns.length );
+        for ( int column : keyColumns ) {
+            key.add( row[column] );
+        }
+        return key;
+    }
+
+}
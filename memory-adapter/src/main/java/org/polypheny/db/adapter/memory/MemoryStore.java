@@ -0,0 +1,387 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory;
+
+
+import com.google.common.collect.ImmutableList;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.adapter.Adapter.AdapterProperties;
+import org.polypheny.db.adapter.Adapter.AdapterSettingBoolean;
+import org.polypheny.db.adapter.DataStore;
+import org.polypheny.db.adapter.DeployMode;
+import org.polypheny.db.adapter.memory.column.ColumnTable;
+import org.polypheny.db.adapter.wal.WriteAheadLog;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
+import org.polypheny.db.catalog.entity.CatalogIndex;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationTable;
+import org.polypheny.db.jdbc.Context;
+import org.polypheny.db.schema.Schema;
+import org.polypheny.db.schema.SchemaPlus;
+import org.polypheny.db.schema.Table;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.util.DateString;
+import org.polypheny.db.util.TimeString;
+import org.polypheny.db.util.TimestampString;
+
+
+@Slf4j
+@AdapterProperties(
+        name = "Memory",
+        description = "An adapter that keeps all data in-memory as off-heap column vectors. It is suited for analytical queries on hot data. Unless the store is persistent, the data is lost on shutdown.",
+        usedModes = DeployMode.EMBEDDED)
+@AdapterSettingBoolean(name = "persistent", defaultValue = false)
+public class MemoryStore extends DataStore {
+
+    private MemorySchema currentSchema;
+
+    private final Map<Long, ColumnTable> tables = new ConcurrentHashMap<>();
+
+    /**
+     * The log of a persistent store; {@code null} otherwise.
+     */
+    private final MemoryLog memoryLog;
+
+
+    public MemoryStore( final int storeId, final String uniqueName, final Map<String, String> settings ) {
+        super( storeId, uniqueName, settings, Boolean.parseBoolean( settings.get( "persistent" ) ) );
+        // A persistent store is not recreated by the catalog on startup, its tables are restored from the log
+        memoryLog = isPersistent() ? new MemoryLog( storeId, tables ) : null;
+        setInformationPage();
+    }
+
+
+    private void setInformationPage() {
+        InformationGroup infoGroup = new InformationGroup( informationPage, "Tables" );
+        informationGroups.add( infoGroup );
+        InformationTable infoTable = new InformationTable( infoGroup, Arrays.asList( "Table", "Rows", "Reserved Off-Heap Memory (MB)" ) );
+        informationElements.add( infoTable );
+        infoGroup.setRefreshFunction( () -> {
+            infoTable.reset();
+            tables.forEach( ( id, table ) -> infoTable.addRow(
+                    Catalog.getInstance().getTable( id ).name,
+                    table.getRowCount(),
+                    table.getReservedBytes() / (1024 * 1024) ) );
+        } );
+        InformationManager im = InformationManager.getInstance();
+        im.addPage( informationPage );
+        im.addGroup( infoGroup );
+        im.registerInformation( infoTable );
+
+        if ( memoryLog != null ) {
+            InformationGroup logGroup = new InformationGroup( informationPage, "Write-Ahead Log" );
+            informationGroups.add( logGroup );
+            InformationTable logTable = new InformationTable( logGroup, Arrays.asList( "Attribute", "Value" ) );
+            informationElements.add( logTable );
+            logGroup.setRefreshFunction( () -> {
+                WriteAheadLog wal = memoryLog.getWriteAheadLog();
+                logTable.reset();
+                logTable.addRow( "Commits", wal.getCommitCount() );
+                logTable.addRow( "Syncs", wal.getSyncCount() );
+                logTable.addRow( "Checkpoints", wal.getCheckpointCount() );
+                logTable.addRow( "Records recovered on startup", wal.getRecoveredRecordCount() );
+                logTable.addRow( "Current segment size (KB)", wal.getSegmentSize() / 1024 );
+            } );
+            im.addGroup( logGroup );
+            im.registerInformation( logTable );
+        }
+    }
+
+
+    @Override
+    public void createNewSchema( SchemaPlus rootSchema, String name ) {
+        currentSchema = new MemorySchema( name, this );
+    }
+
+
+    @Override
+    public Table createTableSchema( CatalogTable catalogTable, List<CatalogColumnPlacement> columnPlacementsOnStore ) {
+        return currentSchema.createTable( catalogTable, columnPlacementsOnStore );
+    }
+
+
+    @Override
+    public Schema getCurrentSchema() {
+        return currentSchema;
+    }
+
+
+    /**
+     * Returns the data of the given table.
+     *
+     * @throws RuntimeException if the table is not placed on this store
+     */
+    ColumnTable getColumnTable( long tableId ) {
+        ColumnTable table = tables.get( tableId );
+        if ( table == null ) {
+            throw new RuntimeException( "Table " + tableId + " is not placed on the memory store " + getUniqueName() );
+        }
+        return table;
+    }
+
+
+    /**
+     * Returns the log of this store or {@code null} if the store is not persistent.
+     */
+    MemoryLog getMemoryLog() {
+        return memoryLog;
+    }
+
+
+    int getRowCount( long tableId ) {
+        ColumnTable table = tables.get( tableId );
+        return table == null ? 0 : table.getRowCount();
+    }
+
+
+    @Override
+    public void createTable( Context context, CatalogTable catalogTable ) {
+        context.getStatement().getTransaction().registerInvolvedAdapter( this );
+        List<Long> columnIds = new ArrayList<>();
+        List<PolyType> columnTypes = new ArrayList<>();
+        for ( CatalogColumnPlacement placement : catalog.getColumnPlacementsOnAdapter( getAdapterId(), catalogTable.id ) ) {
+            CatalogColumn catalogColumn = catalog.getColumn( placement.columnId );
+            columnIds.add( catalogColumn.id );
+            columnTypes.add( getType( catalogColumn ) );
+            catalog.updateColumnPlacementPhysicalNames(
+                    getAdapterId(),
+                    placement.columnId,
+                    currentSchema.getSchemaName(),
+                    getPhysicalTableName( catalogTable.id ),
+                    getPhysicalColumnName( placement.columnId ),
+                    true );
+        }
+        if ( memoryLog == null ) {
+            tables.put( catalogTable.id, new ColumnTable( catalogTable.id, columnIds, columnTypes ) );
+        } else {
+            memoryLog.createTable( catalogTable.id, columnIds, columnTypes, () -> tables.put( catalogTable.id, new ColumnTable( catalogTable.id, columnIds, columnTypes ) ) );
+        }
+    }
+
+
+    @Override
+    public void dropTable( Context context, CatalogTable catalogTable ) {
+        context.getStatement().getTransaction().registerInvolvedAdapter( this );
+        if ( memoryLog == null ) {
+            tables.remove( catalogTable.id );
+        } else {
+            memoryLog.dropTable( catalogTable.id, () -> tables.remove( catalogTable.id ) );
+        }
+    }
+
+
+    @Override
+    public void addColumn( Context context, CatalogTable catalogTable, CatalogColumn catalogColumn ) {
+        context.getStatement().getTransaction().registerInvolvedAdapter( this );
+        Object defaultValue = null;
+        if ( catalogColumn.defaultValue != null ) {
+            defaultValue = parse( getType( catalogColumn ), catalogColumn.defaultValue.value );
+        }
+        final ColumnTable table = getColumnTable( catalogTable.id );
+        final PolyType type = getType( catalogColumn );
+        if ( memoryLog == null ) {
+            table.addColumn( catalogColumn.id, type, defaultValue );
+        } else {
+            final Object value = defaultValue;
+            memoryLog.addColumn( catalogTable.id, catalogColumn.id, type, value, () -> table.addColumn( catalogColumn.id, type, value ) );
+        }
+        catalog.updateColumnPlacementPhysicalNames(
+                getAdapterId(),
+                catalogColumn.id,
+                currentSchema.getSchemaName(),
+                getPhysicalTableName( catalogTable.id ),
+                getPhysicalColumnName( catalogColumn.id ),
+                false );
+    }
+
+
+    @Override
+    public void dropColumn( Context context, CatalogColumnPlacement columnPlacement ) {
+        context.getStatement().getTransaction().registerInvolvedAdapter( this );
+        final ColumnTable table = getColumnTable( columnPlacement.tableId );
+        if ( memoryLog == null ) {
+            table.dropColumn( columnPlacement.columnId );
+        } else {
+            memoryLog.dropColumn( columnPlacement.tableId, columnPlacement.columnId, () -> table.dropColumn( columnPlacement.columnId ) );
+        }
+    }
+
+
+    @Override
+    public void addIndex( Context context, CatalogIndex catalogIndex ) {
+        throw new RuntimeException( "Memory adapter does not support adding indexes" );
+    }
+
+
+    @Override
+    public void dropIndex( Context context, CatalogIndex catalogIndex ) {
+        throw new RuntimeException( "Memory adapter does not support dropping indexes" );
+    }
+
+
+    @Override
+    public boolean prepare( PolyXid xid ) {
+        // Only logging the changes can fail, applying them cannot
+        return memoryLog == null || memoryLog.prepare( xid );
+    }
+
+
+    @Override
+    public void commit( PolyXid xid ) {
+        if ( memoryLog == null ) {
+            commitTables( xid );
+        } else {
+            memoryLog.commit( xid, () -> commitTables( xid ) );
+        }
+    }
+
+
+    private void commitTables( PolyXid xid ) {
+        for ( ColumnTable table : tables.values() ) {
+            table.commit( xid );
+        }
+    }
+
+
+    @Override
+    public void rollback( PolyXid xid ) {
+        if ( memoryLog != null ) {
+            memoryLog.rollback( xid );
+        }
+        for ( ColumnTable table : tables.values() ) {
+            table.rollback( xid );
+        }
+    }
+
+
+    @Override
+    public void truncate( Context context, CatalogTable table ) {
+        context.getStatement().getTransaction().registerInvolvedAdapter( this );
+        final ColumnTable columnTable = getColumnTable( table.id );
+        if ( memoryLog == null ) {
+            columnTable.truncate();
+        } else {
+            memoryLog.truncate( table.id, columnTable::truncate );
+        }
+    }
+
+
+    @Override
+    public void updateColumnType( Context context, CatalogColumnPlacement placement, CatalogColumn catalogColumn, PolyType oldType ) {
+        throw new RuntimeException( "Memory adapter does not support updating column types!" );
+    }
+
+
+    @Override
+    public List<AvailableIndexMethod> getAvailableIndexMethods() {
+        return new ArrayList<>();
+    }
+
+
+    @Override
+    public AvailableIndexMethod getDefaultIndexMethod() {
+        throw new RuntimeException( "Memory adapter does not support adding indexes" );
+    }
+
+
+    @Override
+    public List<FunctionalIndexInfo> getFunctionalIndexes( CatalogTable catalogTable ) {
+        List<Long> pkIds = Catalog.getInstance().getPrimaryKey( catalogTable.primaryKey ).columnIds;
+        return ImmutableList.of( new FunctionalIndexInfo( pkIds, "PRIMARY (unique)" ) );
+    }
+
+
+    @Override
+    public void shutdown() {
+        log.info( "shutting down memory store '{}'", getUniqueName() );
+        removeInformationPage();
+        tables.clear();
+        if ( memoryLog != null ) {
+            memoryLog.delete();
+        }
+    }
+
+
+    @Override
+    protected void reloadSettings( List<String> updatedSettings ) {
+        // There are no modifiable settings
+    }
+
+
+    protected static String getPhysicalTableName( long tableId ) {
+        return "tab" + tableId;
+    }
+
+
+    protected static String getPhysicalColumnName( long columnId ) {
+        return "col" + columnId;
+    }
+
+
+    static PolyType getType( CatalogColumn catalogColumn ) {
+        return catalogColumn.collectionsType != null ? PolyType.ARRAY : catalogColumn.type;
+    }
+
+
+    /**
+     * Converts a default value into the representation used by the enumerable convention.
+     */
+    private static Object parse( PolyType type, String value ) {
+        switch ( type ) {
+            case BOOLEAN:
+                return Boolean.parseBoolean( value );
+            case TINYINT:
+                return Byte.parseByte( value );
+            case SMALLINT:
+                return Short.parseShort( value );
+            case INTEGER:
+                return Integer.parseInt( value );
+            case BIGINT:
+                return Long.parseLong( value );
+            case DECIMAL:
+                return new BigDecimal( value );
+            case REAL:
+                return Float.parseFloat( value );
+            case FLOAT:
+            case DOUBLE:
+                return Double.parseDouble( value );
+            case DATE:
+                return new DateString( value ).getDaysSinceEpoch();
+            case TIME:
+                return new TimeString( value ).getMillisOfDay();
+            case TIMESTAMP:
+                return new TimestampString( value ).getMillisSinceEpoch();
+            case CHAR:
+            case VARCHAR:
+                return value;
+            default:
+                throw new RuntimeException( "Memory adapter does not support default values of type " + type );
+        }
+    }
+
+}
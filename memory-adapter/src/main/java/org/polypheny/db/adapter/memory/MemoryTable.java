@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory;
+
+
+import com.google.common.collect.ImmutableList;
+import java.util.Collection;
+import java.util.List;
+import lombok.Getter;
+import org.apache.calcite.linq4j.Queryable;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.java.AbstractQueryableTable;
+import org.polypheny.db.adapter.memory.rel.MemoryTableScan;
+import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptTable;
+import org.polypheny.db.plan.RelOptTable.ToRelContext;
+import org.polypheny.db.prepare.Prepare.CatalogReader;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.TableModify;
+import org.polypheny.db.rel.core.TableModify.Operation;
+import org.polypheny.db.rel.logical.LogicalTableModify;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rel.type.RelDataTypeFactory;
+import org.polypheny.db.rel.type.RelProtoDataType;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.schema.ModifiableTable;
+import org.polypheny.db.schema.SchemaPlus;
+import org.polypheny.db.schema.Statistic;
+import org.polypheny.db.schema.Statistics;
+import org.polypheny.db.schema.TranslatableTable;
+
+
+public class MemoryTable extends AbstractQueryableTable implements TranslatableTable, ModifiableTable {
+
+    @Getter
+    private final MemorySchema memorySchema;
+    @Getter
+    private final long tableId;
+    @Getter
+    private final int adapterId;
+    /**
+     * Ids of the columns placed on the store, in the order of the row type
+     */
+    @Getter
+    private final List<Long> columnIds;
+    /**
+     * Ids of the columns that are part of the primary key
+     */
+    @Getter
+    private final List<Long> pkIds;
+    private final RelProtoDataType protoRowType;
+
+
+    public MemoryTable( MemorySchema memorySchema, long tableId, List<Long> columnIds, List<Long> pkIds, RelProtoDataType protoRowType ) {
+        super( Object[].class );
+        this.memorySchema = memorySchema;
+        this.tableId = tableId;
+        this.adapterId = memorySchema.getStore().getAdapterId();
+        this.columnIds = ImmutableList.copyOf( columnIds );
+        this.pkIds = ImmutableList.copyOf( pkIds );
+        this.protoRowType = protoRowType;
+    }
+
+
+    @Override
+    public RelNode toRel( ToRelContext context, RelOptTable relOptTable ) {
+        memorySchema.getConvention().register( context.getCluster().getPlanner() );
+        return new MemoryTableScan( context.getCluster(), relOptTable, this );
+    }
+
+
+    @Override
+    public RelDataType getRowType( RelDataTypeFactory typeFactory ) {
+        return protoRowType.apply( typeFactory );
+    }
+
+
+    @Override
+    public Statistic getStatistic() {
+        return Statistics.of( memorySchema.getStore().getRowCount( tableId ), ImmutableList.of() );
+    }
+
+
+    @Override
+    public Collection getModifiableCollection() {
+        throw new UnsupportedOperationException( "getModifiableCollection not implemented" );
+    }
+
+
+    @Override
+    public TableModify toModificationRel( RelOptCluster cluster, RelOptTable table, CatalogReader catalogReader, RelNode child, Operation operation, List<String> updateColumnList, List<RexNode> sourceExpressionList, boolean flattened ) {
+        memorySchema.getConvention().register( cluster.getPlanner() );
+        return new LogicalTableModify( cluster, cluster.traitSetOf( Convention.NONE ), table, catalogReader, child, operation, updateColumnList, sourceExpressionList, flattened );
+    }
+
+
+    @Override
+    public <T> Queryable<T> asQueryable( DataContext dataContext, SchemaPlus schema, String tableName ) {
+        throw new UnsupportedOperationException();
+    }
+
+}
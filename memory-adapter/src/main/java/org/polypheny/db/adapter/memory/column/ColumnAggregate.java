@@ -0,0 +1,439 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import lombok.Getter;
+import org.polypheny.db.sql.SqlKind;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * An aggregate function computed over a column: {@code COUNT}, {@code SUM}, {@code $SUM0}, {@code MIN} or {@code MAX}.
+ *
+ * The values are accumulated per group using one loop per block. The group of each selected row is computed up-front,
+ * so that the accumulating loops only read the primitive values and update primitive arrays indexed by group.
+ */
+public class ColumnAggregate {
+
+    @Getter
+    private final SqlKind kind;
+    @Getter
+    private final int argument;
+    private final PolyType resultType;
+
+
+    /**
+     * @param kind The aggregate function
+     * @param argument Index of the aggregated column within the input columns; -1 for {@code COUNT(*)}
+     * @param resultType The type of the result
+     */
+    public ColumnAggregate( SqlKind kind, int argument, PolyType resultType ) {
+        this.kind = kind;
+        this.argument = argument;
+        this.resultType = resultType;
+    }
+
+
+    public static boolean isSupported( SqlKind kind ) {
+        switch ( kind ) {
+            case COUNT:
+            case SUM:
+            case SUM0:
+            case MIN:
+            case MAX:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * Creates an accumulator for this aggregate.
+     *
+     * @param vector A vector of the argument column, used for choosing the implementation; {@code null} for {@code COUNT(*)}
+     */
+    Accumulator createAccumulator( ColumnVector vector ) {
+        if ( kind == SqlKind.COUNT ) {
+            return vector == null ? new CountStarAccumulator() : new CountAccumulator();
+        }
+        if ( kind == SqlKind.SUM || kind == SqlKind.SUM0 ) {
+            if ( vector instanceof LongVector ) {
+                return new LongSumAccumulator();
+            } else if ( vector instanceof DoubleVector ) {
+                return new DoubleSumAccumulator();
+            }
+            return new DecimalSumAccumulator();
+        }
+        final boolean min = kind == SqlKind.MIN;
+        if ( vector instanceof LongVector ) {
+            return new LongMinMaxAccumulator( min );
+        } else if ( vector instanceof DoubleVector ) {
+            return new DoubleMinMaxAccumulator( min );
+        }
+        return new ObjectMinMaxAccumulator( min );
+    }
+
+
+    @Override
+    public String toString() {
+        return kind + "($" + argument + ")";
+    }
+
+
+    /**
+     * Accumulates the values of one aggregate for all groups.
+     */
+    abstract class Accumulator {
+
+        protected boolean[] seen = new boolean[16];
+
+
+        void ensureCapacity( int groups ) {
+            if ( groups > seen.length ) {
+                int capacity = Math.max( groups, seen.length * 2 );
+                seen = Arrays.copyOf( seen, capacity );
+                resize( capacity );
+            }
+        }
+
+
+        protected abstract void resize( int capacity );
+
+
+        /**
+         * @param vector The argument column; {@code null} for {@code COUNT(*)}
+         * @param selection The selected rows
+         * @param n Number of selected rows
+         * @param groups The group of each selected row
+         */
+        abstract void accumulate( ColumnVector vector, int[] selection, int n, int[] groups );
+
+
+        abstract Object result( int group );
+
+
+        /**
+         * Result of a group without any non-null value.
+         */
+        protected Object emptyResult() {
+            if ( kind == SqlKind.SUM0 ) {
+                return ColumnVector.fromLong( resultType, 0 );
+            }
+            return null;
+        }
+
+    }
+
+
+    private class CountStarAccumulator extends Accumulator {
+
+        private long[] counts = new long[16];
+
+
+        @Override
+        protected void resize( int capacity ) {
+            counts = Arrays.copyOf( counts, capacity );
+        }
+
+
+        @Override
+        void accumulate( ColumnVector vector, int[] selection, int n, int[] groups ) {
+            for ( int k = 0; k < n; k++ ) {
+                counts[groups[k]]++;
+            }
+        }
+
+
+        @Override
+        Object result( int group ) {
+            return counts[group];
+        }
+
+    }
+
+
+    private class CountAccumulator extends Accumulator {
+
+        private long[] counts = new long[16];
+
+
+        @Override
+        protected void resize( int capacity ) {
+            counts = Arrays.copyOf( counts, capacity );
+        }
+
+
+        @Override
+        void accumulate( ColumnVector vector, int[] selection, int n, int[] groups ) {
+            if ( !vector.hasNulls() ) {
+                for ( int k = 0; k < n; k++ ) {
+                    counts[groups[k]]++;
+                }
+                return;
+            }
+            for ( int k = 0; k < n; k++ ) {
+                if ( !vector.isNull( selection[k] ) ) {
+                    counts[groups[k]]++;
+                }
+            }
+        }
+
+
+        @Override
+        Object result( int group ) {
+            return counts[group];
+        }
+
+    }
+
+
+    private class LongSumAccumulator extends Accumulator {
+
+        private long[] sums = new long[16];
+
+
+        @Override
+        protected void resize( int capacity ) {
+            sums = Arrays.copyOf( sums, capacity );
+        }
+
+
+        @Override
+        void accumulate( ColumnVector vector, int[] selection, int n, int[] groups ) {
+            final LongVector values = (LongVector) vector;
+            final boolean nulls = values.hasNulls();
+            for ( int k = 0; k < n; k++ ) {
+                final int i = selection[k];
+                if ( !nulls || !values.isNull( i ) ) {
+                    final int g = groups[k];
+                    sums[g] += values.getLong( i );
+                    seen[g] = true;
+                }
+            }
+        }
+
+
+        @Override
+        Object result( int group ) {
+            return seen[group] ? ColumnVector.fromLong( resultType, sums[group] ) : emptyResult();
+        }
+
+    }
+
+
+    private class DoubleSumAccumulator extends Accumulator {
+
+        private double[] sums = new double[16];
+
+
+        @Override
+        protected void resize( int capacity ) {
+            sums = Arrays.copyOf( sums, capacity );
+        }
+
+
+        @Override
+        void accumulate( ColumnVector vector, int[] selection, int n, int[] groups ) {
+            final DoubleVector values = (DoubleVector) vector;
+            final boolean nulls = values.hasNulls();
+            for ( int k = 0; k < n; k++ ) {
+                final int i = selection[k];
+                if ( !nulls || !values.isNull( i ) ) {
+                    final int g = groups[k];
+                    sums[g] += values.getDouble( i );
+                    seen[g] = true;
+                }
+            }
+        }
+
+
+        @Override
+        Object result( int group ) {
+            return seen[group] ? ColumnVector.fromDouble( resultType, sums[group] ) : emptyResult();
+        }
+
+    }
+
+
+    private class DecimalSumAccumulator extends Accumulator {
+
+        private BigDecimal[] sums = new BigDecimal[16];
+
+
+        @Override
+        protected void resize( int capacity ) {
+            sums = Arrays.copyOf( sums, capacity );
+        }
+
+
+        @Override
+        void accumulate( ColumnVector vector, int[] selection, int n, int[] groups ) {
+            for ( int k = 0; k < n; k++ ) {
+                final Object value = vector.get( selection[k] );
+                if ( value != null ) {
+                    final int g = groups[k];
+                    final BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal( value.toString() );
+                    sums[g] = seen[g] ? sums[g].add( decimal ) : decimal;
+                    seen[g] = true;
+                }
+            }
+        }
+
+
+        @Override
+        Object result( int group ) {
+            return seen[group] ? sums[group] : emptyResult();
+        }
+
+    }
+
+
+    private class LongMinMaxAccumulator extends Accumulator {
+
+        private final boolean min;
+        private long[] values = new long[16];
+
+
+        private LongMinMaxAccumulator( boolean min ) {
+            this.min = min;
+        }
+
+
+        @Override
+        protected void resize( int capacity ) {
+            values = Arrays.copyOf( values, capacity );
+        }
+
+
+        @Override
+        void accumulate( ColumnVector vector, int[] selection, int n, int[] groups ) {
+            final LongVector column = (LongVector) vector;
+            final boolean nulls = column.hasNulls();
+            for ( int k = 0; k < n; k++ ) {
+                final int i = selection[k];
+                if ( !nulls || !column.isNull( i ) ) {
+                    final int g = groups[k];
+                    final long value = column.getLong( i );
+                    if ( !seen[g] || (min ? value < values[g] : value > values[g]) ) {
+                        values[g] = value;
+                        seen[g] = true;
+                    }
+                }
+            }
+        }
+
+
+        @Override
+        Object result( int group ) {
+            return seen[group] ? ColumnVector.fromLong( resultType, values[group] ) : null;
+        }
+
+    }
+
+
+    private class DoubleMinMaxAccumulator extends Accumulator {
+
+        private final boolean min;
+        private double[] values = new double[16];
+
+
+        private DoubleMinMaxAccumulator( boolean min ) {
+            this.min = min;
+        }
+
+
+        @Override
+        protected void resize( int capacity ) {
+            values = Arrays.copyOf( values, capacity );
+        }
+
+
+        @Override
+        void accumulate( ColumnVector vector, int[] selection, int n, int[] groups ) {
+            final DoubleVector column = (DoubleVector) vector;
+            final boolean nulls = column.hasNulls();
+            for ( int k = 0; k < n; k++ ) {
+                final int i = selection[k];
+                if ( !nulls || !column.isNull( i ) ) {
+                    final int g = groups[k];
+                    final double value = column.getDouble( i );
+                    if ( !seen[g] || (min ? value < values[g] : value > values[g]) ) {
+                        values[g] = value;
+                        seen[g] = true;
+                    }
+                }
+            }
+        }
+
+
+        @Override
+        Object result( int group ) {
+            return seen[group] ? ColumnVector.fromDouble( resultType, values[group] ) : null;
+        }
+
+    }
+
+
+    private class ObjectMinMaxAccumulator extends Accumulator {
+
+        private final boolean min;
+        private Object[] values = new Object[16];
+
+
+        private ObjectMinMaxAccumulator( boolean min ) {
+            this.min = min;
+        }
+
+
+        @Override
+        protected void resize( int capacity ) {
+            values = Arrays.copyOf( values, capacity );
+        }
+
+
+        @Override
+        void accumulate( ColumnVector vector, int[] selection, int n, int[] groups ) {
+            for ( int k = 0; k < n; k++ ) {
+                final Object value = vector.get( selection[k] );
+                if ( value != null ) {
+                    final int g = groups[k];
+                    if ( !seen[g] ) {
+                        values[g] = value;
+                        seen[g] = true;
+                    } else {
+                        final int c = ColumnPredicate.compare( value, values[g] );
+                        if ( min ? c < 0 : c > 0 ) {
+                            values[g] = value;
+                        }
+                    }
+                }
+            }
+        }
+
+
+        @Override
+        Object result( int group ) {
+            return values[group];
+        }
+
+    }
+
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongFunction;
+import lombok.Getter;
+import org.polypheny.db.sql.SqlKind;
+
+
+/**
+ * A predicate on a single column which is evaluated over a selection vector: {@code column <op> value},
+ * {@code column IS [NOT] NULL} or {@code column IN (values)}.
+ *
+ * Evaluation shrinks the selection vector in place. Every supported combination of column vector and operator is a
+ * separate loop over the primitive values, so that the comparison does not need to be dispatched per row.
+ */
+public class ColumnPredicate {
+
+    @Getter
+    private final int column;
+    @Getter
+    private final SqlKind kind;
+    private final List<Operand> operands;
+
+
+    /**
+     * @param column Index of the column within the scanned columns
+     * @param kind One of {@code EQUALS}, {@code NOT_EQUALS}, {@code LESS_THAN}, {@code LESS_THAN_OR_EQUAL},
+     * {@code GREATER_THAN}, {@code GREATER_THAN_OR_EQUAL}, {@code IS_NULL}, {@code IS_NOT_NULL} or {@code IN}
+     * @param operands The values to compare with; one for comparisons, none for null checks, any number for {@code IN}
+     */
+    public ColumnPredicate( int column, SqlKind kind, List<Operand> operands ) {
+        this.column = column;
+        this.kind = kind;
+        this.operands = operands;
+    }
+
+
+    public static boolean isSupported( SqlKind kind ) {
+        switch ( kind ) {
+            case EQUALS:
+            case NOT_EQUALS:
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+            case IS_NULL:
+            case IS_NOT_NULL:
+            case IN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * Returns a copy of this predicate referencing another column.
+     */
+    public ColumnPredicate withColumn( int column ) {
+        return new ColumnPredicate( column, kind, operands );
+    }
+
+
+    /**
+     * Removes the rows not satisfying this predicate from the selection.
+     *
+     * @param vector The column to evaluate the predicate on
+     * @param selection The selected rows; the rows satisfying the predicate are moved to the front
+     * @param n Number of valid entries in the selection
+     * @param parameters Provides the values of dynamic parameters
+     * @return Number of rows satisfying the predicate
+     */
+    public int filter( ColumnVector vector, int[] selection, int n, LongFunction<Object> parameters ) {
+        if ( kind == SqlKind.IS_NULL || kind == SqlKind.IS_NOT_NULL ) {
+            return filterNulls( vector, selection, n, kind == SqlKind.IS_NULL );
+        }
+        final List<Object> values = new ArrayList<>( operands.size() );
+        for ( Operand operand : operands ) {
+            Object value = operand.resolve( parameters );
+            if ( value != null ) {
+                values.add( value );
+            }
+        }
+        if ( values.isEmpty() ) {
+            // Comparing with null is never true
+            return 0;
+        }
+        if ( vector.hasNulls() ) {
+            n = filterNulls( vector, selection, n, false );
+        }
+        if ( vector instanceof LongVector ) {
+            return filterLong( (LongVector) vector, selection, n, values );
+        } else if ( vector instanceof DoubleVector ) {
+            return filterDouble( (DoubleVector) vector, selection, n, values );
+        } else if ( vector instanceof DictionaryVector ) {
+            return filterDictionary( (DictionaryVector) vector, selection, n, values );
+        }
+        return filterObject( vector, selection, n, values );
+    }
+
+
+    private static int filterNulls( ColumnVector vector, int[] selection, int n, boolean keepNulls ) {
+        if ( !vector.hasNulls() ) {
+            return keepNulls ? 0 : n;
+        }
+        int m = 0;
+        for ( int k = 0; k < n; k++ ) {
+            final int i = selection[k];
+            if ( vector.isNull( i ) == keepNulls ) {
+                selection[m++] = i;
+            }
+        }
+        return m;
+    }
+
+
+    private int filterLong( LongVector vector, int[] selection, int n, List<Object> values ) {
+        int m = 0;
+        if ( kind == SqlKind.IN ) {
+            final long[] sorted = new long[values.size()];
+            for ( int j = 0; j < sorted.length; j++ ) {
+                sorted[j] = ColumnVector.toLong( values.get( j ) );
+            }
+            Arrays.sort( sorted );
+            for ( int k = 0; k < n; k++ ) {
+                final int i = selection[k];
+                if ( Arrays.binarySearch( sorted, vector.getLong( i ) ) >= 0 ) {
+                    selection[m++] = i;
+                }
+            }
+            return m;
+        }
+        final long c = ColumnVector.toLong( values.get( 0 ) );
+        switch ( kind ) {
+            case EQUALS:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getLong( i ) == c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case NOT_EQUALS:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getLong( i ) != c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case LESS_THAN:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getLong( i ) < c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case LESS_THAN_OR_EQUAL:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getLong( i ) <= c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case GREATER_THAN:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getLong( i ) > c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getLong( i ) >= c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            default:
+                throw new AssertionError( kind );
+        }
+        return m;
+    }
+
+
+    private int filterDouble( DoubleVector vector, int[] selection, int n, List<Object> values ) {
+        int m = 0;
+        if ( kind == SqlKind.IN ) {
+            final double[] sorted = new double[values.size()];
+            for ( int j = 0; j < sorted.length; j++ ) {
+                sorted[j] = ((Number) values.get( j )).doubleValue();
+            }
+            Arrays.sort( sorted );
+            for ( int k = 0; k < n; k++ ) {
+                final int i = selection[k];
+                if ( Arrays.binarySearch( sorted, vector.getDouble( i ) ) >= 0 ) {
+                    selection[m++] = i;
+                }
+            }
+            return m;
+        }
+        final double c = ((Number) values.get( 0 )).doubleValue();
+        switch ( kind ) {
+            case EQUALS:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getDouble( i ) == c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case NOT_EQUALS:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getDouble( i ) != c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case LESS_THAN:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getDouble( i ) < c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case LESS_THAN_OR_EQUAL:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getDouble( i ) <= c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case GREATER_THAN:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getDouble( i ) > c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                for ( int k = 0; k < n; k++ ) {
+                    final int i = selection[k];
+                    if ( vector.getDouble( i ) >= c ) {
+                        selection[m++] = i;
+                    }
+                }
+                break;
+            default:
+                throw new AssertionError( kind );
+        }
+        return m;
+    }
+
+
+    /**
+     * Strings are compared once per distinct value of the dictionary. The rows are then filtered by looking up the
+     * result for their code.
+     */
+    private int filterDictionary( DictionaryVector vector, int[] selection, int n, List<Object> values ) {
+        final Dictionary dictionary = vector.getDictionary();
+        int m = 0;
+        if ( kind == SqlKind.EQUALS ) {
+            final int code = dictionary.lookup( values.get( 0 ).toString() );
+            if ( code < 0 ) {
+                return 0;
+            }
+            for ( int k = 0; k < n; k++ ) {
+                final int i = selection[k];
+                if ( vector.getCode( i ) == code ) {
+                    selection[m++] = i;
+                }
+            }
+            return m;
+        }
+        final int size = dictionary.size();
+        final boolean[] matches = new boolean[size];
+        for ( int code = 0; code < size; code++ ) {
+            matches[code] = matches( dictionary.decode( code ), values );
+        }
+        for ( int k = 0; k < n; k++ ) {
+            final int i = selection[k];
+            final int code = vector.getCode( i );
+            // Codes added after the snapshot of the dictionary only occur in rows which are not visible
+            if ( code < size && matches[code] ) {
+                selection[m++] = i;
+            }
+        }
+        return m;
+    }
+
+
+    private int filterObject( ColumnVector vector, int[] selection, int n, List<Object> values ) {
+        int m = 0;
+        for ( int k = 0; k < n; k++ ) {
+            final int i = selection[k];
+            if ( matches( vector.get( i ), values ) ) {
+                selection[m++] = i;
+            }
+        }
+        return m;
+    }
+
+
+    private boolean matches( Object value, List<Object> values ) {
+        if ( kind == SqlKind.IN ) {
+            for ( Object v : values ) {
+                if ( compare( value, v ) == 0 ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        final int c = compare( value, values.get( 0 ) );
+        switch ( kind ) {
+            case EQUALS:
+                return c == 0;
+            case NOT_EQUALS:
+                return c != 0;
+            case LESS_THAN:
+                return c < 0;
+            case LESS_THAN_OR_EQUAL:
+                return c <= 0;
+            case GREATER_THAN:
+                return c > 0;
+            case GREATER_THAN_OR_EQUAL:
+                return c >= 0;
+            default:
+                throw new AssertionError( kind );
+        }
+    }
+
+
+    /**
+     * Compares two non-null values. Numbers of different classes are compared by their decimal value.
+     */
+    @SuppressWarnings("unchecked")
+    static int compare( Object a, Object b ) {
+        if ( a instanceof Number && b instanceof Number && a.getClass() != b.getClass() ) {
+            return new BigDecimal( a.toString() ).compareTo( new BigDecimal( b.toString() ) );
+        }
+        if ( a instanceof String || b instanceof String ) {
+            return a.toString().compareTo( b.toString() );
+        }
+        return ((Comparable<Object>) a).compareTo( b );
+    }
+
+
+    @Override
+    public String toString() {
+        return "$" + column + " " + kind + " " + operands;
+    }
+
+}
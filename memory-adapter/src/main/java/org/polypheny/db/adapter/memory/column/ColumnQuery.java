@@ -0,0 +1,355 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Functions;
+import org.polypheny.db.adapter.memory.column.ColumnAggregate.Accumulator;
+import org.polypheny.db.adapter.memory.column.ColumnTable.VisibleRows;
+import org.polypheny.db.runtime.Enumerables;
+import org.polypheny.db.transaction.PolyXid;
+
+
+/**
+ * A query on a {@link ColumnTable}: scan, filter, project, aggregate and sort, evaluated in this order.
+ *
+ * The filters narrow down a selection vector of row numbers, one column at a time. Only the columns which are needed are
+ * touched, and only the selected rows are materialized. A query is immutable once it has been planned and can be
+ * executed any number of times.
+ */
+public class ColumnQuery {
+
+    /**
+     * Ids of the scanned columns. All column indexes of the filters refer to these columns.
+     */
+    @Getter
+    private final Long[] columnIds;
+
+    @Getter
+    private final List<ColumnPredicate> filters = new ArrayList<>();
+
+    /**
+     * Indexes of the scanned columns returned by the query (or used by the aggregation); {@code null} for all columns.
+     */
+    @Getter
+    @Setter
+    private int[] projection;
+
+    /**
+     * Indexes of the projected columns to group by; {@code null} if the query does not aggregate.
+     */
+    @Getter
+    @Setter
+    private int[] groupKeys;
+
+    @Getter
+    private final List<ColumnAggregate> aggregates = new ArrayList<>();
+
+    @Getter
+    private final List<SortKey> sortKeys = new ArrayList<>();
+
+    @Getter
+    @Setter
+    private Operand offset;
+
+    @Getter
+    @Setter
+    private Operand fetch;
+
+
+    public ColumnQuery( Long[] columnIds ) {
+        this.columnIds = columnIds;
+    }
+
+
+    public int getOutputColumnCount() {
+        if ( groupKeys != null ) {
+            return groupKeys.length + aggregates.size();
+        }
+        return projection == null ? columnIds.length : projection.length;
+    }
+
+
+    /**
+     * Executes the query on behalf of the given transaction.
+     *
+     * @param table The table to query
+     * @param xid The transaction; its uncommitted changes are visible
+     * @param parameters Provides the values of dynamic parameters
+     * @return The resulting rows
+     */
+    public List<Object[]> execute( ColumnTable table, PolyXid xid, LongFunction<Object> parameters ) {
+        List<Object[]> rows;
+        table.readLock().lock();
+        try {
+            final int[] columns = new int[columnIds.length];
+            for ( int i = 0; i < columns.length; i++ ) {
+                columns[i] = table.indexOf( columnIds[i] );
+            }
+            final int[] output = new int[projection == null ? columns.length : projection.length];
+            for ( int i = 0; i < output.length; i++ ) {
+                output[i] = columns[projection == null ? i : projection[i]];
+            }
+
+            final List<VisibleRows> blocks = table.getVisibleRows( xid );
+            final List<int[]> selections = new ArrayList<>( blocks.size() );
+            final int[] counts = new int[blocks.size()];
+            for ( int b = 0; b < blocks.size(); b++ ) {
+                final RowBlock block = blocks.get( b ).getBlock();
+                int[] selection = blocks.get( b ).getRows();
+                int n = selection.length;
+                for ( ColumnPredicate filter : filters ) {
+                    if ( n == 0 ) {
+                        break;
+                    }
+                    n = filter.filter( block.getColumn( columns[filter.getColumn()] ), selection, n, parameters );
+                }
+                selections.add( selection );
+                counts[b] = n;
+            }
+
+            if ( groupKeys != null ) {
+                rows = aggregate( blocks, selections, counts, output );
+            } else {
+                rows = materialize( blocks, selections, counts, output );
+            }
+        } finally {
+            table.readLock().unlock();
+        }
+        return sortAndLimit( rows, parameters );
+    }
+
+
+    private List<Object[]> materialize( List<VisibleRows> blocks, List<int[]> selections, int[] counts, int[] output ) {
+        int total = 0;
+        for ( int count : counts ) {
+            total += count;
+        }
+        final Object[][] rows = new Object[total][output.length];
+        int offset = 0;
+        for ( int b = 0; b < blocks.size(); b++ ) {
+            final RowBlock block = blocks.get( b ).getBlock();
+            final int[] selection = selections.get( b );
+            final int n = counts[b];
+            for ( int c = 0; c < output.length; c++ ) {
+                final ColumnVector vector = block.getColumn( output[c] );
+                for ( int k = 0; k < n; k++ ) {
+                    rows[offset + k][c] = vector.get( selection[k] );
+                }
+            }
+            offset += n;
+        }
+        return Arrays.asList( rows );
+    }
+
+
+    private List<Object[]> aggregate( List<VisibleRows> blocks, List<int[]> selections, int[] counts, int[] output ) {
+        final RowBlock first = blocks.get( 0 ).getBlock();
+        final Accumulator[] accumulators = new Accumulator[aggregates.size()];
+        for ( int a = 0; a < accumulators.length; a++ ) {
+            final int argument = aggregates.get( a ).getArgument();
+            accumulators[a] = aggregates.get( a ).createAccumulator( argument < 0 ? null : first.getColumn( output[argument] ) );
+        }
+        final Groups groups = new Groups();
+        if ( groupKeys.length == 0 ) {
+            // Without group keys, there is exactly one group, even if there are no rows
+            groups.keys.add( new Object[0] );
+        }
+        for ( int b = 0; b < blocks.size(); b++ ) {
+            final RowBlock block = blocks.get( b ).getBlock();
+            final int[] selection = selections.get( b );
+            final int n = counts[b];
+            final int[] groupOf = new int[n];
+            if ( groupKeys.length > 0 ) {
+                final ColumnVector[] keys = new ColumnVector[groupKeys.length];
+                for ( int g = 0; g < keys.length; g++ ) {
+                    keys[g] = block.getColumn( output[groupKeys[g]] );
+                }
+                groups.assign( keys, selection, n, groupOf );
+            }
+            for ( int a = 0; a < accumulators.length; a++ ) {
+                final int argument = aggregates.get( a ).getArgument();
+                accumulators[a].ensureCapacity( groups.keys.size() );
+                accumulators[a].accumulate( argument < 0 ? null : block.getColumn( output[argument] ), selection, n, groupOf );
+            }
+        }
+        final List<Object[]> rows = new ArrayList<>( groups.keys.size() );
+        for ( int g = 0; g < groups.keys.size(); g++ ) {
+            final Object[] key = groups.keys.get( g );
+            final Object[] row = Arrays.copyOf( key, key.length + accumulators.length );
+            for ( int a = 0; a < accumulators.length; a++ ) {
+                accumulators[a].ensureCapacity( g + 1 );
+                row[key.length + a] = accumulators[a].result( g );
+            }
+            rows.add( row );
+        }
+        return rows;
+    }
+
+
+    private List<Object[]> sortAndLimit( List<Object[]> rows, LongFunction<Object> parameters ) {
+        int from = 0;
+        int to = rows.size();
+        if ( offset != null ) {
+            from = (int) Math.min( ColumnVector.toLong( offset.resolve( parameters ) ), to );
+        }
+        if ( fetch != null ) {
+            to = (int) Math.min( from + ColumnVector.toLong( fetch.resolve( parameters ) ), to );
+        }
+        if ( !sortKeys.isEmpty() ) {
+            Comparator<Object[]> comparator = sortKeys.get( 0 );
+            for ( int i = 1; i < sortKeys.size(); i++ ) {
+                comparator = comparator.thenComparing( sortKeys.get( i ) );
+            }
+            if ( to < rows.size() ) {
+                // Only keep the first rows in a bounded heap instead of sorting all of them
+                return Enumerables.topN( Linq4j.asEnumerable( rows ), Functions.identitySelector(), comparator, from, to - from ).toList();
+            }
+            rows = new ArrayList<>( rows );
+            rows.sort( comparator );
+        }
+        return from == 0 && to == rows.size() ? rows : rows.subList( from, to );
+    }
+
+
+    @Override
+    public String toString() {
+        return "ColumnQuery{columns=" + Arrays.toString( columnIds )
+                + ", filters=" + filters
+                + ", projection=" + Arrays.toString( projection )
+                + ", groupKeys=" + Arrays.toString( groupKeys )
+                + ", aggregates=" + aggregates
+                + ", sort=" + sortKeys
+                + ", offset=" + offset
+                + ", fetch=" + fetch + "}";
+    }
+
+
+    /**
+     * Assigns a dense group number to every distinct combination of key values.
+     */
+    private static class Groups {
+
+        private final List<Object[]> keys = new ArrayList<>();
+        private final Map<Object, Integer> numbers = new HashMap<>();
+        /**
+         * Group number per dictionary code (shifted by one, for the null value); used for grouping by a single string column.
+         */
+        private int[] numbersByCode = new int[0];
+
+
+        void assign( ColumnVector[] vectors, int[] selection, int n, int[] groupOf ) {
+            if ( vectors.length == 1 && vectors[0] instanceof DictionaryVector ) {
+                assignByCode( (DictionaryVector) vectors[0], selection, n, groupOf );
+                return;
+            }
+            for ( int k = 0; k < n; k++ ) {
+                final int i = selection[k];
+                final Object key;
+                if ( vectors.length == 1 ) {
+                    key = vectors[0].get( i );
+                } else {
+                    final Object[] values = new Object[vectors.length];
+                    for ( int v = 0; v < vectors.length; v++ ) {
+                        values[v] = vectors[v].get( i );
+                    }
+                    key = Arrays.asList( values );
+                }
+                Integer number = numbers.get( key );
+                if ( number == null ) {
+                    number = keys.size();
+                    numbers.put( key, number );
+                    keys.add( vectors.length == 1 ? new Object[]{ key } : ((List<?>) key).toArray() );
+                }
+                groupOf[k] = number;
+            }
+        }
+
+
+        private void assignByCode( DictionaryVector vector, int[] selection, int n, int[] groupOf ) {
+            final int size = vector.getDictionary().size() + 1;
+            if ( numbersByCode.length < size ) {
+                final int previous = numbersByCode.length;
+                numbersByCode = Arrays.copyOf( numbersByCode, size );
+                Arrays.fill( numbersByCode, previous, size, -1 );
+            }
+            for ( int k = 0; k < n; k++ ) {
+                final int i = selection[k];
+                final int code = vector.isNull( i ) ? -1 : vector.getCode( i );
+                int number = numbersByCode[code + 1];
+                if ( number < 0 ) {
+                    number = keys.size();
+                    numbersByCode[code + 1] = number;
+                    keys.add( new Object[]{ code < 0 ? null : vector.getDictionary().decode( code ) } );
+                }
+                groupOf[k] = number;
+            }
+        }
+
+    }
+
+
+    /**
+     * A sort key, referring to a column of the result.
+     */
+    public static class SortKey implements Comparator<Object[]> {
+
+        private final int column;
+        private final boolean descending;
+        private final boolean nullsFirst;
+
+
+        public SortKey( int column, boolean descending, boolean nullsFirst ) {
+            this.column = column;
+            this.descending = descending;
+            this.nullsFirst = nullsFirst;
+        }
+
+
+        @Override
+        public int compare( Object[] a, Object[] b ) {
+            final Object x = a[column];
+            final Object y = b[column];
+            if ( x == null || y == null ) {
+                if ( x == y ) {
+                    return 0;
+                }
+                return (x == null) == nullsFirst ? -1 : 1;
+            }
+            final int c = ColumnPredicate.compare( x, y );
+            return descending ? -c : c;
+        }
+
+
+        @Override
+        public String toString() {
+            return "$" + column + (descending ? " DESC" : "") + (nullsFirst ? " NULLS FIRST" : " NULLS LAST");
+        }
+
+    }
+
+}
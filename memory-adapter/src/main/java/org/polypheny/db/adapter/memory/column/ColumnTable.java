@@ -0,0 +1,361 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.Getter;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * The data of a table placed on an in-memory store.
+ *
+ * The committed rows are kept in the base {@link RowBlock}. Every transaction modifying the table gets a {@link Delta}
+ * holding the rows it has inserted and the committed rows it has deleted. A transaction sees the committed rows minus its
+ * own deletions plus its own insertions; the changes of other transactions become visible when they commit. An update is
+ * a deletion followed by an insertion.
+ *
+ * Readers hold the read lock while evaluating a query, modifications and commits take the write lock.
+ */
+public class ColumnTable {
+
+    /**
+     * Minimal number of deleted rows before the base block is compacted.
+     */
+    private static final int MIN_COMPACTION_ROWS = 1024;
+
+    @Getter
+    private final long tableId;
+    private final List<Long> columnIds = new ArrayList<>();
+    private final Map<Long, Dictionary> dictionaries = new HashMap<>();
+    private final RowBlock base;
+    private final Map<PolyXid, Delta> deltas = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+
+    public ColumnTable( long tableId, List<Long> columnIds, List<PolyType> columnTypes ) {
+        this.tableId = tableId;
+        List<ColumnVector> columns = new ArrayList<>();
+        for ( int i = 0; i < columnIds.size(); i++ ) {
+            this.columnIds.add( columnIds.get( i ) );
+            columns.add( createVector( columnIds.get( i ), columnTypes.get( i ) ) );
+        }
+        this.base = new RowBlock( columns );
+    }
+
+
+    private ColumnVector createVector( long columnId, PolyType type ) {
+        return ColumnVector.create( type, dictionaries.computeIfAbsent( columnId, id -> new Dictionary() ) );
+    }
+
+
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+
+    public Lock writeLock() {
+        return lock.writeLock();
+    }
+
+
+    /**
+     * Returns the position of the given column in the rows of this table.
+     *
+     * @throws IllegalArgumentException if the column is not placed on this table
+     */
+    public int indexOf( long columnId ) {
+        int index = columnIds.indexOf( columnId );
+        if ( index < 0 ) {
+            throw new IllegalArgumentException( "Column " + columnId + " is not part of table " + tableId );
+        }
+        return index;
+    }
+
+
+    public int getColumnCount() {
+        return columnIds.size();
+    }
+
+
+    public List<Long> getColumnIds() {
+        return Collections.unmodifiableList( columnIds );
+    }
+
+
+    public PolyType getColumnType( int index ) {
+        return base.getColumn( index ).getType();
+    }
+
+
+    /**
+     * Returns the committed rows. Requires the read lock.
+     */
+    public List<Object[]> getCommittedRows() {
+        final int[] rows = base.visibleRows( null );
+        final List<Object[]> committed = new ArrayList<>( rows.length );
+        for ( int row : rows ) {
+            committed.add( base.getRow( row ) );
+        }
+        return committed;
+    }
+
+
+    /**
+     * Returns the blocks visible to the given transaction together with the visible rows of each block.
+     * Requires the read lock.
+     */
+    public List<VisibleRows> getVisibleRows( PolyXid xid ) {
+        final Delta delta = deltas.get( xid );
+        final List<VisibleRows> visible = new ArrayList<>( 2 );
+        visible.add( new VisibleRows( base, base.visibleRows( delta == null ? null : delta.deletedBase ), true ) );
+        if ( delta != null && delta.inserted.size() > 0 ) {
+            visible.add( new VisibleRows( delta.inserted, delta.inserted.visibleRows( null ), false ) );
+        }
+        return visible;
+    }
+
+
+    /**
+     * Inserts rows on behalf of the given transaction. Requires the write lock.
+     */
+    public void insert( PolyXid xid, List<Object[]> rows ) {
+        Delta delta = getDelta( xid );
+        for ( Object[] row : rows ) {
+            delta.inserted.appendRow( row );
+        }
+    }
+
+
+    /**
+     * Deletes the rows visible to the given transaction whose key is contained in the given set. Requires the write lock.
+     *
+     * @param keyColumns Positions of the key columns
+     * @param keys The keys of the rows to delete; the value itself for single-column keys, a list of values otherwise
+     * @return Number of deleted rows
+     */
+    public int delete( PolyXid xid, int[] keyColumns, Set<Object> keys ) {
+        int count = 0;
+        for ( VisibleRows visibleRows : getVisibleRows( xid ) ) {
+            final RowBlock block = visibleRows.block;
+            final BitSet deleted = visibleRows.committed ? getDelta( xid ).deletedBase : block.deleted;
+            for ( int row : visibleRows.rows ) {
+                final Object key;
+                if ( keyColumns.length == 1 ) {
+                    key = block.getColumn( keyColumns[0] ).get( row );
+                } else {
+                    final Object[] values = new Object[keyColumns.length];
+                    for ( int k = 0; k < values.length; k++ ) {
+                        values[k] = block.getColumn( keyColumns[k] ).get( row );
+                    }
+                    key = Arrays.asList( values );
+                }
+                if ( keys.contains( key ) ) {
+                    deleted.set( row );
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+
+    private Delta getDelta( PolyXid xid ) {
+        return deltas.computeIfAbsent( xid, k -> new Delta( base.newEmpty() ) );
+    }
+
+
+    /**
+     * Makes the changes of the given transaction visible to everyone.
+     */
+    public void commit( PolyXid xid ) {
+        lock.writeLock().lock();
+        try {
+            final Delta delta = deltas.remove( xid );
+            if ( delta == null ) {
+                return;
+            }
+            base.deleted.or( delta.deletedBase );
+            base.appendAll( delta.inserted );
+            final int deletedCount = base.getDeletedCount();
+            if ( deletedCount >= MIN_COMPACTION_ROWS && deletedCount * 2 >= base.size() ) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Discards the changes of the given transaction.
+     */
+    public void rollback( PolyXid xid ) {
+        lock.writeLock().lock();
+        try {
+            deltas.remove( xid );
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Removes the deleted rows from the base block. The row numbers change, so the deletions of the pending transactions
+     * are translated to the new row numbers. Requires the write lock.
+     */
+    private void compact() {
+        final BitSet deleted = base.deleted;
+        for ( Delta delta : deltas.values() ) {
+            BitSet translated = new BitSet();
+            int removed = 0; // Number of deleted rows before row i
+            int nextDeleted = deleted.nextSetBit( 0 );
+            for ( int i = delta.deletedBase.nextSetBit( 0 ); i >= 0; i = delta.deletedBase.nextSetBit( i + 1 ) ) {
+                while ( nextDeleted >= 0 && nextDeleted < i ) {
+                    removed++;
+                    nextDeleted = deleted.nextSetBit( nextDeleted + 1 );
+                }
+                if ( nextDeleted != i ) {
+                    translated.set( i - removed );
+                }
+            }
+            delta.deletedBase.clear();
+            delta.deletedBase.or( translated );
+        }
+        base.compact();
+    }
+
+
+    /**
+     * Removes all rows, including the uncommitted rows of all transactions.
+     */
+    public void truncate() {
+        lock.writeLock().lock();
+        try {
+            base.clear();
+            deltas.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    public void addColumn( long columnId, PolyType type, Object defaultValue ) {
+        lock.writeLock().lock();
+        try {
+            columnIds.add( columnId );
+            base.addColumn( createVector( columnId, type ), defaultValue );
+            for ( Delta delta : deltas.values() ) {
+                delta.inserted.addColumn( createVector( columnId, type ), defaultValue );
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    public void dropColumn( long columnId ) {
+        lock.writeLock().lock();
+        try {
+            final int index = indexOf( columnId );
+            columnIds.remove( index );
+            dictionaries.remove( columnId );
+            base.dropColumn( index );
+            for ( Delta delta : deltas.values() ) {
+                delta.inserted.dropColumn( index );
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Number of committed rows.
+     */
+    public int getRowCount() {
+        lock.readLock().lock();
+        try {
+            return base.size() - base.getDeletedCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Number of bytes reserved by the column vectors of the committed rows.
+     */
+    public long getReservedBytes() {
+        lock.readLock().lock();
+        try {
+            return base.getReservedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * The uncommitted changes of a transaction.
+     */
+    private static class Delta {
+
+        private final RowBlock inserted;
+        private final BitSet deletedBase = new BitSet();
+
+
+        private Delta( RowBlock inserted ) {
+            this.inserted = inserted;
+        }
+
+    }
+
+
+    /**
+     * A block and the rows of this block which are visible to a transaction.
+     */
+    public static class VisibleRows {
+
+        @Getter
+        private final RowBlock block;
+        @Getter
+        private final int[] rows;
+        private final boolean committed;
+
+
+        private VisibleRows( RowBlock block, int[] rows, boolean committed ) {
+            this.block = block;
+            this.rows = rows;
+            this.committed = committed;
+        }
+
+    }
+
+}
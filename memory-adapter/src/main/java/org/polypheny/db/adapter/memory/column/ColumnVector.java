@@ -0,0 +1,284 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.BitSet;
+import lombok.Getter;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * The values of one column. Values are stored in the representation used by the enumerable convention
+ * (e.g. days since epoch for {@code DATE}).
+ *
+ * Fixed-width values are kept off-heap in direct buffers, which grow by doubling their capacity. A column vector is
+ * not thread-safe; the {@link ColumnTable} it belongs to guards it.
+ */
+public abstract class ColumnVector {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @Getter
+    protected final PolyType type;
+    protected int size = 0;
+    protected int capacity = 0;
+
+    /**
+     * One bit per row, set if the value is null. Only allocated after the first null value has been appended.
+     */
+    private LongBuffer nulls;
+
+
+    protected ColumnVector( PolyType type ) {
+        this.type = type;
+    }
+
+
+    /**
+     * Creates an empty column vector suitable for values of the given type.
+     *
+     * @param type The type of the column
+     * @param dictionary The dictionary to use for string columns; ignored for other types
+     */
+    public static ColumnVector create( PolyType type, Dictionary dictionary ) {
+        switch ( type ) {
+            case BOOLEAN:
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case DATE:
+            case TIME:
+            case TIMESTAMP:
+                return new LongVector( type );
+            case REAL:
+            case FLOAT:
+            case DOUBLE:
+                return new DoubleVector( type );
+            case CHAR:
+            case VARCHAR:
+                return new DictionaryVector( type, dictionary );
+            default:
+                return new ObjectVector( type );
+        }
+    }
+
+
+    /**
+     * Returns a new, empty column vector of the same kind.
+     */
+    public abstract ColumnVector newEmpty();
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public boolean hasNulls() {
+        return nulls != null;
+    }
+
+
+    public boolean isNull( int row ) {
+        return nulls != null && (nulls.get( row >>> 6 ) & (1L << row)) != 0;
+    }
+
+
+    /**
+     * Returns the value at the given row in the representation of the enumerable convention.
+     */
+    public Object get( int row ) {
+        if ( isNull( row ) ) {
+            return null;
+        }
+        return getValue( row );
+    }
+
+
+    protected abstract Object getValue( int row );
+
+
+    /**
+     * Appends a value in the representation of the enumerable convention. {@code null} is allowed.
+     */
+    public void append( Object value ) {
+        ensureCapacity( size + 1 );
+        if ( value == null ) {
+            setNull( size );
+            appendNull();
+        } else {
+            appendValue( value );
+        }
+        size++;
+    }
+
+
+    protected abstract void appendValue( Object value );
+
+
+    /**
+     * Appends a placeholder for a null value.
+     */
+    protected abstract void appendNull();
+
+
+    /**
+     * Appends all rows of the given vector which are not marked in {@code skip}.
+     */
+    public void appendAll( ColumnVector other, BitSet skip ) {
+        for ( int i = 0; i < other.size; i++ ) {
+            if ( !skip.get( i ) ) {
+                append( other.get( i ) );
+            }
+        }
+    }
+
+
+    /**
+     * Returns a copy of this vector containing only the rows which are not marked in {@code skip}.
+     */
+    public ColumnVector compact( BitSet skip ) {
+        ColumnVector compacted = newEmpty();
+        compacted.appendAll( this, skip );
+        return compacted;
+    }
+
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        size = 0;
+        nulls = null;
+    }
+
+
+    /**
+     * Number of bytes currently reserved for this vector.
+     */
+    public long getReservedBytes() {
+        return (long) capacity * getValueWidth() + (nulls == null ? 0 : nulls.capacity() * 8L);
+    }
+
+
+    protected abstract int getValueWidth();
+
+
+    private void setNull( int row ) {
+        if ( nulls == null ) {
+            nulls = allocate( Math.max( capacity, INITIAL_CAPACITY ) / 8 + 8 ).asLongBuffer();
+        }
+        nulls.put( row >>> 6, nulls.get( row >>> 6 ) | (1L << row) );
+    }
+
+
+    private void ensureCapacity( int required ) {
+        if ( required <= capacity ) {
+            return;
+        }
+        int newCapacity = Math.max( capacity == 0 ? INITIAL_CAPACITY : capacity * 2, required );
+        resize( newCapacity );
+        if ( nulls != null ) {
+            LongBuffer newNulls = allocate( newCapacity / 8 + 8 ).asLongBuffer();
+            nulls.rewind();
+            newNulls.put( nulls );
+            newNulls.rewind();
+            nulls = newNulls;
+        }
+        capacity = newCapacity;
+    }
+
+
+    /**
+     * Changes the capacity of the value buffer to the given number of values, keeping the first {@link #size} values.
+     */
+    protected abstract void resize( int newCapacity );
+
+
+    protected static ByteBuffer allocate( int bytes ) {
+        return ByteBuffer.allocateDirect( bytes ).order( ByteOrder.nativeOrder() );
+    }
+
+
+    /**
+     * Converts a value of the enumerable convention (or a parameter value) into a long.
+     */
+    static long toLong( Object value ) {
+        if ( value instanceof Boolean ) {
+            return (Boolean) value ? 1 : 0;
+        } else if ( value instanceof Number ) {
+            return ((Number) value).longValue();
+        } else if ( value instanceof java.sql.Date ) {
+            return Math.floorDiv( ((java.sql.Date) value).getTime(), 86400000L );
+        } else if ( value instanceof java.sql.Time ) {
+            return Math.floorMod( ((java.sql.Time) value).getTime(), 86400000L );
+        } else if ( value instanceof java.util.Date ) {
+            return ((java.util.Date) value).getTime();
+        }
+        throw new IllegalArgumentException( "Cannot convert " + value.getClass().getSimpleName() + " to a numeric value" );
+    }
+
+
+    /**
+     * Converts a long into the representation the enumerable convention uses for the given type.
+     */
+    static Object fromLong( PolyType type, long value ) {
+        switch ( type ) {
+            case BOOLEAN:
+                return value != 0;
+            case TINYINT:
+                return (byte) value;
+            case SMALLINT:
+                return (short) value;
+            case INTEGER:
+            case DATE:
+            case TIME:
+                return (int) value;
+            case DECIMAL:
+                return BigDecimal.valueOf( value );
+            case REAL:
+                return (float) value;
+            case FLOAT:
+            case DOUBLE:
+                return (double) value;
+            default:
+                return value;
+        }
+    }
+
+
+    /**
+     * Converts a double into the representation the enumerable convention uses for the given type.
+     */
+    static Object fromDouble( PolyType type, double value ) {
+        switch ( type ) {
+            case REAL:
+                return (float) value;
+            case DECIMAL:
+                return BigDecimal.valueOf( value );
+            default:
+                return value;
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Maps the distinct strings of a column to dense integer codes. Codes are never reassigned, so a code stays valid for the
+ * lifetime of the dictionary. Entries are only added; a dictionary is shared by the committed rows and the uncommitted
+ * rows of all transactions.
+ *
+ * Encoding is synchronized, decoding and lookups are lock-free.
+ */
+public class Dictionary {
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[64];
+    private volatile int size = 0;
+
+
+    /**
+     * Returns the code of the given string, adding it to the dictionary if necessary.
+     */
+    public int encode( String value ) {
+        Integer code = codes.get( value );
+        if ( code != null ) {
+            return code;
+        }
+        synchronized ( this ) {
+            code = codes.get( value );
+            if ( code != null ) {
+                return code;
+            }
+            String[] current = values;
+            if ( size == current.length ) {
+                current = Arrays.copyOf( current, current.length * 2 );
+                values = current;
+            }
+            current[size] = value;
+            code = size;
+            // Publish the value before the code can be read by anyone else
+            size = code + 1;
+            codes.put( value, code );
+            return code;
+        }
+    }
+
+
+    /**
+     * Returns the code of the given string or -1 if the dictionary does not contain the string.
+     */
+    public int lookup( String value ) {
+        Integer code = codes.get( value );
+        return code == null ? -1 : code;
+    }
+
+
+    public String decode( int code ) {
+        return values[code];
+    }
+
+
+    /**
+     * Number of distinct strings. All codes are smaller than this value.
+     */
+    public int size() {
+        return size;
+    }
+
+}
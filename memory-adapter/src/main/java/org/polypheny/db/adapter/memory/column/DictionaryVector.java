@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.nio.IntBuffer;
+import lombok.Getter;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * Column vector for character strings. The strings are dictionary-encoded: the vector only stores the codes, the strings
+ * themselves are kept once in the {@link Dictionary} of the column.
+ */
+public class DictionaryVector extends ColumnVector {
+
+    @Getter
+    private final Dictionary dictionary;
+    private IntBuffer codes;
+
+
+    DictionaryVector( PolyType type, Dictionary dictionary ) {
+        super( type );
+        this.dictionary = dictionary;
+    }
+
+
+    @Override
+    public ColumnVector newEmpty() {
+        return new DictionaryVector( type, dictionary );
+    }
+
+
+    public int getCode( int row ) {
+        return codes.get( row );
+    }
+
+
+    @Override
+    protected Object getValue( int row ) {
+        return dictionary.decode( codes.get( row ) );
+    }
+
+
+    @Override
+    protected void appendValue( Object value ) {
+        codes.put( size, dictionary.encode( value.toString() ) );
+    }
+
+
+    @Override
+    protected void appendNull() {
+        codes.put( size, -1 );
+    }
+
+
+    @Override
+    protected int getValueWidth() {
+        return 4;
+    }
+
+
+    @Override
+    protected void resize( int newCapacity ) {
+        IntBuffer newCodes = allocate( newCapacity * 4 ).asIntBuffer();
+        if ( codes != null ) {
+            codes.limit( size ).rewind();
+            newCodes.put( codes );
+            newCodes.clear();
+        }
+        codes = newCodes;
+    }
+
+}
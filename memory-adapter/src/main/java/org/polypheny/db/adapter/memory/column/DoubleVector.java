@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.nio.DoubleBuffer;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * Column vector for approximate numeric types.
+ */
+public class DoubleVector extends ColumnVector {
+
+    private DoubleBuffer values;
+
+
+    DoubleVector( PolyType type ) {
+        super( type );
+    }
+
+
+    @Override
+    public ColumnVector newEmpty() {
+        return new DoubleVector( type );
+    }
+
+
+    public double getDouble( int row ) {
+        return values.get( row );
+    }
+
+
+    @Override
+    protected Object getValue( int row ) {
+        return fromDouble( type, values.get( row ) );
+    }
+
+
+    @Override
+    protected void appendValue( Object value ) {
+        values.put( size, ((Number) value).doubleValue() );
+    }
+
+
+    @Override
+    protected void appendNull() {
+        values.put( size, 0 );
+    }
+
+
+    @Override
+    protected int getValueWidth() {
+        return 8;
+    }
+
+
+    @Override
+    protected void resize( int newCapacity ) {
+        DoubleBuffer newValues = allocate( newCapacity * 8 ).asDoubleBuffer();
+        if ( values != null ) {
+            values.limit( size ).rewind();
+            newValues.put( values );
+            newValues.clear();
+        }
+        values = newValues;
+    }
+
+}
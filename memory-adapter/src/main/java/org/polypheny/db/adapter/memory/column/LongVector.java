@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.nio.LongBuffer;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * Column vector for all types which can be represented as a long: integers, booleans, dates, times and timestamps.
+ */
+public class LongVector extends ColumnVector {
+
+    private LongBuffer values;
+
+
+    LongVector( PolyType type ) {
+        super( type );
+    }
+
+
+    @Override
+    public ColumnVector newEmpty() {
+        return new LongVector( type );
+    }
+
+
+    public long getLong( int row ) {
+        return values.get( row );
+    }
+
+
+    @Override
+    protected Object getValue( int row ) {
+        return fromLong( type, values.get( row ) );
+    }
+
+
+    @Override
+    protected void appendValue( Object value ) {
+        values.put( size, toLong( value ) );
+    }
+
+
+    @Override
+    protected void appendNull() {
+        values.put( size, 0 );
+    }
+
+
+    @Override
+    protected int getValueWidth() {
+        return 8;
+    }
+
+
+    @Override
+    protected void resize( int newCapacity ) {
+        LongBuffer newValues = allocate( newCapacity * 8 ).asLongBuffer();
+        if ( values != null ) {
+            values.limit( size ).rewind();
+            newValues.put( values );
+            newValues.clear();
+        }
+        values = newValues;
+    }
+
+}
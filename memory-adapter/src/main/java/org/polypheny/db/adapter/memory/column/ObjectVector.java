@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.util.Arrays;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * Column vector for all types without a primitive representation (e.g. {@code DECIMAL} or binary values). These values
+ * are kept on the heap.
+ */
+public class ObjectVector extends ColumnVector {
+
+    private Object[] values;
+
+
+    ObjectVector( PolyType type ) {
+        super( type );
+    }
+
+
+    @Override
+    public ColumnVector newEmpty() {
+        return new ObjectVector( type );
+    }
+
+
+    @Override
+    protected Object getValue( int row ) {
+        return values[row];
+    }
+
+
+    @Override
+    protected void appendValue( Object value ) {
+        values[size] = value;
+    }
+
+
+    @Override
+    protected void appendNull() {
+        values[size] = null;
+    }
+
+
+    @Override
+    public void clear() {
+        if ( values != null ) {
+            Arrays.fill( values, 0, size, null );
+        }
+        super.clear();
+    }
+
+
+    @Override
+    protected int getValueWidth() {
+        // Size of the reference only
+        return 8;
+    }
+
+
+    @Override
+    protected void resize( int newCapacity ) {
+        values = values == null ? new Object[newCapacity] : Arrays.copyOf( values, newCapacity );
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.util.function.LongFunction;
+
+
+/**
+ * A constant used by a query: either a literal or a dynamic parameter whose value is only known at execution time.
+ */
+public class Operand {
+
+    private final Object literal;
+    private final Long parameterIndex;
+
+
+    private Operand( Object literal, Long parameterIndex ) {
+        this.literal = literal;
+        this.parameterIndex = parameterIndex;
+    }
+
+
+    public static Operand literal( Object value ) {
+        return new Operand( value, null );
+    }
+
+
+    public static Operand parameter( long index ) {
+        return new Operand( null, index );
+    }
+
+
+    public Object resolve( LongFunction<Object> parameters ) {
+        return parameterIndex == null ? literal : parameters.apply( parameterIndex );
+    }
+
+
+    @Override
+    public String toString() {
+        return parameterIndex == null ? String.valueOf( literal ) : "?" + parameterIndex;
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+
+/**
+ * A set of column vectors of the same length plus a bitmap of deleted rows. Rows are only appended; deleting a row sets
+ * its bit in {@link #deleted}. The space of deleted rows is reclaimed by {@link #compact()}.
+ */
+public class RowBlock {
+
+    final List<ColumnVector> columns;
+    final BitSet deleted = new BitSet();
+    private int size = 0;
+
+
+    RowBlock( List<ColumnVector> columns ) {
+        this.columns = columns;
+    }
+
+
+    /**
+     * Returns an empty block with the same kind of columns.
+     */
+    RowBlock newEmpty() {
+        List<ColumnVector> empty = new ArrayList<>( columns.size() );
+        for ( ColumnVector column : columns ) {
+            empty.add( column.newEmpty() );
+        }
+        return new RowBlock( empty );
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public ColumnVector getColumn( int index ) {
+        return columns.get( index );
+    }
+
+
+    public int getDeletedCount() {
+        return deleted.cardinality();
+    }
+
+
+    void appendRow( Object[] row ) {
+        for ( int i = 0; i < columns.size(); i++ ) {
+            columns.get( i ).append( row[i] );
+        }
+        size++;
+    }
+
+
+    Object[] getRow( int row ) {
+        Object[] values = new Object[columns.size()];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = columns.get( i ).get( row );
+        }
+        return values;
+    }
+
+
+    /**
+     * Appends all rows of the given block which are not deleted in that block.
+     */
+    void appendAll( RowBlock other ) {
+        for ( int i = 0; i < columns.size(); i++ ) {
+            columns.get( i ).appendAll( other.columns.get( i ), other.deleted );
+        }
+        size += other.size - other.deleted.cardinality();
+    }
+
+
+    /**
+     * Returns the rows which are neither deleted in this block nor marked in {@code hidden}.
+     *
+     * @param hidden Additionally hidden rows; might be {@code null}
+     * @return A selection vector containing the visible rows in ascending order
+     */
+    int[] visibleRows( BitSet hidden ) {
+        final int[] selection;
+        if ( deleted.isEmpty() && (hidden == null || hidden.isEmpty()) ) {
+            selection = new int[size];
+            for ( int i = 0; i < size; i++ ) {
+                selection[i] = i;
+            }
+            return selection;
+        }
+        BitSet invisible = deleted;
+        if ( hidden != null && !hidden.isEmpty() ) {
+            invisible = (BitSet) deleted.clone();
+            invisible.or( hidden );
+        }
+        selection = new int[size - invisible.cardinality()];
+        int n = 0;
+        for ( int i = invisible.nextClearBit( 0 ); i < size; i = invisible.nextClearBit( i + 1 ) ) {
+            selection[n++] = i;
+        }
+        return selection;
+    }
+
+
+    /**
+     * Removes the deleted rows.
+     */
+    void compact() {
+        for ( int i = 0; i < columns.size(); i++ ) {
+            columns.set( i, columns.get( i ).compact( deleted ) );
+        }
+        size -= deleted.cardinality();
+        deleted.clear();
+    }
+
+
+    void clear() {
+        for ( ColumnVector column : columns ) {
+            column.clear();
+        }
+        deleted.clear();
+        size = 0;
+    }
+
+
+    void addColumn( ColumnVector column, Object defaultValue ) {
+        for ( int i = 0; i < size; i++ ) {
+            column.append( defaultValue );
+        }
+        columns.add( column );
+    }
+
+
+    void dropColumn( int index ) {
+        columns.remove( index );
+    }
+
+
+    long getReservedBytes() {
+        long bytes = 0;
+        for ( ColumnVector column : columns ) {
+            bytes += column.getReservedBytes();
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,9 @@
+
+/**
+ * Memory Adapter
+ *
+ * The Memory Adapter keeps all data in-memory as off-heap column vectors. It is suitable for analytical queries on data
+ * which fits into the main memory.
+ */
+
+package org.polypheny.db.adapter.memory;
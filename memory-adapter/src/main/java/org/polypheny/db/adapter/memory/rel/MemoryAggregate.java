@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.rel;
+
+
+import java.util.List;
+import org.polypheny.db.adapter.memory.MemoryRel;
+import org.polypheny.db.adapter.memory.column.ColumnAggregate;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Aggregate;
+import org.polypheny.db.rel.core.AggregateCall;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.util.ImmutableBitSet;
+
+
+/**
+ * Hash aggregation over the selected rows. Only simple group sets and the aggregate functions supported by
+ * {@link ColumnAggregate} are pushed down (see {@link MemoryRules#isSupported(Aggregate)}).
+ */
+public class MemoryAggregate extends Aggregate implements MemoryRel {
+
+    public MemoryAggregate( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, boolean indicator, ImmutableBitSet groupSet, List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls ) {
+        super( cluster, traitSet, input, indicator, groupSet, groupSets, aggCalls );
+        assert MemoryRules.isSupported( this );
+    }
+
+
+    @Override
+    public Aggregate copy( RelTraitSet traitSet, RelNode input, boolean indicator, ImmutableBitSet groupSet, List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls ) {
+        return new MemoryAggregate( getCluster(), traitSet, input, indicator, groupSet, groupSets, aggCalls );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( 0.1 );
+    }
+
+
+    @Override
+    public Stage getStage() {
+        return Stage.AGGREGATE;
+    }
+
+
+    @Override
+    public void implement( MemoryImplementor implementor ) {
+        implementor.visitChild( 0, getInput() );
+        implementor.advance( Stage.AGGREGATE );
+        implementor.project( ImmutableBitSet.range( getInput().getRowType().getFieldCount() ).toArray() );
+        implementor.getQuery().setGroupKeys( groupSet.toArray() );
+        for ( AggregateCall aggCall : aggCalls ) {
+            implementor.getQuery().getAggregates().add( new ColumnAggregate(
+                    aggCall.getAggregation().getKind(),
+                    aggCall.getArgList().isEmpty() ? -1 : aggCall.getArgList().get( 0 ),
+                    aggCall.getType().getPolyType() ) );
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.rel;
+
+
+import java.util.List;
+import org.polypheny.db.adapter.memory.MemoryRel;
+import org.polypheny.db.adapter.memory.column.ColumnPredicate;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Filter;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rex.RexNode;
+
+
+/**
+ * Filter evaluated on the columns while scanning. The predicates refer to the fields of the input.
+ */
+public class MemoryFilter extends Filter implements MemoryRel {
+
+    private final List<ColumnPredicate> predicates;
+    private final Stage stage;
+
+
+    public MemoryFilter( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, RexNode condition, Stage stage ) {
+        super( cluster, traitSet, input, condition );
+        this.predicates = MemoryRules.translateCondition( condition );
+        this.stage = stage;
+        assert predicates != null : condition;
+    }
+
+
+    @Override
+    public Filter copy( RelTraitSet traitSet, RelNode input, RexNode condition ) {
+        return new MemoryFilter( getCluster(), traitSet, input, condition, stage );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( 0.1 );
+    }
+
+
+    @Override
+    public Stage getStage() {
+        return stage;
+    }
+
+
+    @Override
+    public void implement( MemoryImplementor implementor ) {
+        implementor.visitChild( 0, getInput() );
+        implementor.advance( Stage.FILTER );
+        for ( ColumnPredicate predicate : predicates ) {
+            implementor.getQuery().getFilters().add( predicate.withColumn( implementor.getColumn( predicate.getColumn() ) ) );
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.rel;
+
+
+import java.util.List;
+import org.polypheny.db.adapter.memory.MemoryRel;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Project;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rex.RexInputRef;
+import org.polypheny.db.rex.RexNode;
+
+
+/**
+ * Projection consisting of input references only. Only the projected columns are materialized.
+ */
+public class MemoryProject extends Project implements MemoryRel {
+
+    private final Stage stage;
+
+
+    public MemoryProject( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, List<? extends RexNode> projects, RelDataType rowType, Stage stage ) {
+        super( cluster, traitSet, input, projects, rowType );
+        this.stage = stage;
+    }
+
+
+    @Override
+    public Project copy( RelTraitSet traitSet, RelNode input, List<RexNode> projects, RelDataType rowType ) {
+        return new MemoryProject( getCluster(), traitSet, input, projects, rowType, stage );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( 0.1 );
+    }
+
+
+    @Override
+    public Stage getStage() {
+        return stage;
+    }
+
+
+    @Override
+    public void implement( MemoryImplementor implementor ) {
+        implementor.visitChild( 0, getInput() );
+        implementor.advance( Stage.PROJECT );
+        final int[] fields = new int[getProjects().size()];
+        for ( int i = 0; i < fields.length; i++ ) {
+            fields[i] = ((RexInputRef) getProjects().get( i )).getIndex();
+        }
+        implementor.project( fields );
+    }
+
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.rel;
+
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import org.polypheny.db.adapter.enumerable.EnumerableConvention;
+import org.polypheny.db.adapter.memory.MemoryConvention;
+import org.polypheny.db.adapter.memory.MemoryRel;
+import org.polypheny.db.adapter.memory.MemoryRel.Stage;
+import org.polypheny.db.adapter.memory.MemoryTable;
+import org.polypheny.db.adapter.memory.column.ColumnAggregate;
+import org.polypheny.db.adapter.memory.column.ColumnPredicate;
+import org.polypheny.db.adapter.memory.column.Operand;
+import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.RelOptRule;
+import org.polypheny.db.plan.RelOptRuleCall;
+import org.polypheny.db.plan.RelOptUtil;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.convert.ConverterRule;
+import org.polypheny.db.rel.core.Aggregate;
+import org.polypheny.db.rel.core.Aggregate.Group;
+import org.polypheny.db.rel.core.AggregateCall;
+import org.polypheny.db.rel.core.Filter;
+import org.polypheny.db.rel.core.Project;
+import org.polypheny.db.rel.core.RelFactories;
+import org.polypheny.db.rel.core.Sort;
+import org.polypheny.db.rel.core.TableModify;
+import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexInputRef;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.sql.SqlKind;
+import org.polypheny.db.tools.RelBuilderFactory;
+import org.polypheny.db.type.PolyType;
+
+
+/**
+ * Rules pushing filters, projections, aggregations and sorts into the column engine of the memory store.
+ *
+ * The rules match an operator on top of a memory rel, so that they can check whether the operator can be evaluated
+ * after the stages already pushed down (see {@link Stage}).
+ */
+public class MemoryRules {
+
+    public static List<RelOptRule> rules( MemoryConvention out ) {
+        return ImmutableList.of(
+                new MemoryToEnumerableConverterRule( out, RelFactories.LOGICAL_BUILDER ),
+                new MemoryTableModifyRule( RelFactories.LOGICAL_BUILDER ),
+                new MemoryFilterRule( out, RelFactories.LOGICAL_BUILDER ),
+                new MemoryProjectRule( out, RelFactories.LOGICAL_BUILDER ),
+                new MemoryAggregateRule( out, RelFactories.LOGICAL_BUILDER ),
+                new MemorySortRule( out, RelFactories.LOGICAL_BUILDER )
+        );
+    }
+
+
+    /**
+     * Translates a condition into a conjunction of column predicates.
+     *
+     * @return The predicates, referring to the fields of the input; {@code null} if the condition is not supported
+     */
+    static List<ColumnPredicate> translateCondition( RexNode condition ) {
+        final List<ColumnPredicate> predicates = new ArrayList<>();
+        for ( RexNode conjunction : RelOptUtil.conjunctions( condition ) ) {
+            final ColumnPredicate predicate = translatePredicate( conjunction );
+            if ( predicate == null ) {
+                return null;
+            }
+            predicates.add( predicate );
+        }
+        return predicates;
+    }
+
+
+    private static ColumnPredicate translatePredicate( RexNode node ) {
+        if ( !(node instanceof RexCall) ) {
+            return null;
+        }
+        final RexCall call = (RexCall) node;
+        switch ( call.getKind() ) {
+            case IS_NULL:
+            case IS_NOT_NULL:
+                if ( !isColumn( call.getOperands().get( 0 ) ) ) {
+                    return null;
+                }
+                return new ColumnPredicate( ((RexInputRef) call.getOperands().get( 0 )).getIndex(), call.getKind(), ImmutableList.of() );
+            case OR:
+                // A disjunction of equalities on the same column, e.g. from "x IN (1, 2, 3)"
+                int column = -1;
+                final List<Operand> values = new ArrayList<>();
+                for ( RexNode disjunction : RelOptUtil.disjunctions( call ) ) {
+                    final ColumnPredicate equality = translatePredicate( disjunction );
+                    if ( equality == null || equality.getKind() != SqlKind.EQUALS || (column >= 0 && equality.getColumn() != column) ) {
+                        return null;
+                    }
+                    column = equality.getColumn();
+                    values.add( toOperand( ((RexCall) disjunction).getOperands().get( isColumn( ((RexCall) disjunction).getOperands().get( 0 ) ) ? 1 : 0 ) ) );
+                }
+                return new ColumnPredicate( column, SqlKind.IN, values );
+            default:
+                if ( !ColumnPredicate.isSupported( call.getKind() ) || call.getOperands().size() != 2 ) {
+                    return null;
+                }
+                final RexNode left = call.getOperands().get( 0 );
+                final RexNode right = call.getOperands().get( 1 );
+                if ( isColumn( left ) && toOperand( right ) != null ) {
+                    return new ColumnPredicate( ((RexInputRef) left).getIndex(), call.getKind(), ImmutableList.of( toOperand( right ) ) );
+                } else if ( isColumn( right ) && toOperand( left ) != null ) {
+                    return new ColumnPredicate( ((RexInputRef) right).getIndex(), call.getKind().reverse(), ImmutableList.of( toOperand( left ) ) );
+                }
+                return null;
+        }
+    }
+
+
+    /**
+     * Whether the node references a column with values of a scalar type.
+     */
+    private static boolean isColumn( RexNode node ) {
+        return node instanceof RexInputRef && node.getType().getComponentType() == null;
+    }
+
+
+    /**
+     * Converts a literal or dynamic parameter into an operand.
+     *
+     * @return The operand; {@code null} for other expressions and for null literals
+     */
+    static Operand toOperand( RexNode node ) {
+        if ( node instanceof RexDynamicParam ) {
+            return Operand.parameter( ((RexDynamicParam) node).getIndex() );
+        } else if ( node instanceof RexLiteral && !((RexLiteral) node).isNull() ) {
+            final RexLiteral literal = (RexLiteral) node;
+            // getValue2() would truncate decimals to longs
+            return Operand.literal( literal.getTypeName() == PolyType.DECIMAL ? literal.getValue3() : literal.getValue2() );
+        }
+        return null;
+    }
+
+
+    static boolean isSupported( Aggregate aggregate ) {
+        if ( aggregate.indicator || aggregate.getGroupType() != Group.SIMPLE ) {
+            return false;
+        }
+        for ( int key : aggregate.getGroupSet() ) {
+            if ( aggregate.getInput().getRowType().getFieldList().get( key ).getType().getComponentType() != null ) {
+                return false;
+            }
+        }
+        for ( AggregateCall aggCall : aggregate.getAggCallList() ) {
+            if ( aggCall.isDistinct()
+                    || aggCall.hasFilter()
+                    || aggCall.getArgList().size() > 1
+                    || !ColumnAggregate.isSupported( aggCall.getAggregation().getKind() ) ) {
+                return false;
+            }
+            if ( aggCall.getArgList().isEmpty() && aggCall.getAggregation().getKind() != SqlKind.COUNT ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean isInputRefs( List<RexNode> projects ) {
+        for ( RexNode project : projects ) {
+            if ( !(project instanceof RexInputRef) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    static class MemoryToEnumerableConverterRule extends ConverterRule {
+
+        MemoryToEnumerableConverterRule( MemoryConvention out, RelBuilderFactory relBuilderFactory ) {
+            super( RelNode.class, r -> true, out, EnumerableConvention.INSTANCE, relBuilderFactory, "MemoryToEnumerableConverterRule:" + out.getName() );
+        }
+
+
+        @Override
+        public RelNode convert( RelNode rel ) {
+            RelTraitSet newTraitSet = rel.getTraitSet().replace( getOutTrait() );
+            return new MemoryToEnumerableConverter( rel.getCluster(), newTraitSet, rel );
+        }
+
+    }
+
+
+    /**
+     * Converts modifications of memory tables into {@link MemoryTableModify}, which is part of the enumerable convention.
+     */
+    static class MemoryTableModifyRule extends ConverterRule {
+
+        MemoryTableModifyRule( RelBuilderFactory relBuilderFactory ) {
+            super( TableModify.class, r -> r.getTable().unwrap( MemoryTable.class ) != null, Convention.NONE, EnumerableConvention.INSTANCE, relBuilderFactory, "MemoryTableModifyRule" );
+        }
+
+
+        @Override
+        public RelNode convert( RelNode rel ) {
+            final TableModify modify = (TableModify) rel;
+            final RelTraitSet traitSet = modify.getTraitSet().replace( EnumerableConvention.INSTANCE );
+            return new MemoryTableModify(
+                    modify.getCluster(),
+                    traitSet,
+                    modify.getTable(),
+                    modify.getCatalogReader(),
+                    convert( modify.getInput(), traitSet ),
+                    modify.getOperation(),
+                    modify.getUpdateColumnList(),
+                    modify.getSourceExpressionList(),
+                    modify.isFlattened() );
+        }
+
+    }
+
+
+    static class MemoryFilterRule extends RelOptRule {
+
+        private final MemoryConvention out;
+
+
+        MemoryFilterRule( MemoryConvention out, RelBuilderFactory relBuilderFactory ) {
+            super(
+                    operandJ( Filter.class, Convention.NONE, r -> translateCondition( r.getCondition() ) != null,
+                            operandJ( MemoryRel.class, out, r -> Stage.FILTER.accepts( r.getStage() ), any() ) ),
+                    relBuilderFactory,
+                    "MemoryFilterRule:" + out.getName() );
+            this.out = out;
+        }
+
+
+        @Override
+        public void onMatch( RelOptRuleCall call ) {
+            final Filter filter = call.rel( 0 );
+            final MemoryRel input = call.rel( 1 );
+            call.transformTo( new MemoryFilter(
+                    filter.getCluster(),
+                    filter.getTraitSet().replace( out ),
+                    input,
+                    filter.getCondition(),
+                    Stage.FILTER.after( input.getStage() ) ) );
+        }
+
+    }
+
+
+    static class MemoryProjectRule extends RelOptRule {
+
+        private final MemoryConvention out;
+
+
+        MemoryProjectRule( MemoryConvention out, RelBuilderFactory relBuilderFactory ) {
+            super(
+                    operandJ( Project.class, Convention.NONE, r -> isInputRefs( r.getProjects() ),
+                            operandJ( MemoryRel.class, out, r -> Stage.PROJECT.accepts( r.getStage() ), any() ) ),
+                    relBuilderFactory,
+                    "MemoryProjectRule:" + out.getName() );
+            this.out = out;
+        }
+
+
+        @Override
+        public void onMatch( RelOptRuleCall call ) {
+            final Project project = call.rel( 0 );
+            final MemoryRel input = call.rel( 1 );
+            call.transformTo( new MemoryProject(
+                    project.getCluster(),
+                    project.getTraitSet().replace( out ),
+                    input,
+                    project.getProjects(),
+                    project.getRowType(),
+                    Stage.PROJECT.after( input.getStage() ) ) );
+        }
+
+    }
+
+
+    static class MemoryAggregateRule extends RelOptRule {
+
+        private final MemoryConvention out;
+
+
+        MemoryAggregateRule( MemoryConvention out, RelBuilderFactory relBuilderFactory ) {
+            super(
+                    operandJ( Aggregate.class, Convention.NONE, MemoryRules::isSupported,
+                            operandJ( MemoryRel.class, out, r -> Stage.AGGREGATE.accepts( r.getStage() ), any() ) ),
+                    relBuilderFactory,
+                    "MemoryAggregateRule:" + out.getName() );
+            this.out = out;
+        }
+
+
+        @Override
+        public void onMatch( RelOptRuleCall call ) {
+            final Aggregate aggregate = call.rel( 0 );
+            final MemoryRel input = call.rel( 1 );
+            call.transformTo( new MemoryAggregate(
+                    aggregate.getCluster(),
+                    aggregate.getTraitSet().replace( out ),
+                    input,
+                    aggregate.indicator,
+                    aggregate.getGroupSet(),
+                    aggregate.getGroupSets(),
+                    aggregate.getAggCallList() ) );
+        }
+
+    }
+
+
+    static class MemorySortRule extends RelOptRule {
+
+        private final MemoryConvention out;
+
+
+        MemorySortRule( MemoryConvention out, RelBuilderFactory relBuilderFactory ) {
+            super(
+                    operandJ( Sort.class, Convention.NONE, r -> (r.offset == null || toOperand( r.offset ) != null) && (r.fetch == null || toOperand( r.fetch ) != null),
+                            operandJ( MemoryRel.class, out, r -> Stage.SORT.accepts( r.getStage() ), any() ) ),
+                    relBuilderFactory,
+                    "MemorySortRule:" + out.getName() );
+            this.out = out;
+        }
+
+
+        @Override
+        public void onMatch( RelOptRuleCall call ) {
+            final Sort sort = call.rel( 0 );
+            final MemoryRel input = call.rel( 1 );
+            call.transformTo( new MemorySort(
+                    sort.getCluster(),
+                    sort.getTraitSet().replace( out ),
+                    input,
+                    sort.getCollation(),
+                    sort.offset,
+                    sort.fetch ) );
+        }
+
+    }
+
+}
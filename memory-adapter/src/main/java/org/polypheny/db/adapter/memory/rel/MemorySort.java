@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.rel;
+
+
+import org.polypheny.db.adapter.memory.MemoryRel;
+import org.polypheny.db.adapter.memory.column.ColumnQuery;
+import org.polypheny.db.adapter.memory.column.ColumnQuery.SortKey;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelCollation;
+import org.polypheny.db.rel.RelFieldCollation;
+import org.polypheny.db.rel.RelFieldCollation.NullDirection;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Sort;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rex.RexNode;
+
+
+/**
+ * Sorts the result rows of the query and applies offset and fetch. Both may be literals or dynamic parameters.
+ */
+public class MemorySort extends Sort implements MemoryRel {
+
+    public MemorySort( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, RelCollation collation, RexNode offset, RexNode fetch ) {
+        super( cluster, traitSet, input, collation, offset, fetch );
+    }
+
+
+    @Override
+    public Sort copy( RelTraitSet traitSet, RelNode newInput, RelCollation newCollation, RexNode offset, RexNode fetch ) {
+        return new MemorySort( getCluster(), traitSet, newInput, newCollation, offset, fetch );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( 0.1 );
+    }
+
+
+    @Override
+    public Stage getStage() {
+        return Stage.SORT;
+    }
+
+
+    @Override
+    public void implement( MemoryImplementor implementor ) {
+        implementor.visitChild( 0, getInput() );
+        implementor.advance( Stage.SORT );
+        final ColumnQuery query = implementor.getQuery();
+        for ( RelFieldCollation fieldCollation : collation.getFieldCollations() ) {
+            NullDirection nullDirection = fieldCollation.nullDirection;
+            if ( nullDirection == NullDirection.UNSPECIFIED ) {
+                nullDirection = fieldCollation.direction.defaultNullDirection();
+            }
+            query.getSortKeys().add( new SortKey(
+                    fieldCollation.getFieldIndex(),
+                    fieldCollation.direction.isDescending(),
+                    nullDirection == NullDirection.FIRST ) );
+        }
+        if ( offset != null ) {
+            query.setOffset( MemoryRules.toOperand( offset ) );
+        }
+        if ( fetch != null ) {
+            query.setFetch( MemoryRules.toOperand( fetch ) );
+        }
+    }
+
+}
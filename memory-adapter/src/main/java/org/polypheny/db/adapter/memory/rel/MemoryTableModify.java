@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.rel;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.enumerable.EnumerableRel;
+import org.polypheny.db.adapter.enumerable.EnumerableRelImplementor;
+import org.polypheny.db.adapter.enumerable.JavaRowFormat;
+import org.polypheny.db.adapter.enumerable.PhysType;
+import org.polypheny.db.adapter.enumerable.PhysTypeImpl;
+import org.polypheny.db.adapter.memory.MemoryMethod;
+import org.polypheny.db.adapter.memory.MemoryTable;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelOptTable;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.prepare.Prepare.CatalogReader;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.TableModify;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rex.RexNode;
+
+
+/**
+ * Applies inserts, updates and deletes to a table of the memory store. The input rows are evaluated by the enumerable
+ * convention. Updates and deletes identify the affected rows by their primary key; an update replaces the old rows by
+ * the updated ones.
+ */
+public class MemoryTableModify extends TableModify implements EnumerableRel {
+
+    public MemoryTableModify( RelOptCluster cluster, RelTraitSet traitSet, RelOptTable table, CatalogReader catalogReader, RelNode input, Operation operation, List<String> updateColumnList, List<RexNode> sourceExpressionList, boolean flattened ) {
+        super( cluster, traitSet, table, catalogReader, input, operation, updateColumnList, sourceExpressionList, flattened );
+    }
+
+
+    @Override
+    public RelNode copy( RelTraitSet traitSet, List<RelNode> inputs ) {
+        return new MemoryTableModify(
+                getCluster(),
+                traitSet,
+                getTable(),
+                getCatalogReader(),
+                sole( inputs ),
+                getOperation(),
+                getUpdateColumnList(),
+                getSourceExpressionList(),
+                isFlattened() );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( 0.1 );
+    }
+
+
+    @Override
+    public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
+        final BlockBuilder builder = new BlockBuilder();
+        final MemoryTable memoryTable = getTable().unwrap( MemoryTable.class );
+
+        final Result result = implementor.visitChild( this, 0, (EnumerableRel) getInput(), Prefer.ARRAY );
+        final Expression childExp = builder.append( "child", result.block );
+        final PhysType inputPhysType = PhysTypeImpl.of( implementor.getTypeFactory(), getInput().getRowType(), JavaRowFormat.ARRAY );
+        final Expression input = builder.append( "input", result.physType.convertTo( childExp, inputPhysType ) );
+
+        final List<Expression> columnIds = new ArrayList<>();
+        for ( Long columnId : memoryTable.getColumnIds() ) {
+            columnIds.add( Expressions.constant( columnId, Long.class ) );
+        }
+        final List<Expression> keyColumnIds = new ArrayList<>();
+        for ( Long columnId : memoryTable.getPkIds() ) {
+            keyColumnIds.add( Expressions.constant( columnId, Long.class ) );
+        }
+        final int[] updateColumns;
+        if ( getOperation() == Operation.UPDATE ) {
+            final List<String> fieldNames = getTable().getRowType().getFieldNames();
+            updateColumns = new int[getUpdateColumnList().size()];
+            for ( int i = 0; i < updateColumns.length; i++ ) {
+                updateColumns[i] = fieldNames.indexOf( getUpdateColumnList().get( i ) );
+            }
+        } else {
+            updateColumns = new int[0];
+        }
+
+        builder.add( Expressions.return_(
+                null,
+                Expressions.call(
+                        MemoryMethod.MODIFY.method,
+                        DataContext.ROOT,
+                        Expressions.constant( memoryTable.getAdapterId() ),
+                        Expressions.constant( memoryTable.getTableId() ),
+                        Expressions.newArrayInit( Long.class, columnIds ),
+                        Expressions.newArrayInit( Long.class, keyColumnIds ),
+                        Expressions.constant( getOperation() ),
+                        Expressions.constant( updateColumns ),
+                        input ) ) );
+
+        final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getRowType(), JavaRowFormat.SCALAR );
+        return implementor.result( physType, builder.toBlock() );
+    }
+
+}
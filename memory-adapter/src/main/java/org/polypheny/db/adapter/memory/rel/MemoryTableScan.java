@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.rel;
+
+
+import java.util.List;
+import org.polypheny.db.adapter.memory.MemoryRel;
+import org.polypheny.db.adapter.memory.MemoryTable;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelOptTable;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.TableScan;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rel.type.RelDataType;
+
+
+public class MemoryTableScan extends TableScan implements MemoryRel {
+
+    private final MemoryTable memoryTable;
+
+
+    public MemoryTableScan( RelOptCluster cluster, RelOptTable table, MemoryTable memoryTable ) {
+        super( cluster, cluster.traitSetOf( memoryTable.getMemorySchema().getConvention() ), table );
+        this.memoryTable = memoryTable;
+    }
+
+
+    @Override
+    public RelNode copy( RelTraitSet traitSet, List<RelNode> inputs ) {
+        return new MemoryTableScan( getCluster(), table, memoryTable );
+    }
+
+
+    @Override
+    public RelDataType deriveRowType() {
+        return memoryTable.getRowType( getCluster().getTypeFactory() );
+    }
+
+
+    @Override
+    public void register( RelOptPlanner planner ) {
+        getConvention().register( planner );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        // Scanning columns in memory is cheaper than reading rows from disk
+        return super.computeSelfCost( planner, mq ).multiplyBy( 0.1 );
+    }
+
+
+    @Override
+    public Stage getStage() {
+        return Stage.SCAN;
+    }
+
+
+    @Override
+    public void implement( MemoryImplementor implementor ) {
+        implementor.setTable( memoryTable );
+    }
+
+}
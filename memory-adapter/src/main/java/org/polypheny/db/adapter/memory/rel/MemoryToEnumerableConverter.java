@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.rel;
+
+
+import java.util.List;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.enumerable.EnumerableRel;
+import org.polypheny.db.adapter.enumerable.EnumerableRelImplementor;
+import org.polypheny.db.adapter.enumerable.JavaRowFormat;
+import org.polypheny.db.adapter.enumerable.PhysType;
+import org.polypheny.db.adapter.enumerable.PhysTypeImpl;
+import org.polypheny.db.adapter.memory.MemoryMethod;
+import org.polypheny.db.adapter.memory.MemoryRel.MemoryImplementor;
+import org.polypheny.db.adapter.memory.column.ColumnQuery;
+import org.polypheny.db.plan.ConventionTraitDef;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.convert.ConverterImpl;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+
+
+public class MemoryToEnumerableConverter extends ConverterImpl implements EnumerableRel {
+
+    public MemoryToEnumerableConverter( RelOptCluster cluster, RelTraitSet traits, RelNode input ) {
+        super( cluster, ConventionTraitDef.INSTANCE, traits, input );
+    }
+
+
+    @Override
+    public RelNode copy( RelTraitSet traitSet, List<RelNode> inputs ) {
+        return new MemoryToEnumerableConverter( getCluster(), traitSet, sole( inputs ) );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( 0.1 );
+    }
+
+
+    @Override
+    public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
+        final BlockBuilder list = new BlockBuilder();
+        // Rows are returned as arrays, or as plain values if there is only one column
+        final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getRowType(), JavaRowFormat.ARRAY );
+
+        final MemoryImplementor memoryImplementor = new MemoryImplementor();
+        memoryImplementor.visitChild( 0, getInput() );
+
+        final Expression enumerable = list.append(
+                "enumerable",
+                Expressions.call(
+                        MemoryMethod.EXECUTE.method,
+                        DataContext.ROOT,
+                        Expressions.constant( memoryImplementor.getTable().getAdapterId() ),
+                        Expressions.constant( memoryImplementor.getTable().getTableId() ),
+                        implementor.stash( memoryImplementor.getQuery(), ColumnQuery.class ) ) );
+        list.add( Expressions.return_( null, enumerable ) );
+
+        return implementor.result( physType, list.toBlock() );
+    }
+
+}
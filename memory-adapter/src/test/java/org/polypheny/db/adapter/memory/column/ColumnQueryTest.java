@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.memory.column;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.polypheny.db.adapter.memory.column.ColumnQuery.SortKey;
+import org.polypheny.db.sql.SqlKind;
+import org.polypheny.db.transaction.PUID;
+import org.polypheny.db.transaction.PUID.Type;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.type.PolyType;
+
+
+public class ColumnQueryTest {
+
+    private static final Long[] COLUMNS = { 1L, 2L, 3L };
+
+    private ColumnTable table;
+
+
+    @Before
+    public void setUp() {
+        table = new ColumnTable( 1, ImmutableList.copyOf( COLUMNS ), ImmutableList.of( PolyType.INTEGER, PolyType.VARCHAR, PolyType.DOUBLE ) );
+        PolyXid xid = newXid();
+        List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ ) {
+            rows.add( new Object[]{ i, i % 2 == 0 ? "even" : "odd", i == 9 ? null : i * 1.5 } );
+        }
+        table.insert( xid, rows );
+        table.commit( xid );
+    }
+
+
+    @Test
+    public void testFilterAndProject() {
+        ColumnQuery query = new ColumnQuery( COLUMNS );
+        query.getFilters().add( new ColumnPredicate( 1, SqlKind.EQUALS, ImmutableList.of( Operand.literal( "odd" ) ) ) );
+        query.getFilters().add( new ColumnPredicate( 0, SqlKind.GREATER_THAN, ImmutableList.of( Operand.parameter( 0 ) ) ) );
+        query.setProjection( new int[]{ 0 } );
+        query.getSortKeys().add( new SortKey( 0, false, false ) );
+
+        List<Object[]> rows = query.execute( table, newXid(), i -> 4 );
+        assertEquals( 3, rows.size() );
+        assertArrayEquals( new Object[]{ 5 }, rows.get( 0 ) );
+        assertArrayEquals( new Object[]{ 9 }, rows.get( 2 ) );
+    }
+
+
+    @Test
+    public void testNullsAndIn() {
+        ColumnQuery query = new ColumnQuery( COLUMNS );
+        query.getFilters().add( new ColumnPredicate( 2, SqlKind.IS_NULL, ImmutableList.of() ) );
+        assertEquals( 1, query.execute( table, newXid(), i -> null ).size() );
+
+        query = new ColumnQuery( COLUMNS );
+        query.getFilters().add( new ColumnPredicate( 0, SqlKind.IN, ImmutableList.of( Operand.literal( 2 ), Operand.literal( 7 ), Operand.literal( 42 ) ) ) );
+        assertEquals( 2, query.execute( table, newXid(), i -> null ).size() );
+    }
+
+
+    @Test
+    public void testAggregate() {
+        ColumnQuery query = new ColumnQuery( COLUMNS );
+        query.setGroupKeys( new int[]{ 1 } );
+        query.getAggregates().add( new ColumnAggregate( SqlKind.COUNT, -1, PolyType.BIGINT ) );
+        query.getAggregates().add( new ColumnAggregate( SqlKind.SUM, 0, PolyType.INTEGER ) );
+        query.getAggregates().add( new ColumnAggregate( SqlKind.MAX, 2, PolyType.DOUBLE ) );
+        query.getSortKeys().add( new SortKey( 0, false, false ) );
+
+        List<Object[]> rows = query.execute( table, newXid(), i -> null );
+        assertEquals( 2, rows.size() );
+        assertArrayEquals( new Object[]{ "even", 5L, 20, 12.0 }, rows.get( 0 ) );
+        assertArrayEquals( new Object[]{ "odd", 5L, 25, 10.5 }, rows.get( 1 ) );
+    }
+
+
+    @Test
+    public void testSortAndLimit() {
+        ColumnQuery query = new ColumnQuery( COLUMNS );
+        query.setProjection( new int[]{ 2 } );
+        query.getSortKeys().add( new SortKey( 0, true, true ) );
+        query.setOffset( Operand.literal( 1 ) );
+        query.setFetch( Operand.literal( 2 ) );
+
+        List<Object[]> rows = query.execute( table, newXid(), i -> null );
+        assertEquals( 2, rows.size() );
+        assertArrayEquals( new Object[]{ 12.0 }, rows.get( 0 ) );
+        assertArrayEquals( new Object[]{ 10.5 }, rows.get( 1 ) );
+    }
+
+
+    @Test
+    public void testIsolation() {
+        PolyXid writer = newXid();
+        table.insert( writer, ImmutableList.<Object[]>of( new Object[]{ 10, "even", 15.0 } ) );
+        assertEquals( 3, table.delete( writer, new int[]{ 0 }, ImmutableSet.of( 0, 1, 2 ) ) );
+
+        ColumnQuery query = new ColumnQuery( COLUMNS );
+        assertEquals( 8, query.execute( table, writer, i -> null ).size() );
+        assertEquals( 10, query.execute( table, newXid(), i -> null ).size() );
+
+        table.rollback( writer );
+        assertEquals( 10, query.execute( table, newXid(), i -> null ).size() );
+
+        writer = newXid();
+        table.delete( writer, new int[]{ 0 }, ImmutableSet.of( 0 ) );
+        table.commit( writer );
+        assertEquals( 9, query.execute( table, newXid(), i -> null ).size() );
+        assertEquals( 9, table.getRowCount() );
+    }
+
+
+    private static PolyXid newXid() {
+        return PolyXid.generateLocalTransactionIdentifier( PUID.randomPUID( Type.NODE ), PUID.randomPUID( Type.TRANSACTION ) );
+    }
+
+}
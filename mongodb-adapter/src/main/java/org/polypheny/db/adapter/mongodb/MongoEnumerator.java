@@ -90,10 +90,7 @@ public boolean moveNext() {
         try {
             if ( cursor.hasNext() ) {
                 Document map = cursor.next();
-                current = getter.apply( map );
-
-                current = handleTransforms( current );
-
+                current = toRow( map, getter, bucket );
                 return true;
             } else {
                 current = null;
@@ -105,21 +102,29 @@ public boolean moveNext() {
     }
 
 
-    private Object handleTransforms( Object current ) {
+    /**
+     * Converts a document returned by MongoDB into a row.
+     */
+    static Object toRow( Document document, Function1<Document, Object> getter, GridFSBucket bucket ) {
+        return handleTransforms( getter.apply( document ), bucket );
+    }
+
+
+    private static Object handleTransforms( Object current, GridFSBucket bucket ) {
         if ( current == null ) {
             return null;
         }
         if ( current.getClass().isArray() ) {
             List<Object> temp = new ArrayList<>();
             for ( Object el : (Object[]) current ) {
-                temp.add( handleTransforms( el ) );
+                temp.add( handleTransforms( el, bucket ) );
             }
             return temp.toArray();
         } else {
             if ( current instanceof List ) {
-                return ((List<?>) current).stream().map( this::handleTransforms ).collect( Collectors.toList() );
+                return ((List<?>) current).stream().map( el -> handleTransforms( el, bucket ) ).collect( Collectors.toList() );
             } else if ( current instanceof Document ) {
-                return handleDocument( (Document) current );
+                return handleDocument( (Document) current, bucket );
             }
         }
         return current;
@@ -127,11 +132,11 @@ private Object handleTransforms( Object current ) {
 
 
     // s -> stream
-    private Object handleDocument( Document el ) {
+    private static Object handleDocument( Document el, GridFSBucket bucket ) {
         String type = el.getString( "_type" );
         if ( type.equals( "s" ) ) {
             // if we have inserted a document and have distributed chunks which we have to fetch
-            ObjectId objectId = new ObjectId( (String) ((Document) current).get( "_id" ) );
+            ObjectId objectId = new ObjectId( (String) el.get( "_id" ) );
             GridFSDownloadStream stream = bucket.openDownloadStream( objectId );
             return new PushbackInputStream( stream );
         }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.mongodb;
+
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.GridFSBucket;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.function.Function1;
+import org.bson.Document;
+
+
+/**
+ * Enumerator which reads from one or more MongoDB cursors in background threads.
+ *
+ * The documents are converted into rows by the reading threads and handed over through a bounded queue. This way,
+ * fetching and decoding the next batch overlaps with the processing of the previous rows. If there are multiple cursors
+ * (e.g. one per {@code _id} range of a collection), they are read concurrently and the order of the rows is undefined.
+ * With a single cursor, the order of the documents is preserved.
+ */
+@Slf4j
+class MongoPipelinedEnumerator implements Enumerator<Object> {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool( r -> {
+        Thread thread = new Thread( r, "MongoDB-Reader" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private static final Object END = new Object();
+    private static final Object NULL = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final Function1<Document, Object> getter;
+    private final GridFSBucket bucket;
+
+    private volatile boolean closed = false;
+    private int running;
+    private Object current;
+
+
+    /**
+     * Creates a MongoPipelinedEnumerator and starts reading.
+     *
+     * @param cursors Suppliers opening the cursors; they are called by the reading threads
+     * @param getter Converts a document into a row
+     * @param bucket Bucket holding the binary objects
+     * @param capacity Maximum number of rows which are read ahead
+     */
+    MongoPipelinedEnumerator( List<Supplier<? extends Iterator<Document>>> cursors, Function1<Document, Object> getter, GridFSBucket bucket, int capacity ) {
+        this.queue = new ArrayBlockingQueue<>( Math.max( capacity, 1 ) );
+        this.getter = getter;
+        this.bucket = bucket;
+        this.running = cursors.size();
+        for ( Supplier<? extends Iterator<Document>> cursor : cursors ) {
+            EXECUTOR.execute( () -> read( cursor ) );
+        }
+    }
+
+
+    private void read( Supplier<? extends Iterator<Document>> supplier ) {
+        Iterator<Document> cursor = null;
+        try {
+            cursor = supplier.get();
+            while ( !closed && cursor.hasNext() ) {
+                final Object row = MongoEnumerator.toRow( cursor.next(), getter, bucket );
+                put( row == null ? NULL : row );
+            }
+            put( END );
+        } catch ( Throwable e ) {
+            put( new Failure( e ) );
+        } finally {
+            if ( cursor instanceof MongoCursor ) {
+                try {
+                    ((MongoCursor<?>) cursor).close();
+                } catch ( Exception e ) {
+                    log.debug( "Exception while closing cursor", e );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Waits until there is space in the queue. Gives up if the enumerator has been closed in the meantime, which means
+     * that nobody is going to take the element anymore.
+     */
+    private void put( Object element ) {
+        try {
+            while ( !closed ) {
+                if ( queue.offer( element, 100, TimeUnit.MILLISECONDS ) ) {
+                    return;
+                }
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    @Override
+    public Object current() {
+        return current;
+    }
+
+
+    @Override
+    public boolean moveNext() {
+        while ( running > 0 ) {
+            final Object element;
+            try {
+                element = queue.take();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new RuntimeException( e );
+            }
+            if ( element == END ) {
+                running--;
+            } else if ( element instanceof Failure ) {
+                close();
+                throw new RuntimeException( ((Failure) element).cause );
+            } else {
+                current = element == NULL ? null : element;
+                return true;
+            }
+        }
+        current = null;
+        return false;
+    }
+
+
+    @Override
+    public void reset() {
+        throw new UnsupportedOperationException();
+    }
+
+
+    /**
+     * Stops the reading threads. They close their cursors after the batches they are currently fetching have arrived.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        running = 0;
+        queue.clear();
+    }
+
+
+    /**
+     * Marks an exception thrown while reading.
+     */
+    private static class Failure {
+
+        private final Throwable cause;
+
+
+        private Failure( Throwable cause ) {
+            this.cause = cause;
+        }
+
+    }
+
+}
@@ -43,6 +43,7 @@
 import java.util.List;
 import java.util.Map;
 import lombok.Getter;
+import lombok.Setter;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.entity.CatalogColumn;
 import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
@@ -74,6 +75,27 @@ public class MongoSchema extends AbstractSchema {
     @Getter
     private final GridFSBucket bucket;
 
+    /**
+     * Number of documents fetched per round trip; zero means that the server decides.
+     */
+    @Getter
+    @Setter
+    private int batchSize = 0;
+
+    /**
+     * Minimum number of documents in a collection for reading scans of the whole collection in parallel.
+     */
+    @Getter
+    @Setter
+    private int parallelScanThreshold = Integer.MAX_VALUE;
+
+    /**
+     * Number of ranges of a collection which are read in parallel.
+     */
+    @Getter
+    @Setter
+    private int parallelScanThreads = 1;
+
 
     /**
      * Creates a MongoDB schema.
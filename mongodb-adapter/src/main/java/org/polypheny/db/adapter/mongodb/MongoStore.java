@@ -81,6 +81,9 @@
 @AdapterSettingInteger(name = "port", defaultValue = 27017)
 @AdapterSettingString(name = "host", defaultValue = "localhost", appliesTo = DeploySetting.REMOTE)
 @AdapterSettingInteger(name = "trxLifetimeLimit", defaultValue = 1209600) // two weeks
+@AdapterSettingInteger(name = "batchSize", defaultValue = 1000, required = false, modifiable = true, description = "Number of documents fetched per round trip. Zero means that the server decides.")
+@AdapterSettingInteger(name = "parallelScanThreshold", defaultValue = 100000, required = false, modifiable = true, description = "Minimum number of documents in a collection for reading scans of the whole collection in parallel.")
+@AdapterSettingInteger(name = "parallelScanThreads", defaultValue = 4, required = false, modifiable = true, description = "Number of ranges of a collection which are read in parallel. One disables parallel scans.")
 public class MongoStore extends DataStore {
 
     private final String host;
@@ -148,6 +151,7 @@ public void createNewSchema( SchemaPlus rootSchema, String name ) {
         String[] splits = name.split( "_" );
         String database = splits[0] + "_" + splits[1];
         currentSchema = new MongoSchema( database, this.client, transactionProvider );
+        applyScanSettings( currentSchema );
     }
 
 
@@ -205,7 +209,31 @@ public void shutdown() {
 
     @Override
     protected void reloadSettings( List<String> updatedSettings ) {
+        if ( currentSchema != null ) {
+            applyScanSettings( currentSchema );
+        }
+    }
+
+
+    private void applyScanSettings( MongoSchema schema ) {
+        schema.setBatchSize( getIntegerSetting( "batchSize", 1000, 0 ) );
+        schema.setParallelScanThreshold( getIntegerSetting( "parallelScanThreshold", 100000, 0 ) );
+        schema.setParallelScanThreads( getIntegerSetting( "parallelScanThreads", 4, 1 ) );
+    }
+
 
+    /**
+     * Settings added in later versions are missing for adapters which have been deployed before.
+     */
+    private int getIntegerSetting( String name, int defaultValue, int minValue ) {
+        if ( settings.get( name ) == null ) {
+            return defaultValue;
+        }
+        final int value = Integer.parseInt( settings.get( name ) );
+        if ( value < minValue ) {
+            throw new RuntimeException( "Invalid value for " + name + ": " + value );
+        }
+        return value;
     }
 
 
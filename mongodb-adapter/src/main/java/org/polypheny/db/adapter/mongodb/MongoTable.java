@@ -39,7 +39,11 @@
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.WriteModel;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -49,6 +53,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.Getter;
 import org.apache.calcite.linq4j.AbstractEnumerable;
@@ -57,6 +62,7 @@
 import org.apache.calcite.linq4j.Queryable;
 import org.apache.calcite.linq4j.function.Function1;
 import org.bson.BsonDocument;
+import org.bson.BsonValue;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.polypheny.db.adapter.AdapterManager;
@@ -91,6 +97,11 @@
  */
 public class MongoTable extends AbstractQueryableTable implements TranslatableTable, ModifiableTable {
 
+    /**
+     * Minimum number of documents in a collection for reading scans in a background thread.
+     */
+    private static final int MIN_PIPELINED_SCAN_SIZE = 1000;
+
     @Getter
     private final String collectionName;
     @Getter
@@ -167,7 +178,7 @@ private Enumerable<Object> find( MongoDatabase mongoDb, MongoTable table, String
         return new AbstractEnumerable<Object>() {
             @Override
             public Enumerator<Object> enumerator() {
-                @SuppressWarnings("unchecked") final FindIterable<Document> cursor = collection.find( filter ).projection( project );
+                @SuppressWarnings("unchecked") final FindIterable<Document> cursor = collection.find( filter ).projection( project ).batchSize( mongoSchema.getBatchSize() );
                 return new MongoEnumerator( cursor.iterator(), getter, table.getMongoSchema().getBucket() );
             }
         };
@@ -184,6 +195,7 @@ public Enumerator<Object> enumerator() {
      * </code>
      *
      * @param session
+     * @param modifying Whether the transaction has modified data of this store
      * @param mongoDb MongoDB connection
      * @param fields List of fields to project; or null to return map
      * @param operations One or more JSON strings
@@ -193,6 +205,7 @@ public Enumerator<Object> enumerator() {
      */
     private Enumerable<Object> aggregate(
             ClientSession session,
+            boolean modifying,
             final MongoDatabase mongoDb,
             MongoTable table,
             final List<Entry<String, Class>> fields,
@@ -237,6 +250,7 @@ private Enumerable<Object> aggregate(
             list.add( 0, MongoTypeUtil.getPhysicalProjections( logicalCols, catalogTable ) );
         }
 
+        final boolean rowWise = list.stream().allMatch( MongoTable::isRowWise );
         final Function1<Document, Object> getter = MongoEnumerator.getter( fields, arrayFields );
         //list.forEach( el -> System.out.println( el.toBsonDocument().toJson( JsonWriterSettings.builder().outputMode( JsonMode.SHELL ).build() ) ) );
         return new AbstractEnumerable<Object>() {
@@ -244,8 +258,14 @@ private Enumerable<Object> aggregate(
             public Enumerator<Object> enumerator() {
                 final Iterator<Document> resultIterator;
                 try {
+                    if ( list.size() != 0 && rowWise && !modifying ) {
+                        final Enumerator<Object> enumerator = scan( list, getter );
+                        if ( enumerator != null ) {
+                            return enumerator;
+                        }
+                    }
                     if ( list.size() != 0 ) {
-                        resultIterator = mongoDb.getCollection( collectionName ).aggregate( session, list ).iterator();
+                        resultIterator = mongoDb.getCollection( collectionName ).aggregate( session, list ).batchSize( mongoSchema.getBatchSize() ).iterator();
                     } else {
                         resultIterator = Collections.emptyIterator();
                     }
@@ -258,6 +278,90 @@ public Enumerator<Object> enumerator() {
     }
 
 
+    /**
+     * Checks whether a stage of an aggregation pipeline processes every document on its own and keeps all of them.
+     */
+    private static boolean isRowWise( BsonDocument stage ) {
+        return stage.size() == 1 && (stage.containsKey( "$project" ) || stage.containsKey( "$addFields" ));
+    }
+
+
+    /**
+     * Executes a pipeline, which only projects the documents of the whole collection. If the collection is large, the
+     * documents are read and decoded in a background thread. If it exceeds the parallel scan threshold, the collection
+     * is split into ranges of {@code _id} values, which are read concurrently.
+     *
+     * The cursors are not bound to the session of the transaction, so this must only be used if the transaction has not
+     * modified data of this store.
+     *
+     * @return the enumerator or null if the collection is small and should be read directly
+     */
+    private Enumerator<Object> scan( List<BsonDocument> pipeline, Function1<Document, Object> getter ) {
+        final int batchSize = mongoSchema.getBatchSize();
+        final int readAhead = Math.max( batchSize, MIN_PIPELINED_SCAN_SIZE );
+        final long count = collection.estimatedDocumentCount();
+        if ( count <= readAhead ) {
+            return null;
+        }
+        final List<Bson> ranges;
+        if ( count >= mongoSchema.getParallelScanThreshold() && mongoSchema.getParallelScanThreads() > 1 ) {
+            ranges = getIdRanges( count, mongoSchema.getParallelScanThreads() );
+        } else {
+            ranges = Collections.singletonList( null );
+        }
+        final List<Supplier<? extends Iterator<Document>>> cursors = new ArrayList<>();
+        for ( Bson range : ranges ) {
+            final List<Bson> rangePipeline = new ArrayList<>( pipeline );
+            if ( range != null ) {
+                rangePipeline.add( 0, Aggregates.match( range ) );
+            }
+            cursors.add( () -> collection.aggregate( rangePipeline ).batchSize( batchSize ).iterator() );
+        }
+        return new MongoPipelinedEnumerator( cursors, getter, mongoSchema.getBucket(), readAhead );
+    }
+
+
+    /**
+     * Splits the collection into ranges of {@code _id} values containing roughly the same number of documents. The
+     * boundaries are looked up using the index on {@code _id}. As MongoDB only compares values of the same type, the
+     * collection is only split if all ids are object ids, which is the case for documents inserted by Polypheny.
+     *
+     * @param count Estimated number of documents in the collection
+     * @param parts Number of ranges
+     * @return Filters for the ranges; a single {@code null} filter if the collection cannot be split
+     */
+    private List<Bson> getIdRanges( long count, int parts ) {
+        final MongoCollection<BsonDocument> ids = collection.withDocumentClass( BsonDocument.class );
+        final BsonDocument min = ids.find().sort( Sorts.ascending( "_id" ) ).projection( Projections.include( "_id" ) ).first();
+        final BsonDocument max = ids.find().sort( Sorts.descending( "_id" ) ).projection( Projections.include( "_id" ) ).first();
+        if ( min == null || max == null || !min.get( "_id" ).isObjectId() || !max.get( "_id" ).isObjectId() ) {
+            return Collections.singletonList( null );
+        }
+
+        final List<BsonValue> bounds = new ArrayList<>();
+        for ( int i = 1; i < parts; i++ ) {
+            final int skip = (int) Math.min( count * i / parts, Integer.MAX_VALUE );
+            final BsonDocument bound = ids.find().sort( Sorts.ascending( "_id" ) ).projection( Projections.include( "_id" ) ).skip( skip ).first();
+            if ( bound == null ) {
+                // The estimated count was too high
+                break;
+            }
+            if ( bounds.isEmpty() || !bounds.get( bounds.size() - 1 ).equals( bound.get( "_id" ) ) ) {
+                bounds.add( bound.get( "_id" ) );
+            }
+        }
+
+        final List<Bson> ranges = new ArrayList<>();
+        BsonValue lower = null;
+        for ( BsonValue upper : bounds ) {
+            ranges.add( lower == null ? Filters.lt( "_id", upper ) : Filters.and( Filters.gte( "_id", lower ), Filters.lt( "_id", upper ) ) );
+            lower = upper;
+        }
+        ranges.add( lower == null ? null : Filters.gte( "_id", lower ) );
+        return ranges;
+    }
+
+
     /**
      * Helper method to strip non-numerics from a string.
      *
@@ -336,7 +440,9 @@ private MongoTable getTable() {
          */
         @SuppressWarnings("UnusedDeclaration")
         public Enumerable<Object> aggregate( List<Map.Entry<String, Class>> fields, List<Map.Entry<String, Class>> arrayClass, List<String> operations, String filter, List<String> preProjections, List<String> logicalCols ) {
-            ClientSession session = getTable().getTransactionProvider().getSession( dataContext.getStatement().getTransaction().getXid() );
+            PolyXid xid = dataContext.getStatement().getTransaction().getXid();
+            ClientSession session = getTable().getTransactionProvider().getSession( xid );
+            boolean modifying = getTable().getTransactionProvider().isModifying( xid );
 
             Map<Long, Object> values = new HashMap<>();
             if ( dataContext.getParameterValues().size() == 1 ) {
@@ -345,6 +451,7 @@ public Enumerable<Object> aggregate( List<Map.Entry<String, Class>> fields, List
 
             return getTable().aggregate(
                     session,
+                    modifying,
                     getMongoDb(),
                     getTable(),
                     fields,
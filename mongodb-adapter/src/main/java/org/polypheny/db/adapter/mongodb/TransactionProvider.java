@@ -28,7 +28,9 @@
 import com.mongodb.client.MongoClient;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import lombok.Setter;
 import org.polypheny.db.transaction.PolyXid;
@@ -44,6 +46,7 @@ public class TransactionProvider {
     private MongoClient client;
 
     private final Map<PolyXid, ClientSession> sessions = new HashMap<>();
+    private final Set<PolyXid> modifyingTransactions = new HashSet<>();
 
 
     public TransactionProvider( MongoClient client ) {
@@ -52,12 +55,18 @@ public TransactionProvider( MongoClient client ) {
 
 
     /**
-     * Starts a new transaction for a provided PolyXid
+     * Starts a new transaction for a provided PolyXid, which is going to modify data
      *
      * @param xid the PolyXid to which the transaction belongs
      * @return the corresponding session, which holds the information of the transaction
      */
     public ClientSession startTransaction( PolyXid xid ) {
+        modifyingTransactions.add( xid );
+        return getOrStartSession( xid );
+    }
+
+
+    private ClientSession getOrStartSession( PolyXid xid ) {
         TransactionOptions options = TransactionOptions.builder()
                 .readPreference( ReadPreference.primary() )
                 .readConcern( ReadConcern.LOCAL )
@@ -100,6 +109,7 @@ public void commit( PolyXid xid ) {
             } finally {
                 session.close();
                 sessions.remove( xid );
+                modifyingTransactions.remove( xid );
             }
         } else {
             log.info( "No-op commit" );
@@ -131,6 +141,7 @@ public void rollback( PolyXid xid ) {
                 // empty on purpose
             } finally {
                 sessions.remove( xid );
+                modifyingTransactions.remove( xid );
             }
         } else {
             log.info( "No-op rollback" );
@@ -139,10 +150,19 @@ public void rollback( PolyXid xid ) {
 
 
     public ClientSession getSession( PolyXid xid ) {
-        if ( !sessions.containsKey( xid ) ) {
-            startTransaction( xid );
-        }
-        return sessions.get( xid );
+        return getOrStartSession( xid );
+    }
+
+
+    /**
+     * Checks whether the transaction has modified data. Reads of a transaction which has not modified any data do not
+     * need to use its session, since there are no uncommitted changes they could miss.
+     *
+     * @param xid the corresponding PolyXid
+     * @return true if data has been modified in the transaction
+     */
+    public boolean isModifying( PolyXid xid ) {
+        return modifyingTransactions.contains( xid );
     }
 
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.mongodb;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.calcite.linq4j.function.Function1;
+import org.bson.Document;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link MongoPipelinedEnumerator} using in-memory cursors as a stand-in for a MongoDB collection.
+ */
+public class MongoPipelinedEnumeratorTest {
+
+    private static final Function1<Document, Object> GETTER = document -> document.get( "a" );
+
+
+    @Test
+    public void testSingleCursor() {
+        final List<Supplier<? extends Iterator<Document>>> cursors = Collections.singletonList( cursor( 0, 5000 ) );
+        final MongoPipelinedEnumerator enumerator = new MongoPipelinedEnumerator( cursors, GETTER, null, 10 );
+        // The order of the documents is preserved
+        for ( int i = 0; i < 5000; i++ ) {
+            assertTrue( enumerator.moveNext() );
+            assertEquals( i, enumerator.current() );
+        }
+        assertFalse( enumerator.moveNext() );
+        enumerator.close();
+    }
+
+
+    @Test
+    public void testNullRows() {
+        final List<Supplier<? extends Iterator<Document>>> cursors = Collections.singletonList(
+                () -> Arrays.asList( new Document( "a", 1 ), new Document( "a", null ), new Document( "a", 3 ) ).iterator() );
+        final List<Object> rows = readAll( new MongoPipelinedEnumerator( cursors, GETTER, null, 10 ) );
+        assertEquals( Arrays.asList( 1, null, 3 ), rows );
+    }
+
+
+    @Test
+    public void testMultipleCursors() {
+        final List<Supplier<? extends Iterator<Document>>> cursors = Arrays.asList( cursor( 0, 1000 ), cursor( 1000, 3000 ), cursor( 3000, 3000 ), cursor( 3000, 4000 ) );
+        final List<Object> rows = readAll( new MongoPipelinedEnumerator( cursors, GETTER, null, 100 ) );
+        assertEquals( 4000, rows.size() );
+        final List<Integer> sorted = new ArrayList<>();
+        rows.forEach( row -> sorted.add( (Integer) row ) );
+        Collections.sort( sorted );
+        for ( int i = 0; i < 4000; i++ ) {
+            assertEquals( i, (int) sorted.get( i ) );
+        }
+    }
+
+
+    @Test
+    public void testFailure() {
+        final List<Supplier<? extends Iterator<Document>>> cursors = Arrays.asList( cursor( 0, 1000 ), () -> {
+            throw new IllegalStateException( "Connection lost" );
+        } );
+        try {
+            readAll( new MongoPipelinedEnumerator( cursors, GETTER, null, 10 ) );
+            fail( "Expected exception" );
+        } catch ( RuntimeException e ) {
+            assertTrue( e.getCause() instanceof IllegalStateException );
+        }
+    }
+
+
+    @Test
+    public void testEarlyClose() throws InterruptedException {
+        final AtomicInteger read = new AtomicInteger();
+        final List<Supplier<? extends Iterator<Document>>> cursors = Collections.singletonList( () -> new Iterator<Document>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+
+            @Override
+            public Document next() {
+                return new Document( "a", read.incrementAndGet() );
+            }
+        } );
+        final MongoPipelinedEnumerator enumerator = new MongoPipelinedEnumerator( cursors, GETTER, null, 10 );
+        assertTrue( enumerator.moveNext() );
+        enumerator.close();
+        assertFalse( enumerator.moveNext() );
+
+        // The reader stops reading from the endless cursor
+        Thread.sleep( 500 );
+        final int count = read.get();
+        Thread.sleep( 500 );
+        assertEquals( count, read.get() );
+    }
+
+
+    private static Supplier<Iterator<Document>> cursor( int from, int to ) {
+        return () -> {
+            final List<Document> documents = new ArrayList<>();
+            for ( int i = from; i < to; i++ ) {
+                documents.add( new Document( "a", i ) );
+            }
+            return documents.iterator();
+        };
+    }
+
+
+    private static List<Object> readAll( MongoPipelinedEnumerator enumerator ) {
+        final List<Object> rows = new ArrayList<>();
+        try {
+            while ( enumerator.moveNext() ) {
+                rows.add( enumerator.current() );
+            }
+        } finally {
+            enumerator.close();
+        }
+        return rows;
+    }
+
+}
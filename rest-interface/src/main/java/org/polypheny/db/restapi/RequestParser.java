@@ -28,6 +28,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -153,7 +154,9 @@ public ResourceGetRequest parseGetResourceRequest( Request request, String resou
 
         Filters filters = this.parseFilters( getFilterMap( request ), nameMapping );
 
-        return new ResourceGetRequest( tables, requestColumns, nameMapping, groupings, limit, offset, sorting, filters );
+        ResultFormat format = this.parseFormat( request );
+
+        return new ResourceGetRequest( tables, requestColumns, nameMapping, groupings, limit, offset, sorting, filters, format );
     }
 
 
@@ -539,6 +542,31 @@ Integer parseOffset( String offsetString ) throws ParserException {
     }
 
 
+    @VisibleForTesting
+    ResultFormat parseFormat( Request request ) throws ParserException {
+        if ( !request.queryMap().hasKey( "_format" ) ) {
+            log.debug( "Request does not contain a format. Returning JSON." );
+            return ResultFormat.JSON;
+        }
+        QueryParamsMap formatMap = request.queryMap().get( "_format" );
+        String[] possibleFormatValues = formatMap.values();
+
+        return this.parseFormat( possibleFormatValues[0] );
+    }
+
+
+    @VisibleForTesting
+    ResultFormat parseFormat( String formatString ) throws ParserException {
+        try {
+            log.debug( "Parsed format value: {}.", formatString );
+            return ResultFormat.valueOf( formatString.toUpperCase( Locale.ROOT ) );
+        } catch ( IllegalArgumentException e ) {
+            log.warn( "Unable to parse format value: {}", formatString );
+            throw new ParserException( ParserErrorCode.FORMAT_UNKNOWN, formatString );
+        }
+    }
+
+
     @VisibleForTesting
     Filters parseFilters( Map<String, String[]> filterMap, Map<String, RequestColumn> nameAndAliasMapping ) throws ParserException {
         Map<RequestColumn, List<Pair<SqlOperator, Object>>> literalFilters = new HashMap<>();
@@ -712,6 +740,11 @@ List<List<Pair<RequestColumn, Object>>> parseInsertStatementBody( List<Object> b
         for ( Object rowObject : bodyInsertValues ) {
             Map rowMap = (Map) rowObject;
             List<Pair<RequestColumn, Object>> rowValue = this.parseInsertStatementValues( rowMap, nameMapping );
+            // All rows are bound to the same dynamic parameters, so they have to provide values for the same columns
+            if ( !returnValue.isEmpty() && !Pair.left( rowValue ).equals( Pair.left( returnValue.get( 0 ) ) ) ) {
+                log.warn( "Rows provide values for different columns. Row: {}", rowMap.toString() );
+                throw new ParserException( ParserErrorCode.VALUE_INCONSISTENT_COLUMNS, rowMap.toString() );
+            }
             returnValue.add( rowValue );
         }
 
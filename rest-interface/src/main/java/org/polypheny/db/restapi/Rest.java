@@ -20,12 +20,14 @@
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
 import org.polypheny.db.catalog.entity.CatalogTable;
@@ -138,7 +140,7 @@ String processGetResource( final ResourceGetRequest resourceGetRequest, final Re
         RelRoot root = new RelRoot( relNode, relNode.getRowType(), SqlKind.SELECT, fields, collation );
         log.debug( "RelRoot was built." );
 
-        return executeAndTransformRelAlg( root, statement, res );
+        return executeAndTransformRelAlg( root, statement, res, resourceGetRequest.format );
     }
 
 
@@ -172,7 +174,7 @@ String processPatchResource( final ResourcePatchRequest resourcePatchRequest, fi
         RelDataType tableRowType = table.getRowType();
         List<RelDataTypeField> tableRows = tableRowType.getFieldList();
         List<String> valueColumnNames = this.valuesColumnNames( resourcePatchRequest.values );
-        List<RexNode> rexValues = this.valuesNode( statement, relBuilder, rexBuilder, resourcePatchRequest, tableRows, inputStreams ).get( 0 );
+        List<RexNode> rexValues = this.valuesNode( statement, rexBuilder, resourcePatchRequest, resourcePatchRequest.values.subList( 0, 1 ), tableRows, inputStreams, filters == null ? 0 : filters.size() );
 
         RelNode relNode = relBuilder.build();
         TableModify tableModify = new LogicalTableModify(
@@ -274,7 +276,7 @@ String processPostResource( final ResourcePostRequest insertValueRequest, final
         RelOptCluster cluster = RelOptCluster.create( planner, rexBuilder );
 
         List<String> valueColumnNames = this.valuesColumnNames( insertValueRequest.values );
-        List<RexNode> rexValues = this.valuesNode( statement, relBuilder, rexBuilder, insertValueRequest, tableRows, inputStreams ).get( 0 );
+        List<RexNode> rexValues = this.valuesNode( statement, rexBuilder, insertValueRequest, insertValueRequest.values, tableRows, inputStreams, 0 );
         relBuilder.push( LogicalValues.createOneRow( cluster ) );
         relBuilder.project( rexValues, valueColumnNames );
 
@@ -340,14 +342,7 @@ List<RexNode> filters( Statement statement, RelBuilder relBuilder, RexBuilder re
                 for ( Pair<SqlOperator, Object> filterOperationPair : filters.literalFilters.get( column ) ) {
                     RelDataTypeField typeField = filterMap.get( column.getFullyQualifiedName() );
                     RexNode inputRef = rexBuilder.makeInputRef( baseNodeForFilters, typeField.getIndex() );
-                    Object param = filterOperationPair.right;
-                    if ( param instanceof TimestampString ) {
-                        param = ((TimestampString) param).toCalendar();
-                    } else if ( param instanceof TimeString ) {
-                        param = ((TimeString) param).toCalendar();
-                    } else if ( param instanceof DateString ) {
-                        param = ((DateString) param).toCalendar();
-                    }
+                    Object param = toParameterValue( filterOperationPair.right, typeField.getType() );
                     statement.getDataContext().addParameterValues( index, typeField.getType(), ImmutableList.of( param ) );
                     RexNode rightHandSide = rexBuilder.makeDynamicParam( typeField.getType(), index );
                     index++;
@@ -384,28 +379,72 @@ List<String> valuesColumnNames( List<List<Pair<RequestColumn, Object>>> values )
     }
 
 
-    List<List<RexNode>> valuesNode( Statement statement, RelBuilder relBuilder, RexBuilder rexBuilder, ResourceValuesRequest request, List<RelDataTypeField> tableRows, Map<String, InputStream> inputStreams ) {
-        List<List<Pair<RequestColumn, Object>>> values = request.values;
-        List<List<RexNode>> wrapperList = new ArrayList<>();
-        int index = 0;
-        for ( List<Pair<RequestColumn, Object>> rowsToInsert : values ) {
-            List<RexNode> rexValues = new ArrayList<>();
-            for ( Pair<RequestColumn, Object> insertValue : rowsToInsert ) {
-                int columnPosition = insertValue.left.getLogicalIndex();
-                RelDataTypeField typeField = tableRows.get( columnPosition );
-                if ( inputStreams != null && request.useDynamicParams && typeField.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA ) {
-                    FileInputHandle fih = new FileInputHandle( statement, inputStreams.get( insertValue.left.getColumn().name ) );
-                    statement.getDataContext().addParameterValues( index, typeField.getType(), ImmutableList.of( fih ) );
-                    rexValues.add( rexBuilder.makeDynamicParam( typeField.getType(), index ) );
-                    index++;
-                } else {
-                    rexValues.add( rexBuilder.makeLiteral( insertValue.right, typeField.getType(), true ) );
+    /**
+     * Binds the values of all rows to dynamic parameters and returns the expressions referencing them. Requests with
+     * the same shape therefore result in the same plan, which is taken from the plan and implementation caches, and
+     * multiple rows are executed as one batch.
+     */
+    List<RexNode> valuesNode( Statement statement, RexBuilder rexBuilder, ResourceValuesRequest request, List<List<Pair<RequestColumn, Object>>> values, List<RelDataTypeField> tableRows, Map<String, InputStream> inputStreams, int firstIndex ) {
+        List<Pair<RequestColumn, Object>> firstRow = values.get( 0 );
+        List<RexNode> rexValues = new ArrayList<>();
+        int index = firstIndex;
+        for ( int i = 0; i < firstRow.size(); i++ ) {
+            RequestColumn column = firstRow.get( i ).left;
+            RelDataTypeField typeField = tableRows.get( column.getLogicalIndex() );
+            List<Object> columnValues = new ArrayList<>( values.size() );
+            if ( inputStreams != null && request.useDynamicParams && typeField.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA ) {
+                // The stream can only be read once. The handle buffers it and opens a new stream for every row.
+                FileInputHandle handle = new FileInputHandle( statement, inputStreams.get( column.getColumn().name ) );
+                for ( int r = 0; r < values.size(); r++ ) {
+                    columnValues.add( handle );
+                }
+            } else {
+                for ( List<Pair<RequestColumn, Object>> row : values ) {
+                    columnValues.add( toParameterValue( row.get( i ).right, typeField.getType() ) );
                 }
             }
-            wrapperList.add( rexValues );
+            statement.getDataContext().addParameterValues( index, typeField.getType(), columnValues );
+            rexValues.add( rexBuilder.makeDynamicParam( typeField.getType(), index ) );
+            index++;
         }
 
-        return wrapperList;
+        return rexValues;
+    }
+
+
+    /**
+     * Converts a parsed value into the representation expected for a dynamic parameter of the given type.
+     */
+    private Object toParameterValue( Object value, RelDataType type ) {
+        if ( value instanceof TimestampString ) {
+            return ((TimestampString) value).toCalendar();
+        } else if ( value instanceof TimeString ) {
+            return ((TimeString) value).toCalendar();
+        } else if ( value instanceof DateString ) {
+            return ((DateString) value).toCalendar();
+        } else if ( value instanceof Number ) {
+            Number number = (Number) value;
+            switch ( type.getPolyType() ) {
+                case TINYINT:
+                    return number.byteValue();
+                case SMALLINT:
+                    return number.shortValue();
+                case INTEGER:
+                    return number.intValue();
+                case BIGINT:
+                    return number.longValue();
+                case REAL:
+                    return number.floatValue();
+                case FLOAT:
+                case DOUBLE:
+                    return number.doubleValue();
+                case DECIMAL:
+                    return number instanceof BigDecimal ? number : new BigDecimal( number.toString() );
+                default:
+                    return value;
+            }
+        }
+        return value;
     }
 
 
@@ -537,6 +576,11 @@ private Transaction getTransaction() {
 
 
     String executeAndTransformRelAlg( RelRoot relRoot, final Statement statement, final Response res ) {
+        return executeAndTransformRelAlg( relRoot, statement, res, ResultFormat.JSON );
+    }
+
+
+    String executeAndTransformRelAlg( RelRoot relRoot, final Statement statement, final Response res, final ResultFormat format ) {
         RestResult restResult;
         try {
             // Prepare
@@ -544,9 +588,31 @@ String executeAndTransformRelAlg( RelRoot relRoot, final Statement statement, fi
             log.debug( "RelRoot was prepared." );
 
             @SuppressWarnings("unchecked") final Iterable<Object> iterable = signature.enumerable( statement.getDataContext() );
-            Iterator<Object> iterator = iterable.iterator();
+            final Iterator<Object> iterator = iterable.iterator();
             restResult = new RestResult( relRoot.kind, iterator, signature.rowType, signature.columns );
-            restResult.transform();
+            if ( res != null && restResult.isStreamable() ) {
+                // Write the rows directly to the response instead of materializing the whole result. The transaction
+                // is committed before the end of the document is written, so that a failing commit is reported in it.
+                final AtomicBoolean closed = new AtomicBoolean( false );
+                try {
+                    restResult.stream( res, format, () -> {
+                        closed.set( true );
+                        closeIterator( iterator );
+                        statement.getTransaction().commit();
+                    } );
+                } finally {
+                    if ( !closed.get() ) {
+                        closeIterator( iterator );
+                    }
+                }
+                signature.getExecutionTimeMonitor().setExecutionTime( restResult.getExecutionTime() );
+                return "";
+            }
+            try {
+                restResult.transform();
+            } finally {
+                closeIterator( iterator );
+            }
             if ( !relRoot.kind.belongsTo( SqlKind.DML ) ) {
                 signature.getExecutionTimeMonitor().setExecutionTime( restResult.getExecutionTime() );
             }
@@ -563,4 +629,11 @@ String executeAndTransformRelAlg( RelRoot relRoot, final Statement statement, fi
         return restResult.getResult( res );
     }
 
+
+    private static void closeIterator( Iterator<Object> iterator ) throws Exception {
+        if ( iterator instanceof AutoCloseable ) {
+            ((AutoCloseable) iterator).close();
+        }
+    }
+
 }
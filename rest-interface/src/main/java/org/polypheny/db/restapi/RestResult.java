@@ -18,15 +18,19 @@
 
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.j256.simplemagic.ContentInfo;
 import com.j256.simplemagic.ContentInfoUtil;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PushbackInputStream;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.sql.Blob;
 import java.time.LocalDateTime;
@@ -55,6 +59,8 @@
 @Slf4j
 public class RestResult {
 
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     private final SqlKind sqlKind;
     private final Iterator<Object> iterator;
     private final RelDataType dataType;
@@ -120,44 +126,150 @@ private void transformNonDML() {
         stopWatch.start();
         List<Map<String, Object>> result = new ArrayList<>();
         while ( iterator.hasNext() ) {
-            Object next = iterator.next();
-            Object[] row;
-            if ( next.getClass().isArray() ) {
-                row = (Object[]) next;
+            result.add( transformRow( iterator.next() ) );
+        }
+        stopWatch.stop();
+        this.executionTime = stopWatch.getNanoTime();
+        this.result = result;
+    }
+
+
+    private Map<String, Object> transformRow( Object next ) {
+        Object[] row;
+        if ( next.getClass().isArray() ) {
+            row = (Object[]) next;
+        } else {
+            row = new Object[]{ next };
+        }
+        HashMap<String, Object> temp = new HashMap<>();
+        int i = 0;
+        for ( RelDataTypeField type : dataType.getFieldList() ) {
+            Object o = row[i];
+            if ( type.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA ) {
+                if ( o instanceof File ) {
+                    o = addZipEntry( o );
+                } else if ( o instanceof InputStream || o instanceof Blob ) {
+                    o = addZipEntry( o );
+                } else if ( o instanceof byte[] ) {
+                    o = addZipEntry( o );
+                }
+                temp.put( columns.get( i ).columnName, o );
             } else {
-                row = new Object[]{ next };
-            }
-            HashMap<String, Object> temp = new HashMap<>();
-            int i = 0;
-            for ( RelDataTypeField type : dataType.getFieldList() ) {
-                Object o = row[i];
-                if ( type.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA ) {
-                    if ( o instanceof File ) {
-                        o = addZipEntry( o );
-                    } else if ( o instanceof InputStream || o instanceof Blob ) {
-                        o = addZipEntry( o );
-                    } else if ( o instanceof byte[] ) {
-                        o = addZipEntry( o );
-                    }
-                    temp.put( columns.get( i ).columnName, o );
+                if ( type.getType().getPolyType().equals( PolyType.TIMESTAMP ) ) {
+                    Long nanoSeconds = (Long) o;
+                    LocalDateTime localDateTime = LocalDateTime.ofEpochSecond( nanoSeconds / 1000L, (int) ((nanoSeconds % 1000) * 1000), ZoneOffset.UTC );
+                    temp.put( columns.get( i ).columnName, localDateTime.toString() );
+                } else if ( type.getType().getPolyType().equals( PolyType.TIME ) ) {
+                    temp.put( columns.get( i ).columnName, o.toString() );
                 } else {
-                    if ( type.getType().getPolyType().equals( PolyType.TIMESTAMP ) ) {
-                        Long nanoSeconds = (Long) o;
-                        LocalDateTime localDateTime = LocalDateTime.ofEpochSecond( nanoSeconds / 1000L, (int) ((nanoSeconds % 1000) * 1000), ZoneOffset.UTC );
-                        temp.put( columns.get( i ).columnName, localDateTime.toString() );
-                    } else if ( type.getType().getPolyType().equals( PolyType.TIME ) ) {
-                        temp.put( columns.get( i ).columnName, o.toString() );
-                    } else {
-                        temp.put( columns.get( i ).columnName, o );
-                    }
+                    temp.put( columns.get( i ).columnName, o );
                 }
-                i++;
             }
-            result.add( temp );
+            i++;
+        }
+        return temp;
+    }
+
+
+    /**
+     * Whether the result can be written directly to the response while it is enumerated. This is not possible
+     * for DML statements and for results containing multimedia columns, since these are packed into a zip file.
+     */
+    public boolean isStreamable() {
+        if ( sqlKind.belongsTo( SqlKind.DML ) ) {
+            return false;
+        }
+        for ( RelDataTypeField field : dataType.getFieldList() ) {
+            if ( field.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Writes the rows to the output stream of the response while enumerating them. No row is kept after it
+     * has been written, the response is sent using chunked transfer encoding.
+     *
+     * The status and the header are only sent once the first row has been fetched, so that a query failing right away
+     * results in an error response. If the query fails later on, the document is terminated with an {@code error}
+     * member (JSON) or an error line (NDJSON) instead of the {@code size} and the exception is rethrown.
+     *
+     * The completion is run after the last row has been written but before the end of the document, so that a failure
+     * (e.g. of the commit) is reported in the same way.
+     *
+     * @param res Spark response
+     * @param format The format of the response body
+     * @param completion Run once all rows have been written
+     */
+    public void stream( final Response res, final ResultFormat format, final Completion completion ) throws IOException {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        Gson gson = new Gson();
+        // Fails before anything has been sent
+        iterator.hasNext();
+        res.status( 200 );
+        res.type( format.contentType );
+        Writer writer = new BufferedWriter( new OutputStreamWriter( res.raw().getOutputStream(), StandardCharsets.UTF_8 ), STREAM_BUFFER_SIZE );
+        long size = 0;
+        RuntimeException failure = null;
+        if ( format == ResultFormat.NDJSON ) {
+            try {
+                while ( iterator.hasNext() ) {
+                    Map<String, Object> row = transformRow( iterator.next() );
+                    gson.toJson( row, row.getClass(), writer );
+                    writer.write( '\n' );
+                    size++;
+                }
+                complete( completion );
+            } catch ( RuntimeException e ) {
+                failure = e;
+                Map<String, Object> error = new HashMap<>();
+                error.put( "error", e.getMessage() );
+                gson.toJson( error, error.getClass(), writer );
+                writer.write( '\n' );
+            }
+            writer.flush();
+        } else {
+            JsonWriter jsonWriter = gson.newJsonWriter( writer );
+            jsonWriter.beginObject();
+            jsonWriter.name( "result" );
+            jsonWriter.beginArray();
+            try {
+                while ( iterator.hasNext() ) {
+                    Map<String, Object> row = transformRow( iterator.next() );
+                    gson.toJson( row, row.getClass(), jsonWriter );
+                    size++;
+                }
+                complete( completion );
+                jsonWriter.endArray();
+                jsonWriter.name( "size" ).value( size );
+            } catch ( RuntimeException e ) {
+                failure = e;
+                jsonWriter.endArray();
+                jsonWriter.name( "error" ).value( e.getMessage() );
+            }
+            jsonWriter.endObject();
+            jsonWriter.flush();
+        }
+        if ( failure != null ) {
+            throw failure;
         }
         stopWatch.stop();
         this.executionTime = stopWatch.getNanoTime();
-        this.result = result;
+        log.debug( "Streamed {} rows.", size );
+    }
+
+
+    private static void complete( Completion completion ) {
+        try {
+            completion.run();
+        } catch ( RuntimeException e ) {
+            throw e;
+        } catch ( Exception e ) {
+            throw new RuntimeException( e.getMessage(), e );
+        }
     }
 
 
@@ -266,4 +378,15 @@ public String getResult( final Response res ) {
         }
     }
 
+
+    /**
+     * Action completing a streamed result, see {@link #stream(Response, ResultFormat, Completion)}.
+     */
+    @FunctionalInterface
+    public interface Completion {
+
+        void run() throws Exception;
+
+    }
+
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019-2020 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.restapi;
+
+
+/**
+ * Output format of the result of a GET resource request.
+ *
+ * Both formats are written to the response while the result is still being enumerated, so the memory
+ * consumption does not depend on the size of the result.
+ */
+public enum ResultFormat {
+
+    /**
+     * A single JSON document of the form <code>{"result":[...],"size":n}</code>.
+     */
+    JSON( "application/json" ),
+
+    /**
+     * Newline delimited JSON, one object per row.
+     */
+    NDJSON( "application/x-ndjson" ),
+    ;
+
+    public final String contentType;
+
+
+    ResultFormat( String contentType ) {
+        this.contentType = contentType;
+    }
+}
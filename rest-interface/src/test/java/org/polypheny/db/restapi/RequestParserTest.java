@@ -31,6 +31,7 @@
 import org.polypheny.db.catalog.exceptions.UnknownDatabaseException;
 import org.polypheny.db.catalog.exceptions.UnknownSchemaException;
 import org.polypheny.db.catalog.exceptions.UnknownTableException;
+import org.polypheny.db.restapi.exception.ParserException;
 import org.polypheny.db.restapi.exception.UnauthorizedAccessException;
 import org.polypheny.db.sql.SqlOperator;
 import org.polypheny.db.sql.fun.SqlStdOperatorTable;
@@ -91,4 +92,17 @@ public void testParseFilterOperation() {
         } );
     }
 
+
+    @Test
+    public void testParseFormat() throws ParserException {
+        Catalog mockedCatalog = mock( Catalog.class );
+        RequestParser requestParser = new RequestParser( mockedCatalog, null, null, "testdb", "username" );
+        assertEquals( ResultFormat.JSON, requestParser.parseFormat( "json" ) );
+        assertEquals( ResultFormat.NDJSON, requestParser.parseFormat( "ndjson" ) );
+        assertEquals( ResultFormat.NDJSON, requestParser.parseFormat( "NDJSON" ) );
+
+        thrown.expect( ParserException.class );
+        requestParser.parseFormat( "xml" );
+    }
+
 }
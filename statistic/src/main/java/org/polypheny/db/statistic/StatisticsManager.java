@@ -136,6 +136,28 @@ private StatisticColumn<T> getColumn( String schema, String table, String column
     }
 
 
+    /**
+     * Returns an estimate for the number of rows of a table, derived from the counts of its tracked columns.
+     * This does not require a query on the underlying stores.
+     *
+     * @return the estimated number of rows or null if there are no statistics for this table
+     */
+    public Integer rowCountPerTable( String schema, String table ) {
+        if ( !this.statisticSchemaMap.containsKey( schema ) ) {
+            return null;
+        }
+        HashMap<String, StatisticColumn<T>> columns = this.statisticSchemaMap.get( schema ).get( table );
+        if ( columns == null || columns.isEmpty() ) {
+            return null;
+        }
+        int rowCount = 0;
+        for ( StatisticColumn<T> column : columns.values() ) {
+            rowCount = Math.max( rowCount, column.count );
+        }
+        return rowCount;
+    }
+
+
     /**
      * Adds a new column to the tracked columns and sorts it correctly
      *
@@ -18,6 +18,7 @@
 
 
 import au.com.bytecode.opencsv.CSVReader;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
@@ -35,7 +36,6 @@
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -44,6 +44,7 @@
 import java.io.PushbackInputStream;
 import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.nio.charset.Charset;
@@ -61,6 +62,7 @@
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -90,8 +92,8 @@
 import org.apache.calcite.avatica.remote.AvaticaRuntimeException;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang.ArrayUtils;
-import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.eclipse.jetty.websocket.api.Session;
 import org.polypheny.db.adapter.Adapter;
@@ -197,6 +199,7 @@
 import org.polypheny.db.webui.models.ResultType;
 import org.polypheny.db.webui.models.Schema;
 import org.polypheny.db.webui.models.SidebarElement;
+import org.polypheny.db.webui.models.SortDirection;
 import org.polypheny.db.webui.models.SortState;
 import org.polypheny.db.webui.models.Status;
 import org.polypheny.db.webui.models.TableConstraint;
@@ -277,6 +280,9 @@ private void setConfig( Config c ) {
 
     /**
      * Returns the content of a table with a maximum of PAGESIZE elements.
+     * If the rows of the table have a unique sort key and the request contains the cursor of the page right before the
+     * requested one, the page is fetched by seeking to the cursor instead of skipping all rows of the previous pages.
+     * Any other page, e.g. when jumping to a page or going back, is fetched using an offset.
      */
     Result getTable( final UIRequest request ) {
         Transaction transaction = getTransaction();
@@ -287,11 +293,27 @@ Result getTable( final UIRequest request ) {
         if ( request.filter != null ) {
             where = filterTable( request.filter );
         }
+        String[] t = request.tableId.split( "\\." );
+        List<Pair<CatalogColumn, SortDirection>> sortKey = null;
+        try {
+            sortKey = getSortKey( catalog.getTable( this.databaseName, t[0], t[1] ), request.sortState );
+        } catch ( UnknownTableException | UnknownDatabaseException | UnknownSchemaException e ) {
+            log.error( "Caught exception", e );
+        }
         String orderBy = "";
-        if ( request.sortState != null ) {
+        if ( sortKey != null ) {
+            orderBy = sortTable( sortKey );
+        } else if ( request.sortState != null ) {
             orderBy = sortTable( request.sortState );
         }
-        String[] t = request.tableId.split( "\\." );
+        boolean useCursor = false;
+        if ( sortKey != null && request.cursor != null && request.cursorPage != null && request.currentPage == request.cursorPage + 1 && !request.noLimit ) {
+            String keysetCondition = keysetCondition( sortKey, request.cursor );
+            if ( keysetCondition != null ) {
+                where = where.isEmpty() ? " WHERE " + keysetCondition : where + " AND " + keysetCondition;
+                useCursor = true;
+            }
+        }
         String tableId = String.format( "\"%s\".\"%s\"", t[0], t[1] );
         query.append( "SELECT * FROM " )
                 .append( tableId )
@@ -299,9 +321,11 @@ Result getTable( final UIRequest request ) {
                 .append( orderBy );
         if ( !request.noLimit ) {
             query.append( " LIMIT " )
-                    .append( getPageSize() )
-                    .append( " OFFSET " )
-                    .append( (Math.max( 0, request.currentPage - 1 )) * getPageSize() );
+                    .append( getPageSize() );
+            if ( !useCursor ) {
+                query.append( " OFFSET " )
+                        .append( (Math.max( 0, request.currentPage - 1 )) * getPageSize() );
+            }
         }
 
         try {
@@ -366,11 +390,23 @@ Result getTable( final UIRequest request ) {
         result.setHeader( cols.toArray( new DbColumn[0] ) );
 
         result.setCurrentPage( request.currentPage ).setTable( request.tableId );
+        if ( sortKey != null && result.getData() != null && result.getData().length > 0 ) {
+            result.setCursor( getCursor( sortKey, cols, result.getData()[result.getData().length - 1] ) );
+        }
         int tableSize = 0;
-        try {
-            tableSize = getTableSize( transaction, request );
-        } catch ( Exception e ) {
-            log.error( "Caught exception while determining page size", e );
+        Integer estimatedTableSize = request.filter == null || filterTable( request.filter ).isEmpty()
+                ? statisticsManager.rowCountPerTable( t[0], t[1] )
+                : null;
+        if ( estimatedTableSize != null ) {
+            // Avoid counting the rows of the table on every page view
+            tableSize = estimatedTableSize;
+            result.setHighestPageEstimated( true );
+        } else {
+            try {
+                tableSize = getTableSize( transaction, request );
+            } catch ( Exception e ) {
+                log.error( "Caught exception while determining page size", e );
+            }
         }
         result.setHighestPage( (int) Math.ceil( (double) tableSize / getPageSize() ) );
         try {
@@ -3126,55 +3162,108 @@ private HubResult createTableFromJson( final String json, final String newName,
 
 
     private void importCsvFile( final String csvFileName, final JsonTable table, final Transaction transaction, final File extractedFolder, final HubRequest request, final String tableName, final Status status, final int ithTable ) throws IOException, QueryExecutionException {
-        StringJoiner columnJoiner = new StringJoiner( ",", "(", ")" );
-        for ( JsonColumn col : table.getColumns() ) {
-            columnJoiner.add( "\"" + col.columnName + "\"" );
+        final CatalogTable catalogTable;
+        final List<CatalogColumn> columns = new ArrayList<>();
+        final List<PolyType> types = new ArrayList<>();
+        try {
+            catalogTable = catalog.getTable( this.databaseName, request.schema, tableName );
+            for ( JsonColumn col : table.getColumns() ) {
+                columns.add( catalog.getColumn( catalogTable.id, col.columnName ) );
+                types.add( PolyType.get( col.type ) );
+            }
+        } catch ( UnknownTableException | UnknownDatabaseException | UnknownSchemaException | UnknownColumnException e ) {
+            throw new QueryExecutionException( "Could not find the imported table", e );
         }
-        String columns = columnJoiner.toString();
-        StringJoiner valueJoiner = new StringJoiner( ",", "VALUES", "" );
-        StringJoiner rowJoiner;
 
         //see https://www.callicoder.com/java-read-write-csv-file-opencsv/
 
+        final File csvFile = new File( extractedFolder, csvFileName );
+        final long fileSize = Math.max( 1, csvFile.length() );
         final int BATCH_SIZE = RuntimeConfig.HUB_IMPORT_BATCH_SIZE.getInteger();
-        long csvCounter = 0;
+        final StopWatch stopWatch = new StopWatch();
         try (
-                Reader reader = new BufferedReader( new FileReader( new File( extractedFolder, csvFileName ) ) );
+                CountingInputStream countingStream = new CountingInputStream( new FileInputStream( csvFile ) );
+                Reader reader = new BufferedReader( new InputStreamReader( countingStream, StandardCharsets.UTF_8 ) );
                 CSVReader csvReader = new CSVReader( reader )
         ) {
-            long lineCount = Files.lines( new File( extractedFolder, csvFileName ).toPath() ).count();
-            String[] nextRecord;
-            while ( (nextRecord = csvReader.readNext()) != null ) {
-                rowJoiner = new StringJoiner( ",", "(", ")" );
-                for ( int i = 0; i < table.getColumns().size(); i++ ) {
-                    if ( PolyType.get( table.getColumns().get( i ).type ).getFamily() == PolyTypeFamily.CHARACTER ) {
-                        rowJoiner.add( "'" + StringEscapeUtils.escapeSql( nextRecord[i] ) + "'" );
-                    } else if ( PolyType.get( table.getColumns().get( i ).type ) == PolyType.DATE ) {
-                        rowJoiner.add( "date '" + StringEscapeUtils.escapeSql( nextRecord[i] ) + "'" );
-                    } else if ( PolyType.get( table.getColumns().get( i ).type ) == PolyType.TIME ) {
-                        rowJoiner.add( "time '" + StringEscapeUtils.escapeSql( nextRecord[i] ) + "'" );
-                    } else if ( PolyType.get( table.getColumns().get( i ).type ) == PolyType.TIMESTAMP ) {
-                        rowJoiner.add( "timestamp '" + StringEscapeUtils.escapeSql( nextRecord[i] ) + "'" );
-                    } else {
-                        rowJoiner.add( nextRecord[i] );
+            // The file is read only once, the progress is computed from the number of bytes that have been read
+            Iterator<List<Object>> rows = new AbstractIterator<List<Object>>() {
+                @Override
+                protected List<Object> computeNext() {
+                    String[] nextRecord;
+                    try {
+                        nextRecord = csvReader.readNext();
+                    } catch ( IOException e ) {
+                        throw new UncheckedIOException( e );
                     }
+                    if ( nextRecord == null ) {
+                        return endOfData();
+                    }
+                    List<Object> row = new ArrayList<>( types.size() );
+                    for ( int i = 0; i < types.size(); i++ ) {
+                        row.add( parseCsvValue( nextRecord[i], types.get( i ) ) );
+                    }
+                    return row;
                 }
-                valueJoiner.add( rowJoiner.toString() );
-                csvCounter++;
-                if ( csvCounter % BATCH_SIZE == 0 && csvCounter != 0 ) {
-                    String insertQuery = String.format( "INSERT INTO \"%s\".\"%s\" %s %s", request.schema, tableName, columns, valueJoiner.toString() );
-                    executeSqlUpdate( transaction, insertQuery );
-                    valueJoiner = new StringJoiner( ",", "VALUES", "" );
-                    status.setStatus( csvCounter, lineCount, ithTable );
-                    WebSocket.broadcast( gson.toJson( status, Status.class ) );
-                }
-            }
-            if ( csvCounter % BATCH_SIZE != 0 ) {
-                String insertQuery = String.format( "INSERT INTO \"%s\".\"%s\" %s %s", request.schema, tableName, columns, valueJoiner.toString() );
-                executeSqlUpdate( transaction, insertQuery );
-                status.setStatus( csvCounter, lineCount, ithTable );
+            };
+            stopWatch.start();
+            long insertedRows = transaction.getDataMigrator().insertRows( transaction, catalogTable, columns, rows, BATCH_SIZE, rowCount -> {
+                long elapsed = Math.max( 1, stopWatch.getTime() );
+                status.setProgress( rowCount, Math.min( 1f, countingStream.getByteCount() / (float) fileSize ), ithTable, rowCount * 1000 / elapsed );
                 WebSocket.broadcast( gson.toJson( status, Status.class ) );
+            } );
+            stopWatch.stop();
+            long millis = Math.max( 1, stopWatch.getTime() );
+            status.setProgress( insertedRows, 1f, ithTable, insertedRows * 1000 / millis );
+            WebSocket.broadcast( gson.toJson( status, Status.class ) );
+        } catch ( RuntimeException e ) {
+            // The data migrator wraps the exceptions of reading the file
+            for ( Throwable cause = e; cause != null; cause = cause.getCause() ) {
+                if ( cause instanceof UncheckedIOException ) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
             }
+            throw new QueryExecutionException( "Could not import data into table " + tableName, e );
+        }
+    }
+
+
+    /**
+     * Converts a value of a csv file into the JDBC representation of the given type
+     */
+    private static Object parseCsvValue( final String value, final PolyType type ) {
+        if ( type.getFamily() == PolyTypeFamily.CHARACTER ) {
+            return value;
+        }
+        if ( value == null || value.isEmpty() || value.equalsIgnoreCase( "NULL" ) ) {
+            return null;
+        }
+        switch ( type ) {
+            case BOOLEAN:
+                return Boolean.parseBoolean( value );
+            case TINYINT:
+                return Byte.parseByte( value );
+            case SMALLINT:
+                return Short.parseShort( value );
+            case INTEGER:
+                return Integer.parseInt( value );
+            case BIGINT:
+                return Long.parseLong( value );
+            case DECIMAL:
+                return new BigDecimal( value );
+            case REAL:
+                return Float.parseFloat( value );
+            case FLOAT:
+            case DOUBLE:
+                return Double.parseDouble( value );
+            case DATE:
+                return java.sql.Date.valueOf( value );
+            case TIME:
+                return java.sql.Time.valueOf( value );
+            case TIMESTAMP:
+                return java.sql.Timestamp.valueOf( value );
+            default:
+                return value;
         }
     }
 
@@ -3886,6 +3975,103 @@ private String sortTable( final Map<String, SortState> sorting ) {
     }
 
 
+    /**
+     * Generates the ORDER BY clause of a query from a sort key
+     */
+    private String sortTable( final List<Pair<CatalogColumn, SortDirection>> sortKey ) {
+        StringJoiner joiner = new StringJoiner( ",", " ORDER BY ", "" );
+        for ( Pair<CatalogColumn, SortDirection> entry : sortKey ) {
+            joiner.add( "\"" + entry.left.name + "\" " + entry.right );
+        }
+        return joiner.toString();
+    }
+
+
+    /**
+     * Returns the key defining a unique order of the rows of a table: the sorted columns followed by the primary key columns.
+     * Returns null if there is no such key consisting of not nullable, comparable columns. Pagination using a cursor is not possible in this case.
+     */
+    private List<Pair<CatalogColumn, SortDirection>> getSortKey( final CatalogTable catalogTable, final Map<String, SortState> sortState ) {
+        if ( catalogTable.primaryKey == null ) {
+            return null;
+        }
+        List<Pair<CatalogColumn, SortDirection>> sortKey = new ArrayList<>();
+        Set<String> columnNames = new HashSet<>();
+        try {
+            if ( sortState != null ) {
+                for ( Map.Entry<String, SortState> entry : sortState.entrySet() ) {
+                    if ( entry.getValue().sorting && columnNames.add( entry.getKey() ) ) {
+                        SortDirection direction = entry.getValue().direction == null ? SortDirection.ASC : entry.getValue().direction;
+                        sortKey.add( new Pair<>( catalog.getColumn( catalogTable.id, entry.getKey() ), direction ) );
+                    }
+                }
+            }
+        } catch ( UnknownColumnException e ) {
+            return null;
+        }
+        for ( long columnId : catalog.getPrimaryKey( catalogTable.primaryKey ).columnIds ) {
+            CatalogColumn catalogColumn = catalog.getColumn( columnId );
+            if ( columnNames.add( catalogColumn.name ) ) {
+                sortKey.add( new Pair<>( catalogColumn, SortDirection.ASC ) );
+            }
+        }
+        for ( Pair<CatalogColumn, SortDirection> entry : sortKey ) {
+            CatalogColumn catalogColumn = entry.left;
+            if ( catalogColumn.nullable || catalogColumn.collectionsType != null || catalogColumn.type.getFamily() == PolyTypeFamily.MULTIMEDIA ) {
+                return null;
+            }
+        }
+        return sortKey;
+    }
+
+
+    /**
+     * Generates a condition selecting the rows following the cursor with respect to the sort key.
+     * Returns null if the cursor does not contain a value for every column of the sort key.
+     */
+    private String keysetCondition( final List<Pair<CatalogColumn, SortDirection>> sortKey, final Map<String, String> cursor ) {
+        List<String> values = new ArrayList<>();
+        for ( Pair<CatalogColumn, SortDirection> entry : sortKey ) {
+            String value = cursor.get( entry.left.name );
+            if ( value == null ) {
+                return null;
+            }
+            if ( entry.left.type.getFamily() == PolyTypeFamily.CHARACTER ) {
+                value = value.replace( "'", "''" );
+            }
+            values.add( uiValueToSql( value, entry.left.type, entry.left.collectionsType ) );
+        }
+        // (a > x) OR (a = x AND b > y) OR ...
+        StringJoiner disjunction = new StringJoiner( " OR ", "(", ")" );
+        for ( int i = 0; i < sortKey.size(); i++ ) {
+            StringJoiner conjunction = new StringJoiner( " AND ", "(", ")" );
+            for ( int j = 0; j < i; j++ ) {
+                conjunction.add( String.format( "\"%s\" = %s", sortKey.get( j ).left.name, values.get( j ) ) );
+            }
+            String comparison = sortKey.get( i ).right == SortDirection.DESC ? "<" : ">";
+            conjunction.add( String.format( "\"%s\" %s %s", sortKey.get( i ).left.name, comparison, values.get( i ) ) );
+            disjunction.add( conjunction.toString() );
+        }
+        return disjunction.toString();
+    }
+
+
+    /**
+     * Returns the values of the sort key columns of a row, which can be used to request the following page
+     */
+    private Map<String, String> getCursor( final List<Pair<CatalogColumn, SortDirection>> sortKey, final List<DbColumn> header, final String[] row ) {
+        Map<String, String> cursor = new HashMap<>();
+        for ( Pair<CatalogColumn, SortDirection> entry : sortKey ) {
+            for ( int i = 0; i < header.size(); i++ ) {
+                if ( header.get( i ).name.equals( entry.left.name ) ) {
+                    cursor.put( entry.left.name, row[i] );
+                }
+            }
+        }
+        return cursor;
+    }
+
+
     private Transaction getTransaction() {
         return getTransaction( false );
     }
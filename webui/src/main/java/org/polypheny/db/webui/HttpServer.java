@@ -28,6 +28,7 @@
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.iface.Authenticator;
+import org.polypheny.db.monitoring.QueryLatencyMonitor;
 import org.polypheny.db.transaction.TransactionManager;
 import spark.Service;
 
@@ -210,6 +211,11 @@ private void crudRoutes( Service webuiServer, Crud crud ) {
 
         webuiServer.get( "/usedDockerPorts", crud::getUsedDockerPorts, gsonExpose::toJson );
 
+        webuiServer.get( "/metrics", ( req, res ) -> {
+            res.type( "text/plain; version=0.0.4" );
+            return QueryLatencyMonitor.INSTANCE.toPrometheusText();
+        } );
+
     }
 
 
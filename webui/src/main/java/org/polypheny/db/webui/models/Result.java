@@ -19,6 +19,7 @@
 
 import com.google.gson.Gson;
 import java.util.ArrayList;
+import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -125,6 +126,19 @@ public class Result {
     @Setter
     private boolean isConvertedToSql;
 
+    /**
+     * Pagination, the sort key of the last row of this page. Can be sent with the request for the next page, together
+     * with the current page as {@code cursorPage}.
+     */
+    @Setter
+    private Map<String, String> cursor;
+
+    /**
+     * Pagination, true if the highest page has been derived from the statistics instead of an exact count
+     */
+    @Setter
+    private boolean highestPageEstimated;
+
     /**
      * Transaction id, for the websocket. It will not be serialized to gson.
      */
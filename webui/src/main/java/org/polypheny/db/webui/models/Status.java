@@ -25,6 +25,7 @@ public class Status {
     long currentRow;
     float status;
     final int nTables;
+    long rowsPerSecond;
 
     /**
      * Status constructor
@@ -49,6 +50,19 @@ public void setStatus( final long currentRow, final long totalRows, final int it
         this.status = ( (ithTable / (float)nTables) + ( currentRow / (float)totalRows ) * ( 1 / (float)nTables ) );
     }
 
+    /**
+     * Set the current status if the total number of rows is not known
+     * @param currentRow The current row of the table that is currently being processed
+     * @param tableProgress The processed fraction of the table that is currently being processed
+     * @param ithTable Counter to specify which table is currently being processed
+     * @param rowsPerSecond The throughput of the operation
+     */
+    public void setProgress( final long currentRow, final float tableProgress, final int ithTable, final long rowsPerSecond ) {
+        this.currentRow = currentRow;
+        this.status = ( (ithTable / (float)nTables) + tableProgress * ( 1 / (float)nTables ) );
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
     /**
      * Set the status to 100%
      */
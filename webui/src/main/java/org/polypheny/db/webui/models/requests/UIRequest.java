@@ -62,6 +62,17 @@ public class UIRequest {
      */
     public boolean noLimit;
 
+    /**
+     * The cursor returned with a previous page (see {@link #cursorPage}).
+     * If the page following it is requested, the page is fetched using the sort key of the cursor instead of an offset.
+     */
+    public Map<String, String> cursor;
+
+    /**
+     * The page the {@link #cursor} has been returned with.
+     */
+    public Integer cursorPage;
+
     public String getSchemaName() {
         if ( tableId != null ) {
             return tableId.split( "\\." )[0];